@@ -0,0 +1,105 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.UploadProperties;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+/**
+ * Deterministic receipt-like inputs for the benchmarks: dark text lines on a slightly noisy
+ * light background, so encoders see realistic entropy instead of flat colour.
+ */
+final class BenchmarkFixtures {
+
+  private static final long SEED = 42L;
+  private static final int LINES_PER_PDF_PAGE = 40;
+
+  private BenchmarkFixtures() {}
+
+  static UploadProperties uploadProperties(final int pdfRenderDpi) {
+    return new UploadProperties(
+        10_485_760L,
+        List.of("image/jpeg", "image/png", "application/pdf"),
+        pdfRenderDpi,
+        5,
+        1,
+        new UploadProperties.AsyncConfig(1, 0),
+        new UploadProperties.BatchConfig(50, 2, 10, 2, 600));
+  }
+
+  static BufferedImage receiptImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Random random = new Random(SEED);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int shade = 235 + random.nextInt(20);
+        image.setRGB(x, y, shade << 16 | shade << 8 | shade);
+      }
+    }
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      final int lineHeight = Math.max(12, height / 60);
+      graphics.setColor(new Color(30, 30, 30));
+      graphics.setFont(new Font(Font.MONOSPACED, Font.PLAIN, lineHeight * 3 / 4));
+      for (int line = 1; line * lineHeight < height; line++) {
+        final int quantity = 1 + random.nextInt(5);
+        final double price = random.nextInt(10_000) / 100.0;
+        graphics.drawString(
+            "ITEM " + line + " x" + quantity + "   " + price, width / 20, line * lineHeight);
+      }
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  static byte[] encode(final BufferedImage image, final String formatName) {
+    try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+      if (!ImageIO.write(image, formatName, outputStream)) {
+        throw new IllegalStateException("No ImageIO writer for " + formatName);
+      }
+      return outputStream.toByteArray();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static byte[] receiptPdf(final int pageCount) {
+    try (PDDocument document = new PDDocument();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+      final PDType1Font font = new PDType1Font(Standard14Fonts.FontName.COURIER);
+      for (int page = 0; page < pageCount; page++) {
+        final PDPage pdPage = new PDPage(PDRectangle.A4);
+        document.addPage(pdPage);
+        try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+          content.beginText();
+          content.setFont(font, 10);
+          content.setLeading(18);
+          content.newLineAtOffset(50, 780);
+          for (int line = 0; line < LINES_PER_PDF_PAGE; line++) {
+            content.showText("Page " + (page + 1) + " item " + line + "   " + (line * 1.25));
+            content.newLine();
+          }
+          content.endText();
+        }
+      }
+      document.save(outputStream);
+      return outputStream.toByteArray();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.PreprocessingProperties;
+import com.example.bill_manager.config.PreprocessingProperties.ColorMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Preprocessing of a rendered A4 receipt page per {@link ColorMode}: time to resize, convert and
+ * encode, plus the encoded size reported as the {@code encodedBytes} secondary result. The size is
+ * what the analysis request carries (base64-inflated), so it stands in for upload time to the
+ * model, which a local benchmark cannot measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColorModeBenchmark {
+
+  /** A {@link ColorMode}, with {@code _STRETCHED} for grayscale plus contrast stretch. */
+  @Param({"COLOR", "GRAYSCALE", "GRAYSCALE_STRETCHED", "BINARIZED"})
+  private String variant;
+
+  @Param({"jpeg", "png"})
+  private String format;
+
+  private ImagePreprocessingServiceImpl service;
+  private BufferedImage page;
+  private String mimeType;
+
+  /** Size of the last encoded image; JMH reports it per iteration next to the timing. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedSize {
+    public long encodedBytes;
+  }
+
+  @Setup
+  public void setUp() {
+    // A4 at 300 DPI, scaled down to the 1200px target like a photographed receipt.
+    page = BenchmarkFixtures.receiptImage(2480, 3508);
+    mimeType = "image/" + format;
+    final boolean contrastStretch = variant.endsWith("_STRETCHED");
+    final ColorMode colorMode = ColorMode.valueOf(variant.replace("_STRETCHED", ""));
+    service =
+        new ImagePreprocessingServiceImpl(
+            new PreprocessingProperties(
+                PreprocessingProperties.ResizeMode.JAVA2D,
+                1,
+                true,
+                true,
+                colorMode,
+                contrastStretch,
+                false,
+                false,
+                new PreprocessingProperties.JpegBudget(
+                    false, 2 * 1024 * 1024, 4 * 1024 * 1024, 0.5f, 4),
+                new PreprocessingProperties.Tiling(false, 1600, 120, 1)),
+            new SimpleMeterRegistry());
+  }
+
+  @TearDown
+  public void tearDown() {
+    service.shutdown();
+  }
+
+  @Benchmark
+  public byte[] preprocess(final EncodedSize size) {
+    final byte[] encoded = service.preprocessImage(page, mimeType);
+    size.encodedBytes = encoded.length;
+    return encoded;
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.bill_manager.upload;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Upload validation as the controller runs it: open the single buffered stream, sniff the magic
+ * bytes and reset. Cost should be independent of the file size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileValidationBenchmark {
+
+  @Param({"jpeg", "png", "pdf"})
+  private String format;
+
+  private FileValidationServiceImpl service;
+  private MockMultipartFile file;
+
+  @Setup
+  public void setUp() {
+    final byte[] content =
+        "pdf".equals(format)
+            ? BenchmarkFixtures.receiptPdf(1)
+            : BenchmarkFixtures.encode(BenchmarkFixtures.receiptImage(1200, 1600), format);
+    service = new FileValidationServiceImpl(BenchmarkFixtures.uploadProperties(150));
+    file = new MockMultipartFile("file", "upload." + format, null, content);
+  }
+
+  @Benchmark
+  public String validateFile() throws IOException {
+    try (BufferedInputStream content = new BufferedInputStream(file.getInputStream())) {
+      return service.validateFile(file, content);
+    }
+  }
+}
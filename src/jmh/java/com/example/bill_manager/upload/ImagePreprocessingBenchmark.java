@@ -0,0 +1,51 @@
+package com.example.bill_manager.upload;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Decode, resize and re-encode of an uploaded photo via {@code preprocess(byte[], String)}. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagePreprocessingBenchmark {
+
+  @Param({"jpeg", "png"})
+  private String format;
+
+  /** Typical phone photo sizes: below, around and well above the 1200px target width. */
+  @Param({"1024x768", "2048x1536", "4032x3024"})
+  private String resolution;
+
+  private ImagePreprocessingServiceImpl service;
+  private byte[] content;
+  private String mimeType;
+
+  @Setup
+  public void setUp() {
+    final String[] size = resolution.split("x");
+    content =
+        BenchmarkFixtures.encode(
+            BenchmarkFixtures.receiptImage(Integer.parseInt(size[0]), Integer.parseInt(size[1])),
+            format);
+    mimeType = "image/" + format;
+    service = PreprocessingFixtures.defaultService();
+  }
+
+  @Benchmark
+  public byte[] preprocess() {
+    return service.preprocess(content, mimeType);
+  }
+}
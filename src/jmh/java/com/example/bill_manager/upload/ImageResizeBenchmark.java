@@ -0,0 +1,74 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.PreprocessingProperties.ResizeMode;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Downscaling of an already decoded image to the 1200px preprocessing width, per
+ * {@link ResizeMode}. The source is a {@code TYPE_3BYTE_BGR} image, as ImageIO decodes JPEGs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageResizeBenchmark {
+
+  private static final int TARGET_WIDTH = 1200;
+
+  @Param({"JAVA2D", "PROGRESSIVE", "SEPARABLE"})
+  private ResizeMode mode;
+
+  /** Phone photo and A4 page rendered at 300 DPI. */
+  @Param({"4032x3024", "2480x3508"})
+  private String resolution;
+
+  @Param({"1", "4"})
+  private int threads;
+
+  private ImageResizer resizer;
+  private BufferedImage source;
+  private int targetHeight;
+
+  @Setup
+  public void setUp() {
+    final String[] size = resolution.split("x");
+    final BufferedImage receipt =
+        BenchmarkFixtures.receiptImage(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+    source =
+        new BufferedImage(receipt.getWidth(), receipt.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+    final Graphics2D graphics = source.createGraphics();
+    try {
+      graphics.drawImage(receipt, 0, 0, null);
+    } finally {
+      graphics.dispose();
+    }
+    targetHeight = Math.round((float) source.getHeight() / source.getWidth() * TARGET_WIDTH);
+    resizer = new ImageResizer(mode, threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    resizer.shutdown();
+  }
+
+  @Benchmark
+  public BufferedImage resize() {
+    return resizer.resize(source, TARGET_WIDTH, targetHeight, BufferedImage.TYPE_INT_RGB);
+  }
+}
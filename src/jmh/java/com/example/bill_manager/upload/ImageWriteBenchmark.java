@@ -0,0 +1,48 @@
+package com.example.bill_manager.upload;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Encoder cost in isolation, on images already at the preprocessed width. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageWriteBenchmark {
+
+  private static final float JPEG_QUALITY = 0.9f;
+
+  @Param({"1200x900", "1200x3600"})
+  private String resolution;
+
+  private BufferedImage image;
+
+  @Setup
+  public void setUp() {
+    final String[] size = resolution.split("x");
+    image = BenchmarkFixtures.receiptImage(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+  }
+
+  @Benchmark
+  public byte[] writeJpeg() {
+    return ImageWriteUtils.writeJpeg(image, JPEG_QUALITY);
+  }
+
+  @Benchmark
+  public byte[] writePng() {
+    return ImageWriteUtils.writePng(image);
+  }
+}
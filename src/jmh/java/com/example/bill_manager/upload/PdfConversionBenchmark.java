@@ -0,0 +1,65 @@
+package com.example.bill_manager.upload;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PDF page rendering: the standalone JPEG path ({@code convertToImages(byte[])}) and the fused
+ * upload path that renders at the preprocessing width and hands pages straight to the
+ * preprocessor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfConversionBenchmark {
+
+  @Param({"1", "3", "5"})
+  private int pages;
+
+  @Param({"150", "200", "300"})
+  private int dpi;
+
+  private PdfConversionServiceImpl service;
+  private ImagePreprocessingServiceImpl preprocessingService;
+  private byte[] pdf;
+
+  @Setup
+  public void setUp() {
+    pdf = BenchmarkFixtures.receiptPdf(pages);
+    service = new PdfConversionServiceImpl(BenchmarkFixtures.uploadProperties(dpi));
+    preprocessingService = PreprocessingFixtures.defaultService();
+  }
+
+  @TearDown
+  public void tearDown() {
+    service.shutdown();
+  }
+
+  @Benchmark
+  public List<byte[]> convertToJpeg() {
+    return service.convertToImages(pdf);
+  }
+
+  @Benchmark
+  public List<byte[]> convertFused() {
+    return service.convertToImages(
+        pdf,
+        preprocessingService.maxWidthPx(),
+        page -> preprocessingService.preprocessImage(page, "image/jpeg"));
+  }
+}
@@ -1,13 +1,24 @@
 package com.example.bill_manager;
 
+import com.example.bill_manager.config.AnalysisCacheProperties;
 import com.example.bill_manager.config.GroqApiProperties;
+import com.example.bill_manager.config.PreprocessingProperties;
+import com.example.bill_manager.config.ResultStoreProperties;
 import com.example.bill_manager.config.UploadProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
-@SpringBootApplication
-@EnableConfigurationProperties({GroqApiProperties.class, UploadProperties.class})
+// The DataSource is only created for result-store.type=jdbc, see JdbcResultStoreConfig.
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+@EnableConfigurationProperties({
+  GroqApiProperties.class,
+  UploadProperties.class,
+  PreprocessingProperties.class,
+  AnalysisCacheProperties.class,
+  ResultStoreProperties.class
+})
 public class BillManagerApplication {
 
   public static void main(final String[] args) {
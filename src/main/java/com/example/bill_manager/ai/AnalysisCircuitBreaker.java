@@ -0,0 +1,296 @@
+package com.example.bill_manager.ai;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * Circuit breaker around Groq calls, so that an outage costs one fast rejection per analysis
+ * instead of {@code max-attempts} timeouts.
+ * <p>
+ * While {@link State#CLOSED}, the outcomes of the last {@code sliding-window-size} calls are kept.
+ * Once at least {@code minimum-calls} are recorded and the share of failures reaches
+ * {@code failure-rate-threshold}, or the share of calls slower than {@code slow-call-duration-ms}
+ * reaches {@code slow-call-rate-threshold}, the breaker opens. Failures are errors that point at
+ * the backend (5xx, throttling, timeouts, connection errors); client errors and local rejections
+ * are not recorded.
+ * <p>
+ * While {@link State#OPEN}, every call is rejected at once with {@code SERVICE_UNAVAILABLE} and a
+ * {@link BillAnalysisException#getRetryAfter() retry-after} of the time left. After
+ * {@code open-duration-ms} the breaker turns {@link State#HALF_OPEN} and lets
+ * {@code half-open-permitted-calls} trial calls through: if all of them succeed in time it
+ * closes, the first failed or slow one opens it again.
+ * <p>
+ * Published meters: the {@value #STATE_METRIC} gauge (1 for the current state, tagged by state)
+ * and the {@value #TRANSITIONS_METRIC} (tagged by target state) and {@value #REJECTED_METRIC}
+ * counters.
+ */
+@Component
+public class AnalysisCircuitBreaker {
+
+  static final String STATE_METRIC = "groq.circuit-breaker.state";
+  static final String TRANSITIONS_METRIC = "groq.circuit-breaker.transitions";
+  static final String REJECTED_METRIC = "groq.circuit-breaker.rejected";
+
+  // Trial calls end within the slow-call duration; clients retrying sooner are rejected again.
+  private static final Duration HALF_OPEN_RETRY_AFTER = Duration.ofSeconds(1);
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCircuitBreaker.class);
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final boolean enabled;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final double slowCallRateThreshold;
+  private final long slowCallDurationMs;
+  private final long openDurationMs;
+  private final int halfOpenPermittedCalls;
+  private final Clock clock;
+  private final Counter rejectedCounter;
+  private final Map<State, Counter> transitionCounters = new EnumMap<>(State.class);
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // Outcomes of the last calls while closed, as a ring buffer.
+  private final boolean[] failed;
+  private final boolean[] slow;
+  private int recorded;
+  private int next;
+  private int failedCount;
+  private int slowCount;
+  // Bumped on every transition so that calls admitted in an earlier state are not recorded.
+  private long generation;
+  private int trialsAdmitted;
+  private int trialsSucceeded;
+  // Written under the lock; volatile so the gauges and the fail-fast check can read them without.
+  private volatile long openUntilMs;
+  private volatile State state = State.CLOSED;
+
+  @Autowired
+  public AnalysisCircuitBreaker(
+      final GroqApiProperties properties, final MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, Clock.systemUTC());
+  }
+
+  AnalysisCircuitBreaker(
+      final GroqApiProperties properties, final MeterRegistry meterRegistry, final Clock clock) {
+    final GroqApiProperties.CircuitBreakerConfig config = properties.circuitBreaker();
+    if (config.minimumCalls() > config.slidingWindowSize()) {
+      throw new IllegalArgumentException(
+          "Circuit breaker minimum calls "
+              + config.minimumCalls()
+              + " exceed sliding window size "
+              + config.slidingWindowSize());
+    }
+    this.enabled = config.enabled();
+    this.minimumCalls = config.minimumCalls();
+    this.failureRateThreshold = config.failureRateThreshold();
+    this.slowCallRateThreshold = config.slowCallRateThreshold();
+    this.slowCallDurationMs = config.slowCallDurationMs();
+    this.openDurationMs = config.openDurationMs();
+    this.halfOpenPermittedCalls = config.halfOpenPermittedCalls();
+    this.clock = clock;
+    this.failed = new boolean[config.slidingWindowSize()];
+    this.slow = new boolean[config.slidingWindowSize()];
+
+    for (final State s : State.values()) {
+      final String tag = s.name().toLowerCase(Locale.ROOT);
+      Gauge.builder(STATE_METRIC, this, breaker -> breaker.state == s ? 1 : 0)
+          .description("1 for the current state of the Groq circuit breaker, 0 otherwise")
+          .tag("state", tag)
+          .register(meterRegistry);
+      transitionCounters.put(
+          s,
+          Counter.builder(TRANSITIONS_METRIC)
+              .description("Transitions of the Groq circuit breaker into a state")
+              .tag("to", tag)
+              .register(meterRegistry));
+    }
+    this.rejectedCounter =
+        Counter.builder(REJECTED_METRIC)
+            .description("Groq calls rejected because the circuit breaker was open")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Rejects at once while the breaker is open, so that a caller does not wait for quota or a
+   * concurrency slot first. Takes no permit; {@link #execute} still decides on admission.
+   *
+   * @throws BillAnalysisException with {@code SERVICE_UNAVAILABLE} while open
+   */
+  public void failFastIfOpen() {
+    if (enabled && state == State.OPEN) {
+      final long remainingMs = openUntilMs - clock.millis();
+      if (remainingMs > 0L) {
+        throw rejected(Duration.ofMillis(remainingMs));
+      }
+    }
+  }
+
+  /**
+   * Runs {@code call} if the breaker admits it and records its outcome.
+   *
+   * @throws BillAnalysisException with {@code SERVICE_UNAVAILABLE} if the breaker is open or all
+   *     half-open trial calls are taken
+   */
+  public <T> T execute(final Supplier<T> call) {
+    if (!enabled) {
+      return call.get();
+    }
+    final long permit = acquire();
+    final long startMs = clock.millis();
+    boolean recordable = false;
+    boolean failure = false;
+    try {
+      final T result = call.get();
+      recordable = true;
+      return result;
+    } catch (final RuntimeException e) {
+      failure = isBackendFailure(e);
+      recordable = failure;
+      throw e;
+    } finally {
+      complete(permit, recordable, failure, clock.millis() - startMs >= slowCallDurationMs);
+    }
+  }
+
+  State state() {
+    return state;
+  }
+
+  private long acquire() {
+    lock.lock();
+    try {
+      if (state == State.OPEN) {
+        final long remainingMs = openUntilMs - clock.millis();
+        if (remainingMs > 0L) {
+          throw rejected(Duration.ofMillis(remainingMs));
+        }
+        transitionTo(State.HALF_OPEN);
+      }
+      if (state == State.HALF_OPEN) {
+        if (trialsAdmitted >= halfOpenPermittedCalls) {
+          throw rejected(HALF_OPEN_RETRY_AFTER);
+        }
+        trialsAdmitted++;
+      }
+      return generation;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void complete(
+      final long permit, final boolean recordable, final boolean failure, final boolean isSlow) {
+    lock.lock();
+    try {
+      if (permit != generation) {
+        return;
+      }
+      if (state == State.HALF_OPEN) {
+        if (!recordable) {
+          trialsAdmitted--;
+        } else if (failure || isSlow) {
+          open();
+        } else if (++trialsSucceeded >= halfOpenPermittedCalls) {
+          transitionTo(State.CLOSED);
+        }
+      } else if (recordable) {
+        record(failure, isSlow);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void record(final boolean failure, final boolean isSlow) {
+    if (recorded == failed.length) {
+      failedCount -= failed[next] ? 1 : 0;
+      slowCount -= slow[next] ? 1 : 0;
+    } else {
+      recorded++;
+    }
+    failed[next] = failure;
+    slow[next] = isSlow;
+    failedCount += failure ? 1 : 0;
+    slowCount += isSlow ? 1 : 0;
+    next = (next + 1) % failed.length;
+
+    if (recorded >= minimumCalls
+        && (failedCount >= failureRateThreshold * recorded
+            || slowCount >= slowCallRateThreshold * recorded)) {
+      LOG.warn(
+          "Opening Groq circuit breaker: {} failed and {} slow of the last {} calls",
+          failedCount,
+          slowCount,
+          recorded);
+      open();
+    }
+  }
+
+  private void open() {
+    openUntilMs = clock.millis() + openDurationMs;
+    transitionTo(State.OPEN);
+  }
+
+  private void transitionTo(final State target) {
+    LOG.info("Groq circuit breaker {} -> {}", state, target);
+    state = target;
+    generation++;
+    recorded = 0;
+    next = 0;
+    failedCount = 0;
+    slowCount = 0;
+    trialsAdmitted = 0;
+    trialsSucceeded = 0;
+    transitionCounters.get(target).increment();
+  }
+
+  private BillAnalysisException rejected(final Duration retryAfter) {
+    rejectedCounter.increment();
+    LOG.debug("Analysis rejected by open circuit breaker, retry after {}", retryAfter);
+    return new BillAnalysisException(
+        BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+        "Bill analysis service is temporarily unavailable. Please try again later.",
+        retryAfter);
+  }
+
+  /** Whether {@code e} shows that Groq failed, as opposed to rejecting this particular request. */
+  static boolean isBackendFailure(final Throwable e) {
+    if (AnalysisConcurrencyLimiter.isOverload(e)) {
+      return true;
+    }
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof HttpClientErrorException
+          || cause instanceof NonTransientAiException
+          || (cause instanceof WebClientResponseException response
+              && response.getStatusCode().is4xxClientError())) {
+        return false;
+      }
+      if (cause instanceof RestClientException || cause instanceof WebClientException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
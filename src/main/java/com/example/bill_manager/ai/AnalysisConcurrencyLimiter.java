@@ -0,0 +1,251 @@
+package com.example.bill_manager.ai;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * Process-wide AIMD limit on concurrent Groq calls, in the style of Netflix concurrency-limits.
+ * <p>
+ * A successful call made while at least half of the limit was in use raises the limit by one; a
+ * call that Groq throttled (HTTP 429, {@link TransientAiException}) or that timed out multiplies
+ * it by {@code groq.api.concurrency.backoff-ratio}. The limit stays within
+ * {@code min-limit..max-limit}. Other failures leave it unchanged.
+ * <p>
+ * Callers over the limit wait, at most {@code max-queue-depth} of them and each for at most
+ * {@code max-queue-wait-ms}. Freed slots are handed to waiters in arrival order, each waiter
+ * parked on its own condition, and a new caller only takes a free slot when nobody waits, so it
+ * never overtakes a waiting one. Beyond that a call is
+ * rejected at once with {@code SERVICE_UNAVAILABLE} instead of adding to a 429 storm that retries
+ * would amplify. Each retry attempt acquires its own slot, so back-off sleeps do not hold one.
+ * <p>
+ * Published meters: {@value #LIMIT_METRIC}, {@value #IN_FLIGHT_METRIC} and
+ * {@value #QUEUED_METRIC} gauges and the {@value #REJECTED_METRIC} counter.
+ */
+@Component
+public class AnalysisConcurrencyLimiter {
+
+  static final String LIMIT_METRIC = "groq.limiter.limit";
+  static final String IN_FLIGHT_METRIC = "groq.limiter.in-flight";
+  static final String QUEUED_METRIC = "groq.limiter.queued";
+  static final String REJECTED_METRIC = "groq.limiter.rejected";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisConcurrencyLimiter.class);
+
+  private enum Outcome {
+    SUCCESS,
+    DROPPED,
+    IGNORED
+  }
+
+  private final boolean enabled;
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueueDepth;
+  private final long maxQueueWaitNanos;
+  private final double backoffRatio;
+  private final Counter rejectedCounter;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // Waiting callers in arrival order; a freed slot is counted as in flight before the head wakes.
+  private final Deque<Waiter> waiters = new ArrayDeque<>();
+  // Written under the lock; volatile so the gauges can read them without it.
+  private volatile int limit;
+  private volatile int inFlight;
+  private volatile int queued;
+
+  public AnalysisConcurrencyLimiter(
+      final GroqApiProperties properties, final MeterRegistry meterRegistry) {
+    final GroqApiProperties.ConcurrencyConfig config = properties.concurrency();
+    if (config.minLimit() > config.maxLimit()) {
+      throw new IllegalArgumentException(
+          "Min concurrency limit " + config.minLimit() + " exceeds max " + config.maxLimit());
+    }
+    this.enabled = config.enabled();
+    this.minLimit = config.minLimit();
+    this.maxLimit = config.maxLimit();
+    this.maxQueueDepth = config.maxQueueDepth();
+    this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.maxQueueWaitMs());
+    this.backoffRatio = config.backoffRatio();
+    this.limit = Math.clamp(config.initialLimit(), minLimit, maxLimit);
+
+    Gauge.builder(LIMIT_METRIC, this, limiter -> limiter.limit)
+        .description("Current adaptive limit on concurrent Groq calls")
+        .register(meterRegistry);
+    Gauge.builder(IN_FLIGHT_METRIC, this, limiter -> limiter.inFlight)
+        .description("Groq calls in progress")
+        .register(meterRegistry);
+    Gauge.builder(QUEUED_METRIC, this, limiter -> limiter.queued)
+        .description("Analyses waiting for a Groq call slot")
+        .register(meterRegistry);
+    this.rejectedCounter =
+        Counter.builder(REJECTED_METRIC)
+            .description("Analyses rejected because the Groq call queue was full or timed out")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Runs {@code call} once a slot is free and adjusts the limit by its outcome.
+   *
+   * @throws BillAnalysisException with {@code SERVICE_UNAVAILABLE} if no slot became free in time
+   */
+  public <T> T execute(final Supplier<T> call) {
+    if (!enabled) {
+      return call.get();
+    }
+    acquire();
+    Outcome outcome = Outcome.IGNORED;
+    try {
+      final T result = call.get();
+      outcome = Outcome.SUCCESS;
+      return result;
+    } catch (final RuntimeException e) {
+      outcome = isOverload(e) ? Outcome.DROPPED : Outcome.IGNORED;
+      throw e;
+    } finally {
+      release(outcome);
+    }
+  }
+
+  int limit() {
+    return limit;
+  }
+
+  int inFlight() {
+    return inFlight;
+  }
+
+  private void acquire() {
+    lock.lock();
+    try {
+      if (waiters.isEmpty() && inFlight < limit) {
+        inFlight++;
+        return;
+      }
+      if (waiters.size() >= maxQueueDepth) {
+        throw rejected("queue full");
+      }
+      final Waiter waiter = new Waiter(lock.newCondition());
+      waiters.addLast(waiter);
+      queued = waiters.size();
+      try {
+        long remainingNanos = maxQueueWaitNanos;
+        while (!waiter.granted) {
+          if (remainingNanos <= 0L) {
+            leaveQueue(waiter);
+            throw rejected("timed out waiting in queue");
+          }
+          remainingNanos = waiter.turn.awaitNanos(remainingNanos);
+        }
+      } catch (final InterruptedException e) {
+        if (waiter.granted) {
+          // The slot was handed over just before the interrupt: pass it on.
+          inFlight--;
+          grantFreeSlots();
+        } else {
+          leaveQueue(waiter);
+        }
+        Thread.currentThread().interrupt();
+        throw new BillAnalysisException(
+            BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+            "Interrupted while waiting for an analysis slot",
+            e);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void leaveQueue(final Waiter waiter) {
+    waiters.remove(waiter);
+    queued = waiters.size();
+  }
+
+  /** Hands free slots to the longest-waiting callers; must hold the lock. */
+  private void grantFreeSlots() {
+    while (!waiters.isEmpty() && inFlight < limit) {
+      final Waiter next = waiters.removeFirst();
+      next.granted = true;
+      inFlight++;
+      next.turn.signal();
+    }
+    queued = waiters.size();
+  }
+
+  private void release(final Outcome outcome) {
+    lock.lock();
+    try {
+      final int used = inFlight;
+      inFlight = used - 1;
+      if (outcome == Outcome.DROPPED) {
+        final int reduced = Math.max(minLimit, (int) (limit * backoffRatio));
+        if (reduced < limit) {
+          LOG.warn("Groq call throttled, concurrency limit {} -> {}", limit, reduced);
+        }
+        limit = reduced;
+      } else if (outcome == Outcome.SUCCESS && used * 2 >= limit && limit < maxLimit) {
+        limit = limit + 1;
+        LOG.debug("Concurrency limit raised to {}", limit);
+      }
+      grantFreeSlots();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private BillAnalysisException rejected(final String reason) {
+    rejectedCounter.increment();
+    LOG.warn(
+        "Analysis rejected, {}: limit={}, inFlight={}, queued={}", reason, limit, inFlight, queued);
+    return new BillAnalysisException(
+        BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+        "Too many analyses in progress. Please try again later.");
+  }
+
+  /** A queued caller, woken by {@link #grantFreeSlots} once a slot is reserved for it. */
+  private static final class Waiter {
+
+    private final Condition turn;
+    private boolean granted;
+
+    Waiter(final Condition turn) {
+      this.turn = turn;
+    }
+  }
+
+  /** Whether {@code e} shows that Groq is overloaded: throttling, 5xx or a timeout. */
+  static boolean isOverload(final Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof TransientAiException
+          || cause instanceof HttpClientErrorException.TooManyRequests
+          || cause instanceof WebClientResponseException.TooManyRequests
+          || cause instanceof ResourceAccessException
+          || cause instanceof WebClientRequestException) {
+        return true;
+      }
+      // Spring AI reports 4xx responses, 429 included, as "<status> - <body>".
+      if (cause instanceof NonTransientAiException
+          && cause.getMessage() != null
+          && cause.getMessage().startsWith("429")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,122 @@
+package com.example.bill_manager.ai;
+
+import com.example.bill_manager.config.AnalysisCacheProperties;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed cache of {@link BillAnalysisResult}s.
+ * <p>
+ * Entries are keyed by a SHA-256 digest of the model name, the prompt version, the MIME type and
+ * the preprocessed image bytes, so re-uploads of the same receipt skip the Groq call while any
+ * change to the model or prompt naturally invalidates older entries. Only successful, validated
+ * results are cached. Hit, miss and eviction counts are published as {@code cache.*} meters with
+ * {@code cache=bill-analysis}.
+ */
+@Component
+public class AnalysisResultCache {
+
+  static final String CACHE_NAME = "bill-analysis";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+  private final Cache<String, BillAnalysisResult> cache;
+  private final byte[] modelName;
+
+  public AnalysisResultCache(
+      final AnalysisCacheProperties properties,
+      final MeterRegistry meterRegistry,
+      @Value("${spring.ai.openai.chat.options.model:}") final String modelName) {
+    this.modelName = modelName.getBytes(StandardCharsets.UTF_8);
+    this.cache =
+        properties.enabled()
+            ? Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build()
+            : null;
+    if (cache != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+  }
+
+  /**
+   * Returns the cached result for these images, or runs {@code analysis} and caches its result.
+   * Failures thrown by {@code analysis} are propagated and not cached. Concurrent misses for the
+   * same key are not coalesced; each runs its own analysis.
+   */
+  public BillAnalysisResult getOrAnalyze(
+      final String promptVersion,
+      final List<byte[]> images,
+      final String mimeType,
+      final Supplier<BillAnalysisResult> analysis) {
+    if (cache == null) {
+      return analysis.get();
+    }
+
+    final String key = cacheKey(promptVersion, images, mimeType);
+    final BillAnalysisResult cached = cache.getIfPresent(key);
+    if (cached != null) {
+      LOG.debug("Analysis cache hit for key {}", key);
+      return cached;
+    }
+
+    final BillAnalysisResult result = analysis.get();
+    cache.put(key, result);
+    return result;
+  }
+
+  long size() {
+    return cache == null ? 0 : cache.estimatedSize();
+  }
+
+  private String cacheKey(
+      final String promptVersion, final List<byte[]> images, final String mimeType) {
+    final MessageDigest digest = sha256();
+    updateField(digest, modelName);
+    updateField(digest, promptVersion.getBytes(StandardCharsets.UTF_8));
+    updateField(digest, mimeType.getBytes(StandardCharsets.UTF_8));
+    for (final byte[] image : images) {
+      updateField(digest, image);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /** Length-prefixes each field so that adjacent fields cannot collide by shifting bytes. */
+  private static void updateField(final MessageDigest digest, final byte[] field) {
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(field.length).array());
+    digest.update(field);
+  }
+
+  static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /** Hex SHA-256 of the given prompt parts, used as the prompt version in cache keys. */
+  static String fingerprint(final String... promptParts) {
+    final MessageDigest digest = sha256();
+    for (final String part : promptParts) {
+      updateField(digest, part.getBytes(StandardCharsets.UTF_8));
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.bill_manager.ai;
 
+import java.time.Duration;
 import lombok.Getter;
 
 @Getter
@@ -16,14 +17,26 @@ public class BillAnalysisException extends RuntimeException {
 
   private final ErrorCode errorCode;
 
+  /** How long the client should wait before trying again, or {@code null} if unknown. */
+  private final Duration retryAfter;
+
   public BillAnalysisException(final ErrorCode errorCode, final String message) {
     super(message);
     this.errorCode = errorCode;
+    this.retryAfter = null;
   }
 
   public BillAnalysisException(
       final ErrorCode errorCode, final String message, final Throwable cause) {
     super(message, cause);
     this.errorCode = errorCode;
+    this.retryAfter = null;
+  }
+
+  public BillAnalysisException(
+      final ErrorCode errorCode, final String message, final Duration retryAfter) {
+    super(message);
+    this.errorCode = errorCode;
+    this.retryAfter = retryAfter;
   }
 }
@@ -1,9 +1,28 @@
 package com.example.bill_manager.ai;
 
 import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.PartialBillAnalysis;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BillAnalysisService {
 
+  /** Largest single image, in bytes, that {@link #analyze} accepts. */
+  int MAX_IMAGE_SIZE_BYTES = 5 * 1024 * 1024;
+
+  /** Most images, e.g. PDF pages or tiles of one long receipt, {@link #analyze} accepts at once. */
+  int MAX_IMAGES_PER_REQUEST = 5;
+
   BillAnalysisResult analyze(List<byte[]> images, String mimeType);
+
+  /**
+   * Streaming variant of {@link #analyze(List, String)}: the model response is parsed as it
+   * arrives and {@code listener} receives a {@link PartialBillAnalysis} snapshot whenever the
+   * merchant, the currency or another line item is complete. Malformed output fails with
+   * {@code INVALID_RESPONSE} as soon as it is detected. Returns the same validated result as the
+   * blocking variant; a cached result is returned without any snapshots, and a retried call
+   * starts again from an empty snapshot.
+   */
+  BillAnalysisResult analyze(
+      List<byte[]> images, String mimeType, Consumer<PartialBillAnalysis> listener);
 }
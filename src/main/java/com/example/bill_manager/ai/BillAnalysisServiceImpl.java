@@ -2,11 +2,19 @@ package com.example.bill_manager.ai;
 
 import com.example.bill_manager.config.GroqApiProperties;
 import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.PartialBillAnalysis;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,27 +24,28 @@ import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.ai.retry.NonTransientAiException;
 import org.springframework.ai.retry.TransientAiException;
 import org.springframework.retry.RetryCallback;
-import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.MimeType;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
 
 @Service
 public class BillAnalysisServiceImpl implements BillAnalysisService {
 
   private static final Logger LOG = LoggerFactory.getLogger(BillAnalysisServiceImpl.class);
 
-  private static final int MAX_IMAGE_SIZE_BYTES = 5 * 1024 * 1024;
-  private static final int MAX_IMAGES_PER_REQUEST = 5;
-
   // spotless:off
   private static final String SYSTEM_PROMPT = """
       You are a bill and receipt analysis assistant. Your task is to extract structured data \
       from bill/receipt images. If multiple images are provided, they represent pages of the \
       same document — combine information from all pages into a single result. \
+      Multiple images may also be consecutive, slightly overlapping sections of one long \
+      receipt, top to bottom — a line item visible at the bottom of one section and again at \
+      the top of the next must be counted only once. \
       Analyze the image(s) carefully and extract:
       - The merchant/store name
       - All line items with name, quantity, unit price, and total price
@@ -61,34 +70,80 @@ public class BillAnalysisServiceImpl implements BillAnalysisService {
 
       Be precise with numbers. Use decimal point notation (e.g., 3.49, not 3,49).
       If a field cannot be determined, provide a reasonable default or best guess.""";
+
+  private static final String USER_PROMPT =
+      "Analyze this bill/receipt and extract the structured data.\n\n";
   // spotless:on
 
   private final ChatClient chatClient;
   private final RetryTemplate retryTemplate;
   private final BeanOutputConverter<BillAnalysisResult> outputConverter;
   private final Validator validator;
+  private final AnalysisResultCache resultCache;
+  private final AnalysisConcurrencyLimiter concurrencyLimiter;
+  private final GroqRateLimiter rateLimiter;
+  private final AnalysisCircuitBreaker circuitBreaker;
+  private final Duration streamReadTimeout;
+  private final String userPromptText;
+  private final int promptChars;
+  private final String promptVersion;
 
   public BillAnalysisServiceImpl(
       final ChatClient.Builder chatClientBuilder,
       final GroqApiProperties groqApiProperties,
-      final Validator validator) {
+      final Validator validator,
+      final AnalysisResultCache resultCache,
+      final AnalysisConcurrencyLimiter concurrencyLimiter,
+      final GroqRateLimiter rateLimiter,
+      final RetryBudget retryBudget,
+      final AnalysisCircuitBreaker circuitBreaker) {
     this.chatClient = chatClientBuilder.defaultSystem(SYSTEM_PROMPT).build();
-    this.retryTemplate = buildRetryTemplate(groqApiProperties);
+    this.retryTemplate = buildRetryTemplate(groqApiProperties, retryBudget);
     this.outputConverter = new BeanOutputConverter<>(BillAnalysisResult.class);
     this.validator = validator;
+    this.resultCache = resultCache;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.rateLimiter = rateLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.streamReadTimeout = Duration.ofMillis(groqApiProperties.stream().readTimeoutMs());
+    this.userPromptText = USER_PROMPT + outputConverter.getFormat();
+    this.promptChars = SYSTEM_PROMPT.length() + userPromptText.length();
+    this.promptVersion = AnalysisResultCache.fingerprint(SYSTEM_PROMPT, userPromptText);
   }
 
   @Override
   public BillAnalysisResult analyze(final List<byte[]> images, final String mimeType) {
     validateInput(images, mimeType);
 
-    final String formatInstructions = outputConverter.getFormat();
-    final MimeType mediaMimeType = MimeType.valueOf(mimeType);
-    final String userPromptText =
-        "Analyze this bill/receipt and extract the structured data.\n\n" + formatInstructions;
+    return resultCache.getOrAnalyze(
+        promptVersion,
+        images,
+        mimeType,
+        () -> {
+          final MimeType mediaMimeType = MimeType.valueOf(mimeType);
+          final String responseText = executeWithRetry(mediaMimeType, images, this::call);
+          return parseAndValidateResponse(responseText);
+        });
+  }
+
+  @Override
+  public BillAnalysisResult analyze(
+      final List<byte[]> images,
+      final String mimeType,
+      final Consumer<PartialBillAnalysis> listener) {
+    validateInput(images, mimeType);
+    Objects.requireNonNull(listener, "Listener must not be null");
 
-    final String responseText = executeWithRetry(userPromptText, mediaMimeType, images);
-    return parseAndValidateResponse(responseText);
+    return resultCache.getOrAnalyze(
+        promptVersion,
+        images,
+        mimeType,
+        () -> {
+          final MimeType mediaMimeType = MimeType.valueOf(mimeType);
+          final String responseText =
+              executeWithRetry(mediaMimeType, images, media -> stream(media, listener));
+          return parseAndValidateResponse(responseText);
+        });
   }
 
   private void validateInput(final List<byte[]> images, final String mimeType) {
@@ -120,7 +175,8 @@ public class BillAnalysisServiceImpl implements BillAnalysisService {
   }
 
   private String executeWithRetry(
-      final String promptText, final MimeType mimeType, final List<byte[]> images) {
+      final MimeType mimeType, final List<byte[]> images, final Function<Media[], String> request) {
+    final long estimatedTokens = rateLimiter.estimateTokens(images, promptChars);
     try {
       return retryTemplate.execute(
           (RetryCallback<String, Exception>)
@@ -132,13 +188,18 @@ public class BillAnalysisServiceImpl implements BillAnalysisService {
                     images.stream()
                         .map(img -> Media.builder().mimeType(mimeType).data(img).build())
                         .toArray(Media[]::new);
-                return chatClient
-                    .prompt()
-                    .user(u -> u.text(promptText).media(mediaArray))
-                    .call()
-                    .content();
+                // Fail fast while Groq is down rather than wait for quota or a slot first.
+                circuitBreaker.failFastIfOpen();
+                // Wait for the quota outside the concurrency limit so no slot idles meanwhile.
+                rateLimiter.acquire(estimatedTokens);
+                return concurrencyLimiter.execute(
+                    () -> circuitBreaker.execute(() -> request.apply(mediaArray)));
               });
-    } catch (final RestClientException | NonTransientAiException e) {
+    } catch (final BillAnalysisException e) {
+      // Malformed streamed output or a rejection by a limiter or the circuit breaker: none is
+      // worth a retry.
+      throw e;
+    } catch (final RestClientException | WebClientException | NonTransientAiException e) {
       LOG.error("Groq API call failed after retries exhausted", e);
       throw new BillAnalysisException(
           BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
@@ -151,6 +212,30 @@ public class BillAnalysisServiceImpl implements BillAnalysisService {
     }
   }
 
+  private String call(final Media[] media) {
+    return chatClient.prompt().user(u -> u.text(userPromptText).media(media)).call().content();
+  }
+
+  /**
+   * Streams the response through an {@link IncrementalBillParser}, returning the full text. A
+   * stream that stalls for the read timeout fails with {@link ResourceAccessException}, the same
+   * as a read timeout of a blocking call, so it is retried and counts against the breaker.
+   */
+  private String stream(final Media[] media, final Consumer<PartialBillAnalysis> listener) {
+    final IncrementalBillParser parser = new IncrementalBillParser(listener);
+    chatClient.prompt().user(u -> u.text(userPromptText).media(media)).stream()
+        .content()
+        .timeout(streamReadTimeout)
+        .onErrorMap(
+            TimeoutException.class,
+            e ->
+                new ResourceAccessException(
+                    "No data on Groq response stream for " + streamReadTimeout.toMillis() + "ms"))
+        .doOnNext(parser::feed)
+        .blockLast();
+    return parser.finish();
+  }
+
   private BillAnalysisResult parseAndValidateResponse(final String responseText) {
     if (responseText == null || responseText.isBlank()) {
       throw new BillAnalysisException(
@@ -185,19 +270,30 @@ public class BillAnalysisServiceImpl implements BillAnalysisService {
     }
   }
 
-  private static RetryTemplate buildRetryTemplate(final GroqApiProperties properties) {
-    final ExponentialBackOffPolicy backOff = new ExponentialBackOffPolicy();
-    backOff.setInitialInterval(properties.retry().initialDelayMs());
-    backOff.setMultiplier(properties.retry().multiplier());
+  private static RetryTemplate buildRetryTemplate(
+      final GroqApiProperties properties, final RetryBudget retryBudget) {
+    final GroqApiProperties.RetryConfig retry = properties.retry();
+    final FullJitterBackOffPolicy backOff =
+        new FullJitterBackOffPolicy(
+            retry.initialDelayMs(),
+            retry.multiplier(),
+            retry.maxDelayMs(),
+            Clock.systemUTC(),
+            new ThreadWaitSleeper(),
+            () -> ThreadLocalRandom.current().nextDouble());
 
-    final SimpleRetryPolicy retryPolicy =
+    final SimpleRetryPolicy attemptPolicy =
         new SimpleRetryPolicy(
-            properties.retry().maxAttempts(),
+            retry.maxAttempts(),
             Map.of(
                 RestClientException.class, true,
                 ResourceAccessException.class, true,
+                WebClientException.class, true,
                 TransientAiException.class, true),
             true);
+    final BoundedRetryPolicy retryPolicy =
+        new BoundedRetryPolicy(
+            attemptPolicy, retryBudget, Duration.ofMillis(retry.deadlineMs()), Clock.systemUTC());
 
     final RetryTemplate template = new RetryTemplate();
     template.setBackOffPolicy(backOff);
@@ -0,0 +1,83 @@
+package com.example.bill_manager.ai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+
+/**
+ * Retry policy that bounds a delegate in time and across the process.
+ * <p>
+ * A failure the delegate would retry is only retried while the per-analysis {@code deadline},
+ * counted from the first attempt, has not passed and the shared {@link RetryBudget} grants it.
+ * The deadline is stored in the retry context under {@link #DEADLINE_ATTRIBUTE} so that
+ * {@link FullJitterBackOffPolicy} never sleeps past it.
+ */
+final class BoundedRetryPolicy implements RetryPolicy {
+
+  static final String DEADLINE_ATTRIBUTE = "groq.retry.deadline";
+
+  private static final String DENIED_ATTRIBUTE = "groq.retry.denied";
+  private static final Logger LOG = LoggerFactory.getLogger(BoundedRetryPolicy.class);
+
+  private final RetryPolicy delegate;
+  private final transient RetryBudget budget;
+  private final Duration deadline;
+  private final transient Clock clock;
+
+  BoundedRetryPolicy(
+      final RetryPolicy delegate,
+      final RetryBudget budget,
+      final Duration deadline,
+      final Clock clock) {
+    this.delegate = delegate;
+    this.budget = budget;
+    this.deadline = deadline;
+    this.clock = clock;
+  }
+
+  @Override
+  public RetryContext open(final RetryContext parent) {
+    final RetryContext context = delegate.open(parent);
+    context.setAttribute(DEADLINE_ATTRIBUTE, clock.instant().plus(deadline));
+    budget.recordCall();
+    return context;
+  }
+
+  @Override
+  public boolean canRetry(final RetryContext context) {
+    return !context.hasAttribute(DENIED_ATTRIBUTE) && delegate.canRetry(context);
+  }
+
+  @Override
+  public void registerThrowable(final RetryContext context, final Throwable throwable) {
+    delegate.registerThrowable(context, throwable);
+    // Decided once per failure here: canRetry runs more than once between two attempts.
+    if (!delegate.canRetry(context)) {
+      return;
+    }
+    if (!clock.instant().isBefore((Instant) context.getAttribute(DEADLINE_ATTRIBUTE))) {
+      deny(context, "retry deadline of " + deadline.toMillis() + " ms passed");
+    } else if (!budget.tryAcquireRetry()) {
+      deny(context, "process-wide retry budget spent");
+    }
+  }
+
+  @Override
+  public void close(final RetryContext context) {
+    delegate.close(context);
+  }
+
+  @Override
+  public int getMaxAttempts() {
+    return delegate.getMaxAttempts();
+  }
+
+  private static void deny(final RetryContext context, final String reason) {
+    LOG.warn("Not retrying Groq API call after attempt {}: {}", context.getRetryCount(), reason);
+    context.setAttribute(DENIED_ATTRIBUTE, reason);
+  }
+}
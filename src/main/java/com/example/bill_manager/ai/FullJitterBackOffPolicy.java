@@ -0,0 +1,76 @@
+package com.example.bill_manager.ai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.DoubleSupplier;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+
+/**
+ * Exponential back-off with "full jitter": the delay before retry {@code n} is drawn uniformly
+ * from {@code [0, min(maxDelay, initialDelay * multiplier^(n-1)))}.
+ * <p>
+ * Unlike a fixed exponential schedule, concurrent callers that failed together do not retry in
+ * the same instant, which spreads the retries of many requests or instances over the window
+ * instead of hitting Groq in synchronized waves. The sleep is cut short at the deadline set by
+ * {@link BoundedRetryPolicy}, if any.
+ */
+final class FullJitterBackOffPolicy implements BackOffPolicy {
+
+  private final long initialDelayMs;
+  private final double multiplier;
+  private final long maxDelayMs;
+  private final Clock clock;
+  private final Sleeper sleeper;
+  private final DoubleSupplier random;
+
+  FullJitterBackOffPolicy(
+      final long initialDelayMs,
+      final double multiplier,
+      final long maxDelayMs,
+      final Clock clock,
+      final Sleeper sleeper,
+      final DoubleSupplier random) {
+    this.initialDelayMs = initialDelayMs;
+    this.multiplier = multiplier;
+    this.maxDelayMs = maxDelayMs;
+    this.clock = clock;
+    this.sleeper = sleeper;
+    this.random = random;
+  }
+
+  @Override
+  public BackOffContext start(final RetryContext context) {
+    return new JitterContext(context);
+  }
+
+  @Override
+  public void backOff(final BackOffContext backOffContext) {
+    final RetryContext context = ((JitterContext) backOffContext).retryContext();
+    long delayMs = delayMs(context.getRetryCount());
+    final Instant deadline = (Instant) context.getAttribute(BoundedRetryPolicy.DEADLINE_ATTRIBUTE);
+    if (deadline != null) {
+      final long remainingMs = Duration.between(clock.instant(), deadline).toMillis();
+      delayMs = Math.min(delayMs, Math.max(0L, remainingMs));
+    }
+    try {
+      sleeper.sleep(delayMs);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+    }
+  }
+
+  /** Jittered delay before the given retry, counting from 1. */
+  long delayMs(final int retry) {
+    final double ceiling =
+        Math.min(maxDelayMs, initialDelayMs * Math.pow(multiplier, Math.max(0, retry - 1)));
+    return (long) (random.getAsDouble() * ceiling);
+  }
+
+  private record JitterContext(RetryContext retryContext) implements BackOffContext {}
+}
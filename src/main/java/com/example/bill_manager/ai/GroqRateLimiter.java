@@ -0,0 +1,341 @@
+package com.example.bill_manager.ai;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Client-side view of Groq's requests-per-minute and tokens-per-minute quotas.
+ * <p>
+ * Two token buckets, refilled continuously at {@code groq.api.rate-limit.requests-per-minute} and
+ * {@code tokens-per-minute}, hold what is left of each quota. {@link #acquire} reserves one
+ * request and the estimated tokens of a call up front, in arrival order, and sleeps until the
+ * reservation is covered; a call that would have to wait longer than {@code max-wait-ms} is
+ * rejected with {@code SERVICE_UNAVAILABLE} without reserving anything. Reserving before the wait
+ * lets later callers queue behind earlier ones instead of racing them for the same refill.
+ * <p>
+ * {@link #onResponse} corrects the buckets from Groq's {@code x-ratelimit-*} headers, which also
+ * count calls from other instances, and pauses every call for the {@code retry-after} of a 429
+ * or 503. A call that failed on the quota therefore waits exactly as long as Groq asked before
+ * its retry, instead of burning attempts on a fixed back-off.
+ * <p>
+ * Published meters: the {@value #WAIT_METRIC} timer, the {@value #REJECTED_METRIC} counter and
+ * the {@value #REQUESTS_AVAILABLE_METRIC} and {@value #TOKENS_AVAILABLE_METRIC} gauges.
+ */
+@Component
+public class GroqRateLimiter {
+
+  static final String WAIT_METRIC = "groq.ratelimit.wait";
+  static final String REJECTED_METRIC = "groq.ratelimit.rejected";
+  static final String REQUESTS_AVAILABLE_METRIC = "groq.ratelimit.requests-available";
+  static final String TOKENS_AVAILABLE_METRIC = "groq.ratelimit.tokens-available";
+
+  static final String RETRY_AFTER_HEADER = "retry-after";
+  static final String REMAINING_REQUESTS_HEADER = "x-ratelimit-remaining-requests";
+  static final String REMAINING_TOKENS_HEADER = "x-ratelimit-remaining-tokens";
+  static final String RESET_REQUESTS_HEADER = "x-ratelimit-reset-requests";
+  static final String RESET_TOKENS_HEADER = "x-ratelimit-reset-tokens";
+
+  private static final Logger LOG = LoggerFactory.getLogger(GroqRateLimiter.class);
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+  private static final int CHARS_PER_TOKEN = 4;
+  // Groq formats reset times as Go durations, e.g. "2m59.56s" or "120ms".
+  private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+  /** Blocks the calling thread for a scheduled wait. */
+  @FunctionalInterface
+  interface Sleeper {
+    void sleep(Duration duration) throws InterruptedException;
+  }
+
+  private final boolean enabled;
+  private final double requestsPerMinute;
+  private final double tokensPerMinute;
+  private final int completionTokens;
+  private final int imageTileSize;
+  private final int tokensPerImageTile;
+  private final int maxImageTiles;
+  private final Duration maxWait;
+  private final Clock clock;
+  private final Sleeper sleeper;
+  private final Timer waitTimer;
+  private final Counter rejectedCounter;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // Written under the lock; volatile so the gauges can read them without it. Both buckets go
+  // negative while reservations are waiting for the refill.
+  private volatile double requests;
+  private volatile double tokens;
+  private Instant refilledAt;
+  private Instant pausedUntil;
+
+  @Autowired
+  public GroqRateLimiter(final GroqApiProperties properties, final MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, Clock.systemUTC(), duration -> Thread.sleep(duration));
+  }
+
+  GroqRateLimiter(
+      final GroqApiProperties properties,
+      final MeterRegistry meterRegistry,
+      final Clock clock,
+      final Sleeper sleeper) {
+    final GroqApiProperties.RateLimitConfig config = properties.rateLimit();
+    this.enabled = config.enabled();
+    this.requestsPerMinute = config.requestsPerMinute();
+    this.tokensPerMinute = config.tokensPerMinute();
+    this.completionTokens = config.completionTokens();
+    this.imageTileSize = config.imageTileSize();
+    this.tokensPerImageTile = config.tokensPerImageTile();
+    this.maxImageTiles = config.maxImageTiles();
+    this.maxWait = Duration.ofMillis(config.maxWaitMs());
+    this.clock = clock;
+    this.sleeper = sleeper;
+    this.requests = requestsPerMinute;
+    this.tokens = tokensPerMinute;
+    this.refilledAt = clock.instant();
+    this.pausedUntil = refilledAt;
+
+    this.waitTimer =
+        Timer.builder(WAIT_METRIC)
+            .description("Time Groq calls were held back to stay within the rate limits")
+            .register(meterRegistry);
+    this.rejectedCounter =
+        Counter.builder(REJECTED_METRIC)
+            .description("Groq calls rejected because the rate limits allowed none in time")
+            .register(meterRegistry);
+    Gauge.builder(REQUESTS_AVAILABLE_METRIC, this, limiter -> limiter.requests)
+        .description("Requests left in the client-side requests-per-minute bucket")
+        .register(meterRegistry);
+    Gauge.builder(TOKENS_AVAILABLE_METRIC, this, limiter -> limiter.tokens)
+        .description("Tokens left in the client-side tokens-per-minute bucket")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Estimates the tokens a call counts against the quota: the prompt at about four characters
+   * per token, {@code completion-tokens} for the response and, per image, one
+   * {@code image-tile-size} square tile per {@code tokens-per-image-tile} plus a downscaled
+   * overview for multi-tile images, capped at {@code max-image-tiles}. Images whose dimensions
+   * cannot be read from their headers are assumed to use the cap.
+   */
+  public long estimateTokens(final List<byte[]> images, final int promptChars) {
+    long estimate = Math.ceilDiv(promptChars, CHARS_PER_TOKEN) + (long) completionTokens;
+    for (final byte[] image : images) {
+      estimate += (long) imageTiles(image) * tokensPerImageTile;
+    }
+    return estimate;
+  }
+
+  /**
+   * Reserves one request and {@code estimatedTokens} tokens, waiting until both quotas cover them.
+   * Estimates above the per-minute token quota are reserved as the whole quota.
+   *
+   * @throws BillAnalysisException with {@code SERVICE_UNAVAILABLE} if the wait would exceed
+   *     {@code max-wait-ms}
+   */
+  public void acquire(final long estimatedTokens) {
+    if (!enabled) {
+      return;
+    }
+    final Duration wait = reserve(estimatedTokens);
+    waitTimer.record(wait);
+    if (wait.isZero()) {
+      return;
+    }
+    LOG.debug("Holding Groq call for {} ms to stay within rate limits", wait.toMillis());
+    try {
+      sleeper.sleep(wait);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BillAnalysisException(
+          BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+          "Interrupted while waiting for the analysis rate limit",
+          e);
+    }
+  }
+
+  /**
+   * Updates the buckets from the rate-limit headers of a Groq response. Remaining quotas only
+   * ever lower the local view; an exhausted quota, or a {@code retry-after} on a 429 or 503,
+   * pauses all calls until the reported reset.
+   */
+  public void onResponse(final int status, final HttpHeaders headers) {
+    if (!enabled) {
+      return;
+    }
+    final Long remainingRequests = parseCount(headers.getFirst(REMAINING_REQUESTS_HEADER));
+    final Long remainingTokens = parseCount(headers.getFirst(REMAINING_TOKENS_HEADER));
+    final Duration resetRequests = parseDuration(headers.getFirst(RESET_REQUESTS_HEADER));
+    final Duration resetTokens = parseDuration(headers.getFirst(RESET_TOKENS_HEADER));
+    final Duration retryAfter = parseDuration(headers.getFirst(RETRY_AFTER_HEADER));
+
+    lock.lock();
+    try {
+      final Instant now = clock.instant();
+      refill(now);
+      if (remainingRequests != null) {
+        requests = Math.min(requests, remainingRequests);
+        if (remainingRequests == 0 && resetRequests != null) {
+          pauseUntil(now.plus(resetRequests));
+        }
+      }
+      if (remainingTokens != null) {
+        tokens = Math.min(tokens, remainingTokens);
+        if (remainingTokens == 0 && resetTokens != null) {
+          pauseUntil(now.plus(resetTokens));
+        }
+      }
+      if ((status == 429 || status == 503) && retryAfter != null) {
+        LOG.warn("Groq responded {}, pausing calls for {} ms", status, retryAfter.toMillis());
+        pauseUntil(now.plus(retryAfter));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Duration reserve(final long estimatedTokens) {
+    lock.lock();
+    try {
+      final Instant now = clock.instant();
+      refill(now);
+      final double cost = Math.min(estimatedTokens, tokensPerMinute);
+      final long waitNanos =
+          Math.max(
+              Math.max(
+                  refillNanos(1 - requests, requestsPerMinute),
+                  refillNanos(cost - tokens, tokensPerMinute)),
+              Duration.between(now, pausedUntil).toNanos());
+      final Duration wait = Duration.ofNanos(Math.max(0L, waitNanos));
+      if (wait.compareTo(maxWait) > 0) {
+        rejectedCounter.increment();
+        LOG.warn(
+            "Analysis rejected, Groq rate limits allow no call for {} ms: requests={}, tokens={}",
+            wait.toMillis(),
+            (long) requests,
+            (long) tokens);
+        throw new BillAnalysisException(
+            BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+            "Analysis rate limit reached. Please try again later.");
+      }
+      requests -= 1;
+      tokens -= cost;
+      return wait;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void refill(final Instant now) {
+    final long elapsedNanos = Duration.between(refilledAt, now).toNanos();
+    if (elapsedNanos <= 0L) {
+      return;
+    }
+    final double minutes = elapsedNanos / NANOS_PER_MINUTE;
+    requests = Math.min(requestsPerMinute, requests + minutes * requestsPerMinute);
+    tokens = Math.min(tokensPerMinute, tokens + minutes * tokensPerMinute);
+    refilledAt = now;
+  }
+
+  private void pauseUntil(final Instant until) {
+    if (until.isAfter(pausedUntil)) {
+      pausedUntil = until;
+    }
+  }
+
+  /** Nanoseconds until a bucket refilling at {@code perMinute} makes up {@code deficit}. */
+  private static long refillNanos(final double deficit, final double perMinute) {
+    return deficit <= 0 ? 0L : (long) Math.ceil(deficit / perMinute * NANOS_PER_MINUTE);
+  }
+
+  private int imageTiles(final byte[] image) {
+    try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+      final Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+      if (readers == null || !readers.hasNext()) {
+        return maxImageTiles;
+      }
+      final ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        final int tiles =
+            Math.ceilDiv(reader.getWidth(0), imageTileSize)
+                * Math.ceilDiv(reader.getHeight(0), imageTileSize);
+        return Math.min(maxImageTiles, tiles == 1 ? 1 : tiles + 1);
+      } finally {
+        reader.dispose();
+      }
+    } catch (final IOException | RuntimeException e) {
+      LOG.debug("Image size unreadable, assuming {} tiles: {}", maxImageTiles, e.getMessage());
+      return maxImageTiles;
+    }
+  }
+
+  private static Long parseCount(final String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Math.max(0L, Long.parseLong(value.trim()));
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Parses a reset or retry-after value: plain seconds ({@code "7"}, {@code "0.5"}) or a Go
+   * duration ({@code "1m30.5s"}, {@code "120ms"}). Returns {@code null} for anything else,
+   * including the HTTP-date form of {@code retry-after}.
+   */
+  static Duration parseDuration(final String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    final String trimmed = value.trim();
+    if (trimmed.chars().allMatch(c -> Character.isDigit(c) || c == '.')) {
+      try {
+        return Duration.ofNanos(Math.round(Double.parseDouble(trimmed) * NANOS_PER_SECOND));
+      } catch (final NumberFormatException e) {
+        return null;
+      }
+    }
+    final Matcher matcher = DURATION_PART.matcher(trimmed);
+    double nanos = 0;
+    int end = 0;
+    while (matcher.find() && matcher.start() == end) {
+      final double amount = Double.parseDouble(matcher.group(1));
+      final TimeUnit unit =
+          switch (matcher.group(2)) {
+            case "h" -> TimeUnit.HOURS;
+            case "m" -> TimeUnit.MINUTES;
+            case "s" -> TimeUnit.SECONDS;
+            default -> TimeUnit.MILLISECONDS;
+          };
+      nanos += amount * unit.toNanos(1);
+      end = matcher.end();
+    }
+    return end == trimmed.length() ? Duration.ofNanos(Math.round(nanos)) : null;
+  }
+}
@@ -0,0 +1,189 @@
+package com.example.bill_manager.ai;
+
+import com.example.bill_manager.dto.LineItem;
+import com.example.bill_manager.dto.PartialBillAnalysis;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses a streamed {@link com.example.bill_manager.dto.BillAnalysisResult} JSON response chunk
+ * by chunk with Jackson's non-blocking parser.
+ * <p>
+ * Each time the merchant name, the currency or a complete line item arrives, the listener gets a
+ * {@link PartialBillAnalysis} snapshot of everything parsed so far. Malformed JSON, or a document
+ * whose {@code items} is not an array of line items, fails on the chunk that contains the error
+ * rather than after the last token. Anything before the root object (e.g. a markdown code fence)
+ * and after it is ignored. The full text is kept so the final result can be converted and
+ * validated exactly like a non-streamed response.
+ * <p>
+ * Not thread-safe: chunks must be fed sequentially.
+ */
+final class IncrementalBillParser {
+
+  private static final JsonMapper MAPPER =
+      JsonMapper.builder().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();
+
+  private final Consumer<PartialBillAnalysis> listener;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final StringBuilder text = new StringBuilder();
+  private final List<LineItem> items = new ArrayList<>();
+
+  private String merchantName;
+  private String currency;
+  private boolean started;
+  private boolean complete;
+  private int depth;
+  private String field;
+  private boolean inItems;
+  private TokenBuffer item;
+
+  IncrementalBillParser(final Consumer<PartialBillAnalysis> listener) {
+    this.listener = listener;
+    try {
+      this.parser = MAPPER.createNonBlockingByteArrayParser();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Failed to create non-blocking JSON parser", e);
+    }
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  /** Parses the next chunk of the response. */
+  void feed(final String chunk) {
+    text.append(chunk);
+    if (complete) {
+      return;
+    }
+    String json = chunk;
+    if (!started) {
+      final int start = chunk.indexOf('{');
+      if (start < 0) {
+        return;
+      }
+      started = true;
+      json = chunk.substring(start);
+    }
+    final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    try {
+      feeder.feedInput(bytes, 0, bytes.length);
+      JsonToken token = parser.nextToken();
+      while (token != null && token != JsonToken.NOT_AVAILABLE && !complete) {
+        onToken(token);
+        token = parser.nextToken();
+      }
+    } catch (final IOException e) {
+      throw malformed(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the complete response text once the root object has been closed.
+   *
+   * @throws BillAnalysisException with {@code INVALID_RESPONSE} if the response ended early
+   */
+  String finish() {
+    if (!complete) {
+      throw malformed("response ended before the JSON object was complete", null);
+    }
+    return text.toString();
+  }
+
+  private void onToken(final JsonToken token) throws IOException {
+    if (item != null) {
+      copyItemToken(token);
+      return;
+    }
+    switch (token) {
+      case START_OBJECT -> {
+        if (depth == 1 && "items".equals(field)) {
+          throw malformed("'items' is not an array of line items", null);
+        }
+        if (inItems && depth == 2) {
+          item = new TokenBuffer(parser);
+          item.forceUseOfBigDecimal(true);
+          item.copyCurrentEvent(parser);
+        }
+        depth++;
+      }
+      case START_ARRAY -> {
+        if (depth == 0) {
+          throw malformed("response is not a JSON object", null);
+        }
+        if (depth == 1 && "items".equals(field)) {
+          inItems = true;
+        }
+        depth++;
+      }
+      case END_OBJECT, END_ARRAY -> {
+        depth--;
+        if (depth == 1) {
+          inItems = false;
+        }
+        complete = depth == 0;
+      }
+      case FIELD_NAME -> {
+        if (depth == 1) {
+          field = parser.currentName();
+        }
+      }
+      default -> onScalar(token);
+    }
+  }
+
+  private void onScalar(final JsonToken token) throws IOException {
+    if (depth == 0) {
+      throw malformed("response is not a JSON object", null);
+    }
+    if (depth == 1 && "items".equals(field) || inItems && depth == 2) {
+      throw malformed("'items' is not an array of line items", null);
+    }
+    if (depth == 1 && token == JsonToken.VALUE_STRING) {
+      if ("merchantName".equals(field)) {
+        merchantName = parser.getText();
+        publish();
+      } else if ("currency".equals(field)) {
+        currency = parser.getText();
+        publish();
+      }
+    }
+  }
+
+  private void copyItemToken(final JsonToken token) throws IOException {
+    item.copyCurrentEvent(parser);
+    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+      depth++;
+    } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+      depth--;
+    }
+    if (depth == 2) {
+      try (JsonParser itemParser = item.asParser(MAPPER)) {
+        items.add(MAPPER.readValue(itemParser, LineItem.class));
+      } catch (final IOException e) {
+        throw malformed("line item " + (items.size() + 1) + " is invalid", e);
+      } finally {
+        item = null;
+      }
+      publish();
+    }
+  }
+
+  private void publish() {
+    listener.accept(new PartialBillAnalysis(merchantName, currency, List.copyOf(items)));
+  }
+
+  private BillAnalysisException malformed(final String reason, final Throwable cause) {
+    return new BillAnalysisException(
+        BillAnalysisException.ErrorCode.INVALID_RESPONSE,
+        "Malformed analysis response: " + reason,
+        cause);
+  }
+}
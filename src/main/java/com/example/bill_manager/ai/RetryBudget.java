@@ -0,0 +1,98 @@
+package com.example.bill_manager.ai;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process-wide cap on Groq retries relative to traffic, in the style of Finagle's retry budgets.
+ * <p>
+ * Over a sliding {@value #WINDOW_SECONDS}-second window, retries may not exceed
+ * {@code groq.api.retry.budget-ratio} of the analyses started plus
+ * {@code budget-min-retries-per-second} times the window, so that low traffic can still retry.
+ * When Groq is failing for everyone, retries stay a small fraction of the load instead of
+ * multiplying it by {@code max-attempts}. Denied retries are counted in {@value #EXHAUSTED_METRIC}.
+ */
+@Component
+public class RetryBudget {
+
+  static final String EXHAUSTED_METRIC = "groq.retry.budget.exhausted";
+  static final int WINDOW_SECONDS = 10;
+
+  private final double ratio;
+  private final double minRetries;
+  private final Clock clock;
+  private final Counter exhaustedCounter;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // One slot per second of the window, indexed by epoch second modulo the window.
+  private final long[] slotSeconds = new long[WINDOW_SECONDS];
+  private final long[] calls = new long[WINDOW_SECONDS];
+  private final long[] retries = new long[WINDOW_SECONDS];
+
+  @Autowired
+  public RetryBudget(final GroqApiProperties properties, final MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, Clock.systemUTC());
+  }
+
+  RetryBudget(
+      final GroqApiProperties properties, final MeterRegistry meterRegistry, final Clock clock) {
+    this.ratio = properties.retry().budgetRatio();
+    this.minRetries = properties.retry().budgetMinRetriesPerSecond() * WINDOW_SECONDS;
+    this.clock = clock;
+    this.exhaustedCounter =
+        Counter.builder(EXHAUSTED_METRIC)
+            .description("Groq retries skipped because the process-wide retry budget was spent")
+            .register(meterRegistry);
+  }
+
+  /** Records the first attempt of an analysis, which adds {@code budget-ratio} to the budget. */
+  public void recordCall() {
+    lock.lock();
+    try {
+      calls[slot(clock.instant().getEpochSecond())]++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Takes one retry from the budget, or returns {@code false} if it is spent. */
+  public boolean tryAcquireRetry() {
+    lock.lock();
+    try {
+      final long now = clock.instant().getEpochSecond();
+      final int current = slot(now);
+      long windowCalls = 0;
+      long windowRetries = 0;
+      for (int i = 0; i < WINDOW_SECONDS; i++) {
+        if (slotSeconds[i] > now - WINDOW_SECONDS) {
+          windowCalls += calls[i];
+          windowRetries += retries[i];
+        }
+      }
+      if (windowRetries + 1 > ratio * windowCalls + minRetries) {
+        exhaustedCounter.increment();
+        return false;
+      }
+      retries[current]++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns the slot for {@code second}, clearing it first if it still holds an older second. */
+  private int slot(final long second) {
+    final int index = (int) Math.floorMod(second, WINDOW_SECONDS);
+    if (slotSeconds[index] != second) {
+      slotSeconds[index] = second;
+      calls[index] = 0;
+      retries[index] = 0;
+    }
+    return index;
+  }
+}
@@ -0,0 +1,20 @@
+package com.example.bill_manager.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "analysis.cache")
+@Validated
+// spotless:off
+public record AnalysisCacheProperties(
+    @NotNull(message = "Analysis cache enabled flag must not be null")
+    Boolean enabled,
+    @NotNull(message = "Analysis cache max entries must not be null")
+    @Min(value = 1, message = "Analysis cache max entries must be at least 1")
+    Long maxEntries,
+    @NotNull(message = "Analysis cache TTL must not be null")
+    Duration ttl) {}
+// spotless:on
@@ -0,0 +1,79 @@
+package com.example.bill_manager.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Worker stages for asynchronous and batch uploads.
+ * <p>
+ * Each pool is bounded in both workers and queue depth ({@code upload.async.*},
+ * {@code upload.batch.*}) so a burst of uploads cannot pile up unbounded work in memory; once the
+ * queue is full new jobs are rejected and the client receives 503 (for a batch, per file).
+ * <p>
+ * With {@code spring.threads.virtual.enabled=true} the workers are virtual threads: a job blocked
+ * on the Groq call (or sleeping in retry back-off) unmounts from its carrier, so
+ * {@code upload.async.worker-threads} can be raised to hundreds without as many OS threads.
+ * Tomcat request threads switch to virtual threads through the same property.
+ */
+@Configuration
+public class AsyncUploadConfig {
+
+  private static final String THREAD_NAME_PREFIX = "analysis-job-";
+  private static final String BATCH_THREAD_NAME_PREFIX = "batch-worker-";
+
+  @Bean(name = "analysisJobExecutor")
+  @ConditionalOnThreading(Threading.PLATFORM)
+  public ThreadPoolTaskExecutor analysisJobExecutor(final UploadProperties uploadProperties) {
+    final UploadProperties.AsyncConfig async = uploadProperties.async();
+    final ThreadPoolTaskExecutor executor =
+        boundedExecutor(async.workerThreads(), async.queueCapacity());
+    executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+    return executor;
+  }
+
+  @Bean(name = "analysisJobExecutor")
+  @ConditionalOnThreading(Threading.VIRTUAL)
+  public ThreadPoolTaskExecutor virtualAnalysisJobExecutor(
+      final UploadProperties uploadProperties) {
+    final UploadProperties.AsyncConfig async = uploadProperties.async();
+    final ThreadPoolTaskExecutor executor =
+        boundedExecutor(async.workerThreads(), async.queueCapacity());
+    executor.setThreadFactory(Thread.ofVirtual().name(THREAD_NAME_PREFIX, 0).factory());
+    return executor;
+  }
+
+  @Bean(name = "batchWorkerExecutor")
+  @ConditionalOnThreading(Threading.PLATFORM)
+  public ThreadPoolTaskExecutor batchWorkerExecutor(final UploadProperties uploadProperties) {
+    final UploadProperties.BatchConfig batch = uploadProperties.batch();
+    final ThreadPoolTaskExecutor executor =
+        boundedExecutor(batch.workerThreads(), batch.queueCapacity());
+    executor.setThreadNamePrefix(BATCH_THREAD_NAME_PREFIX);
+    return executor;
+  }
+
+  @Bean(name = "batchWorkerExecutor")
+  @ConditionalOnThreading(Threading.VIRTUAL)
+  public ThreadPoolTaskExecutor virtualBatchWorkerExecutor(
+      final UploadProperties uploadProperties) {
+    final UploadProperties.BatchConfig batch = uploadProperties.batch();
+    final ThreadPoolTaskExecutor executor =
+        boundedExecutor(batch.workerThreads(), batch.queueCapacity());
+    executor.setThreadFactory(Thread.ofVirtual().name(BATCH_THREAD_NAME_PREFIX, 0).factory());
+    return executor;
+  }
+
+  private static ThreadPoolTaskExecutor boundedExecutor(
+      final int workerThreads, final int queueCapacity) {
+    final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(workerThreads);
+    executor.setMaxPoolSize(workerThreads);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(30);
+    return executor;
+  }
+}
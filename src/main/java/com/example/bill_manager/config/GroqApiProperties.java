@@ -1,5 +1,8 @@
 package com.example.bill_manager.config;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -10,8 +13,27 @@ import org.springframework.validation.annotation.Validated;
 // spotless:off
 public record GroqApiProperties(
     @NotNull(message = "Retry configuration must not be null")
-    RetryConfig retry) {
+    RetryConfig retry,
+    @NotNull(message = "Concurrency configuration must not be null")
+    @Valid
+    ConcurrencyConfig concurrency,
+    @NotNull(message = "Rate limit configuration must not be null")
+    @Valid
+    RateLimitConfig rateLimit,
+    @NotNull(message = "Circuit breaker configuration must not be null")
+    @Valid
+    CircuitBreakerConfig circuitBreaker,
+    @NotNull(message = "Stream configuration must not be null")
+    @Valid
+    StreamConfig stream) {
 
+  /**
+   * Retries of a failed Groq call. The delay before retry {@code n} is drawn uniformly from
+   * {@code [0, min(maxDelayMs, initialDelayMs * multiplier^(n-1)))} ("full jitter"). No retry
+   * starts later than {@code deadlineMs} after the first attempt, and across the process retries
+   * may not exceed {@code budgetRatio} of the analyses started in the last ten seconds plus
+   * {@code budgetMinRetriesPerSecond}.
+   */
   public record RetryConfig(
       @NotNull(message = "Max attempts must not be null")
       @Min(value = 1, message = "Max attempts must be at least 1")
@@ -21,6 +43,125 @@ public record GroqApiProperties(
       Long initialDelayMs,
       @NotNull(message = "Multiplier must not be null")
       @Min(value = 1, message = "Multiplier must be at least 1.0")
-      Double multiplier) {}
+      Double multiplier,
+      @NotNull(message = "Max delay must not be null")
+      @Min(value = 100, message = "Max delay must be at least 100ms")
+      Long maxDelayMs,
+      @NotNull(message = "Retry deadline must not be null")
+      @Min(value = 0, message = "Retry deadline must not be negative")
+      Long deadlineMs,
+      @NotNull(message = "Retry budget ratio must not be null")
+      @DecimalMin(value = "0.0", message = "Retry budget ratio must not be negative")
+      @DecimalMax(value = "1.0", message = "Retry budget ratio must not exceed 1.0")
+      Double budgetRatio,
+      @NotNull(message = "Minimum retries per second must not be null")
+      @DecimalMin(value = "0.0", message = "Minimum retries per second must not be negative")
+      Double budgetMinRetriesPerSecond) {}
+
+  /**
+   * Adaptive limit on concurrent Groq calls: grows by one while it is being used and shrinks by
+   * {@code backoffRatio} when Groq throttles or times out, within {@code minLimit..maxLimit}.
+   */
+  public record ConcurrencyConfig(
+      @NotNull(message = "Concurrency limiter enabled flag must not be null")
+      Boolean enabled,
+      @NotNull(message = "Initial concurrency limit must not be null")
+      @Min(value = 1, message = "Initial concurrency limit must be at least 1")
+      Integer initialLimit,
+      @NotNull(message = "Min concurrency limit must not be null")
+      @Min(value = 1, message = "Min concurrency limit must be at least 1")
+      Integer minLimit,
+      @NotNull(message = "Max concurrency limit must not be null")
+      @Min(value = 1, message = "Max concurrency limit must be at least 1")
+      Integer maxLimit,
+      @NotNull(message = "Max queue depth must not be null")
+      @Min(value = 0, message = "Max queue depth must not be negative")
+      Integer maxQueueDepth,
+      @NotNull(message = "Max queue wait must not be null")
+      @Min(value = 0, message = "Max queue wait must not be negative")
+      Long maxQueueWaitMs,
+      @NotNull(message = "Backoff ratio must not be null")
+      @DecimalMin(value = "0.5", message = "Backoff ratio must be at least 0.5")
+      @DecimalMax(value = "0.95", message = "Backoff ratio must not exceed 0.95")
+      Double backoffRatio) {}
+
+  /**
+   * Client-side copy of Groq's requests-per-minute and tokens-per-minute quotas. Image cost is
+   * estimated as {@code tokensPerImageTile} per {@code imageTileSize} square tile, at most
+   * {@code maxImageTiles} per image; {@code completionTokens} is reserved for each response.
+   */
+  public record RateLimitConfig(
+      @NotNull(message = "Rate limiter enabled flag must not be null")
+      Boolean enabled,
+      @NotNull(message = "Requests per minute must not be null")
+      @Min(value = 1, message = "Requests per minute must be at least 1")
+      Integer requestsPerMinute,
+      @NotNull(message = "Tokens per minute must not be null")
+      @Min(value = 1, message = "Tokens per minute must be at least 1")
+      Integer tokensPerMinute,
+      @NotNull(message = "Completion tokens must not be null")
+      @Min(value = 0, message = "Completion tokens must not be negative")
+      Integer completionTokens,
+      @NotNull(message = "Image tile size must not be null")
+      @Min(value = 1, message = "Image tile size must be at least 1px")
+      Integer imageTileSize,
+      @NotNull(message = "Tokens per image tile must not be null")
+      @Min(value = 0, message = "Tokens per image tile must not be negative")
+      Integer tokensPerImageTile,
+      @NotNull(message = "Max image tiles must not be null")
+      @Min(value = 1, message = "Max image tiles must be at least 1")
+      Integer maxImageTiles,
+      @NotNull(message = "Max rate limit wait must not be null")
+      @Min(value = 0, message = "Max rate limit wait must not be negative")
+      Long maxWaitMs) {}
+
+  /**
+   * Circuit breaker around Groq calls. Over the last {@code slidingWindowSize} calls, once at
+   * least {@code minimumCalls} are recorded, it opens when the failure or slow-call share reaches
+   * its threshold; it stays open for {@code openDurationMs}, then lets
+   * {@code halfOpenPermittedCalls} trial calls decide whether to close.
+   */
+  public record CircuitBreakerConfig(
+      @NotNull(message = "Circuit breaker enabled flag must not be null")
+      Boolean enabled,
+      @NotNull(message = "Sliding window size must not be null")
+      @Min(value = 1, message = "Sliding window size must be at least 1")
+      Integer slidingWindowSize,
+      @NotNull(message = "Minimum calls must not be null")
+      @Min(value = 1, message = "Minimum calls must be at least 1")
+      Integer minimumCalls,
+      @NotNull(message = "Failure rate threshold must not be null")
+      @DecimalMin(
+          value = "0.0",
+          inclusive = false,
+          message = "Failure rate threshold must be positive")
+      @DecimalMax(value = "1.0", message = "Failure rate threshold must not exceed 1.0")
+      Double failureRateThreshold,
+      @NotNull(message = "Slow call rate threshold must not be null")
+      @DecimalMin(
+          value = "0.0",
+          inclusive = false,
+          message = "Slow call rate threshold must be positive")
+      @DecimalMax(value = "1.0", message = "Slow call rate threshold must not exceed 1.0")
+      Double slowCallRateThreshold,
+      @NotNull(message = "Slow call duration must not be null")
+      @Min(value = 1, message = "Slow call duration must be at least 1ms")
+      Long slowCallDurationMs,
+      @NotNull(message = "Open duration must not be null")
+      @Min(value = 1000, message = "Open duration must be at least 1000ms")
+      Long openDurationMs,
+      @NotNull(message = "Half-open permitted calls must not be null")
+      @Min(value = 1, message = "Half-open permitted calls must be at least 1")
+      Integer halfOpenPermittedCalls) {}
+
+  /**
+   * Streamed Groq responses. {@code spring.http.client.read-timeout} only applies to the blocking
+   * client, so a stream that sends nothing for {@code readTimeoutMs} (first chunk included) is
+   * failed like a read timeout and retried.
+   */
+  public record StreamConfig(
+      @NotNull(message = "Stream read timeout must not be null")
+      @Min(value = 1000, message = "Stream read timeout must be at least 1000ms")
+      Long readTimeoutMs) {}
   // spotless:on
 }
@@ -0,0 +1,62 @@
+package com.example.bill_manager.config;
+
+import com.example.bill_manager.ai.GroqRateLimiter;
+import java.net.URI;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Feeds the rate-limit headers of every Groq response to {@link GroqRateLimiter}.
+ * <p>
+ * Spring AI builds its clients from the auto-configured {@code RestClient.Builder} (blocking
+ * calls) and {@code WebClient.Builder} (streamed calls), so the customizers below see each
+ * response, 429s included, before Spring AI's error handling turns it into an exception and drops
+ * the headers. Responses from hosts other than {@code spring.ai.openai.base-url} are ignored.
+ */
+@Configuration
+public class GroqHttpClientConfig {
+
+  private static final String DEFAULT_BASE_URL = "https://api.openai.com";
+
+  @Bean
+  public RestClientCustomizer groqRateLimitRestClientCustomizer(
+      final GroqRateLimiter rateLimiter,
+      @Value("${spring.ai.openai.base-url:" + DEFAULT_BASE_URL + "}") final String baseUrl) {
+    final String host = URI.create(baseUrl).getHost();
+    return builder ->
+        builder.requestInterceptor(
+            (request, body, execution) -> {
+              final ClientHttpResponse response = execution.execute(request, body);
+              if (isGroq(request.getURI(), host)) {
+                rateLimiter.onResponse(response.getStatusCode().value(), response.getHeaders());
+              }
+              return response;
+            });
+  }
+
+  @Bean
+  public WebClientCustomizer groqRateLimitWebClientCustomizer(
+      final GroqRateLimiter rateLimiter,
+      @Value("${spring.ai.openai.base-url:" + DEFAULT_BASE_URL + "}") final String baseUrl) {
+    final String host = URI.create(baseUrl).getHost();
+    return builder ->
+        builder.filter(
+            (request, next) ->
+                next.exchange(request)
+                    .doOnNext(
+                        response -> {
+                          if (isGroq(request.url(), host)) {
+                            rateLimiter.onResponse(
+                                response.statusCode().value(), response.headers().asHttpHeaders());
+                          }
+                        }));
+  }
+
+  private static boolean isGroq(final URI uri, final String host) {
+    return host != null && host.equalsIgnoreCase(uri.getHost());
+  }
+}
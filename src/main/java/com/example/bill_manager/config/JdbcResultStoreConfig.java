@@ -0,0 +1,35 @@
+package com.example.bill_manager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Database connection pool for the JDBC result store, created only when
+ * {@code result-store.type=jdbc}.
+ * <p>
+ * {@link DataSourceAutoConfiguration} is excluded on the application class, so the memory and
+ * disk stores start without a pool or a {@code db} health indicator. This configuration builds
+ * the same Hikari pool from {@code spring.datasource.*} (an embedded in-memory H2 database unless
+ * a URL is configured); the {@code JdbcTemplate}, transaction manager and health indicator are
+ * then auto-configured around it as usual.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "result-store", name = "type", havingValue = "jdbc")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class JdbcResultStoreConfig {
+
+  @Bean
+  @ConditionalOnMissingBean(DataSource.class)
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource resultStoreDataSource(final DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+}
@@ -0,0 +1,109 @@
+package com.example.bill_manager.config;
+
+import com.example.bill_manager.ai.BillAnalysisService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "upload.preprocessing")
+@Validated
+// spotless:off
+public record PreprocessingProperties(
+    @NotNull(message = "Resize mode must not be null")
+    ResizeMode resizeMode,
+    @NotNull(message = "Resize threads must not be null")
+    @Min(value = 1, message = "Resize threads must be at least 1")
+    @Max(value = 32, message = "Resize threads must not exceed 32")
+    Integer resizeThreads,
+    @NotNull(message = "Subsampled decode flag must not be null")
+    Boolean subsampledDecode,
+    @NotNull(message = "JPEG passthrough flag must not be null")
+    Boolean jpegPassthrough,
+    @NotNull(message = "Color mode must not be null")
+    ColorMode colorMode,
+    @NotNull(message = "Contrast stretch flag must not be null")
+    Boolean contrastStretch,
+    @NotNull(message = "Auto crop flag must not be null")
+    Boolean autoCrop,
+    @NotNull(message = "Deskew flag must not be null")
+    Boolean deskew,
+    @NotNull(message = "JPEG budget configuration must not be null")
+    @Valid
+    JpegBudget jpegBudget,
+    @NotNull(message = "Tiling configuration must not be null")
+    @Valid
+    Tiling tiling) {
+
+  /** How images wider than the target width are scaled down. */
+  public enum ResizeMode {
+    /** Single Java2D bicubic {@code drawImage}; the original behaviour. */
+    JAVA2D,
+    /** Repeated bilinear halving via Java2D, then one bicubic step to the exact size. */
+    PROGRESSIVE,
+    /** Two-pass separable Catmull-Rom filter on integer pixel rows, optionally in row bands. */
+    SEPARABLE
+  }
+
+  /** Pixel format of preprocessed images. */
+  public enum ColorMode {
+    /** RGB (ARGB for PNG); the original behaviour. */
+    COLOR,
+    /** 8-bit luma, optionally contrast-stretched; transparency is flattened onto white. */
+    GRAYSCALE,
+    /** 8-bit black and white after adaptive thresholding, for printed receipts. */
+    BINARIZED
+  }
+
+  /**
+   * Byte budget for encoded JPEGs. When an image encoded at the default quality exceeds it, the
+   * encoder searches down to {@code minQuality} for the highest quality that fits.
+   */
+  public record JpegBudget(
+      @NotNull(message = "JPEG budget enabled flag must not be null")
+      Boolean enabled,
+      @NotNull(message = "JPEG budget max image bytes must not be null")
+      @Min(value = 65536, message = "JPEG budget max image bytes must be at least 64KB")
+      @Max(value = BillAnalysisService.MAX_IMAGE_SIZE_BYTES,
+          message = "JPEG budget max image bytes must not exceed the analysis image limit")
+      Integer maxImageBytes,
+      @NotNull(message = "JPEG budget max request bytes must not be null")
+      @Min(value = 65536, message = "JPEG budget max request bytes must be at least 64KB")
+      Integer maxRequestBytes,
+      @NotNull(message = "JPEG budget min quality must not be null")
+      @DecimalMin(value = "0.1", message = "JPEG budget min quality must be at least 0.1")
+      @DecimalMax(value = "0.9", message = "JPEG budget min quality must not exceed 0.9")
+      Float minQuality,
+      @NotNull(message = "JPEG budget max search steps must not be null")
+      @Min(value = 1, message = "JPEG budget max search steps must be at least 1")
+      @Max(value = 8, message = "JPEG budget max search steps must not exceed 8")
+      Integer maxSearchSteps) {}
+
+  /**
+   * Splitting of resized images taller than {@code tileHeightPx} into overlapping tiles, sent as
+   * separate images of one request. When more than
+   * {@link BillAnalysisService#MAX_IMAGES_PER_REQUEST} tiles would be needed, tiles grow taller
+   * instead. The overlap keeps a line of text cut by one tile boundary whole in the next tile.
+   */
+  public record Tiling(
+      @NotNull(message = "Tiling enabled flag must not be null")
+      Boolean enabled,
+      @NotNull(message = "Tile height must not be null")
+      @Min(value = 800, message = "Tile height must be at least 800px")
+      @Max(value = 8000, message = "Tile height must not exceed 8000px")
+      Integer tileHeightPx,
+      @NotNull(message = "Tile overlap must not be null")
+      @Min(value = 0, message = "Tile overlap must not be negative")
+      @Max(value = 400, message = "Tile overlap must not exceed 400px")
+      Integer overlapPx,
+      @NotNull(message = "Tile encode threads must not be null")
+      @Min(value = 1, message = "Tile encode threads must be at least 1")
+      @Max(value = BillAnalysisService.MAX_IMAGES_PER_REQUEST,
+          message = "Tile encode threads must not exceed the images per request")
+      Integer encodeThreads) {}
+}
+// spotless:on
@@ -0,0 +1,68 @@
+package com.example.bill_manager.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "result-store")
+@Validated
+// spotless:off
+public record ResultStoreProperties(
+    @NotNull(message = "Result store type must not be null")
+    StoreType type,
+    @NotNull(message = "Result store max entries must not be null")
+    @Min(value = 1, message = "Result store max entries must be at least 1")
+    Long maxEntries,
+    @NotNull(message = "Result store max weight must not be null")
+    @Min(value = 0, message = "Result store max weight must not be negative")
+    Long maxWeightBytes,
+    @NotNull(message = "Result store TTL must not be null")
+    Duration ttl,
+    @NotNull(message = "Disk result store configuration must not be null")
+    @Valid
+    DiskConfig disk,
+    @NotNull(message = "JDBC result store configuration must not be null")
+    @Valid
+    JdbcConfig jdbc) {
+
+  public enum StoreType {
+    MEMORY,
+    DISK,
+    JDBC
+  }
+
+  public record DiskConfig(
+      @NotBlank(message = "Disk result store directory must not be blank")
+      String directory,
+      @NotNull(message = "Disk result store segment size must not be null")
+      @Min(value = 65536, message = "Disk result store segment size must be at least 64KB")
+      Integer segmentSizeBytes,
+      @NotNull(message = "Disk result store compaction ratio must not be null")
+      @DecimalMin(value = "0.1", message = "Compaction garbage ratio must be at least 0.1")
+      @DecimalMax(value = "1.0", message = "Compaction garbage ratio must not exceed 1.0")
+      Double compactionGarbageRatio) {}
+
+  public record JdbcConfig(
+      @NotNull(message = "JDBC flush interval must not be null")
+      Duration flushInterval,
+      @NotNull(message = "JDBC batch size must not be null")
+      @Min(value = 1, message = "JDBC batch size must be at least 1")
+      Integer batchSize,
+      @NotNull(message = "JDBC max pending must not be null")
+      @Min(value = 1, message = "JDBC max pending must be at least 1")
+      Integer maxPending,
+      @NotNull(message = "JDBC initialize schema flag must not be null")
+      Boolean initializeSchema) {}
+
+  /** Whether the in-memory store is bounded by estimated heap weight instead of entry count. */
+  public boolean isWeightBounded() {
+    return maxWeightBytes > 0;
+  }
+}
+// spotless:on
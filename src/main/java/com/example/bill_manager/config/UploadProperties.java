@@ -1,5 +1,6 @@
 package com.example.bill_manager.config;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
@@ -24,8 +25,45 @@ public record UploadProperties(
     @NotNull(message = "PDF max pages must not be null")
     @Min(value = 1, message = "PDF max pages must be at least 1")
     @Max(value = 5, message = "PDF max pages must not exceed 5")
-    Integer pdfMaxPages) {
+    Integer pdfMaxPages,
+    @NotNull(message = "PDF render threads must not be null")
+    @Min(value = 1, message = "PDF render threads must be at least 1")
+    @Max(value = 32, message = "PDF render threads must not exceed 32")
+    Integer pdfRenderThreads,
+    @NotNull(message = "Async configuration must not be null")
+    @Valid
+    AsyncConfig async,
+    @NotNull(message = "Batch configuration must not be null")
+    @Valid
+    BatchConfig batch) {
+
+  public record AsyncConfig(
+      @NotNull(message = "Async worker threads must not be null")
+      @Min(value = 1, message = "Async worker threads must be at least 1")
+      Integer workerThreads,
+      @NotNull(message = "Async queue capacity must not be null")
+      @Min(value = 0, message = "Async queue capacity must not be negative")
+      Integer queueCapacity) {}
+
+  public record BatchConfig(
+      @NotNull(message = "Batch max files must not be null")
+      @Min(value = 1, message = "Batch max files must be at least 1")
+      @Max(value = 1000, message = "Batch max files must not exceed 1000")
+      Integer maxFiles,
+      @NotNull(message = "Batch worker threads must not be null")
+      @Min(value = 1, message = "Batch worker threads must be at least 1")
+      Integer workerThreads,
+      @NotNull(message = "Batch queue capacity must not be null")
+      @Min(value = 0, message = "Batch queue capacity must not be negative")
+      Integer queueCapacity,
+      @NotNull(message = "Batch max concurrent analyses must not be null")
+      @Min(value = 1, message = "Batch max concurrent analyses must be at least 1")
+      Integer maxConcurrentAnalyses,
+      @NotNull(message = "Batch timeout must not be null")
+      @Min(value = 10, message = "Batch timeout must be at least 10 seconds")
+      Integer timeoutSeconds) {}
   // spotless:on
+
   public boolean isFileSizeValid(final long fileSizeBytes) {
     return fileSizeBytes > 0 && fileSizeBytes <= maxFileSizeBytes;
   }
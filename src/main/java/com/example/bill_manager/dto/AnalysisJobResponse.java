@@ -0,0 +1,14 @@
+package com.example.bill_manager.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.UUID;
+
+public record AnalysisJobResponse(
+    @NotNull UUID id,
+    @NotNull AnalysisJobStatus status,
+    @NotBlank String originalFileName,
+    @NotNull Instant submittedAt,
+    @NotNull Instant updatedAt,
+    ErrorResponse error) {}
@@ -0,0 +1,8 @@
+package com.example.bill_manager.dto;
+
+public enum AnalysisJobStatus {
+  PENDING,
+  RUNNING,
+  DONE,
+  FAILED
+}
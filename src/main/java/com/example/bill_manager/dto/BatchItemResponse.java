@@ -0,0 +1,16 @@
+package com.example.bill_manager.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * One line of the {@code POST /api/bills/batch} NDJSON stream: the outcome for the file at
+ * {@code index} in the multipart list. Exactly one of {@code result} (also stored under its ID)
+ * and {@code error} is set.
+ */
+public record BatchItemResponse(
+    @Min(0) int index,
+    @NotBlank String originalFileName,
+    @Valid BillAnalysisResponse result,
+    ErrorResponse error) {}
@@ -0,0 +1,9 @@
+package com.example.bill_manager.dto;
+
+import java.util.List;
+
+/**
+ * What a streamed analysis has produced so far: the merchant name and currency once parsed (null
+ * until then) and every complete line item. Each snapshot supersedes the previous one.
+ */
+public record PartialBillAnalysis(String merchantName, String currency, List<LineItem> items) {}
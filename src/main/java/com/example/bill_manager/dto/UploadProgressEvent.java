@@ -0,0 +1,20 @@
+package com.example.bill_manager.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One event of a streaming upload. {@code images} is set for PAGES_RENDERED and PREPROCESSED,
+ * {@code partial} for ANALYSIS_PROGRESS, {@code result} for DONE and {@code error} for FAILED.
+ */
+public record UploadProgressEvent(
+    @NotNull UUID id,
+    @NotNull UploadStage stage,
+    @Min(0) Integer images,
+    PartialBillAnalysis partial,
+    @Valid BillAnalysisResponse result,
+    ErrorResponse error,
+    @NotNull Instant timestamp) {}
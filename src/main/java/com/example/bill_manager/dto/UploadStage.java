@@ -0,0 +1,15 @@
+package com.example.bill_manager.dto;
+
+/**
+ * Stages reported by a streaming upload, in the order they occur. PAGES_RENDERED is PDF-only;
+ * ANALYSIS_PROGRESS repeats while the model response streams in.
+ */
+public enum UploadStage {
+  VALIDATED,
+  PAGES_RENDERED,
+  PREPROCESSED,
+  ANALYSIS_STARTED,
+  ANALYSIS_PROGRESS,
+  DONE,
+  FAILED
+}
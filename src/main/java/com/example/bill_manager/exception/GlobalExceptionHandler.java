@@ -5,9 +5,11 @@ import com.example.bill_manager.dto.ErrorResponse;
 import com.example.bill_manager.upload.FileValidationException;
 import com.example.bill_manager.upload.ImagePreprocessingException;
 import com.example.bill_manager.upload.PdfConversionException;
+import java.time.Duration;
 import java.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -107,14 +109,22 @@ public class GlobalExceptionHandler {
   @ExceptionHandler(BillAnalysisException.class)
   public ResponseEntity<ErrorResponse> handleBillAnalysis(final BillAnalysisException ex) {
     final HttpStatus status = mapBillAnalysisErrorCodeToStatus(ex.getErrorCode());
+    final ErrorResponse response =
+        new ErrorResponse(ex.getErrorCode().name(), ex.getMessage(), Instant.now());
+    if (ex.getRetryAfter() != null) {
+      // Fast rejection while the backend is known to be down; a stack trace per request is noise.
+      LOG.warn(
+          "Bill analysis rejected: code={}, retryAfter={}", ex.getErrorCode(), ex.getRetryAfter());
+      return ResponseEntity.status(status)
+          .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(ex.getRetryAfter())))
+          .body(response);
+    }
     if (status.is5xxServerError()) {
       LOG.error(
           "Bill analysis error: code={}, message='{}'", ex.getErrorCode(), ex.getMessage(), ex);
     } else {
       LOG.warn("Bill analysis failed: code={}, message='{}'", ex.getErrorCode(), ex.getMessage());
     }
-    final ErrorResponse response =
-        new ErrorResponse(ex.getErrorCode().name(), ex.getMessage(), Instant.now());
     return ResponseEntity.status(status).body(response);
   }
 
@@ -126,9 +136,14 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
   }
 
+  /** Whole seconds for the Retry-After header, rounded up and never below one. */
+  private static long retryAfterSeconds(final Duration retryAfter) {
+    return Math.max(1L, (retryAfter.toMillis() + 999L) / 1000L);
+  }
+
   private HttpStatus mapErrorCodeToStatus(final FileValidationException.ErrorCode errorCode) {
     return switch (errorCode) {
-      case FILE_REQUIRED -> HttpStatus.BAD_REQUEST;
+      case FILE_REQUIRED, TOO_MANY_FILES -> HttpStatus.BAD_REQUEST;
       case FILE_TOO_LARGE -> HttpStatus.PAYLOAD_TOO_LARGE;
       case UNSUPPORTED_MEDIA_TYPE -> HttpStatus.UNSUPPORTED_MEDIA_TYPE;
       case FILE_UNREADABLE -> HttpStatus.INTERNAL_SERVER_ERROR;
@@ -0,0 +1,31 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.dto.AnalysisJobResponse;
+import com.example.bill_manager.dto.UploadProgressEvent;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface AnalysisJobService {
+
+  /**
+   * Queues analysis of an upload spooled to {@code contentFile}. The job takes ownership of the
+   * file and deletes it once processed, or immediately if the job is rejected.
+   */
+  AnalysisJobResponse submit(Path contentFile, String mimeType, String originalFileName);
+
+  /**
+   * Same as {@link #submit(Path, String, String)}, additionally reporting the job's progress to
+   * {@code listener}: VALIDATED before this method returns, then each pipeline stage from the
+   * worker thread, ending with DONE or FAILED. If the listener throws (e.g. the client has gone
+   * away) it is not called again, but the job still runs to completion.
+   */
+  AnalysisJobResponse submit(
+      Path contentFile,
+      String mimeType,
+      String originalFileName,
+      Consumer<UploadProgressEvent> listener);
+
+  Optional<AnalysisJobResponse> findById(UUID id);
+}
@@ -0,0 +1,228 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.ai.BillAnalysisException;
+import com.example.bill_manager.dto.AnalysisJobResponse;
+import com.example.bill_manager.dto.AnalysisJobStatus;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.ErrorResponse;
+import com.example.bill_manager.dto.PartialBillAnalysis;
+import com.example.bill_manager.dto.UploadProgressEvent;
+import com.example.bill_manager.dto.UploadStage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tracks asynchronous analysis jobs and runs them on the bounded {@code analysisJobExecutor}.
+ * <p>
+ * Only jobs that have not yet produced a result are tracked here. Once a job is DONE its
+ * {@link BillAnalysisResponse} is saved to {@link BillResultStore} and the tracking entry is
+ * dropped, so {@code GET /api/bills/{id}} serves the stored result. FAILED jobs are kept for
+ * {@link #FAILED_JOB_RETENTION} so clients polling for the outcome can observe the error.
+ * <p>
+ * Streaming uploads are ordinary jobs with a progress listener, so their result can still be
+ * fetched by ID if the client disconnects before the DONE event. Only those jobs pass their
+ * progress to {@link BillProcessingService}, which switches the analysis to a streamed call for
+ * them; plain asynchronous jobs, and jobs whose subscriber is already gone, use the blocking call.
+ */
+@Service
+public class AnalysisJobServiceImpl implements AnalysisJobService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisJobServiceImpl.class);
+
+  static final Duration FAILED_JOB_RETENTION = Duration.ofHours(1);
+
+  private static final Consumer<UploadProgressEvent> NO_SUBSCRIBER = event -> {};
+
+  private final Map<UUID, AnalysisJobResponse> jobs = new ConcurrentHashMap<>();
+  private final BillProcessingService billProcessingService;
+  private final BillResultStore billResultStore;
+  private final TaskExecutor analysisJobExecutor;
+
+  public AnalysisJobServiceImpl(
+      final BillProcessingService billProcessingService,
+      final BillResultStore billResultStore,
+      @Qualifier("analysisJobExecutor") final TaskExecutor analysisJobExecutor) {
+    this.billProcessingService = billProcessingService;
+    this.billResultStore = billResultStore;
+    this.analysisJobExecutor = analysisJobExecutor;
+  }
+
+  @Override
+  public AnalysisJobResponse submit(
+      final Path contentFile, final String mimeType, final String originalFileName) {
+    return submit(contentFile, mimeType, originalFileName, NO_SUBSCRIBER);
+  }
+
+  @Override
+  public AnalysisJobResponse submit(
+      final Path contentFile,
+      final String mimeType,
+      final String originalFileName,
+      final Consumer<UploadProgressEvent> listener) {
+    Objects.requireNonNull(contentFile, "Content file must not be null");
+    Objects.requireNonNull(mimeType, "MIME type must not be null");
+    Objects.requireNonNull(listener, "Listener must not be null");
+    purgeExpiredFailedJobs();
+
+    final Instant now = Instant.now();
+    final UUID id = UUID.randomUUID();
+    final AnalysisJobResponse pending =
+        new AnalysisJobResponse(id, AnalysisJobStatus.PENDING, originalFileName, now, now, null);
+    jobs.put(id, pending);
+    final JobProgress progress = new JobProgress(id, listener);
+    progress.report(UploadStage.VALIDATED, null, null, null, null);
+
+    try {
+      analysisJobExecutor.execute(() -> runJob(pending, contentFile, mimeType, progress));
+    } catch (final TaskRejectedException e) {
+      jobs.remove(id);
+      UploadSpool.delete(contentFile);
+      LOG.warn("Analysis job rejected, worker queue is full: id={}", id);
+      throw new BillAnalysisException(
+          BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+          "Too many analyses in progress. Please try again later.",
+          e);
+    }
+    LOG.info("Analysis job submitted: id={}, filename='{}'", id, originalFileName);
+    return pending;
+  }
+
+  @Override
+  public Optional<AnalysisJobResponse> findById(final UUID id) {
+    Objects.requireNonNull(id, "ID must not be null");
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  private void runJob(
+      final AnalysisJobResponse job,
+      final Path contentFile,
+      final String mimeType,
+      final JobProgress progress) {
+    final UUID id = job.id();
+    jobs.put(id, withStatus(job, AnalysisJobStatus.RUNNING, null));
+    LOG.debug("Analysis job started: id={}", id);
+    try {
+      final BillAnalysisResult analysis = process(contentFile, mimeType, progress);
+      final BillAnalysisResponse response =
+          new BillAnalysisResponse(id, job.originalFileName(), analysis, Instant.now());
+      billResultStore.save(id, response);
+      jobs.remove(id);
+      LOG.info("Analysis job completed: id={}, items={}", id, analysis.items().size());
+      progress.report(UploadStage.DONE, null, null, response, null);
+    } catch (final RuntimeException e) {
+      final ErrorResponse error = ErrorResponses.of(e);
+      jobs.put(id, withStatus(job, AnalysisJobStatus.FAILED, error));
+      progress.report(UploadStage.FAILED, null, null, null, error);
+      if (ErrorResponses.INTERNAL_ERROR.equals(error.code())) {
+        LOG.error("Analysis job failed: id={}", id, e);
+      } else {
+        LOG.warn(
+            "Analysis job failed: id={}, code={}, message='{}'", id, error.code(), e.getMessage());
+      }
+    } finally {
+      UploadSpool.delete(contentFile);
+    }
+  }
+
+  private BillAnalysisResult process(
+      final Path contentFile, final String mimeType, final JobProgress progress) {
+    try (InputStream content = new BufferedInputStream(Files.newInputStream(contentFile))) {
+      return billProcessingService.process(
+          content,
+          mimeType,
+          progress.isSubscribed() ? progress : BillProcessingService.ProgressListener.NONE);
+    } catch (final IOException e) {
+      throw new FileValidationException(
+          FileValidationException.ErrorCode.FILE_UNREADABLE,
+          "Failed to read uploaded file content",
+          e);
+    }
+  }
+
+  private static AnalysisJobResponse withStatus(
+      final AnalysisJobResponse job, final AnalysisJobStatus status, final ErrorResponse error) {
+    return new AnalysisJobResponse(
+        job.id(), status, job.originalFileName(), job.submittedAt(), Instant.now(), error);
+  }
+
+  private void purgeExpiredFailedJobs() {
+    final Instant cutoff = Instant.now().minus(FAILED_JOB_RETENTION);
+    jobs.values()
+        .removeIf(
+            job -> job.status() == AnalysisJobStatus.FAILED && job.updatedAt().isBefore(cutoff));
+  }
+
+  /** Turns pipeline callbacks into {@link UploadProgressEvent}s for the job's listener. */
+  private static final class JobProgress implements BillProcessingService.ProgressListener {
+
+    private final UUID id;
+    private final Consumer<UploadProgressEvent> listener;
+    private volatile boolean detached;
+
+    JobProgress(final UUID id, final Consumer<UploadProgressEvent> listener) {
+      this.id = id;
+      this.listener = listener;
+    }
+
+    @Override
+    public void pagesRendered(final int pages) {
+      report(UploadStage.PAGES_RENDERED, pages, null, null, null);
+    }
+
+    @Override
+    public void preprocessed(final int images) {
+      report(UploadStage.PREPROCESSED, images, null, null, null);
+    }
+
+    @Override
+    public void analysisStarted() {
+      report(UploadStage.ANALYSIS_STARTED, null, null, null, null);
+    }
+
+    @Override
+    public void partialResult(final PartialBillAnalysis partial) {
+      report(UploadStage.ANALYSIS_PROGRESS, null, partial, null, null);
+    }
+
+    /** Whether someone is still listening, i.e. progress is worth computing at all. */
+    boolean isSubscribed() {
+      return listener != NO_SUBSCRIBER && !detached;
+    }
+
+    void report(
+        final UploadStage stage,
+        final Integer images,
+        final PartialBillAnalysis partial,
+        final BillAnalysisResponse result,
+        final ErrorResponse error) {
+      if (detached) {
+        return;
+      }
+      try {
+        listener.accept(
+            new UploadProgressEvent(id, stage, images, partial, result, error, Instant.now()));
+      } catch (final RuntimeException e) {
+        detached = true;
+        LOG.debug("Progress listener detached: id={}, reason='{}'", id, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.dto.BatchItemResponse;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+public interface BillBatchService {
+
+  /**
+   * Processes the validated, spooled files of one batch concurrently and reports each outcome to
+   * {@code listener} as it completes, one call at a time but from worker threads. The batch takes
+   * ownership of the files and deletes each once processed. The returned future completes when
+   * every file has been reported, or exceptionally with the listener's exception if it throws
+   * (e.g. the client went away), after which files not yet started are skipped.
+   */
+  CompletableFuture<Void> submit(List<BatchFile> files, Consumer<BatchItemResponse> listener);
+
+  /** A validated file of a batch: its position in the upload, name, spooled content and type. */
+  record BatchFile(int index, String originalFileName, Path contentFile, String mimeType) {}
+}
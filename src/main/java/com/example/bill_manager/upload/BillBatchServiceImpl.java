@@ -0,0 +1,190 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.ai.BillAnalysisException;
+import com.example.bill_manager.config.UploadProperties;
+import com.example.bill_manager.dto.BatchItemResponse;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.ErrorResponse;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs batch files on the bounded {@code batchWorkerExecutor}, each through
+ * {@link BillProcessingService#prepare} and {@link BillProcessingService#analyze}.
+ * <p>
+ * Preprocessing runs on as many workers as the pool has, while the AI calls of all batches
+ * together are limited to {@code upload.batch.max-concurrent-analyses} by a shared semaphore, so
+ * a large import keeps the CPU busy without flooding the Groq API. Successful results are saved
+ * to {@link BillResultStore} like single uploads. A file rejected because the worker queue is full
+ * is reported as {@code SERVICE_UNAVAILABLE} instead of failing the whole batch.
+ */
+@Service
+public class BillBatchServiceImpl implements BillBatchService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BillBatchServiceImpl.class);
+
+  private final BillProcessingService billProcessingService;
+  private final BillResultStore billResultStore;
+  private final TaskExecutor batchWorkerExecutor;
+  private final Semaphore analysisPermits;
+
+  public BillBatchServiceImpl(
+      final BillProcessingService billProcessingService,
+      final BillResultStore billResultStore,
+      @Qualifier("batchWorkerExecutor") final TaskExecutor batchWorkerExecutor,
+      final UploadProperties uploadProperties) {
+    this.billProcessingService = billProcessingService;
+    this.billResultStore = billResultStore;
+    this.batchWorkerExecutor = batchWorkerExecutor;
+    this.analysisPermits = new Semaphore(uploadProperties.batch().maxConcurrentAnalyses(), true);
+  }
+
+  @Override
+  public CompletableFuture<Void> submit(
+      final List<BatchFile> files, final Consumer<BatchItemResponse> listener) {
+    Objects.requireNonNull(files, "Files must not be null");
+    Objects.requireNonNull(listener, "Listener must not be null");
+    final BatchRun run = new BatchRun(files.size(), listener);
+    for (final BatchFile file : files) {
+      try {
+        batchWorkerExecutor.execute(() -> runFile(file, run));
+      } catch (final TaskRejectedException e) {
+        UploadSpool.delete(file.contentFile());
+        LOG.warn("Batch file rejected, worker queue is full: index={}", file.index());
+        run.report(
+            failure(
+                file,
+                new BillAnalysisException(
+                    BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+                    "Too many analyses in progress. Please try again later.",
+                    e)));
+        run.finishOne();
+      }
+    }
+    LOG.info("Batch submitted: files={}", files.size());
+    return run.completion;
+  }
+
+  private void runFile(final BatchFile file, final BatchRun run) {
+    try {
+      if (!run.cancelled) {
+        run.report(process(file));
+      }
+    } finally {
+      UploadSpool.delete(file.contentFile());
+      run.finishOne();
+    }
+  }
+
+  private BatchItemResponse process(final BatchFile file) {
+    try {
+      final BillProcessingService.PreparedBill prepared;
+      try (InputStream content =
+          new BufferedInputStream(Files.newInputStream(file.contentFile()))) {
+        prepared = billProcessingService.prepare(content, file.mimeType());
+      } catch (final IOException e) {
+        throw new FileValidationException(
+            FileValidationException.ErrorCode.FILE_UNREADABLE,
+            "Failed to read uploaded file content",
+            e);
+      }
+      final BillAnalysisResult analysis = analyze(prepared);
+      final UUID id = UUID.randomUUID();
+      final BillAnalysisResponse response =
+          new BillAnalysisResponse(id, file.originalFileName(), analysis, Instant.now());
+      billResultStore.save(id, response);
+      LOG.debug(
+          "Batch file completed: index={}, id={}, items={}",
+          file.index(),
+          id,
+          analysis.items().size());
+      return new BatchItemResponse(file.index(), file.originalFileName(), response, null);
+    } catch (final RuntimeException e) {
+      return failure(file, e);
+    }
+  }
+
+  private BillAnalysisResult analyze(final BillProcessingService.PreparedBill prepared) {
+    try {
+      analysisPermits.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BillAnalysisException(
+          BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+          "Interrupted while waiting for an analysis slot",
+          e);
+    }
+    try {
+      return billProcessingService.analyze(prepared);
+    } finally {
+      analysisPermits.release();
+    }
+  }
+
+  private static BatchItemResponse failure(final BatchFile file, final RuntimeException e) {
+    final ErrorResponse error = ErrorResponses.of(e);
+    if (ErrorResponses.INTERNAL_ERROR.equals(error.code())) {
+      LOG.error("Batch file failed: index={}", file.index(), e);
+    } else {
+      LOG.warn(
+          "Batch file failed: index={}, code={}, message='{}'",
+          file.index(),
+          error.code(),
+          e.getMessage());
+    }
+    return new BatchItemResponse(file.index(), file.originalFileName(), null, error);
+  }
+
+  /** Progress of one batch; reports are serialized so the listener sees one call at a time. */
+  private static final class BatchRun {
+
+    private final Consumer<BatchItemResponse> listener;
+    private final AtomicInteger remaining;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    BatchRun(final int files, final Consumer<BatchItemResponse> listener) {
+      this.listener = listener;
+      this.remaining = new AtomicInteger(files);
+      if (files == 0) {
+        completion.complete(null);
+      }
+    }
+
+    synchronized void report(final BatchItemResponse item) {
+      if (cancelled) {
+        return;
+      }
+      try {
+        listener.accept(item);
+      } catch (final RuntimeException e) {
+        cancelled = true;
+        LOG.warn("Batch cancelled, result could not be delivered: {}", e.getMessage());
+        completion.completeExceptionally(e);
+      }
+    }
+
+    void finishOne() {
+      if (remaining.decrementAndGet() == 0) {
+        completion.complete(null);
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.PartialBillAnalysis;
+import java.io.InputStream;
+import java.util.List;
+
+public interface BillProcessingService {
+
+  /** Processes the upload read from {@code content}; the stream is consumed but not closed. */
+  BillAnalysisResult process(InputStream content, String mimeType);
+
+  /** Same as {@link #process(InputStream, String)}, reporting each stage to {@code listener}. */
+  BillAnalysisResult process(InputStream content, String mimeType, ProgressListener listener);
+
+  /**
+   * First half of {@link #process}: PDF conversion and image preprocessing, without the AI call.
+   * Lets callers such as batch uploads bound the analysis step separately.
+   */
+  PreparedBill prepare(InputStream content, String mimeType);
+
+  /** Second half of {@link #process}: analyzes images returned by {@link #prepare}. */
+  BillAnalysisResult analyze(PreparedBill bill);
+
+  /** Preprocessed images of one upload and the MIME type they are encoded in. */
+  record PreparedBill(List<byte[]> images, String mimeType) {}
+
+  /**
+   * Stage callbacks of {@link #process(InputStream, String, ProgressListener)}, invoked on the
+   * processing thread. All methods default to no-ops.
+   */
+  interface ProgressListener {
+
+    ProgressListener NONE = new ProgressListener() {};
+
+    /** A PDF has been rendered into {@code pages} preprocessed page images. */
+    default void pagesRendered(final int pages) {}
+
+    /** Preprocessing is done and {@code images} images are ready for analysis. */
+    default void preprocessed(final int images) {}
+
+    /** The AI analysis call is about to start. */
+    default void analysisStarted() {}
+
+    /**
+     * The streamed analysis has produced more of the result. Listeners other than {@link #NONE}
+     * switch the analysis to streaming mode, so callers without a consumer for the progress pass
+     * {@link #NONE}.
+     */
+    default void partialResult(final PartialBillAnalysis partial) {}
+  }
+}
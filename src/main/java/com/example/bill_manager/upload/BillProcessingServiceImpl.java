@@ -0,0 +1,137 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.ai.BillAnalysisService;
+import com.example.bill_manager.config.PreprocessingProperties;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the validated upload through PDF conversion, image preprocessing and AI analysis.
+ * <p>
+ * Shared by the synchronous upload endpoint and the asynchronous job workers so that both
+ * paths produce identical results for the same input.
+ * <p>
+ * The upload is consumed as a stream: images are decoded straight from it, and PDFs (which PDFBox
+ * needs random access to) are spooled to a temporary file that is deleted once rendered. Peak
+ * heap per request is therefore bounded by the decoded images rather than the uploaded file.
+ * <p>
+ * Each image is kept within the per-image JPEG budget by the preprocessor. If the pages of a PDF
+ * together still exceed {@code upload.preprocessing.jpeg-budget.max-request-bytes}, the pages
+ * larger than an even share of the request budget are re-encoded to fit that share; the document
+ * is not rendered again.
+ * <p>
+ * Uploaded images go through {@link ImagePreprocessingService#preprocessTiled}, so a tall receipt
+ * may be analyzed as several tiles. PDF pages are not tiled: they are already one image each,
+ * and together with tiles could exceed {@code BillAnalysisService.MAX_IMAGES_PER_REQUEST}.
+ */
+@Service
+public class BillProcessingServiceImpl implements BillProcessingService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BillProcessingServiceImpl.class);
+
+  private static final String MIME_TYPE_PDF = "application/pdf";
+  private static final String MIME_TYPE_JPEG = "image/jpeg";
+
+  private final ImagePreprocessingService imagePreprocessingService;
+  private final PdfConversionService pdfConversionService;
+  private final BillAnalysisService billAnalysisService;
+  private final PreprocessingProperties.JpegBudget jpegBudget;
+
+  public BillProcessingServiceImpl(
+      final ImagePreprocessingService imagePreprocessingService,
+      final PdfConversionService pdfConversionService,
+      final BillAnalysisService billAnalysisService,
+      final PreprocessingProperties preprocessingProperties) {
+    this.imagePreprocessingService = imagePreprocessingService;
+    this.pdfConversionService = pdfConversionService;
+    this.billAnalysisService = billAnalysisService;
+    this.jpegBudget = preprocessingProperties.jpegBudget();
+  }
+
+  @Override
+  public BillAnalysisResult process(final InputStream content, final String mimeType) {
+    return process(content, mimeType, ProgressListener.NONE);
+  }
+
+  @Override
+  public BillAnalysisResult process(
+      final InputStream content, final String mimeType, final ProgressListener listener) {
+    final PreparedBill prepared = prepare(content, mimeType, listener);
+    listener.preprocessed(prepared.images().size());
+    listener.analysisStarted();
+    if (listener == ProgressListener.NONE) {
+      return analyze(prepared);
+    }
+    return billAnalysisService.analyze(
+        prepared.images(), prepared.mimeType(), listener::partialResult);
+  }
+
+  @Override
+  public PreparedBill prepare(final InputStream content, final String mimeType) {
+    return prepare(content, mimeType, ProgressListener.NONE);
+  }
+
+  private PreparedBill prepare(
+      final InputStream content, final String mimeType, final ProgressListener listener) {
+    final List<byte[]> processedImages;
+    final String analysisMimeType;
+
+    if (MIME_TYPE_PDF.equals(mimeType)) {
+      // Pages are rendered at (at most) the preprocessing target width and handed straight to the
+      // preprocessor, skipping the intermediate JPEG encode/decode round-trip per page.
+      final Path pdfFile = UploadSpool.toTempFile(content, ".pdf");
+      try {
+        processedImages = convertPdf(pdfFile);
+      } finally {
+        UploadSpool.delete(pdfFile);
+      }
+      analysisMimeType = MIME_TYPE_JPEG;
+      LOG.debug("PDF detected, converted {} page(s) to images", processedImages.size());
+      listener.pagesRendered(processedImages.size());
+    } else {
+      // A long receipt may come back as several overlapping tiles, analyzed as one document.
+      processedImages = imagePreprocessingService.preprocessTiled(content, mimeType);
+      analysisMimeType = mimeType;
+    }
+    return new PreparedBill(processedImages, analysisMimeType);
+  }
+
+  @Override
+  public BillAnalysisResult analyze(final PreparedBill bill) {
+    return billAnalysisService.analyze(bill.images(), bill.mimeType());
+  }
+
+  private List<byte[]> convertPdf(final Path pdfFile) {
+    final List<byte[]> pages =
+        pdfConversionService.convertToImages(
+            pdfFile,
+            imagePreprocessingService.maxWidthPx(),
+            page -> imagePreprocessingService.preprocessImage(page, MIME_TYPE_JPEG));
+    final long totalBytes = totalBytes(pages);
+    if (!jpegBudget.enabled() || pages.size() < 2 || totalBytes <= jpegBudget.maxRequestBytes()) {
+      return pages;
+    }
+    final int pageBudget = jpegBudget.maxRequestBytes() / pages.size();
+    LOG.debug(
+        "PDF pages total {} bytes > request budget {}, re-encoding page(s) to {} bytes each",
+        totalBytes,
+        jpegBudget.maxRequestBytes(),
+        pageBudget);
+    return pages.stream()
+        .map(page -> imagePreprocessingService.reencodeJpeg(page, pageBudget))
+        .toList();
+  }
+
+  private static long totalBytes(final List<byte[]> images) {
+    long total = 0;
+    for (final byte[] image : images) {
+      total += image.length;
+    }
+    return total;
+  }
+}
@@ -8,5 +8,9 @@ public interface BillResultStore {
 
   void save(UUID id, BillAnalysisResponse response);
 
+  /**
+   * Returns the stored result, or empty if the id is unknown or the result has since been
+   * expired or evicted by the store's retention policy.
+   */
   Optional<BillAnalysisResponse> findById(UUID id);
 }
@@ -1,16 +1,34 @@
 package com.example.bill_manager.upload;
 
-import com.example.bill_manager.ai.BillAnalysisService;
+import com.example.bill_manager.config.UploadProperties;
+import com.example.bill_manager.dto.AnalysisJobResponse;
+import com.example.bill_manager.dto.AnalysisJobStatus;
+import com.example.bill_manager.dto.BatchItemResponse;
 import com.example.bill_manager.dto.BillAnalysisResponse;
 import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.ErrorResponse;
+import com.example.bill_manager.dto.UploadProgressEvent;
+import com.example.bill_manager.dto.UploadStage;
 import com.example.bill_manager.exception.AnalysisNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,6 +37,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/bills")
@@ -26,85 +46,274 @@ public class BillUploadController {
 
   private static final Logger LOG = LoggerFactory.getLogger(BillUploadController.class);
 
-  private static final String MIME_TYPE_PDF = "application/pdf";
-  private static final String MIME_TYPE_JPEG = "image/jpeg";
-
   private final FileValidationService fileValidationService;
-  private final ImagePreprocessingService imagePreprocessingService;
-  private final PdfConversionService pdfConversionService;
-  private final BillAnalysisService billAnalysisService;
+  private final BillProcessingService billProcessingService;
+  private final AnalysisJobService analysisJobService;
   private final BillResultStore billResultStore;
+  private final BillBatchService billBatchService;
+  private final UploadProperties.BatchConfig batchConfig;
+  private final long maxFileSizeBytes;
+  private final ObjectMapper objectMapper;
 
   public BillUploadController(
       final FileValidationService fileValidationService,
-      final ImagePreprocessingService imagePreprocessingService,
-      final PdfConversionService pdfConversionService,
-      final BillAnalysisService billAnalysisService,
-      final BillResultStore billResultStore) {
+      final BillProcessingService billProcessingService,
+      final AnalysisJobService analysisJobService,
+      final BillResultStore billResultStore,
+      final BillBatchService billBatchService,
+      final UploadProperties uploadProperties,
+      final ObjectMapper objectMapper) {
     this.fileValidationService = fileValidationService;
-    this.imagePreprocessingService = imagePreprocessingService;
-    this.pdfConversionService = pdfConversionService;
-    this.billAnalysisService = billAnalysisService;
+    this.billProcessingService = billProcessingService;
+    this.analysisJobService = analysisJobService;
     this.billResultStore = billResultStore;
+    this.billBatchService = billBatchService;
+    this.batchConfig = uploadProperties.batch();
+    this.maxFileSizeBytes = uploadProperties.maxFileSizeBytes();
+    this.objectMapper = objectMapper;
   }
 
+  /**
+   * Analyzes the upload synchronously. The multipart content is read through a single stream:
+   * validation sniffs the magic bytes from its buffered head and processing consumes the rest,
+   * so the file is never copied onto the heap as a whole.
+   */
   @PostMapping("/upload")
   public ResponseEntity<BillAnalysisResponse> uploadBill(
       @RequestParam("file") final MultipartFile file) {
-    final String detectedMimeType = fileValidationService.validateFile(file);
-    final String sanitizedFilename =
-        fileValidationService.sanitizeFilename(file.getOriginalFilename());
-    LOG.info(
-        "Upload request received: filename='{}', size={} bytes", sanitizedFilename, file.getSize());
-    LOG.debug("File validated: mimeType={}", detectedMimeType);
-    final byte[] fileBytes = readFileBytes(file);
-
-    final List<byte[]> processedImages;
-    final String analysisMimeType;
-
-    if (MIME_TYPE_PDF.equals(detectedMimeType)) {
-      final List<byte[]> pageImages = pdfConversionService.convertToImages(fileBytes);
-      processedImages =
-          pageImages.stream()
-              .map(img -> imagePreprocessingService.preprocess(img, MIME_TYPE_JPEG))
-              .toList();
-      analysisMimeType = MIME_TYPE_JPEG;
-      LOG.debug("PDF detected, converted {} page(s) to images", pageImages.size());
-    } else {
-      final byte[] processedBytes =
-          imagePreprocessingService.preprocess(fileBytes, detectedMimeType);
-      processedImages = List.of(processedBytes);
-      analysisMimeType = detectedMimeType;
+    final BillAnalysisResult analysis;
+    final ValidatedUpload upload;
+    try (InputStream content = openContent(file)) {
+      upload = validate(file, content, "Upload");
+      analysis = billProcessingService.process(content, upload.mimeType());
+    } catch (final IOException e) {
+      throw unreadable(e);
     }
 
-    final BillAnalysisResult analysis =
-        billAnalysisService.analyze(processedImages, analysisMimeType);
-
     final UUID id = UUID.randomUUID();
     final BillAnalysisResponse response =
-        new BillAnalysisResponse(id, sanitizedFilename, analysis, Instant.now());
+        new BillAnalysisResponse(id, upload.filename(), analysis, Instant.now());
     billResultStore.save(id, response);
     LOG.info("Bill analysis completed: id={}, items={}", id, analysis.items().size());
     LOG.debug("Analysis details: id={}, merchant='{}'", id, analysis.merchantName());
     return ResponseEntity.status(HttpStatus.CREATED).body(response);
   }
 
+  /**
+   * Asynchronous variant of {@link #uploadBill}: validates the file on the request thread, then
+   * spools it to a temporary file and hands the rest of the pipeline to a bounded worker pool,
+   * returning 202 with the job ID.
+   * Clients poll {@code GET /api/bills/{id}} (see the {@code Location} header) for the outcome.
+   */
+  @PostMapping(value = "/upload", params = "async=true")
+  public ResponseEntity<AnalysisJobResponse> uploadBillAsync(
+      @RequestParam("file") final MultipartFile file) {
+    final SpooledUpload upload = spool(file, "Async upload");
+    final AnalysisJobResponse job =
+        analysisJobService.submit(upload.contentFile(), upload.mimeType(), upload.filename());
+    return ResponseEntity.accepted().location(URI.create("/api/bills/" + job.id())).body(job);
+  }
+
+  /**
+   * Streaming variant of {@link #uploadBill}: validates and spools the file like
+   * {@link #uploadBillAsync}, then answers with a {@code text/event-stream} of
+   * {@link UploadProgressEvent}s named after their stage ({@code validated},
+   * {@code pages_rendered}, {@code preprocessed}, {@code analysis_started}, an
+   * {@code analysis_progress} snapshot per parsed field or line item, then {@code done} with the
+   * result or {@code failed} with the error). The job runs on the async worker pool, so the
+   * result stays available under the event ID if the client disconnects early. The stream is
+   * closed after the last event or by {@code spring.mvc.async.request-timeout}.
+   */
+  @PostMapping(value = "/upload", params = "stream=true")
+  public SseEmitter uploadBillStreaming(@RequestParam("file") final MultipartFile file) {
+    final SpooledUpload upload = spool(file, "Streaming upload");
+    final SseEmitter emitter = new SseEmitter();
+    analysisJobService.submit(
+        upload.contentFile(),
+        upload.mimeType(),
+        upload.filename(),
+        event -> sendEvent(emitter, event));
+    return emitter;
+  }
+
+  /**
+   * Analyzes up to {@code upload.batch.max-files} files in one request and streams back one NDJSON
+   * line ({@link BatchItemResponse}) per file as soon as it is done, in completion order. Each file
+   * is validated and spooled on the request thread like {@link #uploadBillAsync}; a file failing
+   * validation is reported on its own line rather than failing the batch, and a part over
+   * {@code upload.max-file-size-bytes} is reported without being read. The whole request is still
+   * bounded by {@code spring.servlet.multipart.max-request-size}. The rest of the pipeline runs
+   * through {@link BillBatchService}.
+   */
+  @PostMapping("/batch")
+  public ResponseEntity<ResponseBodyEmitter> uploadBatch(
+      @RequestParam("files") final List<MultipartFile> files) {
+    if (files.isEmpty()) {
+      throw new FileValidationException(
+          FileValidationException.ErrorCode.FILE_REQUIRED, "At least one file is required");
+    }
+    if (files.size() > batchConfig.maxFiles()) {
+      throw new FileValidationException(
+          FileValidationException.ErrorCode.TOO_MANY_FILES,
+          "Too many files: " + files.size() + ", maximum allowed: " + batchConfig.maxFiles());
+    }
+    LOG.info("Batch upload request received: files={}", files.size());
+
+    final ResponseBodyEmitter emitter =
+        new ResponseBodyEmitter(Duration.ofSeconds(batchConfig.timeoutSeconds()).toMillis());
+    final List<BillBatchService.BatchFile> accepted = new ArrayList<>(files.size());
+    try {
+      validateBatch(files, emitter, accepted);
+    } catch (final RuntimeException e) {
+      accepted.forEach(file -> UploadSpool.delete(file.contentFile()));
+      throw e;
+    }
+
+    billBatchService
+        .submit(accepted, item -> sendLine(emitter, item))
+        .whenComplete(
+            (ignored, error) -> {
+              if (error == null) {
+                emitter.complete();
+              } else {
+                emitter.completeWithError(error);
+              }
+            });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+  }
+
+  /** Validates and spools each file, adding it to {@code accepted} or sending its error line. */
+  private void validateBatch(
+      final List<MultipartFile> files,
+      final ResponseBodyEmitter emitter,
+      final List<BillBatchService.BatchFile> accepted) {
+    for (int index = 0; index < files.size(); index++) {
+      final MultipartFile file = files.get(index);
+      final String sanitizedFilename =
+          fileValidationService.sanitizeFilename(file.getOriginalFilename());
+      if (file.getSize() > maxFileSizeBytes) {
+        final FileValidationException tooLarge =
+            new FileValidationException(
+                FileValidationException.ErrorCode.FILE_TOO_LARGE,
+                "File size exceeds maximum allowed size of " + maxFileSizeBytes + " bytes");
+        sendLine(emitter, new BatchItemResponse(index, sanitizedFilename, null, errorOf(tooLarge)));
+        continue;
+      }
+      try (InputStream content = openContent(file)) {
+        final String detectedMimeType = fileValidationService.validateFile(file, content);
+        final Path contentFile = UploadSpool.toTempFile(content, ".upload");
+        accepted.add(
+            new BillBatchService.BatchFile(
+                index, sanitizedFilename, contentFile, detectedMimeType));
+      } catch (final FileValidationException e) {
+        sendLine(emitter, new BatchItemResponse(index, sanitizedFilename, null, errorOf(e)));
+      } catch (final IOException e) {
+        final ErrorResponse error = errorOf(unreadable(e));
+        sendLine(emitter, new BatchItemResponse(index, sanitizedFilename, null, error));
+      }
+    }
+  }
+
+  /**
+   * Returns the stored analysis (200) or, for an asynchronous upload that has not produced a
+   * result yet, its job status: 202 while PENDING/RUNNING and 200 once FAILED.
+   */
   @GetMapping("/{id}")
-  public ResponseEntity<BillAnalysisResponse> getAnalysisResult(@PathVariable final UUID id) {
+  public ResponseEntity<?> getAnalysisResult(@PathVariable final UUID id) {
     LOG.debug("Retrieving analysis result: id={}", id);
+    // Check the job first: a worker saves the result before dropping the job entry, so this
+    // order never reports 404 for a job that is just completing.
+    final Optional<AnalysisJobResponse> job = analysisJobService.findById(id);
+    if (job.isPresent()) {
+      final HttpStatus status =
+          job.get().status() == AnalysisJobStatus.FAILED ? HttpStatus.OK : HttpStatus.ACCEPTED;
+      return ResponseEntity.status(status).body(job.get());
+    }
     final BillAnalysisResponse result =
         billResultStore.findById(id).orElseThrow(() -> new AnalysisNotFoundException(id));
     return ResponseEntity.ok(result);
   }
 
-  private byte[] readFileBytes(final MultipartFile file) {
+  /**
+   * Validates {@code file} from the head of {@code content}, leaving the stream at its start, and
+   * logs the request as {@code requestType}.
+   */
+  private ValidatedUpload validate(
+      final MultipartFile file, final InputStream content, final String requestType) {
+    final String detectedMimeType = fileValidationService.validateFile(file, content);
+    final String sanitizedFilename =
+        fileValidationService.sanitizeFilename(file.getOriginalFilename());
+    LOG.info(
+        "{} request received: filename='{}', size={} bytes",
+        requestType,
+        sanitizedFilename,
+        file.getSize());
+    LOG.debug("File validated: mimeType={}", detectedMimeType);
+    return new ValidatedUpload(detectedMimeType, sanitizedFilename);
+  }
+
+  /**
+   * Validates {@code file} and spools it to a temporary file for a worker to process. The file is
+   * deleted again if spooling fails; afterwards it belongs to the caller.
+   */
+  private SpooledUpload spool(final MultipartFile file, final String requestType) {
+    try (InputStream content = openContent(file)) {
+      final ValidatedUpload upload = validate(file, content, requestType);
+      return new SpooledUpload(
+          UploadSpool.toTempFile(content, ".upload"), upload.mimeType(), upload.filename());
+    } catch (final IOException e) {
+      throw unreadable(e);
+    }
+  }
+
+  /** Opens the single stream the whole request reads from; buffered so validation can reset it. */
+  private InputStream openContent(final MultipartFile file) throws IOException {
+    return new BufferedInputStream(file.getInputStream());
+  }
+
+  /**
+   * Writes {@code item} as one JSON line. Serialized to bytes here so the line is written in one
+   * piece, as UTF-8, whichever thread sends it.
+   */
+  private void sendLine(final ResponseBodyEmitter emitter, final BatchItemResponse item) {
     try {
-      return file.getBytes();
+      final ByteArrayOutputStream line = new ByteArrayOutputStream();
+      objectMapper.writeValue(line, item);
+      line.write('\n');
+      emitter.send(line.toByteArray(), MediaType.APPLICATION_NDJSON);
     } catch (final IOException e) {
-      throw new FileValidationException(
-          FileValidationException.ErrorCode.FILE_UNREADABLE,
-          "Failed to read uploaded file content",
-          e);
+      throw new UncheckedIOException("Failed to send batch result line", e);
     }
   }
+
+  /** Sends {@code event} and closes the stream after the final DONE or FAILED event. */
+  private static void sendEvent(final SseEmitter emitter, final UploadProgressEvent event) {
+    try {
+      emitter.send(
+          SseEmitter.event()
+              .name(event.stage().name().toLowerCase(Locale.ROOT))
+              .data(event, MediaType.APPLICATION_JSON));
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to send upload progress event", e);
+    }
+    if (event.stage() == UploadStage.DONE || event.stage() == UploadStage.FAILED) {
+      emitter.complete();
+    }
+  }
+
+  private static ErrorResponse errorOf(final FileValidationException e) {
+    LOG.warn("Batch file rejected: code={}, message='{}'", e.getErrorCode(), e.getMessage());
+    return ErrorResponses.of(e);
+  }
+
+  private static FileValidationException unreadable(final IOException e) {
+    return new FileValidationException(
+        FileValidationException.ErrorCode.FILE_UNREADABLE,
+        "Failed to read uploaded file content",
+        e);
+  }
+
+  private record ValidatedUpload(String mimeType, String filename) {}
+
+  private record SpooledUpload(Path contentFile, String mimeType, String filename) {}
 }
@@ -0,0 +1,51 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.PreprocessingProperties;
+import java.awt.image.BufferedImage;
+
+/**
+ * The {@code upload.preprocessing.color-mode} step on resized images. {@code grayscale} and
+ * {@code binarized} convert to 8-bit luma with {@link ReceiptImageFilter}, {@code grayscale}
+ * optionally contrast-stretched; {@code color} leaves images as they are.
+ */
+final class ColorModeFilter {
+
+  private final PreprocessingProperties.ColorMode colorMode;
+  private final boolean contrastStretch;
+
+  ColorModeFilter(
+      final PreprocessingProperties.ColorMode colorMode, final boolean contrastStretch) {
+    this.colorMode = colorMode;
+    this.contrastStretch = contrastStretch;
+  }
+
+  BufferedImage apply(final BufferedImage image) {
+    if (colorMode == PreprocessingProperties.ColorMode.COLOR) {
+      return image;
+    }
+    final BufferedImage gray = ReceiptImageFilter.toGrayscale(image);
+    if (colorMode == PreprocessingProperties.ColorMode.BINARIZED) {
+      ReceiptImageFilter.binarize(gray);
+    } else if (contrastStretch) {
+      ReceiptImageFilter.stretchContrast(gray);
+    }
+    return gray;
+  }
+
+  /**
+   * Whether an image already in the output colour space ({@link #producesGrayscale()}) comes out
+   * unchanged, so that an encoded one may be forwarded without decoding it.
+   */
+  boolean preservesPixels() {
+    return colorMode == PreprocessingProperties.ColorMode.COLOR
+        || (colorMode == PreprocessingProperties.ColorMode.GRAYSCALE && !contrastStretch);
+  }
+
+  boolean producesGrayscale() {
+    return colorMode != PreprocessingProperties.ColorMode.COLOR;
+  }
+
+  PreprocessingProperties.ColorMode colorMode() {
+    return colorMode;
+  }
+}
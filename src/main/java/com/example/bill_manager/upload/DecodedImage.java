@@ -0,0 +1,9 @@
+package com.example.bill_manager.upload;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A decoded image, the dimensions of the encoded source (region) it may be subsampled from, and
+ * the skew to correct after resizing.
+ */
+record DecodedImage(BufferedImage image, int sourceWidth, int sourceHeight, double skewDegrees) {}
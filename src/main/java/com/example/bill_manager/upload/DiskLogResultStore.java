@@ -0,0 +1,579 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.ResultStoreProperties;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persistent result store backed by an append-only log of memory-mapped segment files.
+ * <p>
+ * Each {@link #save} appends one record to the active segment; a {@code UUID → location} index
+ * held in memory points at the latest record per id and is rebuilt on startup by scanning the
+ * segments in order. When a record no longer fits, the active segment is sealed and a new one is
+ * created. Once the share of superseded bytes in sealed segments reaches
+ * {@code result-store.disk.compaction-garbage-ratio}, a background thread copies their live records
+ * into one compacted segment that takes the place of the newest of them, and the others are
+ * deleted; sealed segments whose newest record has outlived the TTL are deleted outright. Sealed
+ * segments are never written, so the copy runs without the store lock; only swapping the
+ * compacted segment into the index holds the write lock, and a record saved again meanwhile keeps
+ * its newer location.
+ * <p>
+ * Record layout (big-endian): {@code int payloadLength, int crc32c, long idMsb, long idLsb,
+ * long writtenAtMillis, byte[payloadLength] json}. The CRC covers everything after itself. A zero
+ * length marks the end of a segment; a CRC mismatch (torn write after a crash) truncates the
+ * segment at that record. Writes reach the OS page cache immediately, so they survive a process
+ * crash; segments are forced to disk when sealed and on shutdown.
+ * <p>
+ * Results older than {@code result-store.ttl} are treated as absent, exactly like evicted entries
+ * in {@link InMemoryResultStore}. The {@code max-entries} and {@code max-weight-bytes} bounds do
+ * not apply; disk usage is bounded by TTL plus compaction.
+ */
+@Component
+@ConditionalOnProperty(prefix = "result-store", name = "type", havingValue = "disk")
+public class DiskLogResultStore implements BillResultStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DiskLogResultStore.class);
+
+  static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+
+  private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{10})\\.log");
+  private static final String COMPACTING_SUFFIX = ".compacting";
+
+  private final Path directory;
+  private final int segmentSizeBytes;
+  private final double compactionGarbageRatio;
+  private final Duration ttl;
+  private final ObjectMapper objectMapper;
+  private final Clock clock;
+  private final Executor compactor;
+
+  private final Map<UUID, Location> index = new ConcurrentHashMap<>();
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Held for a whole compaction so that only one runs at a time and close() waits for it.
+  private final ReentrantLock compactionLock = new ReentrantLock();
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+  private Segment active;
+  private boolean closed;
+
+  @Autowired
+  public DiskLogResultStore(
+      final ResultStoreProperties properties, final ObjectMapper objectMapper) {
+    this(properties, objectMapper, Clock.systemUTC());
+  }
+
+  DiskLogResultStore(
+      final ResultStoreProperties properties, final ObjectMapper objectMapper, final Clock clock) {
+    this(properties, objectMapper, clock, compactionExecutor());
+  }
+
+  DiskLogResultStore(
+      final ResultStoreProperties properties,
+      final ObjectMapper objectMapper,
+      final Clock clock,
+      final Executor compactor) {
+    this.directory = Path.of(properties.disk().directory());
+    this.segmentSizeBytes = properties.disk().segmentSizeBytes();
+    this.compactionGarbageRatio = properties.disk().compactionGarbageRatio();
+    this.ttl = properties.ttl();
+    this.objectMapper = objectMapper;
+    this.clock = clock;
+    this.compactor = compactor;
+    try {
+      Files.createDirectories(directory);
+      recover();
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to open result store at " + directory, e);
+    }
+  }
+
+  @Override
+  public void save(final UUID id, final BillAnalysisResponse response) {
+    Objects.requireNonNull(id, "ID must not be null");
+    Objects.requireNonNull(response, "Response must not be null");
+    final byte[] payload = serialize(response);
+
+    final boolean compactionDue;
+    lock.writeLock().lock();
+    try {
+      ensureOpen();
+      append(id, clock.millis(), payload);
+      compactionDue = !compactionCandidates().isEmpty();
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to append result " + id, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    LOG.debug("Result stored: id={}, storeSize={}", id, index.size());
+    if (compactionDue && compactionScheduled.compareAndSet(false, true)) {
+      compactor.execute(this::compactQuietly);
+    }
+  }
+
+  @Override
+  public Optional<BillAnalysisResponse> findById(final UUID id) {
+    Objects.requireNonNull(id, "ID must not be null");
+    final byte[] payload;
+    lock.readLock().lock();
+    try {
+      ensureOpen();
+      final Location location = index.get(id);
+      if (location == null) {
+        LOG.debug("Result not found: id={}", id);
+        return Optional.empty();
+      }
+      if (isExpired(location.writtenAtMillis())) {
+        LOG.debug("Result expired: id={}", id);
+        return Optional.empty();
+      }
+      payload = segments.get(location.segmentId()).readPayload(location);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return Optional.of(deserialize(payload));
+  }
+
+  /** Copies live records out of all sealed segments and deletes them. */
+  void compact() {
+    try {
+      compact(true);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to compact result store", e);
+    }
+  }
+
+  int segmentCount() {
+    lock.readLock().lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    if (compactor instanceof ExecutorService service) {
+      service.shutdown();
+      try {
+        if (!service.awaitTermination(10, TimeUnit.SECONDS)) {
+          service.shutdownNow();
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    compactionLock.lock();
+    lock.writeLock().lock();
+    try {
+      segments.values().forEach(Segment::close);
+      segments.clear();
+      index.clear();
+      active = null;
+      closed = true;
+    } finally {
+      lock.writeLock().unlock();
+      compactionLock.unlock();
+    }
+  }
+
+  private static ExecutorService compactionExecutor() {
+    final CustomizableThreadFactory threadFactory =
+        new CustomizableThreadFactory("result-store-compact-");
+    threadFactory.setDaemon(true);
+    return Executors.newSingleThreadExecutor(threadFactory);
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Result store at " + directory + " is closed");
+    }
+  }
+
+  private void recover() throws IOException {
+    final List<Path> files;
+    try (Stream<Path> listing = Files.list(directory)) {
+      files = listing.sorted().toList();
+    }
+    for (final Path file : files) {
+      // Left behind by a compaction interrupted before its swap; the originals are intact.
+      if (file.getFileName().toString().endsWith(COMPACTING_SUFFIX)) {
+        Files.deleteIfExists(file);
+      }
+    }
+    for (final Path file : files) {
+      final Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+      if (!matcher.matches()) {
+        continue;
+      }
+      final long segmentId = Long.parseLong(matcher.group(1));
+      final Segment segment = Segment.open(segmentId, file, 0);
+      segments.put(segmentId, segment);
+      scan(segment);
+    }
+    active =
+        segments.isEmpty() ? createSegment(1, segmentSizeBytes) : segments.lastEntry().getValue();
+    LOG.info(
+        "Result store opened at {}: {} segment(s), {} result(s) indexed",
+        directory,
+        segments.size(),
+        index.size());
+  }
+
+  private void scan(final Segment segment) {
+    final ByteBuffer buffer = segment.buffer.duplicate();
+    int offset = 0;
+    while (offset + HEADER_BYTES <= buffer.capacity()) {
+      final int payloadLength = buffer.getInt(offset);
+      if (payloadLength <= 0 || offset + HEADER_BYTES + payloadLength > buffer.capacity()) {
+        break;
+      }
+      final Location location =
+          new Location(segment.id, offset, payloadLength, buffer.getLong(offset + 24));
+      if (buffer.getInt(offset + 4) != segment.checksum(location)) {
+        LOG.warn("Corrupt record in {} at offset {}, truncating segment", segment.path, offset);
+        break;
+      }
+      final UUID id = new UUID(buffer.getLong(offset + 8), buffer.getLong(offset + 16));
+      index(id, location);
+      segment.writtenBytes = offset + location.recordBytes();
+      segment.newestWrittenAtMillis =
+          Math.max(segment.newestWrittenAtMillis, location.writtenAtMillis());
+      offset = segment.writtenBytes;
+    }
+  }
+
+  private void append(final UUID id, final long writtenAtMillis, final byte[] payload)
+      throws IOException {
+    final int recordBytes = HEADER_BYTES + payload.length;
+    if (active.remaining() < recordBytes) {
+      active.force();
+      active = createSegment(active.id + 1, Math.max(segmentSizeBytes, recordBytes));
+    }
+    final Location location = active.write(id, writtenAtMillis, payload);
+    index(id, location);
+  }
+
+  private void index(final UUID id, final Location location) {
+    segments.get(location.segmentId()).liveBytes += location.recordBytes();
+    final Location previous = index.put(id, location);
+    if (previous != null) {
+      segments.get(previous.segmentId()).liveBytes -= previous.recordBytes();
+    }
+  }
+
+  /**
+   * All sealed segments once their garbage ratio crosses the threshold; otherwise only sealed
+   * segments whose newest record has expired, which are dropped without copying anything.
+   */
+  private List<Segment> compactionCandidates() {
+    final List<Segment> sealed = new ArrayList<>(segments.headMap(active.id).values());
+    long sealedBytes = 0;
+    long sealedLiveBytes = 0;
+    for (final Segment segment : sealed) {
+      sealedBytes += segment.writtenBytes;
+      sealedLiveBytes += segment.liveBytes;
+    }
+    if (sealedBytes > 0
+        && (double) (sealedBytes - sealedLiveBytes) / sealedBytes >= compactionGarbageRatio) {
+      return sealed;
+    }
+    return sealed.stream().filter(s -> isExpired(s.newestWrittenAtMillis)).toList();
+  }
+
+  private void compactQuietly() {
+    compactionScheduled.set(false);
+    try {
+      compact(false);
+    } catch (final IOException | RuntimeException e) {
+      LOG.error("Failed to compact result store at {}", directory, e);
+    }
+  }
+
+  /**
+   * Compacts all sealed segments, or only the {@link #compactionCandidates() candidates}. Live
+   * records are copied into a temporary file without the store lock; the write lock is held only
+   * to swap it in for the newest victim and point the index at it.
+   */
+  private void compact(final boolean allSealed) throws IOException {
+    compactionLock.lock();
+    try {
+      final List<Segment> victims;
+      final List<Map.Entry<UUID, Location>> victimEntries;
+      lock.readLock().lock();
+      try {
+        ensureOpen();
+        victims =
+            allSealed ? List.copyOf(segments.headMap(active.id).values()) : compactionCandidates();
+        final Set<Long> victimIds = victims.stream().map(s -> s.id).collect(Collectors.toSet());
+        victimEntries =
+            index.entrySet().stream()
+                .filter(entry -> victimIds.contains(entry.getValue().segmentId()))
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .toList();
+      } finally {
+        lock.readLock().unlock();
+      }
+      if (victims.isEmpty()) {
+        return;
+      }
+
+      final List<Map.Entry<UUID, Location>> live =
+          victimEntries.stream()
+              .filter(entry -> !isExpired(entry.getValue().writtenAtMillis()))
+              .toList();
+      final Segment target = victims.getLast();
+      final Compacted compacted = live.isEmpty() ? null : copyLive(victims, live);
+
+      final int copied = swap(victims, victimEntries, compacted);
+      for (final Segment segment : victims) {
+        if (compacted == null || segment != target) {
+          Files.deleteIfExists(segment.path);
+        }
+      }
+      LOG.info(
+          "Compacted result store: {} sealed segment(s) removed, {} record(s) copied, {} expired",
+          compacted == null ? victims.size() : victims.size() - 1,
+          copied,
+          victimEntries.size() - live.size());
+    } finally {
+      compactionLock.unlock();
+    }
+  }
+
+  /** Writes the live records of {@code victims} into a new file next to the newest of them. */
+  private Compacted copyLive(
+      final List<Segment> victims, final List<Map.Entry<UUID, Location>> live) throws IOException {
+    final Map<Long, Segment> sources =
+        victims.stream().collect(Collectors.toMap(segment -> segment.id, segment -> segment));
+    final Segment target = victims.getLast();
+    final int sizeBytes = live.stream().mapToInt(entry -> entry.getValue().recordBytes()).sum();
+    final Path file = target.path.resolveSibling(target.path.getFileName() + COMPACTING_SUFFIX);
+    final Segment segment = Segment.open(target.id, file, sizeBytes);
+    final Map<UUID, Location> locations = new HashMap<>();
+    for (final Map.Entry<UUID, Location> entry : live) {
+      final Location location = entry.getValue();
+      final byte[] payload = sources.get(location.segmentId()).readPayload(location);
+      locations.put(
+          entry.getKey(), segment.write(entry.getKey(), location.writtenAtMillis(), payload));
+    }
+    segment.force();
+    return new Compacted(segment, target.path, locations);
+  }
+
+  /**
+   * Replaces {@code victims} with {@code compacted} (if any) under the write lock. Index entries
+   * that still point at a victim are moved to the compacted copy or, if expired, dropped; entries
+   * saved again in the meantime are left alone. Returns the number of entries moved.
+   */
+  private int swap(
+      final List<Segment> victims,
+      final List<Map.Entry<UUID, Location>> victimEntries,
+      final Compacted compacted)
+      throws IOException {
+    lock.writeLock().lock();
+    try {
+      final Segment installed;
+      if (compacted == null) {
+        installed = null;
+      } else {
+        // Replacing the newest victim atomically keeps a crash here recoverable: older victims
+        // are scanned first, so the compacted copy of each record still wins.
+        Files.move(
+            compacted.segment().path,
+            compacted.finalPath(),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        installed = compacted.segment().movedTo(compacted.finalPath());
+      }
+      for (final Segment segment : victims) {
+        segments.remove(segment.id);
+        segment.close();
+      }
+      if (installed == null) {
+        victimEntries.forEach(entry -> index.remove(entry.getKey(), entry.getValue()));
+        return 0;
+      }
+      segments.put(installed.id, installed);
+
+      final Map<UUID, Location> copies = compacted.locations();
+      int moved = 0;
+      for (final Map.Entry<UUID, Location> entry : victimEntries) {
+        final Location copy = copies.get(entry.getKey());
+        if (copy == null) {
+          index.remove(entry.getKey(), entry.getValue());
+        } else if (index.replace(entry.getKey(), entry.getValue(), copy)) {
+          installed.liveBytes += copy.recordBytes();
+          moved++;
+        }
+      }
+      return moved;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private Segment createSegment(final long segmentId, final int sizeBytes) throws IOException {
+    final Path file = directory.resolve(String.format("segment-%010d.log", segmentId));
+    final Segment segment = Segment.open(segmentId, file, sizeBytes);
+    segments.put(segmentId, segment);
+    return segment;
+  }
+
+  private boolean isExpired(final long writtenAtMillis) {
+    return clock.millis() - writtenAtMillis > ttl.toMillis();
+  }
+
+  private byte[] serialize(final BillAnalysisResponse response) {
+    try {
+      return objectMapper.writeValueAsBytes(response);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to serialize result " + response.id(), e);
+    }
+  }
+
+  private BillAnalysisResponse deserialize(final byte[] payload) {
+    try {
+      return objectMapper.readValue(payload, BillAnalysisResponse.class);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to deserialize stored result", e);
+    }
+  }
+
+  /** A compacted segment written under a temporary name, and where its records ended up. */
+  private record Compacted(Segment segment, Path finalPath, Map<UUID, Location> locations) {}
+
+  record Location(long segmentId, int offset, int payloadLength, long writtenAtMillis) {
+
+    int recordBytes() {
+      return HEADER_BYTES + payloadLength;
+    }
+  }
+
+  private static final class Segment {
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writtenBytes;
+    private long liveBytes;
+    private long newestWrittenAtMillis;
+
+    private Segment(
+        final long id, final Path path, final FileChannel channel, final MappedByteBuffer buffer) {
+      this.id = id;
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    static Segment open(final long id, final Path path, final int sizeBytes) throws IOException {
+      final FileChannel channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        final long size = Math.max(channel.size(), sizeBytes);
+        return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      } catch (final IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /** The same mapped file under its new name, after a rename. */
+    Segment movedTo(final Path newPath) {
+      final Segment moved = new Segment(id, newPath, channel, buffer);
+      moved.writtenBytes = writtenBytes;
+      moved.newestWrittenAtMillis = newestWrittenAtMillis;
+      return moved;
+    }
+
+    int remaining() {
+      return buffer.capacity() - writtenBytes;
+    }
+
+    Location write(final UUID id, final long writtenAtMillis, final byte[] payload) {
+      final int offset = writtenBytes;
+      final ByteBuffer out = buffer.duplicate();
+      out.position(offset + 8);
+      out.putLong(id.getMostSignificantBits());
+      out.putLong(id.getLeastSignificantBits());
+      out.putLong(writtenAtMillis);
+      out.put(payload);
+      final Location location = new Location(this.id, offset, payload.length, writtenAtMillis);
+      out.putInt(offset + 4, checksum(location));
+      // Length goes last: a record only becomes visible to a recovery scan once complete.
+      out.putInt(offset, payload.length);
+      writtenBytes = offset + location.recordBytes();
+      newestWrittenAtMillis = Math.max(newestWrittenAtMillis, writtenAtMillis);
+      return location;
+    }
+
+    byte[] readPayload(final Location location) {
+      final byte[] payload = new byte[location.payloadLength()];
+      buffer.get(location.offset() + HEADER_BYTES, payload);
+      return payload;
+    }
+
+    int checksum(final Location location) {
+      final CRC32C crc = new CRC32C();
+      crc.update(buffer.slice(location.offset() + 8, location.recordBytes() - 8));
+      return (int) crc.getValue();
+    }
+
+    void force() {
+      buffer.force();
+    }
+
+    void close() {
+      force();
+      try {
+        channel.close();
+      } catch (final IOException e) {
+        LOG.warn("Failed to close result store segment {}", path, e);
+      }
+    }
+  }
+}
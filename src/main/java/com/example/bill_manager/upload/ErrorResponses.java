@@ -0,0 +1,34 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.ai.BillAnalysisException;
+import com.example.bill_manager.dto.ErrorResponse;
+import java.time.Instant;
+
+/**
+ * Maps pipeline failures that are reported in a response body rather than through
+ * {@code GlobalExceptionHandler} (failed async jobs, failed files of a batch) to an
+ * {@link ErrorResponse} with the same codes the handler uses.
+ */
+final class ErrorResponses {
+
+  static final String INTERNAL_ERROR = "INTERNAL_ERROR";
+
+  private ErrorResponses() {}
+
+  /** Known pipeline exceptions keep their code and message; anything else is masked. */
+  static ErrorResponse of(final RuntimeException e) {
+    final String code;
+    if (e instanceof FileValidationException ex) {
+      code = ex.getErrorCode().name();
+    } else if (e instanceof PdfConversionException ex) {
+      code = ex.getErrorCode().name();
+    } else if (e instanceof ImagePreprocessingException ex) {
+      code = ex.getErrorCode().name();
+    } else if (e instanceof BillAnalysisException ex) {
+      code = ex.getErrorCode().name();
+    } else {
+      return new ErrorResponse(INTERNAL_ERROR, "An unexpected error occurred", Instant.now());
+    }
+    return new ErrorResponse(code, e.getMessage(), Instant.now());
+  }
+}
@@ -9,7 +9,8 @@ public class FileValidationException extends RuntimeException {
     FILE_REQUIRED,
     FILE_TOO_LARGE,
     UNSUPPORTED_MEDIA_TYPE,
-    FILE_UNREADABLE
+    FILE_UNREADABLE,
+    TOO_MANY_FILES
   }
 
   private final ErrorCode errorCode;
@@ -1,10 +1,16 @@
 package com.example.bill_manager.upload;
 
+import java.io.InputStream;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface FileValidationService {
 
-  String validateFile(MultipartFile file);
+  /**
+   * Validates the upload and detects its MIME type from the magic bytes at the start of
+   * {@code content}, which must support mark/reset. The stream is reset afterwards, so the caller
+   * can hand the same single stream on to processing without reopening the file.
+   */
+  String validateFile(MultipartFile file, InputStream content);
 
   String sanitizeFilename(String originalFilename);
 }
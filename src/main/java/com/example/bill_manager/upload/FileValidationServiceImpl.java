@@ -28,10 +28,10 @@ public class FileValidationServiceImpl implements FileValidationService {
   }
 
   @Override
-  public String validateFile(final MultipartFile file) {
+  public String validateFile(final MultipartFile file, final InputStream content) {
     validateFilePresence(file);
     validateFileSize(file);
-    final String detectedMimeType = detectMimeTypeFromContent(file);
+    final String detectedMimeType = detectMimeTypeFromContent(content);
     if (detectedMimeType == null || !uploadProperties.isMimeTypeAllowed(detectedMimeType)) {
       throw new FileValidationException(
           FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE,
@@ -97,10 +97,15 @@ public class FileValidationServiceImpl implements FileValidationService {
     }
   }
 
-  private String detectMimeTypeFromContent(final MultipartFile file) {
-    try (InputStream inputStream = file.getInputStream()) {
-      final byte[] header = new byte[MAX_MAGIC_BYTES_LENGTH];
-      final int bytesRead = inputStream.read(header);
+  private String detectMimeTypeFromContent(final InputStream content) {
+    if (!content.markSupported()) {
+      throw new IllegalArgumentException("Content stream must support mark/reset");
+    }
+    try {
+      content.mark(MAX_MAGIC_BYTES_LENGTH);
+      final byte[] header = content.readNBytes(MAX_MAGIC_BYTES_LENGTH);
+      content.reset();
+      final int bytesRead = header.length;
       if (bytesRead < JPEG_MAGIC.length) {
         return null;
       }
@@ -1,6 +1,51 @@
 package com.example.bill_manager.upload;
 
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.List;
+
 public interface ImagePreprocessingService {
 
   byte[] preprocess(byte[] fileContent, String mimeType);
+
+  /**
+   * Decodes the image straight from {@code content} (e.g. the upload stream), so the encoded file
+   * is never materialized on the heap, except for JPEGs small enough to be forwarded unchanged (at
+   * most {@code BillAnalysisService.MAX_IMAGE_SIZE_BYTES}). The stream is not closed.
+   */
+  byte[] preprocess(InputStream content, String mimeType);
+
+  /**
+   * Same as {@link #preprocess(InputStream, String)}, but with {@code upload.preprocessing.tiling}
+   * enabled an image that is still taller than the tile height after resizing comes back as
+   * overlapping tiles, top to bottom (at most {@code BillAnalysisService.MAX_IMAGES_PER_REQUEST}).
+   * Otherwise the result is a single image.
+   */
+  List<byte[]> preprocessTiled(InputStream content, String mimeType);
+
+  /**
+   * Preprocesses an already decoded image (e.g. a rendered PDF page), skipping the decode step
+   * and encoding exactly once.
+   */
+  byte[] preprocessImage(BufferedImage image, String mimeType);
+
+  /**
+   * Same as {@link #preprocessImage(BufferedImage, String)}, but keeps a JPEG result within
+   * {@code maxBytes} (when the JPEG budget is enabled) instead of {@link #imageBudgetBytes()}, e.g.
+   * for the pages of a document sharing one per-request budget.
+   */
+  byte[] preprocessImage(BufferedImage image, String mimeType, int maxBytes);
+
+  /**
+   * Re-encodes an already preprocessed JPEG at a lower quality so that it fits in
+   * {@code maxBytes} (when the JPEG budget is enabled), e.g. after the pages of a document turned
+   * out to exceed the per-request budget together. A JPEG that already fits is returned as is.
+   */
+  byte[] reencodeJpeg(byte[] jpeg, int maxBytes);
+
+  /** Byte budget a single preprocessed JPEG is kept within by default. */
+  int imageBudgetBytes();
+
+  /** Width in pixels that preprocessed images are scaled down to. */
+  int maxWidthPx();
 }
@@ -1,24 +1,115 @@
 package com.example.bill_manager.upload;
 
+import com.example.bill_manager.ai.BillAnalysisService;
+import com.example.bill_manager.config.PreprocessingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.List;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+/**
+ * Decodes, downscales to {@link #maxWidthPx()} and re-encodes uploaded images. Downscaling is
+ * delegated to {@link ImageResizer} in the configured {@code upload.preprocessing.resize-mode}.
+ * <p>
+ * With {@code upload.preprocessing.subsampled-decode}, images about twice the target width or more
+ * are decoded with {@link ImageReadParam#setSourceSubsampling} by the largest integer factor that
+ * still leaves them at least {@link #maxWidthPx()} wide, so a 12MP photo is never materialized at
+ * full resolution (4032px wide decodes at 1344px, about a ninth of the pixels).
+ * <p>
+ * With {@code upload.preprocessing.jpeg-passthrough}, a JPEG that already meets the target (at
+ * most {@link #maxWidthPx()} wide, three-channel RGB/YCbCr and within
+ * {@link BillAnalysisService#MAX_IMAGE_SIZE_BYTES}) is checked from its headers only and forwarded
+ * without re-encoding; only its metadata segments are removed (see {@link JpegSegments}). Both
+ * outcomes are counted in {@value #IMAGES_METRIC}, tagged {@code path=passthrough|transcode}.
+ * <p>
+ * With {@code upload.preprocessing.jpeg-budget.enabled}, JPEG output is kept within a byte budget
+ * ({@link #imageBudgetBytes()} unless the caller passes a tighter one) by lowering the quality
+ * from {@value #JPEG_QUALITY} as far as {@code min-quality}; see
+ * {@link ImageWriteUtils#writeJpegWithinBudget}. Passthrough only applies within the same budget.
+ * <p>
+ * {@code upload.preprocessing.color-mode} {@code grayscale} or {@code binarized} converts the
+ * resized image to 8-bit luma before encoding (see {@link ColorModeFilter}), optionally
+ * contrast-stretched; receipts lose nothing the analysis needs, while payloads shrink. In those
+ * modes only JPEGs that are already single-channel grayscale qualify for passthrough, and only in
+ * {@code grayscale} mode without contrast stretch. Auto-crop and deskew disable passthrough.
+ * <p>
+ * With {@code upload.preprocessing.auto-crop}, {@link ReceiptAligner} locates the receipt (or the
+ * printed area of a page) on a decode about {@value ReceiptCropper#DETECTION_WIDTH_PX}px wide, and
+ * only that region is then decoded via {@link ImageReadParam#setSourceRegion}, so the 1200px
+ * output spends its pixels on the text rather than the table around it. With
+ * {@code upload.preprocessing.deskew}, rotations of up to a few degrees are corrected after
+ * resizing. Decoded images (PDF pages) are analyzed and cropped in memory.
+ * <p>
+ * With {@code upload.preprocessing.tiling.enabled}, {@link #preprocessTiled} splits a resized
+ * image taller than {@code tile-height-px} into overlapping full-width tiles (see
+ * {@link TileEncoder}), so a long receipt reaches the model as several images at full resolution
+ * instead of one it would shrink to fit. Tiles share the per-request JPEG budget and are encoded
+ * in parallel on up to {@code encode-threads} threads, the calling thread included. Such images
+ * are never passed through.
+ */
 @Service
 public class ImagePreprocessingServiceImpl implements ImagePreprocessingService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ImagePreprocessingServiceImpl.class);
 
   private static final int MAX_WIDTH_PX = 1200;
-  private static final float JPEG_QUALITY = 0.9f;
+  static final float JPEG_QUALITY = 0.9f;
   private static final String MIME_TYPE_JPEG = "image/jpeg";
   private static final String MIME_TYPE_PNG = "image/png";
+  static final String IMAGES_METRIC = "bill.preprocessing.images";
+
+  private final ImageResizer imageResizer;
+  private final boolean subsampledDecode;
+  private final boolean jpegPassthrough;
+  private final ColorModeFilter colorModeFilter;
+  private final ReceiptAligner receiptAligner;
+  private final PreprocessingProperties.JpegBudget jpegBudget;
+  private final TileEncoder tileEncoder;
+  private final Counter passthroughCounter;
+  private final Counter transcodeCounter;
+
+  @Autowired
+  public ImagePreprocessingServiceImpl(
+      final PreprocessingProperties preprocessingProperties, final MeterRegistry meterRegistry) {
+    this.imageResizer =
+        new ImageResizer(
+            preprocessingProperties.resizeMode(), preprocessingProperties.resizeThreads());
+    this.subsampledDecode = preprocessingProperties.subsampledDecode();
+    this.jpegPassthrough = preprocessingProperties.jpegPassthrough();
+    this.colorModeFilter =
+        new ColorModeFilter(
+            preprocessingProperties.colorMode(), preprocessingProperties.contrastStretch());
+    this.receiptAligner =
+        new ReceiptAligner(preprocessingProperties.autoCrop(), preprocessingProperties.deskew());
+    this.jpegBudget = preprocessingProperties.jpegBudget();
+    this.tileEncoder = new TileEncoder(preprocessingProperties.tiling());
+    this.passthroughCounter = imagesCounter(meterRegistry, "passthrough");
+    this.transcodeCounter = imagesCounter(meterRegistry, "transcode");
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    imageResizer.shutdown();
+    tileEncoder.shutdown();
+  }
 
   @Override
   public byte[] preprocess(final byte[] fileContent, final String mimeType) {
@@ -26,37 +117,242 @@ public class ImagePreprocessingServiceImpl implements ImagePreprocessingService
       throw new ImagePreprocessingException(
           ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "File content must not be null");
     }
+    return preprocess(new ByteArrayInputStream(fileContent), mimeType);
+  }
+
+  @Override
+  public byte[] preprocess(final InputStream content, final String mimeType) {
+    return preprocess(content, mimeType, false).get(0);
+  }
+
+  @Override
+  public List<byte[]> preprocessTiled(final InputStream content, final String mimeType) {
+    return preprocess(content, mimeType, tileEncoder.enabled());
+  }
+
+  private List<byte[]> preprocess(
+      final InputStream content, final String mimeType, final boolean tiled) {
+    if (content == null) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "File content must not be null");
+    }
+    if (mimeType == null) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "MIME type must not be null");
+    }
+
+    if (jpegPassthrough && MIME_TYPE_JPEG.equals(mimeType)) {
+      return preprocessJpeg(content, tiled);
+    }
+    return transcode(content, mimeType, tiled);
+  }
+
+  @Override
+  public byte[] preprocessImage(final BufferedImage originalImage, final String mimeType) {
+    return preprocessImage(originalImage, mimeType, imageBudgetBytes());
+  }
+
+  @Override
+  public byte[] preprocessImage(
+      final BufferedImage originalImage, final String mimeType, final int maxBytes) {
+    if (originalImage == null) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "Image must not be null");
+    }
     if (mimeType == null) {
       throw new ImagePreprocessingException(
           ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "MIME type must not be null");
     }
 
-    final BufferedImage originalImage = readImage(fileContent);
+    return process(receiptAligner.crop(originalImage), mimeType, maxBytes);
+  }
+
+  @Override
+  public byte[] reencodeJpeg(final byte[] jpeg, final int maxBytes) {
+    if (!jpegBudget.enabled() || jpeg.length <= maxBytes) {
+      return jpeg;
+    }
+    final BufferedImage image;
+    try {
+      image = ImageIO.read(new ByteArrayInputStream(jpeg));
+    } catch (final IOException e) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED,
+          "Failed to read image content",
+          e);
+    }
+    if (image == null) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED,
+          "Failed to decode image — content may be corrupted");
+    }
+    return writeJpeg(image, maxBytes);
+  }
+
+  @Override
+  public int maxWidthPx() {
+    return MAX_WIDTH_PX;
+  }
+
+  /**
+   * The configured per-image budget, further capped by the per-request budget since a single
+   * image is a request of its own; {@link BillAnalysisService#MAX_IMAGE_SIZE_BYTES} when disabled.
+   */
+  @Override
+  public int imageBudgetBytes() {
+    if (!jpegBudget.enabled()) {
+      return BillAnalysisService.MAX_IMAGE_SIZE_BYTES;
+    }
+    return Math.min(jpegBudget.maxImageBytes(), jpegBudget.maxRequestBytes());
+  }
+
+  /**
+   * Buffers up to {@link #imageBudgetBytes()} + 1 bytes: a JPEG that fits is passed through when
+   * its headers allow it, a larger one is decoded from the buffered prefix followed by the rest of
+   * the stream.
+   */
+  private List<byte[]> preprocessJpeg(final InputStream content, final boolean tiled) {
+    final int maxBytes = imageBudgetBytes();
+    final byte[] head = readUpTo(content, maxBytes + 1);
+    if (head.length > maxBytes) {
+      return transcode(
+          new SequenceInputStream(new ByteArrayInputStream(head), content), MIME_TYPE_JPEG, tiled);
+    }
+    final byte[] passthrough =
+        meetsTargetConstraints(head, tiled) ? JpegSegments.stripMetadata(head) : null;
+    if (passthrough == null) {
+      return transcode(new ByteArrayInputStream(head), MIME_TYPE_JPEG, tiled);
+    }
+    passthroughCounter.increment();
+    LOG.debug("JPEG passed through without re-encoding: {} bytes", passthrough.length);
+    return List.of(passthrough);
+  }
+
+  /**
+   * Reads only the JPEG headers: the image must be at most {@link #MAX_WIDTH_PX} wide and decode
+   * to three-channel RGB (single-channel gray in grayscale mode), i.e. exactly what re-encoding
+   * would produce anyway. When {@code tiled}, it must also fit in a single tile.
+   */
+  private boolean meetsTargetConstraints(final byte[] jpeg, final boolean tiled) {
+    if (receiptAligner.enabled() || !colorModeFilter.preservesPixels()) {
+      return false;
+    }
+    final boolean grayscale = colorModeFilter.producesGrayscale();
+    try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+      final ImageReader reader = input == null ? null : findReader(input);
+      if (reader == null) {
+        return false;
+      }
+      try {
+        reader.setInput(input, true, true);
+        if (reader.getWidth(0) > MAX_WIDTH_PX
+            || (tiled && !tileEncoder.fitsInOneTile(reader.getHeight(0)))) {
+          return false;
+        }
+        final ColorModel colorModel = reader.getImageTypes(0).next().getColorModel();
+        return !colorModel.hasAlpha()
+            && colorModel.getNumComponents() == (grayscale ? 1 : 3)
+            && colorModel.getColorSpace().getType()
+                == (grayscale ? ColorSpace.TYPE_GRAY : ColorSpace.TYPE_RGB);
+      } finally {
+        reader.dispose();
+      }
+    } catch (final IOException | RuntimeException e) {
+      LOG.debug("JPEG headers not usable for passthrough, transcoding: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private List<byte[]> transcode(
+      final InputStream content, final String mimeType, final boolean tiled) {
+    final DecodedImage decoded = readImage(content);
+    transcodeCounter.increment();
+    final BufferedImage rendered = render(decoded, mimeType);
+    return tiled
+        ? tileEncoder.encode(
+            rendered,
+            this::tileBudgetBytes,
+            (tile, maxBytes) -> writeImage(tile, mimeType, maxBytes))
+        : List.of(writeImage(rendered, mimeType, imageBudgetBytes()));
+  }
+
+  private byte[] process(final DecodedImage decoded, final String mimeType, final int maxBytes) {
+    return writeImage(render(decoded, mimeType), mimeType, maxBytes);
+  }
+
+  /**
+   * Scales the decoded image to the target size derived from the source dimensions. These differ
+   * from the image's own after a subsampled decode, whose rounding would otherwise skew the aspect
+   * ratio by a pixel.
+   */
+  private BufferedImage render(final DecodedImage decoded, final String mimeType) {
+    final BufferedImage image = decoded.image();
+    final int sourceWidth = decoded.sourceWidth();
+    final int sourceHeight = decoded.sourceHeight();
     final int imageType = resolveImageType(mimeType);
-    final BufferedImage processedImage =
-        originalImage.getWidth() > MAX_WIDTH_PX
-            ? resizeImage(originalImage, MAX_WIDTH_PX, imageType)
-            : ensureImageType(originalImage, imageType);
+    final int targetWidth = Math.min(sourceWidth, MAX_WIDTH_PX);
+    final long scaledHeight = Math.round((double) sourceHeight / sourceWidth * targetWidth);
+    final int targetHeight = (int) Math.max(1, scaledHeight);
+    final BufferedImage resizedImage =
+        image.getWidth() != targetWidth || image.getHeight() != targetHeight
+            ? imageResizer.resize(image, targetWidth, targetHeight, imageType)
+            : ensureImageType(image, imageType);
+    final BufferedImage straightenedImage =
+        receiptAligner.straighten(resizedImage, decoded.skewDegrees());
+    final BufferedImage processedImage = colorModeFilter.apply(straightenedImage);
 
     LOG.debug(
-        "Image preprocessed: {}x{} -> {}x{}, mimeType={}",
-        originalImage.getWidth(),
-        originalImage.getHeight(),
+        "Image preprocessed: {}x{} (decoded {}x{}) -> {}x{} {}, skew={}, mimeType={}",
+        sourceWidth,
+        sourceHeight,
+        image.getWidth(),
+        image.getHeight(),
         processedImage.getWidth(),
         processedImage.getHeight(),
+        colorModeFilter.colorMode(),
+        decoded.skewDegrees(),
         mimeType);
-    return writeImage(processedImage, mimeType);
+    return processedImage;
+  }
+
+  /** An equal share of the per-request budget for each of {@code tileCount} tiles. */
+  private int tileBudgetBytes(final int tileCount) {
+    return jpegBudget.enabled()
+        ? Math.min(imageBudgetBytes(), jpegBudget.maxRequestBytes() / tileCount)
+        : imageBudgetBytes();
   }
 
-  private BufferedImage readImage(final byte[] fileContent) {
-    try (ByteArrayInputStream inputStream = new ByteArrayInputStream(fileContent)) {
-      final BufferedImage image = ImageIO.read(inputStream);
-      if (image == null) {
+  private DecodedImage readImage(final InputStream content) {
+    try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+      final ImageReader reader = input == null ? null : findReader(input);
+      if (reader == null) {
         throw new ImagePreprocessingException(
             ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED,
             "Failed to decode image — content may be corrupted");
       }
-      return image;
+      try {
+        // Auto-crop reads the image twice: once small to locate the receipt, then its region.
+        reader.setInput(input, !receiptAligner.locatesReceipt(), true);
+        final ImageReadParam readParam = reader.getDefaultReadParam();
+        final Rectangle full = new Rectangle(reader.getWidth(0), reader.getHeight(0));
+        final ReceiptCropper.Analysis analysis = receiptAligner.locate(reader, full);
+        final Rectangle region =
+            analysis != null && analysis.bounds() != null ? analysis.bounds() : full;
+        if (!region.equals(full)) {
+          readParam.setSourceRegion(region);
+        }
+        final int subsampling = subsamplingFactor(region.width);
+        if (subsampling > 1) {
+          readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+          LOG.debug("Decoding {}px wide region with {}x subsampling", region.width, subsampling);
+        }
+        final BufferedImage image = reader.read(0, readParam);
+        final double skewDegrees =
+            analysis != null ? analysis.skewDegrees() : receiptAligner.measureSkew(image);
+        return new DecodedImage(image, region.width, region.height, skewDegrees);
+      } finally {
+        reader.dispose();
+      }
     } catch (final IOException e) {
       throw new ImagePreprocessingException(
           ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED,
@@ -65,21 +361,42 @@ public class ImagePreprocessingServiceImpl implements ImagePreprocessingService
     }
   }
 
-  private BufferedImage resizeImage(
-      final BufferedImage original, final int targetWidth, final int imageType) {
-    final int targetHeight =
-        (int) Math.round((double) original.getHeight() / original.getWidth() * targetWidth);
-    final BufferedImage resized = new BufferedImage(targetWidth, targetHeight, imageType);
-    final Graphics2D graphics = resized.createGraphics();
+  private static byte[] readUpTo(final InputStream content, final int maxBytes) {
     try {
-      graphics.setRenderingHint(
-          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-      graphics.drawImage(original, 0, 0, targetWidth, targetHeight, null);
-    } finally {
-      graphics.dispose();
+      return content.readNBytes(maxBytes);
+    } catch (final IOException e) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED,
+          "Failed to read image content",
+          e);
     }
-    return resized;
+  }
+
+  private static Counter imagesCounter(final MeterRegistry meterRegistry, final String path) {
+    return Counter.builder(IMAGES_METRIC)
+        .description("Uploaded images forwarded unchanged vs. decoded and re-encoded")
+        .tag("path", path)
+        .register(meterRegistry);
+  }
+
+  private static ImageReader findReader(final ImageInputStream input) {
+    final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+    return readers.hasNext() ? readers.next() : null;
+  }
+
+  /**
+   * Largest integer factor whose subsampled width, {@code ceil(width / factor)}, is still at least
+   * {@link #MAX_WIDTH_PX}, so the final resize to the target width always scales down.
+   */
+  private int subsamplingFactor(final int width) {
+    if (!subsampledDecode) {
+      return 1;
+    }
+    int factor = 1;
+    while (Math.ceilDiv(width, factor + 1) >= MAX_WIDTH_PX) {
+      factor++;
+    }
+    return factor;
   }
 
   private BufferedImage ensureImageType(final BufferedImage original, final int imageType) {
@@ -97,9 +414,9 @@ public class ImagePreprocessingServiceImpl implements ImagePreprocessingService
     return converted;
   }
 
-  private byte[] writeImage(final BufferedImage image, final String mimeType) {
+  private byte[] writeImage(final BufferedImage image, final String mimeType, final int maxBytes) {
     if (MIME_TYPE_JPEG.equals(mimeType)) {
-      return writeJpeg(image);
+      return writeJpeg(image, maxBytes);
     }
     if (MIME_TYPE_PNG.equals(mimeType)) {
       return writePng(image);
@@ -109,8 +426,21 @@ public class ImagePreprocessingServiceImpl implements ImagePreprocessingService
         "Unsupported MIME type for image write: " + mimeType);
   }
 
-  private byte[] writeJpeg(final BufferedImage image) {
-    return ImageWriteUtils.writeJpeg(image, JPEG_QUALITY);
+  private byte[] writeJpeg(final BufferedImage image, final int maxBytes) {
+    if (!jpegBudget.enabled()) {
+      return ImageWriteUtils.writeJpeg(image, JPEG_QUALITY);
+    }
+    final byte[] encoded =
+        ImageWriteUtils.writeJpegWithinBudget(
+            image, JPEG_QUALITY, jpegBudget.minQuality(), maxBytes, jpegBudget.maxSearchSteps());
+    if (encoded.length > maxBytes) {
+      LOG.debug(
+          "JPEG exceeds budget even at quality {}: {} > {} bytes",
+          jpegBudget.minQuality(),
+          encoded.length,
+          maxBytes);
+    }
+    return encoded;
   }
 
   private byte[] writePng(final BufferedImage image) {
@@ -0,0 +1,540 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.PreprocessingProperties.ResizeMode;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Downscales images in one of the configured {@link ResizeMode}s.
+ * <p>
+ * {@link ResizeMode#SEPARABLE} bypasses Java2D: pixel rows are read straight from the
+ * {@link DataBufferInt}/{@link DataBufferByte} of the common decoded image types, first reduced
+ * by integer box averaging while the image is still at least twice the target size, then
+ * filtered horizontally into an intermediate {@code int[]} and vertically into the output raster
+ * with a Catmull-Rom kernel widened by the remaining scale factor (so large reductions average
+ * every source pixel instead of aliasing) and 14-bit fixed-point weights. Alpha is filtered
+ * premultiplied. With {@code resizeThreads > 1} each pass is split into row bands rendered on a
+ * shared pool, the calling thread taking the first band; bands write disjoint rows, so the output
+ * is identical to the single-threaded one.
+ */
+final class ImageResizer {
+
+  private static final int WEIGHT_BITS = 14;
+  private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+  private static final int WEIGHT_ROUNDING = 1 << (WEIGHT_BITS - 1);
+  private static final double KERNEL_RADIUS = 2.0;
+  private static final int OPAQUE_SUM = 255 << WEIGHT_BITS;
+  private static final int MAX_BOX_FACTOR = 16;
+  private static final int MIN_ROWS_PER_BAND = 64;
+  private static final Object BICUBIC = RenderingHints.VALUE_INTERPOLATION_BICUBIC;
+  private static final Object BILINEAR = RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+
+  private final ResizeMode mode;
+  private final int threads;
+  private final ExecutorService bandExecutor;
+
+  ImageResizer(final ResizeMode mode, final int threads) {
+    this.mode = mode;
+    this.threads = threads;
+    this.bandExecutor =
+        mode == ResizeMode.SEPARABLE && threads > 1
+            ? Executors.newFixedThreadPool(threads - 1, bandThreadFactory())
+            : null;
+  }
+
+  void shutdown() {
+    if (bandExecutor != null) {
+      bandExecutor.shutdownNow();
+    }
+  }
+
+  BufferedImage resize(
+      final BufferedImage source,
+      final int targetWidth,
+      final int targetHeight,
+      final int imageType) {
+    return switch (mode) {
+      case JAVA2D -> drawScaled(source, targetWidth, targetHeight, imageType, BICUBIC);
+      case PROGRESSIVE -> resizeProgressive(source, targetWidth, targetHeight, imageType);
+      case SEPARABLE -> resizeSeparable(source, targetWidth, targetHeight, imageType);
+    };
+  }
+
+  private static BufferedImage resizeProgressive(
+      final BufferedImage source,
+      final int targetWidth,
+      final int targetHeight,
+      final int imageType) {
+    BufferedImage current = source;
+    int width = source.getWidth();
+    int height = source.getHeight();
+    while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+      width /= 2;
+      height /= 2;
+      current = drawScaled(current, width, height, imageType, BILINEAR);
+    }
+    return drawScaled(current, targetWidth, targetHeight, imageType, BICUBIC);
+  }
+
+  private static BufferedImage drawScaled(
+      final BufferedImage source,
+      final int width,
+      final int height,
+      final int imageType,
+      final Object interpolation) {
+    final BufferedImage scaled = new BufferedImage(width, height, imageType);
+    final Graphics2D graphics = scaled.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return scaled;
+  }
+
+  private BufferedImage resizeSeparable(
+      final BufferedImage source,
+      final int targetWidth,
+      final int targetHeight,
+      final int imageType) {
+    final int sourceWidth = source.getWidth();
+    final int sourceHeight = source.getHeight();
+    final boolean alpha = source.getColorModel().hasAlpha();
+    final RowReader rowReader = rowReader(source, alpha);
+    final int factor = boxFactor(sourceWidth, sourceHeight, targetWidth, targetHeight);
+    final int reducedWidth = sourceWidth / factor;
+    final int reducedHeight = sourceHeight / factor;
+    final Kernel horizontal = Kernel.of(reducedWidth, targetWidth);
+    final Kernel vertical = Kernel.of(reducedHeight, targetHeight);
+
+    // Horizontal pass: every (box-reduced) source row -> targetWidth packed ARGB pixels.
+    final int[] intermediate = new int[targetWidth * reducedHeight];
+    forEachBand(
+        reducedHeight,
+        (from, to) -> {
+          final int[] row = new int[sourceWidth];
+          final int[] blockSums = factor > 1 ? new int[reducedWidth * 2] : null;
+          for (int y = from; y < to; y++) {
+            if (factor > 1) {
+              readBoxRow(rowReader, y, factor, row, blockSums);
+            } else {
+              rowReader.read(y, row);
+            }
+            filterRow(row, horizontal, intermediate, y * targetWidth, alpha);
+          }
+        });
+
+    // Vertical pass: columns of the intermediate -> output raster, row band by row band.
+    final BufferedImage resized = new BufferedImage(targetWidth, targetHeight, imageType);
+    final int[] output = ((DataBufferInt) resized.getRaster().getDataBuffer()).getData();
+    forEachBand(
+        targetHeight,
+        (from, to) -> {
+          final int[] sums = new int[targetWidth * 4];
+          for (int y = from; y < to; y++) {
+            filterColumns(
+                intermediate, targetWidth, vertical, y, output, y * targetWidth, sums, alpha);
+          }
+          if (alpha) {
+            unpremultiply(output, from * targetWidth, to * targetWidth);
+          }
+        });
+    return resized;
+  }
+
+  /**
+   * Largest power-of-two box factor that still leaves at least the target size on both axes.
+   * Averaging {@code factor x factor} blocks is far cheaper per source pixel than the widened
+   * kernel, which then only has to cover the remaining (less than 2x) reduction.
+   */
+  private static int boxFactor(
+      final int sourceWidth,
+      final int sourceHeight,
+      final int targetWidth,
+      final int targetHeight) {
+    int factor = 1;
+    while (factor < MAX_BOX_FACTOR
+        && sourceWidth / (factor * 2) >= targetWidth
+        && sourceHeight / (factor * 2) >= targetHeight) {
+      factor *= 2;
+    }
+    return factor;
+  }
+
+  /**
+   * Reads reduced row {@code y} as the rounded average of {@code factor x factor} source blocks.
+   * Channels are summed in pairs (alpha/green and red/blue in 16-bit lanes of one int), which
+   * cannot overflow for blocks of up to 256 pixels. Trailing source pixels that do not fill a
+   * whole block are dropped.
+   */
+  private static void readBoxRow(
+      final RowReader rowReader,
+      final int y,
+      final int factor,
+      final int[] row,
+      final int[] blockSums) {
+    Arrays.fill(blockSums, 0);
+    final int width = blockSums.length / 2;
+    for (int sourceY = y * factor; sourceY < (y + 1) * factor; sourceY++) {
+      rowReader.read(sourceY, row);
+      for (int x = 0, i = 0; x < width; x++) {
+        int alphaGreen = 0;
+        int redBlue = 0;
+        // factor is a power of two, so pixels can be taken in pairs.
+        for (final int end = i + factor; i < end; i += 2) {
+          final int first = row[i];
+          final int second = row[i + 1];
+          alphaGreen += ((first >>> 8) & 0x00FF00FF) + ((second >>> 8) & 0x00FF00FF);
+          redBlue += (first & 0x00FF00FF) + (second & 0x00FF00FF);
+        }
+        blockSums[2 * x] += alphaGreen;
+        blockSums[2 * x + 1] += redBlue;
+      }
+    }
+    final int shift = 2 * Integer.numberOfTrailingZeros(factor);
+    final int half = 1 << (shift - 1);
+    for (int x = 0; x < width; x++) {
+      final int alphaGreen = blockSums[2 * x];
+      final int redBlue = blockSums[2 * x + 1];
+      row[x] =
+          ((alphaGreen >>> 16) + half) >> shift << 24
+              | ((redBlue >>> 16) + half) >> shift << 16
+              | ((alphaGreen & 0xFFFF) + half) >> shift << 8
+              | ((redBlue & 0xFFFF) + half) >> shift;
+    }
+  }
+
+  /**
+   * Horizontal filter: one source row into {@code kernel.size()} output pixels. Opaque images
+   * skip the alpha channel.
+   */
+  private static void filterRow(
+      final int[] in,
+      final Kernel kernel,
+      final int[] out,
+      final int outOffset,
+      final boolean alpha) {
+    final int[] starts = kernel.start();
+    final int[] counts = kernel.count();
+    final int[] weights = kernel.weights();
+    final int taps = kernel.taps();
+    for (int i = 0; i < kernel.size(); i++) {
+      int a = OPAQUE_SUM;
+      int r = 0;
+      int g = 0;
+      int b = 0;
+      final int start = starts[i];
+      final int weightBase = i * taps;
+      final int count = counts[i];
+      if (alpha) {
+        a = 0;
+        for (int k = 0; k < count; k++) {
+          a += (in[start + k] >>> 24) * weights[weightBase + k];
+        }
+      }
+      for (int k = 0; k < count; k++) {
+        final int weight = weights[weightBase + k];
+        final int pixel = in[start + k];
+        r += ((pixel >> 16) & 0xFF) * weight;
+        g += ((pixel >> 8) & 0xFF) * weight;
+        b += (pixel & 0xFF) * weight;
+      }
+      out[outOffset + i] = pack(a, r, g, b);
+    }
+  }
+
+  /**
+   * Vertical filter for output row {@code y}, accumulating whole intermediate rows at a time so
+   * memory is read sequentially. {@code sums} holds four channel sums per column.
+   */
+  private static void filterColumns(
+      final int[] in,
+      final int width,
+      final Kernel kernel,
+      final int y,
+      final int[] out,
+      final int outOffset,
+      final int[] sums,
+      final boolean alpha) {
+    Arrays.fill(sums, 0);
+    final int weightBase = y * kernel.taps();
+    for (int k = 0; k < kernel.count()[y]; k++) {
+      final int weight = kernel.weights()[weightBase + k];
+      final int rowOffset = (kernel.start()[y] + k) * width;
+      if (alpha) {
+        for (int x = 0, j = 0; x < width; x++, j += 4) {
+          sums[j] += (in[rowOffset + x] >>> 24) * weight;
+        }
+      }
+      for (int x = 0, j = 0; x < width; x++, j += 4) {
+        final int pixel = in[rowOffset + x];
+        sums[j + 1] += ((pixel >> 16) & 0xFF) * weight;
+        sums[j + 2] += ((pixel >> 8) & 0xFF) * weight;
+        sums[j + 3] += (pixel & 0xFF) * weight;
+      }
+    }
+    for (int x = 0, j = 0; x < width; x++, j += 4) {
+      final int a = alpha ? sums[j] : OPAQUE_SUM;
+      out[outOffset + x] = pack(a, sums[j + 1], sums[j + 2], sums[j + 3]);
+    }
+  }
+
+  private static int pack(final int a, final int r, final int g, final int b) {
+    return clamp(a) << 24 | clamp(r) << 16 | clamp(g) << 8 | clamp(b);
+  }
+
+  private static int clamp(final int weightedSum) {
+    final int value = (weightedSum + WEIGHT_ROUNDING) >> WEIGHT_BITS;
+    return value < 0 ? 0 : Math.min(value, 255);
+  }
+
+  private static void unpremultiply(final int[] pixels, final int from, final int to) {
+    for (int i = from; i < to; i++) {
+      final int pixel = pixels[i];
+      final int a = pixel >>> 24;
+      if (a == 0) {
+        pixels[i] = 0;
+      } else if (a < 255) {
+        final int r = Math.min(a, (pixel >> 16) & 0xFF) * 255 / a;
+        final int g = Math.min(a, (pixel >> 8) & 0xFF) * 255 / a;
+        final int b = Math.min(a, pixel & 0xFF) * 255 / a;
+        pixels[i] = a << 24 | r << 16 | g << 8 | b;
+      }
+    }
+  }
+
+  private static int premultiply(final int pixel) {
+    final int a = pixel >>> 24;
+    if (a == 255) {
+      return pixel;
+    }
+    final int r = (((pixel >> 16) & 0xFF) * a + 127) / 255;
+    final int g = (((pixel >> 8) & 0xFF) * a + 127) / 255;
+    final int b = ((pixel & 0xFF) * a + 127) / 255;
+    return a << 24 | r << 16 | g << 8 | b;
+  }
+
+  /**
+   * Reads source rows as packed ARGB (premultiplied when the image has alpha), directly from the
+   * backing array for the types ImageIO and PDFBox produce, and via {@code getRGB} otherwise.
+   */
+  private static RowReader rowReader(final BufferedImage image, final boolean alpha) {
+    final WritableRaster raster = image.getRaster();
+    final int width = image.getWidth();
+    final boolean plainRaster =
+        raster.getParent() == null
+            && raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0
+            && raster.getDataBuffer().getNumBanks() == 1
+            && raster.getDataBuffer().getOffset() == 0;
+    if (plainRaster) {
+      switch (image.getType()) {
+        case BufferedImage.TYPE_INT_RGB -> {
+          final int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+          final int stride =
+              ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+          return (y, row) -> {
+            final int offset = y * stride;
+            for (int x = 0; x < width; x++) {
+              row[x] = 0xFF000000 | data[offset + x];
+            }
+          };
+        }
+        case BufferedImage.TYPE_INT_ARGB -> {
+          final int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+          final int stride =
+              ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+          return (y, row) -> {
+            final int offset = y * stride;
+            for (int x = 0; x < width; x++) {
+              row[x] = premultiply(data[offset + x]);
+            }
+          };
+        }
+        case BufferedImage.TYPE_3BYTE_BGR -> {
+          final byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+          final int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+          return (y, row) -> {
+            int offset = y * stride;
+            for (int x = 0; x < width; x++, offset += 3) {
+              row[x] =
+                  0xFF000000
+                      | (data[offset + 2] & 0xFF) << 16
+                      | (data[offset + 1] & 0xFF) << 8
+                      | (data[offset] & 0xFF);
+            }
+          };
+        }
+        case BufferedImage.TYPE_4BYTE_ABGR -> {
+          final byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+          final int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+          return (y, row) -> {
+            int offset = y * stride;
+            for (int x = 0; x < width; x++, offset += 4) {
+              row[x] =
+                  premultiply(
+                      (data[offset] & 0xFF) << 24
+                          | (data[offset + 3] & 0xFF) << 16
+                          | (data[offset + 2] & 0xFF) << 8
+                          | (data[offset + 1] & 0xFF));
+            }
+          };
+        }
+        case BufferedImage.TYPE_BYTE_GRAY -> {
+          final byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+          final int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+          return (y, row) -> {
+            final int offset = y * stride;
+            for (int x = 0; x < width; x++) {
+              final int gray = data[offset + x] & 0xFF;
+              row[x] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+            }
+          };
+        }
+        default -> {
+          // Fall through to the generic reader below.
+        }
+      }
+    }
+    return (y, row) -> {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      if (alpha) {
+        for (int x = 0; x < width; x++) {
+          row[x] = premultiply(row[x]);
+        }
+      }
+    };
+  }
+
+  private void forEachBand(final int rows, final Band band) {
+    final int bands = bandExecutor == null ? 1 : Math.min(threads, rows / MIN_ROWS_PER_BAND);
+    if (bands <= 1) {
+      band.run(0, rows);
+      return;
+    }
+    final List<Future<?>> futures = new ArrayList<>(bands - 1);
+    try {
+      for (int i = 1; i < bands; i++) {
+        final int from = rows * i / bands;
+        final int to = rows * (i + 1) / bands;
+        futures.add(bandExecutor.submit(() -> band.run(from, to)));
+      }
+      band.run(0, rows / bands);
+      for (final Future<?> future : futures) {
+        awaitBand(future);
+      }
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private static void awaitBand(final Future<?> future) {
+    try {
+      future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
+          "Interrupted while resizing image",
+          e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
+          "Failed to resize image",
+          e.getCause());
+    }
+  }
+
+  private static CustomizableThreadFactory bandThreadFactory() {
+    final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("image-resize-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+
+  @FunctionalInterface
+  private interface RowReader {
+    void read(int y, int[] row);
+  }
+
+  @FunctionalInterface
+  private interface Band {
+    void run(int fromRow, int toRow);
+  }
+
+  /**
+   * Precomputed filter taps for one axis: output pixel {@code i} is the weighted sum of
+   * {@code count[i]} source pixels starting at {@code start[i]}, with weights at
+   * {@code weights[i * taps ...]} summing to exactly {@link #WEIGHT_ONE}.
+   */
+  private record Kernel(int size, int taps, int[] start, int[] count, int[] weights) {
+
+    static Kernel of(final int sourceSize, final int targetSize) {
+      final double scale = (double) sourceSize / targetSize;
+      final double filterScale = Math.max(1.0, scale);
+      final double radius = KERNEL_RADIUS * filterScale;
+      final int taps = (int) Math.ceil(radius * 2) + 1;
+      final int[] start = new int[targetSize];
+      final int[] count = new int[targetSize];
+      final int[] weights = new int[targetSize * taps];
+      final double[] exact = new double[taps];
+
+      for (int i = 0; i < targetSize; i++) {
+        final double center = (i + 0.5) * scale;
+        // Source pixels whose centres lie strictly within the kernel radius.
+        final int first = Math.max(0, (int) Math.floor(center - radius - 0.5) + 1);
+        final int last = Math.min(sourceSize - 1, (int) Math.ceil(center + radius - 0.5) - 1);
+        final int n = Math.min(taps, last - first + 1);
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+          exact[k] = catmullRom((first + k + 0.5 - center) / filterScale);
+          sum += exact[k];
+        }
+        int total = 0;
+        int largest = 0;
+        for (int k = 0; k < n; k++) {
+          final int weight = (int) Math.round(exact[k] / sum * WEIGHT_ONE);
+          weights[i * taps + k] = weight;
+          total += weight;
+          if (weight > weights[i * taps + largest]) {
+            largest = k;
+          }
+        }
+        // Put the rounding residue on the centre tap so flat areas stay exactly flat.
+        weights[i * taps + largest] += WEIGHT_ONE - total;
+        start[i] = first;
+        count[i] = n;
+      }
+      return new Kernel(targetSize, taps, start, count, weights);
+    }
+
+    private static double catmullRom(final double distance) {
+      final double x = Math.abs(distance);
+      if (x < 1.0) {
+        return (1.5 * x - 2.5) * x * x + 1.0;
+      }
+      if (x < 2.0) {
+        return ((-0.5 * x + 2.5) * x - 4.0) * x + 2.0;
+      }
+      return 0.0;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.bill_manager.upload;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vertical tiling of tall images, e.g. long receipts, into full-width strips.
+ * <p>
+ * Strips are laid out evenly rather than filling every tile to the maximum height and leaving a
+ * sliver at the bottom: consecutive strips start {@code stride} rows apart and are
+ * {@code stride + overlap} rows tall, the last one ending exactly at the bottom of the image.
+ */
+final class ImageTiles {
+
+  private ImageTiles() {}
+
+  /**
+   * Bounds of the strips covering a {@code width}x{@code height} image, top to bottom, each at
+   * most {@code tileHeight} rows tall and overlapping its successor by {@code overlap} rows. If
+   * that would take more than {@code maxTiles} strips, exactly {@code maxTiles} taller strips are
+   * returned instead. An image no taller than {@code tileHeight} is a single strip.
+   */
+  static List<Rectangle> layout(
+      final int width,
+      final int height,
+      final int tileHeight,
+      final int overlap,
+      final int maxTiles) {
+    if (overlap < 0 || overlap >= tileHeight) {
+      throw new IllegalArgumentException(
+          "Overlap must be in [0, tileHeight): " + overlap + ", tileHeight " + tileHeight);
+    }
+    if (height <= tileHeight || maxTiles <= 1) {
+      return List.of(new Rectangle(0, 0, width, height));
+    }
+    final int count = Math.min(maxTiles, Math.ceilDiv(height - overlap, tileHeight - overlap));
+    final int stride = Math.ceilDiv(height - overlap, count);
+    final List<Rectangle> tiles = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final int y = i * stride;
+      tiles.add(new Rectangle(0, y, width, Math.min(stride + overlap, height - y)));
+    }
+    return tiles;
+  }
+}
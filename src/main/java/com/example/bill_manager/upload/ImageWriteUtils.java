@@ -1,64 +1,258 @@
 package com.example.bill_manager.upload;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
-import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.ImageOutputStreamImpl;
 
+/**
+ * JPEG/PNG encoding with pooled writers.
+ * <p>
+ * Looking up an {@link ImageWriter} goes through the ImageIO service registry, and
+ * {@code ImageIO.createImageOutputStream} may back the stream with a temporary disk cache file.
+ * Both used to happen for every image. Instead, each format keeps a bounded pool of encoders, each
+ * holding a configured writer and an in-memory output stream whose buffer is reused across images,
+ * so encoding under load is pure compression work plus one copy of the result. Encoders are
+ * borrowed per call, never shared between threads, and discarded after a failed write or after
+ * encoding an unusually large image (to avoid pinning a large buffer).
+ */
 final class ImageWriteUtils {
 
+  private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+  private static final int INITIAL_BUFFER_BYTES = 256 * 1024;
+  private static final int MAX_RETAINED_BUFFER_BYTES = 8 * 1024 * 1024;
+
+  private static final BlockingQueue<Encoder> JPEG_ENCODERS = new ArrayBlockingQueue<>(POOL_SIZE);
+  private static final BlockingQueue<Encoder> PNG_ENCODERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
   private ImageWriteUtils() {}
 
   static byte[] writeJpeg(final BufferedImage image, final float quality) {
-    try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-      final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+    return write(JPEG_ENCODERS, "jpg", "JPEG", image, quality);
+  }
+
+  /**
+   * Encodes at the highest quality in {@code [minQuality, maxQuality]} whose output fits in
+   * {@code maxBytes}. {@code maxQuality} is tried first, so an image that already fits costs one
+   * encode; otherwise {@code minQuality} and then a binary search between the two, at most
+   * {@code maxSearchSteps} further encodes in total. If even {@code minQuality} does not fit, that
+   * (smallest) encoding is returned and the caller's size limits decide.
+   */
+  static byte[] writeJpegWithinBudget(
+      final BufferedImage image,
+      final float maxQuality,
+      final float minQuality,
+      final int maxBytes,
+      final int maxSearchSteps) {
+    return write(
+        JPEG_ENCODERS,
+        "jpg",
+        "JPEG",
+        encoder -> {
+          final byte[] first = encoder.encode(image, maxQuality);
+          if (first.length <= maxBytes || maxSearchSteps < 1) {
+            return first;
+          }
+          byte[] best = encoder.encode(image, minQuality);
+          if (best.length > maxBytes) {
+            return best;
+          }
+          float fitting = minQuality;
+          float exceeding = maxQuality;
+          for (int step = 1; step < maxSearchSteps; step++) {
+            final float quality = (fitting + exceeding) / 2;
+            final byte[] candidate = encoder.encode(image, quality);
+            if (candidate.length <= maxBytes) {
+              best = candidate;
+              fitting = quality;
+            } else {
+              exceeding = quality;
+            }
+          }
+          return best;
+        });
+  }
+
+  static byte[] writePng(final BufferedImage image) {
+    return write(PNG_ENCODERS, "png", "PNG", image, null);
+  }
+
+  private static byte[] write(
+      final BlockingQueue<Encoder> pool,
+      final String formatName,
+      final String label,
+      final BufferedImage image,
+      final Float quality) {
+    return write(pool, formatName, label, encoder -> encoder.encode(image, quality));
+  }
+
+  private static byte[] write(
+      final BlockingQueue<Encoder> pool,
+      final String formatName,
+      final String label,
+      final EncodeAction action) {
+    final Encoder pooled = pool.poll();
+    final Encoder encoder = pooled != null ? pooled : Encoder.create(formatName, label);
+    boolean reusable = false;
+    try {
+      final byte[] encoded = action.apply(encoder);
+      reusable = encoder.bufferCapacity() <= MAX_RETAINED_BUFFER_BYTES;
+      return encoded;
+    } catch (final IOException e) {
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
+          "Failed to write " + label + " image",
+          e);
+    } finally {
+      if (!reusable || !pool.offer(encoder)) {
+        encoder.dispose();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface EncodeAction {
+    byte[] apply(Encoder encoder) throws IOException;
+  }
+
+  /** A writer, its write parameters and a reusable output buffer; used by one thread at a time. */
+  private static final class Encoder {
+
+    private final ImageWriter writer;
+    private final ImageWriteParam params;
+    private final ByteArrayImageOutputStream output =
+        new ByteArrayImageOutputStream(INITIAL_BUFFER_BYTES);
+
+    private Encoder(final ImageWriter writer) {
+      this.writer = writer;
+      this.params = writer.getDefaultWriteParam();
+    }
+
+    static Encoder create(final String formatName, final String label) {
+      final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
       if (!writers.hasNext()) {
         throw new ImagePreprocessingException(
             ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
-            "No JPEG ImageWriter available in this JRE");
+            "No " + label + " ImageWriter available in this JRE");
       }
-      final ImageWriter writer = writers.next();
-      try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
-        final ImageWriteParam params = writer.getDefaultWriteParam();
+      return new Encoder(writers.next());
+    }
+
+    byte[] encode(final BufferedImage image, final Float quality) throws IOException {
+      output.clear();
+      final ImageWriteParam writeParams;
+      if (quality != null) {
         params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
         params.setCompressionQuality(quality);
-        writer.setOutput(imageOutputStream);
-        writer.write(null, new IIOImage(image, null, null), params);
+        writeParams = params;
+      } else {
+        writeParams = null;
+      }
+      writer.setOutput(output);
+      try {
+        writer.write(null, new IIOImage(image, null, null), writeParams);
       } finally {
-        writer.dispose();
+        writer.reset();
       }
-      return outputStream.toByteArray();
-    } catch (final ImagePreprocessingException e) {
-      throw e;
-    } catch (final IOException e) {
-      throw new ImagePreprocessingException(
-          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
-          "Failed to write JPEG image",
-          e);
+      return output.toByteArray();
+    }
+
+    int bufferCapacity() {
+      return output.capacity();
+    }
+
+    void dispose() {
+      writer.dispose();
     }
   }
 
-  static byte[] writePng(final BufferedImage image) {
-    try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-      final boolean written = ImageIO.write(image, "png", outputStream);
-      if (!written) {
-        throw new ImagePreprocessingException(
-            ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
-            "No PNG ImageWriter available in this JRE");
+  /**
+   * Seekable in-memory {@link javax.imageio.stream.ImageOutputStream} over a growable byte array.
+   * Unlike {@code MemoryCacheImageOutputStream} it can be cleared and reused, keeping its buffer.
+   * The PNG writer seeks back to patch chunk lengths, so random access is required.
+   */
+  private static final class ByteArrayImageOutputStream extends ImageOutputStreamImpl {
+
+    private byte[] data;
+    private int length;
+
+    ByteArrayImageOutputStream(final int initialCapacity) {
+      this.data = new byte[initialCapacity];
+    }
+
+    void clear() {
+      length = 0;
+      streamPos = 0;
+      flushedPos = 0;
+      bitOffset = 0;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(data, length);
+    }
+
+    int capacity() {
+      return data.length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      bitOffset = 0;
+      if (streamPos >= length) {
+        return -1;
+      }
+      return data[(int) streamPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      bitOffset = 0;
+      if (streamPos >= length) {
+        return -1;
+      }
+      final int count = (int) Math.min(len, length - streamPos);
+      System.arraycopy(data, (int) streamPos, b, off, count);
+      streamPos += count;
+      return count;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      flushBits();
+      ensureCapacity(streamPos + 1);
+      data[(int) streamPos++] = (byte) b;
+      length = (int) Math.max(length, streamPos);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      flushBits();
+      ensureCapacity(streamPos + len);
+      System.arraycopy(b, off, data, (int) streamPos, len);
+      streamPos += len;
+      length = (int) Math.max(length, streamPos);
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    private void ensureCapacity(final long required) throws IOException {
+      if (required > Integer.MAX_VALUE - 8) {
+        throw new IOException("Encoded image exceeds the maximum array size");
+      }
+      if (required > data.length) {
+        final long grown = Math.max(required, (long) data.length * 2);
+        data = Arrays.copyOf(data, (int) Math.min(grown, Integer.MAX_VALUE - 8));
       }
-      return outputStream.toByteArray();
-    } catch (final ImagePreprocessingException e) {
-      throw e;
-    } catch (final IOException e) {
-      throw new ImagePreprocessingException(
-          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
-          "Failed to write PNG image",
-          e);
     }
   }
 }
@@ -1,38 +1,124 @@
 package com.example.bill_manager.upload;
 
+import com.example.bill_manager.config.ResultStoreProperties;
 import com.example.bill_manager.dto.BillAnalysisResponse;
-import java.util.Map;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.LineItem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * Bounded in-memory result store.
+ * <p>
+ * Entries expire {@code result-store.ttl} after they are written and are evicted once the store
+ * exceeds {@code result-store.max-entries} (or {@code result-store.max-weight-bytes} of estimated
+ * heap, when set). Expired entries are swept by a background scheduler in addition to Caffeine's
+ * amortized maintenance on reads and writes. An evicted or expired result is indistinguishable
+ * from an unknown id: {@link #findById} returns empty and the API responds with 404. Evictions,
+ * hits and size are exported as {@code cache.*} meters with {@code cache=bill-results}.
+ */
 @Component
+@ConditionalOnProperty(
+    prefix = "result-store",
+    name = "type",
+    havingValue = "memory",
+    matchIfMissing = true)
 public class InMemoryResultStore implements BillResultStore {
 
+  static final String CACHE_NAME = "bill-results";
+
   private static final Logger LOG = LoggerFactory.getLogger(InMemoryResultStore.class);
 
-  // TODO: add eviction policy (TTL or max-size) to prevent unbounded growth under sustained traffic
-  private final Map<UUID, BillAnalysisResponse> store = new ConcurrentHashMap<>();
+  private final Cache<UUID, BillAnalysisResponse> store;
+
+  @Autowired
+  public InMemoryResultStore(
+      final ResultStoreProperties properties, final MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, Ticker.systemTicker());
+  }
+
+  InMemoryResultStore(
+      final ResultStoreProperties properties,
+      final MeterRegistry meterRegistry,
+      final Ticker ticker) {
+    final Caffeine<Object, Object> builder =
+        Caffeine.newBuilder()
+            .expireAfterWrite(properties.ttl())
+            .scheduler(Scheduler.systemScheduler())
+            .ticker(ticker)
+            .recordStats();
+    if (properties.isWeightBounded()) {
+      builder
+          .maximumWeight(properties.maxWeightBytes())
+          .<UUID, BillAnalysisResponse>weigher((id, response) -> estimateWeight(response));
+    } else {
+      builder.maximumSize(properties.maxEntries());
+    }
+    this.store =
+        builder
+            .<UUID, BillAnalysisResponse>evictionListener(
+                (id, response, cause) -> LOG.debug("Result evicted: id={}, cause={}", id, cause))
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, store, CACHE_NAME);
+  }
 
   @Override
   public void save(final UUID id, final BillAnalysisResponse response) {
     Objects.requireNonNull(id, "ID must not be null");
     Objects.requireNonNull(response, "Response must not be null");
     store.put(id, response);
-    LOG.debug("Result stored: id={}, storeSize={}", id, store.size());
+    LOG.debug("Result stored: id={}, storeSize={}", id, store.estimatedSize());
   }
 
   @Override
   public Optional<BillAnalysisResponse> findById(final UUID id) {
     Objects.requireNonNull(id, "ID must not be null");
-    final Optional<BillAnalysisResponse> result = Optional.ofNullable(store.get(id));
+    final Optional<BillAnalysisResponse> result = Optional.ofNullable(store.getIfPresent(id));
     if (result.isEmpty()) {
-      LOG.debug("Result not found: id={}", id);
+      LOG.debug("Result not found (unknown, expired or evicted): id={}", id);
     }
     return result;
   }
+
+  long size() {
+    store.cleanUp();
+    return store.estimatedSize();
+  }
+
+  /**
+   * Rough heap footprint of a stored response: fixed object overhead plus two bytes per
+   * character of every string. Only used to bound the store, so precision is not required.
+   */
+  static int estimateWeight(final BillAnalysisResponse response) {
+    int weight = 256 + charWeight(response.originalFileName());
+    final BillAnalysisResult analysis = response.analysis();
+    if (analysis != null) {
+      weight += charWeight(analysis.merchantName()) + charWeight(analysis.currency());
+      if (analysis.items() != null) {
+        for (final LineItem item : analysis.items()) {
+          weight += 160 + charWeight(item.name());
+        }
+      }
+      if (analysis.categoryTags() != null) {
+        weight += 8 * analysis.categoryTags().size();
+      }
+    }
+    return weight;
+  }
+
+  private static int charWeight(final String value) {
+    return value == null ? 0 : 2 * value.length();
+  }
 }
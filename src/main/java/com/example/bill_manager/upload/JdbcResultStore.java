@@ -0,0 +1,344 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.ResultStoreProperties;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JDBC result store with write-behind batching.
+ * <p>
+ * {@link #save} only records the result in an in-memory pending buffer, so the upload request
+ * never waits on the database. A background thread flushes the buffer every
+ * {@code result-store.jdbc.flush-interval}, or sooner once {@code batch-size} results are
+ * pending, as one batched delete + insert transaction. {@link #findById} consults the pending
+ * buffer first, giving read-your-writes before the flush lands.
+ * <p>
+ * If a batch fails, rows are retried one by one so a single bad row (e.g. an oversized merchant
+ * name) cannot block the rest; rows rejected with a data integrity violation are dropped and
+ * logged, while any other failure leaves them pending for the next flush. Once
+ * {@code max-pending} results are buffered, {@code save} flushes on the caller thread. If that
+ * flush fails, or the last flush already failed, the oldest pending results are dropped to keep
+ * the buffer at {@code max-pending} and counted in {@value #DROPPED_METRIC}; saves do not retry
+ * the database inline until a flush succeeds again. Pending results are flushed on shutdown; a
+ * crash loses at most one flush interval of results.
+ * <p>
+ * Results older than {@code result-store.ttl} are not returned and are purged on flush.
+ */
+@Component
+@ConditionalOnProperty(prefix = "result-store", name = "type", havingValue = "jdbc")
+public class JdbcResultStore implements BillResultStore {
+
+  static final String DROPPED_METRIC = "result-store.jdbc.dropped";
+
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcResultStore.class);
+
+  private static final String SCHEMA_SCRIPT = "db/result-store-schema.sql";
+
+  // spotless:off
+  private static final String DELETE_SQL = "DELETE FROM bill_results WHERE id = ?";
+  private static final String INSERT_SQL = """
+      INSERT INTO bill_results (id, original_file_name, merchant_name, total_amount, currency,
+                                analysis_json, analyzed_at, stored_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+  private static final String SELECT_SQL = """
+      SELECT original_file_name, analysis_json, analyzed_at
+      FROM bill_results
+      WHERE id = ? AND stored_at >= ?""";
+  private static final String PURGE_SQL = "DELETE FROM bill_results WHERE stored_at < ?";
+  // spotless:on
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final Clock clock;
+  private final Duration ttl;
+  private final int batchSize;
+  private final int maxPending;
+  private final Counter droppedCounter;
+
+  private final Map<UUID, PendingResult> pending = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final ReentrantLock overflowLock = new ReentrantLock();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ScheduledExecutorService flusher;
+  private volatile boolean lastFlushFailed;
+
+  @Autowired
+  public JdbcResultStore(
+      final ResultStoreProperties properties,
+      final JdbcTemplate jdbcTemplate,
+      final PlatformTransactionManager transactionManager,
+      final ObjectMapper objectMapper,
+      final MeterRegistry meterRegistry) {
+    this(
+        properties,
+        jdbcTemplate,
+        transactionManager,
+        objectMapper,
+        meterRegistry,
+        Clock.systemUTC());
+  }
+
+  JdbcResultStore(
+      final ResultStoreProperties properties,
+      final JdbcTemplate jdbcTemplate,
+      final PlatformTransactionManager transactionManager,
+      final ObjectMapper objectMapper,
+      final MeterRegistry meterRegistry,
+      final Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.objectMapper = objectMapper;
+    this.clock = clock;
+    this.ttl = properties.ttl();
+    this.batchSize = properties.jdbc().batchSize();
+    this.maxPending = properties.jdbc().maxPending();
+    this.droppedCounter =
+        Counter.builder(DROPPED_METRIC)
+            .description("Pending results dropped because the database was unavailable")
+            .register(meterRegistry);
+
+    if (properties.jdbc().initializeSchema()) {
+      new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT))
+          .execute(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+    }
+
+    final CustomizableThreadFactory threadFactory =
+        new CustomizableThreadFactory("result-store-flush-");
+    threadFactory.setDaemon(true);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    final long intervalMs = properties.jdbc().flushInterval().toMillis();
+    flusher.scheduleWithFixedDelay(
+        this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void save(final UUID id, final BillAnalysisResponse response) {
+    Objects.requireNonNull(id, "ID must not be null");
+    Objects.requireNonNull(response, "Response must not be null");
+    pending.put(id, new PendingResult(response, clock.instant(), sequence.incrementAndGet()));
+
+    final int pendingCount = pending.size();
+    if (pendingCount >= maxPending) {
+      if (!lastFlushFailed) {
+        LOG.warn(
+            "Result store write-behind buffer full ({} pending), flushing inline", pendingCount);
+        flushQuietly();
+      }
+      dropOldestBeyondLimit();
+    } else if (pendingCount >= batchSize && flushRequested.compareAndSet(false, true)) {
+      flusher.execute(this::flushQuietly);
+    }
+  }
+
+  @Override
+  public Optional<BillAnalysisResponse> findById(final UUID id) {
+    Objects.requireNonNull(id, "ID must not be null");
+    final PendingResult buffered = pending.get(id);
+    if (buffered != null) {
+      return Optional.of(buffered.response());
+    }
+
+    final Timestamp cutoff = Timestamp.from(clock.instant().minus(ttl));
+    final List<BillAnalysisResponse> rows =
+        jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> mapRow(id, rs), id.toString(), cutoff);
+    if (rows.isEmpty()) {
+      LOG.debug("Result not found: id={}", id);
+      return Optional.empty();
+    }
+    return Optional.of(rows.get(0));
+  }
+
+  /** Writes all pending results to the database; returns the number of rows written. */
+  int flush() {
+    flushLock.lock();
+    try {
+      flushRequested.set(false);
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      final List<Map.Entry<UUID, PendingResult>> snapshot = new ArrayList<>(pending.entrySet());
+      int written = 0;
+      for (int from = 0; from < snapshot.size(); from += batchSize) {
+        written += writeBatch(snapshot.subList(from, Math.min(from + batchSize, snapshot.size())));
+      }
+      purgeExpired();
+      lastFlushFailed = false;
+      LOG.debug("Flushed {} result(s) to the database", written);
+      return written;
+    } catch (final RuntimeException e) {
+      lastFlushFailed = true;
+      throw e;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  int pendingCount() {
+    return pending.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flusher.shutdown();
+    try {
+      if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+        flusher.shutdownNow();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushQuietly();
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (final RuntimeException e) {
+      LOG.error("Failed to flush result store, {} result(s) remain pending", pending.size(), e);
+    }
+  }
+
+  private void dropOldestBeyondLimit() {
+    overflowLock.lock();
+    try {
+      while (pending.size() > maxPending) {
+        final Optional<Map.Entry<UUID, PendingResult>> oldest =
+            pending.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().sequence()));
+        if (oldest.isPresent() && pending.remove(oldest.get().getKey(), oldest.get().getValue())) {
+          droppedCounter.increment();
+          LOG.error("Database unavailable, dropping pending result {}", oldest.get().getKey());
+        }
+      }
+    } finally {
+      overflowLock.unlock();
+    }
+  }
+
+  private int writeBatch(final List<Map.Entry<UUID, PendingResult>> batch) {
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            jdbcTemplate.batchUpdate(
+                DELETE_SQL, batch, batch.size(), (ps, entry) -> ps.setString(1, keyOf(entry)));
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bindInsert);
+          });
+      batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+      return batch.size();
+    } catch (final DataAccessException e) {
+      if (batch.size() == 1) {
+        throw e;
+      }
+      LOG.warn("Batch insert of {} result(s) failed, retrying row by row", batch.size(), e);
+      return writeRowByRow(batch);
+    }
+  }
+
+  private int writeRowByRow(final List<Map.Entry<UUID, PendingResult>> batch) {
+    int written = 0;
+    for (final Map.Entry<UUID, PendingResult> entry : batch) {
+      try {
+        written += writeBatch(List.of(entry));
+      } catch (final DataIntegrityViolationException e) {
+        pending.remove(entry.getKey(), entry.getValue());
+        LOG.error("Dropping result {} that cannot be stored", entry.getKey(), e);
+      }
+    }
+    return written;
+  }
+
+  private void bindInsert(final PreparedStatement ps, final Map.Entry<UUID, PendingResult> entry)
+      throws SQLException {
+    final BillAnalysisResponse response = entry.getValue().response();
+    final BillAnalysisResult analysis = response.analysis();
+    ps.setString(1, keyOf(entry));
+    ps.setString(2, response.originalFileName());
+    ps.setString(3, analysis == null ? null : analysis.merchantName());
+    ps.setBigDecimal(4, analysis == null ? null : analysis.totalAmount());
+    ps.setString(5, analysis == null ? null : analysis.currency());
+    ps.setString(6, analysis == null ? null : toJson(analysis));
+    ps.setTimestamp(7, Timestamp.from(response.analyzedAt()));
+    ps.setTimestamp(8, Timestamp.from(entry.getValue().storedAt()));
+  }
+
+  private void purgeExpired() {
+    final Timestamp cutoff = Timestamp.from(clock.instant().minus(ttl));
+    final int purged = jdbcTemplate.update(PURGE_SQL, cutoff);
+    if (purged > 0) {
+      LOG.debug("Purged {} expired result(s)", purged);
+    }
+  }
+
+  private BillAnalysisResponse mapRow(final UUID id, final ResultSet rs) throws SQLException {
+    final String analysisJson = rs.getString("analysis_json");
+    final Instant analyzedAt = rs.getTimestamp("analyzed_at").toInstant();
+    return new BillAnalysisResponse(
+        id,
+        rs.getString("original_file_name"),
+        analysisJson == null ? null : fromJson(analysisJson),
+        analyzedAt);
+  }
+
+  private String toJson(final BillAnalysisResult analysis) {
+    try {
+      return objectMapper.writeValueAsString(analysis);
+    } catch (final JsonProcessingException e) {
+      throw new IllegalStateException("Failed to serialize analysis result", e);
+    }
+  }
+
+  private BillAnalysisResult fromJson(final String json) {
+    try {
+      return objectMapper.readValue(json, BillAnalysisResult.class);
+    } catch (final JsonProcessingException e) {
+      throw new IllegalStateException("Failed to deserialize stored analysis result", e);
+    }
+  }
+
+  private static String keyOf(final Map.Entry<UUID, PendingResult> entry) {
+    return entry.getKey().toString();
+  }
+
+  private record PendingResult(BillAnalysisResponse response, Instant storedAt, long sequence) {}
+}
@@ -0,0 +1,82 @@
+package com.example.bill_manager.upload;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Marker-level JPEG surgery that leaves the compressed image data untouched.
+ * <p>
+ * {@link #stripMetadata} drops the segments that carry camera and location metadata (APP1 for
+ * EXIF/XMP, APP3-APP13, APP15, COM) and keeps everything a decoder needs: JFIF (APP0), ICC colour
+ * profiles (APP2), the Adobe colour transform (APP14), tables and frame headers. Everything from
+ * the first start-of-scan marker onwards is copied verbatim.
+ */
+final class JpegSegments {
+
+  private static final int SOI = 0xD8;
+  private static final int SOS = 0xDA;
+  private static final int TEM = 0x01;
+  private static final int RST0 = 0xD0;
+  private static final int RST7 = 0xD7;
+  private static final int APP1 = 0xE1;
+  private static final int APP2 = 0xE2;
+  private static final int APP14 = 0xEE;
+  private static final int APP15 = 0xEF;
+  private static final int COM = 0xFE;
+
+  private JpegSegments() {}
+
+  /**
+   * Returns {@code jpeg} without metadata segments, or {@code null} if the marker structure before
+   * the first scan is not well-formed.
+   */
+  static byte[] stripMetadata(final byte[] jpeg) {
+    if (jpeg.length < 4 || !isMarker(jpeg, 0) || (jpeg[1] & 0xFF) != SOI) {
+      return null;
+    }
+    final ByteArrayOutputStream stripped = new ByteArrayOutputStream(jpeg.length);
+    stripped.write(jpeg, 0, 2);
+    int position = 2;
+    while (position + 1 < jpeg.length) {
+      if (!isMarker(jpeg, position)) {
+        return null;
+      }
+      final int marker = jpeg[position + 1] & 0xFF;
+      if (marker == 0xFF) {
+        // Fill byte before a marker.
+        position++;
+        continue;
+      }
+      if (marker == SOS) {
+        stripped.write(jpeg, position, jpeg.length - position);
+        return stripped.toByteArray();
+      }
+      if (marker == TEM || (marker >= RST0 && marker <= RST7)) {
+        stripped.write(jpeg, position, 2);
+        position += 2;
+        continue;
+      }
+      if (position + 4 > jpeg.length) {
+        return null;
+      }
+      final int segmentLength = (jpeg[position + 2] & 0xFF) << 8 | (jpeg[position + 3] & 0xFF);
+      final int segmentEnd = position + 2 + segmentLength;
+      if (segmentLength < 2 || segmentEnd > jpeg.length) {
+        return null;
+      }
+      if (!isMetadata(marker)) {
+        stripped.write(jpeg, position, segmentEnd - position);
+      }
+      position = segmentEnd;
+    }
+    return null;
+  }
+
+  private static boolean isMarker(final byte[] jpeg, final int position) {
+    return jpeg[position] == (byte) 0xFF;
+  }
+
+  private static boolean isMetadata(final int marker) {
+    return marker == COM
+        || (marker >= APP1 && marker <= APP15 && marker != APP2 && marker != APP14);
+  }
+}
@@ -1,8 +1,27 @@
 package com.example.bill_manager.upload;
 
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Function;
 
 public interface PdfConversionService {
 
   List<byte[]> convertToImages(byte[] pdfContent);
+
+  /**
+   * Renders each page straight into {@code pageProcessor} without an intermediate encode.
+   * <p>
+   * Pages are rendered at the DPI that makes them {@code targetWidthPx} wide, capped at the
+   * configured {@code upload.pdf-render-dpi}, so they need no further downscaling.
+   */
+  List<byte[]> convertToImages(
+      byte[] pdfContent, int targetWidthPx, Function<BufferedImage, byte[]> pageProcessor);
+
+  /**
+   * Same as {@link #convertToImages(byte[], int, Function)}, but reads the PDF from a file (e.g. a
+   * spooled upload) through PDFBox's buffered random access instead of loading it onto the heap.
+   */
+  List<byte[]> convertToImages(
+      Path pdfFile, int targetWidthPx, Function<BufferedImage, byte[]> pageProcessor);
 }
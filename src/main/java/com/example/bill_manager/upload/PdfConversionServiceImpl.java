@@ -1,48 +1,119 @@
 package com.example.bill_manager.upload;
 
 import com.example.bill_manager.config.UploadProperties;
+import jakarta.annotation.PreDestroy;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+/**
+ * Renders PDF pages to images, either as standalone JPEGs or fused with a page processor (see
+ * {@link PdfConversionService#convertToImages(byte[], int, Function)}).
+ * <p>
+ * With {@code upload.pdf-render-threads > 1} the pages of a multi-page PDF are rendered and
+ * encoded concurrently on a shared bounded pool. {@link PDDocument} is not thread-safe, so each
+ * worker loads its own document instance and renders an interleaved subset of pages (worker
+ * {@code w} of {@code n} renders pages {@code w, w + n, ...}); the calling thread acts as worker
+ * 0 with the already-validated document. Results are written by page index, preserving order.
+ * <p>
+ * PDFs given as a {@link Path} are read through {@link RandomAccessReadBufferedFile}, which pages
+ * the file in on demand, so only the parsed object graph and the rendered pages occupy the heap.
+ */
 @Service
 public class PdfConversionServiceImpl implements PdfConversionService {
 
   private static final Logger LOG = LoggerFactory.getLogger(PdfConversionServiceImpl.class);
   private static final float JPEG_QUALITY = 0.9f;
+  private static final float POINTS_PER_INCH = 72f;
 
   private final UploadProperties uploadProperties;
+  private final ExecutorService renderExecutor;
 
   public PdfConversionServiceImpl(final UploadProperties uploadProperties) {
     this.uploadProperties = uploadProperties;
+    this.renderExecutor =
+        uploadProperties.pdfRenderThreads() > 1
+            ? Executors.newFixedThreadPool(
+                uploadProperties.pdfRenderThreads() - 1, renderThreadFactory())
+            : null;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (renderExecutor != null) {
+      renderExecutor.shutdownNow();
+    }
   }
 
   @Override
   public List<byte[]> convertToImages(final byte[] pdfContent) {
+    return convertToImages(
+        pdfContent,
+        Integer.MAX_VALUE,
+        pageImage -> ImageWriteUtils.writeJpeg(pageImage, JPEG_QUALITY));
+  }
+
+  @Override
+  public List<byte[]> convertToImages(
+      final byte[] pdfContent,
+      final int targetWidthPx,
+      final Function<BufferedImage, byte[]> pageProcessor) {
     if (pdfContent == null) {
       throw new PdfConversionException(
           PdfConversionException.ErrorCode.PDF_READ_FAILED, "PDF content must not be null");
     }
+    LOG.debug("Starting PDF conversion: {} bytes in memory", pdfContent.length);
+    return convert(() -> new RandomAccessReadBuffer(pdfContent), targetWidthPx, pageProcessor);
+  }
 
+  @Override
+  public List<byte[]> convertToImages(
+      final Path pdfFile,
+      final int targetWidthPx,
+      final Function<BufferedImage, byte[]> pageProcessor) {
+    if (pdfFile == null) {
+      throw new PdfConversionException(
+          PdfConversionException.ErrorCode.PDF_READ_FAILED, "PDF file must not be null");
+    }
+    LOG.debug("Starting PDF conversion: file={}", pdfFile);
+    return convert(
+        () -> new RandomAccessReadBufferedFile(pdfFile.toFile()), targetWidthPx, pageProcessor);
+  }
+
+  private List<byte[]> convert(
+      final PdfSource source,
+      final int targetWidthPx,
+      final Function<BufferedImage, byte[]> pageProcessor) {
     LOG.debug(
-        "Starting PDF conversion: {} bytes, maxPages={}, dpi={}",
-        pdfContent.length,
+        "PDF conversion limits: maxPages={}, maxDpi={}, targetWidthPx={}",
         uploadProperties.pdfMaxPages(),
-        uploadProperties.pdfRenderDpi());
+        uploadProperties.pdfRenderDpi(),
+        targetWidthPx);
 
-    try (PDDocument document = Loader.loadPDF(pdfContent)) {
+    try (PDDocument document = load(source)) {
       validateDocument(document);
 
-      final PDFRenderer renderer = new PDFRenderer(document);
       final int pageCount = document.getNumberOfPages();
 
       if (pageCount > uploadProperties.pdfMaxPages()) {
@@ -54,29 +125,25 @@ public class PdfConversionServiceImpl implements PdfConversionService {
                 + uploadProperties.pdfMaxPages());
       }
 
-      final List<byte[]> images = new ArrayList<>(pageCount);
-      for (int i = 0; i < pageCount; i++) {
-        final BufferedImage pageImage =
-            renderer.renderImageWithDPI(i, uploadProperties.pdfRenderDpi(), ImageType.RGB);
-        try {
-          images.add(ImageWriteUtils.writeJpeg(pageImage, JPEG_QUALITY));
-        } finally {
-          pageImage.flush();
-        }
+      final PageRendering rendering = new PageRendering(targetWidthPx, pageProcessor);
+      final byte[][] images = new byte[pageCount][];
+      final int workers =
+          renderExecutor == null ? 1 : Math.min(uploadProperties.pdfRenderThreads(), pageCount);
+      if (workers == 1) {
+        renderPages(document, 0, 1, rendering, images);
+      } else {
+        renderPagesInParallel(source, document, workers, rendering, images);
       }
 
-      LOG.debug(
-          "Converted {} PDF page(s) to JPEG images at {} DPI",
-          pageCount,
-          uploadProperties.pdfRenderDpi());
-      return images;
+      LOG.debug("Converted {} PDF page(s) to images using {} worker(s)", pageCount, workers);
+      return List.of(images);
 
     } catch (final PdfConversionException e) {
       throw e;
     } catch (final ImagePreprocessingException e) {
       throw new PdfConversionException(
           PdfConversionException.ErrorCode.CONVERSION_FAILED,
-          "Failed to write PDF page as JPEG image",
+          "Failed to process PDF page image",
           e);
     } catch (final InvalidPasswordException e) {
       throw new PdfConversionException(
@@ -89,6 +156,120 @@ public class PdfConversionServiceImpl implements PdfConversionService {
     }
   }
 
+  private void renderPagesInParallel(
+      final PdfSource source,
+      final PDDocument document,
+      final int workers,
+      final PageRendering rendering,
+      final byte[][] images)
+      throws IOException {
+    final List<Future<?>> futures = new ArrayList<>(workers - 1);
+    try {
+      for (int worker = 1; worker < workers; worker++) {
+        final int firstPage = worker;
+        futures.add(
+            renderExecutor.submit(
+                () -> {
+                  try (PDDocument workerDocument = load(source)) {
+                    renderPages(workerDocument, firstPage, workers, rendering, images);
+                  }
+                  return null;
+                }));
+      }
+      renderPages(document, 0, workers, rendering, images);
+      for (final Future<?> future : futures) {
+        awaitWorker(future);
+      }
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private void renderPages(
+      final PDDocument document,
+      final int firstPage,
+      final int step,
+      final PageRendering rendering,
+      final byte[][] images)
+      throws IOException {
+    final PDFRenderer renderer = new PDFRenderer(document);
+    for (int i = firstPage; i < images.length; i += step) {
+      final float scale = renderScale(document.getPage(i), rendering.targetWidthPx());
+      final BufferedImage pageImage = renderer.renderImage(i, scale, ImageType.RGB);
+      try {
+        images[i] = rendering.pageProcessor().apply(pageImage);
+      } finally {
+        pageImage.flush();
+      }
+    }
+  }
+
+  /**
+   * Picks the scale (DPI / 72) at which the page lands at {@code targetWidthPx}, never above the
+   * configured {@code upload.pdf-render-dpi}. Narrow pages (e.g. till receipts) therefore stay at
+   * the configured DPI, while wide pages are rendered directly at the target width instead of
+   * being rendered larger and downscaled afterwards.
+   */
+  private float renderScale(final PDPage page, final int targetWidthPx) {
+    final float maxScale = uploadProperties.pdfRenderDpi() / POINTS_PER_INCH;
+    final PDRectangle cropBox = page.getCropBox();
+    final boolean rotated = page.getRotation() % 180 != 0;
+    final float widthPt = rotated ? cropBox.getHeight() : cropBox.getWidth();
+    if (widthPt <= 0) {
+      return maxScale;
+    }
+    // PDFRenderer floors widthPt * scale; aim half a pixel higher so the result is exactly
+    // targetWidthPx despite float rounding.
+    final float targetScale = (targetWidthPx + 0.5f) / widthPt;
+    return Math.min(maxScale, targetScale);
+  }
+
+  private record PageRendering(int targetWidthPx, Function<BufferedImage, byte[]> pageProcessor) {}
+
+  private static PDDocument load(final PdfSource source) throws IOException {
+    final RandomAccessRead read = source.open();
+    try {
+      return Loader.loadPDF(read);
+    } catch (final IOException | RuntimeException e) {
+      read.close();
+      throw e;
+    }
+  }
+
+  /** Opens a fresh reader over the PDF; each worker's document needs its own. */
+  @FunctionalInterface
+  private interface PdfSource {
+    RandomAccessRead open() throws IOException;
+  }
+
+  private static void awaitWorker(final Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PdfConversionException(
+          PdfConversionException.ErrorCode.CONVERSION_FAILED,
+          "Interrupted while rendering PDF pages",
+          e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new PdfConversionException(
+          PdfConversionException.ErrorCode.CONVERSION_FAILED, "Failed to render PDF page", cause);
+    }
+  }
+
+  private static CustomizableThreadFactory renderThreadFactory() {
+    final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pdf-render-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+
   private void validateDocument(final PDDocument document) {
     if (document.isEncrypted()) {
       throw new PdfConversionException(
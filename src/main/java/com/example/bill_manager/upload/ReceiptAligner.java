@@ -0,0 +1,90 @@
+package com.example.bill_manager.upload;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code upload.preprocessing.auto-crop} and {@code deskew} steps around
+ * {@link ReceiptCropper}.
+ * <p>
+ * For encoded images, {@link #locate} finds the receipt on a decode about
+ * {@value ReceiptCropper#DETECTION_WIDTH_PX}px wide, so that the caller only decodes that region at
+ * full resolution. Images that are already decoded (PDF pages) are analyzed and cropped in memory
+ * by {@link #crop}. The measured skew is corrected by {@link #straighten} after resizing.
+ */
+final class ReceiptAligner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReceiptAligner.class);
+
+  private final boolean autoCrop;
+  private final boolean deskew;
+
+  ReceiptAligner(final boolean autoCrop, final boolean deskew) {
+    this.autoCrop = autoCrop;
+    this.deskew = deskew;
+  }
+
+  boolean enabled() {
+    return autoCrop || deskew;
+  }
+
+  /** Whether {@link #locate} reads the image, so that the reader must be able to seek back. */
+  boolean locatesReceipt() {
+    return autoCrop;
+  }
+
+  /**
+   * Decodes a copy at least {@value ReceiptCropper#DETECTION_WIDTH_PX}px wide (or the original if
+   * smaller) and maps the detected bounds back to source pixels.
+   *
+   * @return the receipt bounds within {@code full} and its skew, or {@code null} without auto-crop
+   */
+  ReceiptCropper.Analysis locate(final ImageReader reader, final Rectangle full)
+      throws IOException {
+    if (!autoCrop) {
+      return null;
+    }
+    final int factor = Math.max(1, full.width / ReceiptCropper.DETECTION_WIDTH_PX);
+    final ImageReadParam detectionParam = reader.getDefaultReadParam();
+    detectionParam.setSourceSubsampling(factor, factor, 0, 0);
+    final ReceiptCropper.Analysis analysis =
+        ReceiptCropper.analyze(reader.read(0, detectionParam), true, deskew);
+    if (analysis.bounds() == null) {
+      return analysis;
+    }
+    final Rectangle bounds = analysis.bounds();
+    final Rectangle region =
+        new Rectangle(
+                bounds.x * factor, bounds.y * factor, bounds.width * factor, bounds.height * factor)
+            .intersection(full);
+    LOG.debug("Receipt located at {} of {}x{}", region, full.width, full.height);
+    return new ReceiptCropper.Analysis(region, analysis.skewDegrees());
+  }
+
+  /** The skew of a decoded image, or 0 without deskew. */
+  double measureSkew(final BufferedImage image) {
+    return deskew ? ReceiptCropper.analyze(image, false, true).skewDegrees() : 0.0;
+  }
+
+  /** Crops and measures the skew of an image that is already decoded, e.g. a rendered page. */
+  DecodedImage crop(final BufferedImage image) {
+    if (!enabled()) {
+      return new DecodedImage(image, image.getWidth(), image.getHeight(), 0.0);
+    }
+    final ReceiptCropper.Analysis analysis = ReceiptCropper.analyze(image, autoCrop, deskew);
+    final Rectangle bounds = analysis.bounds();
+    final BufferedImage cropped =
+        bounds != null ? image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height) : image;
+    return new DecodedImage(
+        cropped, cropped.getWidth(), cropped.getHeight(), analysis.skewDegrees());
+  }
+
+  BufferedImage straighten(final BufferedImage image, final double skewDegrees) {
+    return skewDegrees != 0.0 ? ReceiptCropper.deskew(image, skewDegrees) : image;
+  }
+}
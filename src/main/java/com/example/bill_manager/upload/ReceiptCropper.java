@@ -0,0 +1,349 @@
+package com.example.bill_manager.upload;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Finds the part of a photo or page worth sending for analysis, and how far it is rotated.
+ * <p>
+ * {@link #analyze} works on a luma copy at most {@value #DETECTION_WIDTH_PX}px wide. The paper is
+ * located first: if the image border is darker than the Otsu threshold it is background (a table
+ * under a photographed receipt), pixels clearly different from it are projected onto columns and
+ * rows, and the longest run of mostly foreground columns (then rows) is taken. A bright border
+ * means the whole image is paper, as with a scanned page. Inside the paper, ink (pixels well
+ * below the paper level) is projected the same way to trim blank margins.
+ * <p>
+ * The skew is the shear angle within {@value #MAX_SKEW_DEGREES} degrees that makes the ink's row
+ * projection sharpest, i.e. the angle at which text lines are horizontal.
+ */
+final class ReceiptCropper {
+
+  static final int DETECTION_WIDTH_PX = 400;
+
+  private static final double MAX_SKEW_DEGREES = 5.0;
+  private static final double SKEW_STEP_DEGREES = 0.25;
+  private static final double MIN_SKEW_DEGREES = 0.5;
+  private static final int MIN_SKEW_INK_PIXELS = 64;
+
+  /** Columns/rows with at least this share of the fullest one's foreground count as paper. */
+  private static final double PAPER_PROJECTION_RATIO = 0.5;
+
+  /** Foreground differs from the background level (the border's median luma) by this much. */
+  private static final int BACKGROUND_CONTRAST = 48;
+
+  /** Border thickness, as a fraction of the shorter side, sampled for the background level. */
+  private static final int BORDER_DIVISOR = 50;
+
+  /** Ink is this much darker than the paper level (its 75th luma percentile). */
+  private static final int INK_CONTRAST = 48;
+
+  private static final int MIN_INK_PER_LINE = 2;
+  private static final double PADDING_RATIO = 0.02;
+
+  /** A crop keeping more than this share of the area is not worth a second decode. */
+  private static final double MAX_CROP_AREA_RATIO = 0.9;
+
+  private ReceiptCropper() {}
+
+  /**
+   * Where to crop {@code image} (in its own pixel coordinates; {@code null} to keep all of it) and
+   * the skew angle in degrees (positive when text lines descend to the right; 0 if none found).
+   */
+  record Analysis(Rectangle bounds, double skewDegrees) {}
+
+  static Analysis analyze(final BufferedImage image, final boolean crop, final boolean deskew) {
+    final int step = Math.max(1, Math.ceilDiv(image.getWidth(), DETECTION_WIDTH_PX));
+    final int width = Math.ceilDiv(image.getWidth(), step);
+    final int height = Math.ceilDiv(image.getHeight(), step);
+    final int[] luma = sampleLuma(image, step, width, height);
+
+    final Rectangle paper = findPaper(luma, width, height);
+    final int inkThreshold = percentile(luma, width, paper, 0.75) - INK_CONTRAST;
+    final Rectangle ink = findInk(luma, width, paper, inkThreshold);
+
+    Rectangle bounds = null;
+    if (crop && ink != null) {
+      final Rectangle padded = pad(ink, paper);
+      final Rectangle scaled =
+          new Rectangle(padded.x * step, padded.y * step, padded.width * step, padded.height * step)
+              .intersection(new Rectangle(image.getWidth(), image.getHeight()));
+      final double areaRatio =
+          (double) scaled.width * scaled.height / ((double) image.getWidth() * image.getHeight());
+      bounds = areaRatio <= MAX_CROP_AREA_RATIO ? scaled : null;
+    }
+    final double skew = deskew && ink != null ? estimateSkew(luma, width, ink, inkThreshold) : 0.0;
+    return new Analysis(bounds, skew);
+  }
+
+  /** Rotates {@code image} by {@code -skewDegrees} about its centre, filling corners with white. */
+  static BufferedImage deskew(final BufferedImage image, final double skewDegrees) {
+    final BufferedImage rotated =
+        new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+    final Graphics2D graphics = rotated.createGraphics();
+    try {
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+      graphics.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.rotate(
+          Math.toRadians(-skewDegrees), image.getWidth() / 2.0, image.getHeight() / 2.0);
+      graphics.drawImage(image, 0, 0, null);
+    } finally {
+      graphics.dispose();
+    }
+    return rotated;
+  }
+
+  private static int[] sampleLuma(
+      final BufferedImage image, final int step, final int width, final int height) {
+    final int[] luma = new int[width * height];
+    final int[] row = new int[image.getWidth()];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y * step, row.length, 1, row, 0, row.length);
+      for (int x = 0; x < width; x++) {
+        luma[y * width + x] = ReceiptImageFilter.luma(row[x * step]);
+      }
+    }
+    return luma;
+  }
+
+  /**
+   * The bounding box of what stands out from a dark background, or the whole image when its border
+   * is bright or nothing stands out.
+   */
+  private static Rectangle findPaper(final int[] luma, final int width, final int height) {
+    final int background = borderMedian(luma, width, height);
+    if (background > otsuThreshold(luma)) {
+      return new Rectangle(width, height);
+    }
+    final boolean[] foreground = new boolean[luma.length];
+    final int[] columns = new int[width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int index = y * width + x;
+        foreground[index] = Math.abs(luma[index] - background) > BACKGROUND_CONTRAST;
+        if (foreground[index]) {
+          columns[x]++;
+        }
+      }
+    }
+    final int[] columnRun = longestRun(columns, 0, width);
+    if (columnRun == null) {
+      return new Rectangle(width, height);
+    }
+    final int[] rows = new int[height];
+    for (int y = 0; y < height; y++) {
+      for (int x = columnRun[0]; x < columnRun[1]; x++) {
+        if (foreground[y * width + x]) {
+          rows[y]++;
+        }
+      }
+    }
+    final int[] rowRun = longestRun(rows, 0, height);
+    if (rowRun == null) {
+      return new Rectangle(width, height);
+    }
+    return new Rectangle(
+        columnRun[0], rowRun[0], columnRun[1] - columnRun[0], rowRun[1] - rowRun[0]);
+  }
+
+  /** Bounding box of ink pixels inside {@code paper}, or {@code null} if it holds none. */
+  private static Rectangle findInk(
+      final int[] luma, final int width, final Rectangle paper, final int inkThreshold) {
+    final int[] columns = new int[width];
+    final int[] rows = new int[paper.y + paper.height];
+    for (int y = paper.y; y < paper.y + paper.height; y++) {
+      for (int x = paper.x; x < paper.x + paper.width; x++) {
+        if (luma[y * width + x] < inkThreshold) {
+          columns[x]++;
+          rows[y]++;
+        }
+      }
+    }
+    final int left = first(columns, paper.x, paper.x + paper.width);
+    final int top = first(rows, paper.y, paper.y + paper.height);
+    if (left < 0 || top < 0) {
+      return null;
+    }
+    final int right = last(columns, paper.x, paper.x + paper.width);
+    final int bottom = last(rows, paper.y, paper.y + paper.height);
+    return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+  }
+
+  /**
+   * Tries shear angles and keeps the one maximizing the sum of squared row counts of the sheared
+   * ink pixels: aligned text lines concentrate ink in few rows.
+   */
+  private static double estimateSkew(
+      final int[] luma, final int width, final Rectangle ink, final int inkThreshold) {
+    int inkPixels = 0;
+    final int[] xs = new int[ink.width * ink.height];
+    final int[] ys = new int[xs.length];
+    for (int y = ink.y; y < ink.y + ink.height; y++) {
+      for (int x = ink.x; x < ink.x + ink.width; x++) {
+        if (luma[y * width + x] < inkThreshold) {
+          xs[inkPixels] = x - ink.x;
+          ys[inkPixels] = y - ink.y;
+          inkPixels++;
+        }
+      }
+    }
+    if (inkPixels < MIN_SKEW_INK_PIXELS) {
+      return 0.0;
+    }
+    final int shearRange = (int) Math.ceil(ink.width * Math.tan(Math.toRadians(MAX_SKEW_DEGREES)));
+    final int[] bins = new int[ink.height + 2 * shearRange + 1];
+    double bestAngle = 0.0;
+    long bestScore = -1;
+    final int steps = (int) Math.round(MAX_SKEW_DEGREES / SKEW_STEP_DEGREES);
+    for (int i = -steps; i <= steps; i++) {
+      final double angle = i * SKEW_STEP_DEGREES;
+      final double slope = Math.tan(Math.toRadians(angle));
+      Arrays.fill(bins, 0);
+      for (int p = 0; p < inkPixels; p++) {
+        bins[(int) Math.round(ys[p] - xs[p] * slope) + shearRange]++;
+      }
+      long score = 0;
+      for (final int count : bins) {
+        score += (long) count * count;
+      }
+      // On ties (e.g. a single text line) prefer the smaller correction.
+      if (score > bestScore || (score == bestScore && Math.abs(angle) < Math.abs(bestAngle))) {
+        bestScore = score;
+        bestAngle = angle;
+      }
+    }
+    return Math.abs(bestAngle) >= MIN_SKEW_DEGREES ? bestAngle : 0.0;
+  }
+
+  private static Rectangle pad(final Rectangle ink, final Rectangle paper) {
+    final int padX = Math.max(2, (int) Math.round(paper.width * PADDING_RATIO));
+    final int padY = Math.max(2, (int) Math.round(paper.height * PADDING_RATIO));
+    final Rectangle padded =
+        new Rectangle(ink.x - padX, ink.y - padY, ink.width + 2 * padX, ink.height + 2 * padY);
+    return padded.intersection(paper);
+  }
+
+  /** {@code [start, end)} of the longest run whose counts reach the paper ratio of the maximum. */
+  private static int[] longestRun(final int[] counts, final int from, final int to) {
+    int max = 0;
+    for (int i = from; i < to; i++) {
+      max = Math.max(max, counts[i]);
+    }
+    if (max == 0) {
+      return null;
+    }
+    final double minimum = max * PAPER_PROJECTION_RATIO;
+    int[] best = null;
+    int runStart = -1;
+    for (int i = from; i <= to; i++) {
+      final boolean inRun = i < to && counts[i] >= minimum;
+      if (inRun && runStart < 0) {
+        runStart = i;
+      } else if (!inRun && runStart >= 0) {
+        if (best == null || i - runStart > best[1] - best[0]) {
+          best = new int[] {runStart, i};
+        }
+        runStart = -1;
+      }
+    }
+    return best;
+  }
+
+  private static int first(final int[] counts, final int from, final int to) {
+    for (int i = from; i < to; i++) {
+      if (counts[i] >= MIN_INK_PER_LINE) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int last(final int[] counts, final int from, final int to) {
+    for (int i = to - 1; i >= from; i--) {
+      if (counts[i] >= MIN_INK_PER_LINE) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int percentile(
+      final int[] luma, final int width, final Rectangle region, final double ratio) {
+    final int[] histogram = new int[256];
+    for (int y = region.y; y < region.y + region.height; y++) {
+      for (int x = region.x; x < region.x + region.width; x++) {
+        histogram[luma[y * width + x]]++;
+      }
+    }
+    final long rank = (long) (region.width * (long) region.height * ratio);
+    long seen = 0;
+    for (int value = 0; value < histogram.length; value++) {
+      seen += histogram[value];
+      if (seen > rank) {
+        return value;
+      }
+    }
+    return histogram.length - 1;
+  }
+
+  private static int borderMedian(final int[] luma, final int width, final int height) {
+    final int border = Math.max(1, Math.min(width, height) / BORDER_DIVISOR);
+    final int[] histogram = new int[256];
+    int count = 0;
+    for (int y = 0; y < height; y++) {
+      final boolean edgeRow = y < border || y >= height - border;
+      for (int x = 0; x < width; x++) {
+        if (edgeRow || x < border || x >= width - border) {
+          histogram[luma[y * width + x]]++;
+          count++;
+        }
+      }
+    }
+    int seen = 0;
+    for (int value = 0; value < histogram.length; value++) {
+      seen += histogram[value];
+      if (seen > count / 2) {
+        return value;
+      }
+    }
+    return histogram.length - 1;
+  }
+
+  private static int otsuThreshold(final int[] luma) {
+    final int[] histogram = new int[256];
+    long total = 0;
+    for (final int value : luma) {
+      histogram[value]++;
+      total += value;
+    }
+    long backgroundSum = 0;
+    int backgroundCount = 0;
+    double bestVariance = -1;
+    int threshold = 127;
+    for (int value = 0; value < 256; value++) {
+      backgroundCount += histogram[value];
+      if (backgroundCount == 0) {
+        continue;
+      }
+      final int foregroundCount = luma.length - backgroundCount;
+      if (foregroundCount == 0) {
+        break;
+      }
+      backgroundSum += (long) value * histogram[value];
+      final double backgroundMean = (double) backgroundSum / backgroundCount;
+      final double foregroundMean = (double) (total - backgroundSum) / foregroundCount;
+      final double difference = backgroundMean - foregroundMean;
+      final double variance = (double) backgroundCount * foregroundCount * difference * difference;
+      if (variance > bestVariance) {
+        bestVariance = variance;
+        threshold = value;
+      }
+    }
+    return threshold;
+  }
+}
@@ -0,0 +1,159 @@
+package com.example.bill_manager.upload;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Receipt-oriented pixel filters on already resized images.
+ * <p>
+ * {@link #toGrayscale} writes BT.601 luma straight into a {@code TYPE_BYTE_GRAY} raster instead of
+ * drawing through Java2D, whose linear-gray colour conversion would brighten mid-tones. The
+ * encoders store those bytes unchanged, so a grayscale JPEG carries one component instead of
+ * three and a grayscale PNG a third of the samples. The other filters work in place on such an
+ * image.
+ */
+final class ReceiptImageFilter {
+
+  /** Share of pixels clipped at each end of the histogram by {@link #stretchContrast}. */
+  private static final double STRETCH_CLIP_RATIO = 0.01;
+
+  /** Below this input range an image is treated as flat and left unstretched. */
+  private static final int MIN_STRETCH_RANGE = 32;
+
+  /** Adaptive threshold window as a fraction of the image width (Bradley and Roth use 1/8). */
+  private static final int WINDOW_WIDTH_DIVISOR = 16;
+
+  private static final int MIN_WINDOW_SIZE = 8;
+
+  /** A pixel becomes black when it is this many percent darker than its window's mean. */
+  private static final int THRESHOLD_PERCENT = 15;
+
+  private ReceiptImageFilter() {}
+
+  /**
+   * Converts {@code image} to 8-bit luma. Transparent pixels are composited onto white, the paper
+   * colour, rather than black.
+   */
+  static BufferedImage toGrayscale(final BufferedImage image) {
+    final int width = image.getWidth();
+    final int height = image.getHeight();
+    final BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    final byte[] luma = pixels(gray);
+    final boolean alpha = image.getColorModel().hasAlpha();
+    final int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      readRow(image, y, row);
+      final int offset = y * width;
+      for (int x = 0; x < width; x++) {
+        luma[offset + x] = (byte) (alpha ? luma(row[x]) : opaqueLuma(row[x]));
+      }
+    }
+    return gray;
+  }
+
+  /** BT.601 luma of a non-premultiplied ARGB pixel, composited onto white by its alpha. */
+  static int luma(final int argb) {
+    final int value = opaqueLuma(argb);
+    final int a = argb >>> 24;
+    return a == 0xFF ? value : (value * a + 255 * (255 - a) + 127) / 255;
+  }
+
+  /**
+   * Linearly maps the range between the 1st and 99th luma percentile onto 0-255, turning greyish
+   * thermal print on off-white paper into near black on white.
+   */
+  static void stretchContrast(final BufferedImage gray) {
+    final byte[] luma = pixels(gray);
+    final int[] histogram = new int[256];
+    for (final byte value : luma) {
+      histogram[value & 0xFF]++;
+    }
+    final int clipped = (int) (luma.length * STRETCH_CLIP_RATIO);
+    final int low = percentile(histogram, clipped);
+    final int high = percentile(histogram, luma.length - 1 - clipped);
+    if (high - low < MIN_STRETCH_RANGE) {
+      return;
+    }
+    final byte[] mapping = new byte[256];
+    for (int value = 0; value < 256; value++) {
+      final int stretched = (value - low) * 255 / (high - low);
+      mapping[value] = (byte) Math.max(0, Math.min(255, stretched));
+    }
+    for (int i = 0; i < luma.length; i++) {
+      luma[i] = mapping[luma[i] & 0xFF];
+    }
+  }
+
+  /**
+   * Bradley-Roth adaptive thresholding: each pixel is compared with the mean of the square window
+   * around it, so shadows and uneven lighting across a photographed receipt do not turn whole
+   * regions black the way a single global threshold would.
+   */
+  static void binarize(final BufferedImage gray) {
+    final int width = gray.getWidth();
+    final int height = gray.getHeight();
+    final byte[] luma = pixels(gray);
+    final int stride = width + 1;
+    // Summed-area table. The running totals may overflow int on tall images, but every window
+    // sum is small and two's complement subtraction recovers it exactly, so the wrap is harmless.
+    final int[] integral = new int[stride * (height + 1)];
+    for (int y = 0; y < height; y++) {
+      int rowSum = 0;
+      for (int x = 0; x < width; x++) {
+        rowSum += luma[y * width + x] & 0xFF;
+        integral[(y + 1) * stride + x + 1] = integral[y * stride + x + 1] + rowSum;
+      }
+    }
+    final int half = Math.max(MIN_WINDOW_SIZE, width / WINDOW_WIDTH_DIVISOR) / 2;
+    for (int y = 0; y < height; y++) {
+      final int top = Math.max(0, y - half);
+      final int bottom = Math.min(height, y + half + 1);
+      for (int x = 0; x < width; x++) {
+        final int left = Math.max(0, x - half);
+        final int right = Math.min(width, x + half + 1);
+        final int sum =
+            integral[bottom * stride + right]
+                - integral[top * stride + right]
+                - integral[bottom * stride + left]
+                + integral[top * stride + left];
+        final int count = (bottom - top) * (right - left);
+        final int index = y * width + x;
+        final long scaled = (long) (luma[index] & 0xFF) * count * 100;
+        final boolean dark = scaled <= (long) sum * (100 - THRESHOLD_PERCENT);
+        luma[index] = dark ? 0 : (byte) 0xFF;
+      }
+    }
+  }
+
+  private static int opaqueLuma(final int rgb) {
+    final int r = rgb >> 16 & 0xFF;
+    final int g = rgb >> 8 & 0xFF;
+    final int b = rgb & 0xFF;
+    return (77 * r + 150 * g + 29 * b + 128) >> 8;
+  }
+
+  private static int percentile(final int[] histogram, final int rank) {
+    int seen = 0;
+    for (int value = 0; value < histogram.length; value++) {
+      seen += histogram[value];
+      if (seen > rank) {
+        return value;
+      }
+    }
+    return histogram.length - 1;
+  }
+
+  private static void readRow(final BufferedImage image, final int y, final int[] row) {
+    final int type = image.getType();
+    if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+      // Packed pixels in the image's own layout, without a colour model call per pixel.
+      image.getRaster().getDataElements(0, y, row.length, 1, row);
+    } else {
+      image.getRGB(0, y, row.length, 1, row, 0, row.length);
+    }
+  }
+
+  private static byte[] pixels(final BufferedImage gray) {
+    return ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+  }
+}
@@ -0,0 +1,136 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.ai.BillAnalysisService;
+import com.example.bill_manager.config.PreprocessingProperties;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * The {@code upload.preprocessing.tiling} step: splits a resized image taller than
+ * {@code tile-height-px} into overlapping full-width tiles (see {@link ImageTiles}) and encodes
+ * them on up to {@code encode-threads} threads, the calling thread included. Pool threads and the
+ * calling thread take tiles from a shared counter until none are left.
+ */
+final class TileEncoder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TileEncoder.class);
+
+  /** Encodes one tile within {@code maxBytes}. */
+  @FunctionalInterface
+  interface TileWriter {
+    byte[] write(BufferedImage tile, int maxBytes);
+  }
+
+  private final PreprocessingProperties.Tiling tiling;
+  private final ExecutorService executor;
+
+  TileEncoder(final PreprocessingProperties.Tiling tiling) {
+    this.tiling = tiling;
+    this.executor =
+        tiling.enabled() && tiling.encodeThreads() > 1
+            ? Executors.newFixedThreadPool(tiling.encodeThreads() - 1, threadFactory())
+            : null;
+  }
+
+  boolean enabled() {
+    return tiling.enabled();
+  }
+
+  boolean fitsInOneTile(final int height) {
+    return height <= tiling.tileHeightPx();
+  }
+
+  /**
+   * Encodes the tiles of {@code image} in order, each within {@code budgetForTileCount} applied to
+   * the number of tiles.
+   */
+  List<byte[]> encode(
+      final BufferedImage image,
+      final IntUnaryOperator budgetForTileCount,
+      final TileWriter writer) {
+    final List<Rectangle> tiles =
+        ImageTiles.layout(
+            image.getWidth(),
+            image.getHeight(),
+            tiling.tileHeightPx(),
+            tiling.overlapPx(),
+            BillAnalysisService.MAX_IMAGES_PER_REQUEST);
+    final int tileBudget = budgetForTileCount.applyAsInt(tiles.size());
+    if (tiles.size() == 1) {
+      return List.of(writer.write(image, tileBudget));
+    }
+    final byte[][] encoded = new byte[tiles.size()][];
+    final AtomicInteger next = new AtomicInteger();
+    final Runnable worker =
+        () -> {
+          for (int i = next.getAndIncrement(); i < tiles.size(); i = next.getAndIncrement()) {
+            final Rectangle tile = tiles.get(i);
+            encoded[i] =
+                writer.write(
+                    image.getSubimage(tile.x, tile.y, tile.width, tile.height), tileBudget);
+          }
+        };
+    final int helpers = executor == null ? 0 : Math.min(tiling.encodeThreads(), tiles.size()) - 1;
+    final List<Future<?>> futures = new ArrayList<>(helpers);
+    try {
+      for (int i = 0; i < helpers; i++) {
+        futures.add(executor.submit(worker));
+      }
+      worker.run();
+      for (final Future<?> future : futures) {
+        await(future);
+      }
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    LOG.debug(
+        "Image split into {} tiles of up to {}px, {} bytes each at most",
+        tiles.size(),
+        tiles.get(0).height,
+        tileBudget);
+    return List.of(encoded);
+  }
+
+  void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void await(final Future<?> future) {
+    try {
+      future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
+          "Interrupted while encoding image tiles",
+          e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new ImagePreprocessingException(
+          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED,
+          "Failed to encode image tiles",
+          e.getCause());
+    }
+  }
+
+  private static CustomizableThreadFactory threadFactory() {
+    final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("image-tile-");
+    threadFactory.setDaemon(true);
+    return threadFactory;
+  }
+}
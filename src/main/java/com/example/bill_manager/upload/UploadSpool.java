@@ -0,0 +1,48 @@
+package com.example.bill_manager.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spools upload streams to temporary files so that large inputs (PDFs, queued async uploads) are
+ * read from disk instead of being held on the heap as a byte array.
+ */
+final class UploadSpool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UploadSpool.class);
+  private static final String PREFIX = "bill-upload-";
+
+  private UploadSpool() {}
+
+  /** Copies the remainder of {@code content} to a new temporary file; the caller deletes it. */
+  static Path toTempFile(final InputStream content, final String suffix) {
+    Path file = null;
+    try {
+      file = Files.createTempFile(PREFIX, suffix);
+      Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+      return file;
+    } catch (final IOException e) {
+      delete(file);
+      throw new FileValidationException(
+          FileValidationException.ErrorCode.FILE_UNREADABLE,
+          "Failed to read uploaded file content",
+          e);
+    }
+  }
+
+  static void delete(final Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (final IOException e) {
+      LOG.warn("Failed to delete temporary upload file: {}", file, e);
+    }
+  }
+}
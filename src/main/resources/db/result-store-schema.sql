@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS bill_results (
+    id                 VARCHAR(36)    NOT NULL PRIMARY KEY,
+    original_file_name VARCHAR(255)   NOT NULL,
+    merchant_name      VARCHAR(255),
+    total_amount       DECIMAL(19, 4),
+    currency           VARCHAR(8),
+    analysis_json      CLOB,
+    analyzed_at        TIMESTAMP      NOT NULL,
+    stored_at          TIMESTAMP      NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_bill_results_stored_at ON bill_results (stored_at);
@@ -0,0 +1,319 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+class AnalysisCircuitBreakerTest {
+
+  private static final long SLOW_CALL_MS = 5000L;
+  private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+  private SimpleMeterRegistry meterRegistry;
+  private MutableClock clock;
+  private AnalysisCircuitBreaker breaker;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    breaker = createBreaker(true);
+  }
+
+  private AnalysisCircuitBreaker createBreaker(final boolean enabled) {
+    return new AnalysisCircuitBreaker(
+        new GroqApiProperties(
+            new GroqApiProperties.RetryConfig(3, 1000L, 2.0, 8000L, 45000L, 0.1, 0.5),
+            new GroqApiProperties.ConcurrencyConfig(false, 4, 1, 16, 20, 10000L, 0.9),
+            new GroqApiProperties.RateLimitConfig(false, 30, 30000, 2048, 336, 144, 16, 0L),
+            new GroqApiProperties.CircuitBreakerConfig(
+                enabled, 10, 4, 0.5, 0.5, SLOW_CALL_MS, OPEN_DURATION.toMillis(), 2),
+            new GroqApiProperties.StreamConfig(30000L)),
+        meterRegistry,
+        clock);
+  }
+
+  private void succeed() {
+    assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+  }
+
+  private void fail(final RuntimeException failure) {
+    assertThatThrownBy(
+            () ->
+                breaker.execute(
+                    () -> {
+                      throw failure;
+                    }))
+        .isSameAs(failure);
+  }
+
+  private void fail() {
+    fail(new ResourceAccessException("Read timed out"));
+  }
+
+  private void succeedSlowly() {
+    breaker.execute(
+        () -> {
+          clock.advance(Duration.ofMillis(SLOW_CALL_MS));
+          return "slow";
+        });
+  }
+
+  private void trip() {
+    for (int i = 0; i < 4; i++) {
+      fail();
+    }
+    assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.OPEN);
+  }
+
+  private static BillAnalysisException rejection(final Runnable call) {
+    final Throwable thrown = catchThrowable(call::run);
+    assertThat(thrown).isInstanceOf(BillAnalysisException.class);
+    final BillAnalysisException ex = (BillAnalysisException) thrown;
+    assertThat(ex.getErrorCode()).isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+    return ex;
+  }
+
+  private double transitionsTo(final String state) {
+    return meterRegistry
+        .get(AnalysisCircuitBreaker.TRANSITIONS_METRIC)
+        .tag("to", state)
+        .counter()
+        .count();
+  }
+
+  private double stateGauge(final String state) {
+    return meterRegistry
+        .get(AnalysisCircuitBreaker.STATE_METRIC)
+        .tag("state", state)
+        .gauge()
+        .value();
+  }
+
+  @Nested
+  class Closed {
+
+    @Test
+    void shouldStayClosedBelowMinimumCalls() {
+      fail();
+      fail();
+      fail();
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldOpenWhenFailureRateReachesThreshold() {
+      succeed();
+      succeed();
+      fail();
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+
+      fail();
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.OPEN);
+      assertThat(transitionsTo("open")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldOpenWhenSlowCallRateReachesThreshold() {
+      succeed();
+      succeed();
+      succeedSlowly();
+      succeedSlowly();
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void shouldForgetOutcomesOutsideSlidingWindow() {
+      fail();
+      for (int i = 0; i < 9; i++) {
+        succeed();
+      }
+      fail();
+      fail();
+      fail();
+      fail();
+
+      // The window of ten now holds four failures: the first one has dropped out.
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldNotRecordClientErrorsOrLocalRejections() {
+      for (int i = 0; i < 4; i++) {
+        fail(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        fail(new NonTransientAiException("400 - invalid image"));
+        fail(
+            new BillAnalysisException(
+                BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE, "Queue full"));
+      }
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldPassThroughWhenDisabled() {
+      meterRegistry = new SimpleMeterRegistry();
+      breaker = createBreaker(false);
+      for (int i = 0; i < 10; i++) {
+        fail();
+      }
+
+      breaker.failFastIfOpen();
+      assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+    }
+  }
+
+  @Nested
+  class Open {
+
+    @Test
+    void shouldRejectWithoutCallingBackendAndReportTimeLeft() {
+      trip();
+      clock.advance(Duration.ofSeconds(10));
+      final AtomicInteger calls = new AtomicInteger();
+
+      final BillAnalysisException ex = rejection(() -> breaker.execute(calls::incrementAndGet));
+
+      assertThat(calls).hasValue(0);
+      assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(20));
+      assertThat(meterRegistry.get(AnalysisCircuitBreaker.REJECTED_METRIC).counter().count())
+          .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldFailFastBeforeAdmission() {
+      trip();
+
+      assertThat(rejection(breaker::failFastIfOpen).getRetryAfter()).isEqualTo(OPEN_DURATION);
+    }
+
+    @Test
+    void shouldExposeCurrentStateAsGauge() {
+      trip();
+
+      assertThat(stateGauge("open")).isEqualTo(1.0);
+      assertThat(stateGauge("closed")).isZero();
+      assertThat(stateGauge("half_open")).isZero();
+    }
+  }
+
+  @Nested
+  class HalfOpen {
+
+    @Test
+    void shouldCloseAfterPermittedTrialCallsSucceed() {
+      trip();
+      clock.advance(OPEN_DURATION);
+      breaker.failFastIfOpen();
+
+      succeed();
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.HALF_OPEN);
+      succeed();
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+      assertThat(transitionsTo("half_open")).isEqualTo(1.0);
+      assertThat(transitionsTo("closed")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldReopenOnFailedTrialCall() {
+      trip();
+      clock.advance(OPEN_DURATION);
+
+      fail(new TransientAiException("503 - Service Unavailable"));
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.OPEN);
+      assertThat(rejection(breaker::failFastIfOpen).getRetryAfter()).isEqualTo(OPEN_DURATION);
+      assertThat(transitionsTo("open")).isEqualTo(2.0);
+    }
+
+    @Test
+    void shouldReopenOnSlowTrialCall() {
+      trip();
+      clock.advance(OPEN_DURATION);
+
+      succeedSlowly();
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void shouldRejectCallsBeyondPermittedTrials() {
+      trip();
+      clock.advance(OPEN_DURATION);
+
+      // Both permitted trial calls are still in flight when the third one arrives.
+      final BillAnalysisException ex =
+          breaker.execute(
+              () -> breaker.execute(() -> rejection(() -> breaker.execute(() -> "third"))));
+
+      assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(1));
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldGiveBackPermitOfUnrecordedTrialCall() {
+      trip();
+      clock.advance(OPEN_DURATION);
+
+      fail(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+      succeed();
+      succeed();
+
+      assertThat(breaker.state()).isEqualTo(AnalysisCircuitBreaker.State.CLOSED);
+    }
+  }
+
+  @Nested
+  class FailureClassification {
+
+    @Test
+    void shouldTreatServerErrorsThrottlingAndTimeoutsAsFailures() {
+      assertThat(
+              AnalysisCircuitBreaker.isBackendFailure(
+                  new HttpServerErrorException(HttpStatus.BAD_GATEWAY)))
+          .isTrue();
+      assertThat(
+              AnalysisCircuitBreaker.isBackendFailure(
+                  HttpClientErrorException.create(
+                      HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null)))
+          .isTrue();
+      assertThat(AnalysisCircuitBreaker.isBackendFailure(new TransientAiException("500"))).isTrue();
+      assertThat(
+              AnalysisCircuitBreaker.isBackendFailure(
+                  new IllegalStateException(new ResourceAccessException("timeout"))))
+          .isTrue();
+    }
+
+    @Test
+    void shouldNotTreatClientErrorsAsFailures() {
+      assertThat(
+              AnalysisCircuitBreaker.isBackendFailure(
+                  new HttpClientErrorException(HttpStatus.UNPROCESSABLE_ENTITY)))
+          .isFalse();
+      assertThat(AnalysisCircuitBreaker.isBackendFailure(new NonTransientAiException("400")))
+          .isFalse();
+      assertThat(AnalysisCircuitBreaker.isBackendFailure(new IllegalStateException("parse")))
+          .isFalse();
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.ResourceAccessException;
+
+class AnalysisConcurrencyLimiterTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ExecutorService callers;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    callers = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    callers.shutdownNow();
+  }
+
+  private AnalysisConcurrencyLimiter createLimiter(
+      final int initialLimit, final int maxLimit, final int maxQueueDepth, final long waitMs) {
+    return new AnalysisConcurrencyLimiter(
+        new GroqApiProperties(
+            new GroqApiProperties.RetryConfig(3, 1000L, 2.0, 8000L, 45000L, 0.1, 0.5),
+            new GroqApiProperties.ConcurrencyConfig(
+                true, initialLimit, 1, maxLimit, maxQueueDepth, waitMs, 0.5),
+            new GroqApiProperties.RateLimitConfig(false, 30, 30000, 2048, 336, 144, 16, 0L),
+            new GroqApiProperties.CircuitBreakerConfig(false, 20, 10, 0.5, 0.8, 20000L, 30000L, 3),
+            new GroqApiProperties.StreamConfig(30000L)),
+        meterRegistry);
+  }
+
+  /** Occupies one slot of {@code limiter} until {@code release} is counted down. */
+  private Future<String> holdSlot(
+      final AnalysisConcurrencyLimiter limiter, final CountDownLatch release) throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final Future<String> call =
+        callers.submit(
+            () ->
+                limiter.execute(
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      return "held";
+                    }));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    return call;
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Nested
+  class Queueing {
+
+    @Test
+    void shouldRejectImmediatelyWhenQueueIsFull() throws Exception {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(1, 1, 0, 10_000L);
+      final CountDownLatch release = new CountDownLatch(1);
+      final Future<String> held = holdSlot(limiter, release);
+
+      final long start = System.nanoTime();
+      assertThatThrownBy(() -> limiter.execute(() -> "second"))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000L);
+      assertThat(meterRegistry.get(AnalysisConcurrencyLimiter.REJECTED_METRIC).counter().count())
+          .isEqualTo(1.0);
+      release.countDown();
+      assertThat(held.get(5, TimeUnit.SECONDS)).isEqualTo("held");
+    }
+
+    @Test
+    void shouldRejectQueuedCallAfterMaxWait() throws Exception {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(1, 1, 1, 50L);
+      final CountDownLatch release = new CountDownLatch(1);
+      holdSlot(limiter, release);
+
+      assertThatThrownBy(() -> limiter.execute(() -> "second"))
+          .isInstanceOf(BillAnalysisException.class);
+
+      release.countDown();
+    }
+
+    @Test
+    void shouldRunQueuedCallOnceSlotIsReleased() throws Exception {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(1, 1, 1, 5_000L);
+      final CountDownLatch release = new CountDownLatch(1);
+      holdSlot(limiter, release);
+
+      final Future<String> queued = callers.submit(() -> limiter.execute(() -> "queued"));
+      while (meterRegistry.get(AnalysisConcurrencyLimiter.QUEUED_METRIC).gauge().value() < 1) {
+        Thread.onSpinWait();
+      }
+      release.countDown();
+
+      assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+      assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldHandSlotsToQueuedCallsInArrivalOrder() throws Exception {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(1, 1, 3, 5_000L);
+      final CountDownLatch release = new CountDownLatch(1);
+      holdSlot(limiter, release);
+
+      final List<String> order = Collections.synchronizedList(new ArrayList<>());
+      final List<Future<Boolean>> queued = new ArrayList<>();
+      for (final String name : List.of("first", "second", "third")) {
+        queued.add(callers.submit(() -> limiter.execute(() -> order.add(name))));
+        while (meterRegistry.get(AnalysisConcurrencyLimiter.QUEUED_METRIC).gauge().value()
+            < queued.size()) {
+          Thread.onSpinWait();
+        }
+      }
+      release.countDown();
+
+      for (final Future<Boolean> call : queued) {
+        assertThat(call.get(5, TimeUnit.SECONDS)).isTrue();
+      }
+      assertThat(order).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void shouldPassThroughWhenDisabled() {
+      final AnalysisConcurrencyLimiter limiter =
+          new AnalysisConcurrencyLimiter(
+              new GroqApiProperties(
+                  new GroqApiProperties.RetryConfig(3, 1000L, 2.0, 8000L, 45000L, 0.1, 0.5),
+                  new GroqApiProperties.ConcurrencyConfig(false, 1, 1, 1, 0, 0L, 0.5),
+                  new GroqApiProperties.RateLimitConfig(false, 30, 30000, 2048, 336, 144, 16, 0L),
+                  new GroqApiProperties.CircuitBreakerConfig(
+                      false, 20, 10, 0.5, 0.8, 20000L, 30000L, 3),
+                  new GroqApiProperties.StreamConfig(30000L)),
+              meterRegistry);
+
+      assertThat(limiter.execute(() -> limiter.execute(() -> "nested"))).isEqualTo("nested");
+    }
+  }
+
+  @Nested
+  class LimitAdjustment {
+
+    @Test
+    void shouldRaiseLimitAfterSuccessWhileUtilized() {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(1, 3, 0, 0L);
+
+      limiter.execute(() -> "ok");
+      limiter.execute(() -> "ok");
+      limiter.execute(() -> "ok");
+
+      assertThat(limiter.limit()).isEqualTo(3);
+      assertThat(meterRegistry.get(AnalysisConcurrencyLimiter.LIMIT_METRIC).gauge().value())
+          .isEqualTo(3.0);
+    }
+
+    @Test
+    void shouldNotRaiseLimitWhenMostlyIdle() {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(4, 8, 0, 0L);
+
+      limiter.execute(() -> "ok");
+
+      assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldCutLimitWhenThrottled() {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(8, 8, 0, 0L);
+
+      assertThatThrownBy(
+              () ->
+                  limiter.execute(
+                      () -> {
+                        throw new TransientAiException("503 - overloaded");
+                      }))
+          .isInstanceOf(TransientAiException.class);
+
+      assertThat(limiter.limit()).isEqualTo(4);
+      assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldNotCutLimitBelowMinimum() {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(1, 4, 0, 0L);
+
+      assertThatThrownBy(
+              () ->
+                  limiter.execute(
+                      () -> {
+                        throw new ResourceAccessException("Read timed out");
+                      }))
+          .isInstanceOf(ResourceAccessException.class);
+
+      assertThat(limiter.limit()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepLimitOnNonOverloadFailure() {
+      final AnalysisConcurrencyLimiter limiter = createLimiter(4, 8, 0, 0L);
+
+      assertThatThrownBy(
+              () ->
+                  limiter.execute(
+                      () -> {
+                        throw new NonTransientAiException("400 - bad request");
+                      }))
+          .isInstanceOf(NonTransientAiException.class);
+
+      assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldTreatRateLimitResponseAsOverload() {
+      assertThat(
+              AnalysisConcurrencyLimiter.isOverload(
+                  new IllegalStateException(
+                      new NonTransientAiException("429 - {\"error\":\"rate_limit_exceeded\"}"))))
+          .isTrue();
+      assertThat(AnalysisConcurrencyLimiter.isOverload(new IllegalStateException("boom")))
+          .isFalse();
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.bill_manager.config.AnalysisCacheProperties;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.LineItem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class AnalysisResultCacheTest {
+
+  private static final String MIME_JPEG = "image/jpeg";
+  private static final String PROMPT_VERSION = "v1";
+  private static final byte[] IMAGE_A = {1, 2, 3};
+  private static final byte[] IMAGE_B = {4, 5, 6};
+
+  // spotless:off
+  private static final BillAnalysisResult RESULT =
+      new BillAnalysisResult(
+          "Test Store",
+          List.of(new LineItem("Milk", BigDecimal.ONE, new BigDecimal("3.49"), new BigDecimal("3.49"))),
+          new BigDecimal("3.49"),
+          "PLN",
+          null);
+  // spotless:on
+
+  private MeterRegistry meterRegistry;
+  private AtomicInteger analyses;
+  private Supplier<BillAnalysisResult> analysis;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    analyses = new AtomicInteger();
+    analysis =
+        () -> {
+          analyses.incrementAndGet();
+          return RESULT;
+        };
+  }
+
+  private AnalysisResultCache createCache(final boolean enabled, final long maxEntries) {
+    return createCache(enabled, maxEntries, "test-model");
+  }
+
+  private AnalysisResultCache createCache(
+      final boolean enabled, final long maxEntries, final String model) {
+    return new AnalysisResultCache(
+        new AnalysisCacheProperties(enabled, maxEntries, Duration.ofMinutes(5)),
+        meterRegistry,
+        model);
+  }
+
+  @Nested
+  class KeyDerivation {
+
+    @Test
+    void shouldReturnCachedResultForIdenticalContent() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+      final BillAnalysisResult second =
+          cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A.clone()), MIME_JPEG, analysis);
+
+      assertThat(second).isSameAs(RESULT);
+      assertThat(analyses).hasValue(1);
+    }
+
+    @Test
+    void shouldMissWhenImageBytesDiffer() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_B), MIME_JPEG, analysis);
+
+      assertThat(analyses).hasValue(2);
+    }
+
+    @Test
+    void shouldMissWhenPromptVersionDiffers() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      cache.getOrAnalyze("v1", List.of(IMAGE_A), MIME_JPEG, analysis);
+      cache.getOrAnalyze("v2", List.of(IMAGE_A), MIME_JPEG, analysis);
+
+      assertThat(analyses).hasValue(2);
+    }
+
+    @Test
+    void shouldMissWhenMimeTypeDiffers() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), "image/png", analysis);
+
+      assertThat(analyses).hasValue(2);
+    }
+
+    @Test
+    void shouldNotCollideWhenImageBoundariesShift() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      cache.getOrAnalyze(
+          PROMPT_VERSION, List.of(new byte[] {1, 2}, new byte[] {3}), MIME_JPEG, analysis);
+      cache.getOrAnalyze(
+          PROMPT_VERSION, List.of(new byte[] {1}, new byte[] {2, 3}), MIME_JPEG, analysis);
+
+      assertThat(analyses).hasValue(2);
+    }
+
+    @Test
+    void shouldChangeFingerprintWhenPromptChanges() {
+      assertThat(AnalysisResultCache.fingerprint("system", "user"))
+          .isEqualTo(AnalysisResultCache.fingerprint("system", "user"))
+          .isNotEqualTo(AnalysisResultCache.fingerprint("system", "user v2"))
+          .hasSize(64);
+    }
+  }
+
+  @Nested
+  class Bypass {
+
+    @Test
+    void shouldNotCacheFailures() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      assertThatThrownBy(
+              () ->
+                  cache.getOrAnalyze(
+                      PROMPT_VERSION,
+                      List.of(IMAGE_A),
+                      MIME_JPEG,
+                      () -> {
+                        throw new IllegalStateException("boom");
+                      }))
+          .isInstanceOf(IllegalStateException.class);
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+
+      assertThat(analyses).hasValue(1);
+    }
+
+    @Test
+    void shouldBypassCacheWhenDisabled() {
+      final AnalysisResultCache cache = createCache(false, 10);
+
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+
+      assertThat(analyses).hasValue(2);
+      assertThat(cache.size()).isZero();
+    }
+  }
+
+  @Nested
+  class Metrics {
+
+    @Test
+    void shouldRecordHitsAndMisses() {
+      final AnalysisResultCache cache = createCache(true, 10);
+
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+      cache.getOrAnalyze(PROMPT_VERSION, List.of(IMAGE_A), MIME_JPEG, analysis);
+
+      assertThat(cacheGets("hit")).isEqualTo(2.0);
+      assertThat(cacheGets("miss")).isEqualTo(1.0);
+    }
+
+    private double cacheGets(final String result) {
+      return meterRegistry
+          .get("cache.gets")
+          .tag("cache", AnalysisResultCache.CACHE_NAME)
+          .tag("result", result)
+          .functionCounter()
+          .count();
+    }
+  }
+}
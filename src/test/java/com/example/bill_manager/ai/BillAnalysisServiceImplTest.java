@@ -5,17 +5,24 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.example.bill_manager.config.AnalysisCacheProperties;
 import com.example.bill_manager.config.GroqApiProperties;
+import com.example.bill_manager.dto.PartialBillAnalysis;
 import com.example.bill_manager.dto.PurchaseCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -25,15 +32,18 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.ChatClient.CallResponseSpec;
 import org.springframework.ai.chat.client.ChatClient.ChatClientRequestSpec;
 import org.springframework.ai.chat.client.ChatClient.PromptUserSpec;
+import org.springframework.ai.chat.client.ChatClient.StreamResponseSpec;
 import org.springframework.ai.retry.NonTransientAiException;
 import org.springframework.ai.retry.TransientAiException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
+import reactor.core.publisher.Flux;
 
 class BillAnalysisServiceImplTest {
 
   private static final String MIME_JPEG = "image/jpeg";
   private static final byte[] SAMPLE_IMAGE = new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+  private static final long STREAM_READ_TIMEOUT_MS = 200L;
 
   // spotless:off
   private static final String VALID_JSON = """
@@ -82,6 +92,9 @@ class BillAnalysisServiceImplTest {
   private ChatClient.Builder chatClientBuilder;
   private ChatClientRequestSpec requestSpec;
   private CallResponseSpec callResponseSpec;
+  private StreamResponseSpec streamResponseSpec;
+  private RetryBudget retryBudget;
+  private AnalysisCircuitBreaker circuitBreaker;
   private BillAnalysisServiceImpl service;
 
   @BeforeEach
@@ -91,18 +104,44 @@ class BillAnalysisServiceImplTest {
     final ChatClient chatClient = mock(ChatClient.class);
     requestSpec = mock(ChatClientRequestSpec.class);
     callResponseSpec = mock(CallResponseSpec.class);
+    streamResponseSpec = mock(StreamResponseSpec.class);
 
     when(chatClientBuilder.defaultSystem(anyString())).thenReturn(chatClientBuilder);
     when(chatClientBuilder.build()).thenReturn(chatClient);
     when(chatClient.prompt()).thenReturn(requestSpec);
     when(requestSpec.user(any(Consumer.class))).thenReturn(requestSpec);
     when(requestSpec.call()).thenReturn(callResponseSpec);
+    when(requestSpec.stream()).thenReturn(streamResponseSpec);
 
     final GroqApiProperties properties =
-        new GroqApiProperties(new GroqApiProperties.RetryConfig(3, 1000L, 2.0));
+        new GroqApiProperties(
+            new GroqApiProperties.RetryConfig(3, 1000L, 2.0, 8000L, 45000L, 0.1, 0.5),
+            new GroqApiProperties.ConcurrencyConfig(true, 4, 1, 16, 20, 10000L, 0.9),
+            new GroqApiProperties.RateLimitConfig(true, 1000, 10_000_000, 2048, 336, 144, 16, 0L),
+            new GroqApiProperties.CircuitBreakerConfig(true, 20, 10, 0.5, 0.8, 20000L, 30000L, 3),
+            new GroqApiProperties.StreamConfig(STREAM_READ_TIMEOUT_MS));
 
     final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
-    service = new BillAnalysisServiceImpl(chatClientBuilder, properties, validator);
+    final AnalysisResultCache resultCache =
+        new AnalysisResultCache(
+            new AnalysisCacheProperties(true, 100L, Duration.ofMinutes(5)),
+            new SimpleMeterRegistry(),
+            "test-model");
+    final AnalysisConcurrencyLimiter concurrencyLimiter =
+        new AnalysisConcurrencyLimiter(properties, new SimpleMeterRegistry());
+    final GroqRateLimiter rateLimiter = new GroqRateLimiter(properties, new SimpleMeterRegistry());
+    retryBudget = new RetryBudget(properties, new SimpleMeterRegistry());
+    circuitBreaker = new AnalysisCircuitBreaker(properties, new SimpleMeterRegistry());
+    service =
+        new BillAnalysisServiceImpl(
+            chatClientBuilder,
+            properties,
+            validator,
+            resultCache,
+            concurrencyLimiter,
+            rateLimiter,
+            retryBudget,
+            circuitBreaker);
   }
 
   @Nested
@@ -293,6 +332,46 @@ class BillAnalysisServiceImplTest {
               });
     }
 
+    @Test
+    void shouldNotRetryOnceRetryBudgetIsSpent() {
+      while (retryBudget.tryAcquireRetry()) {
+        // Spend the budget as if other analyses had been retrying.
+      }
+      when(callResponseSpec.content())
+          .thenThrow(new RestClientException("Connection refused"))
+          .thenReturn(VALID_JSON);
+
+      assertThatThrownBy(() -> service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+      verify(callResponseSpec, times(1)).content();
+    }
+
+    @Test
+    void shouldFailFastWithoutCallingGroqWhileCircuitIsOpen() {
+      for (int i = 0; i < 10; i++) {
+        assertThatThrownBy(
+                () ->
+                    circuitBreaker.execute(
+                        () -> {
+                          throw new RestClientException("Connection refused");
+                        }))
+            .isInstanceOf(RestClientException.class);
+      }
+
+      assertThatThrownBy(() -> service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG))
+          .isInstanceOf(BillAnalysisException.class)
+          .satisfies(
+              e -> {
+                final BillAnalysisException ex = (BillAnalysisException) e;
+                assertThat(ex.getErrorCode())
+                    .isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+                assertThat(ex.getRetryAfter()).isPositive();
+              });
+      verify(callResponseSpec, never()).content();
+    }
+
     @Test
     void shouldThrowServiceUnavailableOnNonTransientAiException() {
       when(callResponseSpec.content())
@@ -310,6 +389,43 @@ class BillAnalysisServiceImplTest {
     }
   }
 
+  @Nested
+  class ResultCaching {
+
+    @Test
+    void shouldNotCallGroqAgainForIdenticalImages() {
+      when(callResponseSpec.content()).thenReturn(VALID_JSON);
+
+      final var first = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG);
+      final var second = service.analyze(List.of(SAMPLE_IMAGE.clone()), MIME_JPEG);
+
+      assertThat(second).isEqualTo(first);
+      verify(callResponseSpec, times(1)).content();
+    }
+
+    @Test
+    void shouldCallGroqForDifferentImages() {
+      when(callResponseSpec.content()).thenReturn(VALID_JSON);
+
+      service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG);
+      service.analyze(List.of(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFE}), MIME_JPEG);
+
+      verify(callResponseSpec, times(2)).content();
+    }
+
+    @Test
+    void shouldNotCacheFailedAnalysis() {
+      when(callResponseSpec.content()).thenReturn("").thenReturn(VALID_JSON);
+
+      assertThatThrownBy(() -> service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG))
+          .isInstanceOf(BillAnalysisException.class);
+      final var result = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG);
+
+      assertThat(result.merchantName()).isEqualTo("Test Store");
+      verify(callResponseSpec, times(2)).content();
+    }
+  }
+
   @Nested
   class ErrorHandling {
 
@@ -398,4 +514,119 @@ class BillAnalysisServiceImplTest {
               });
     }
   }
+
+  @Nested
+  class StreamingAnalysis {
+
+    @Test
+    void shouldPublishPartialResultsBeforeResponseIsComplete() {
+      when(streamResponseSpec.content()).thenReturn(Flux.fromIterable(chunks(VALID_JSON, 7)));
+      final List<PartialBillAnalysis> snapshots = new ArrayList<>();
+
+      final var result = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, snapshots::add);
+
+      assertThat(result.merchantName()).isEqualTo("Test Store");
+      assertThat(result.categoryTags()).containsExactly(PurchaseCategory.GROCERY);
+      assertThat(snapshots).hasSize(3);
+      assertThat(snapshots.get(0).merchantName()).isEqualTo("Test Store");
+      assertThat(snapshots.get(0).items()).isEmpty();
+      assertThat(snapshots.get(1).items()).singleElement().isEqualTo(result.items().get(0));
+      assertThat(snapshots.get(2).currency()).isEqualTo("PLN");
+    }
+
+    @Test
+    void shouldAcceptResponseWrappedInCodeFence() {
+      when(streamResponseSpec.content()).thenReturn(Flux.just("```json\n", VALID_JSON, "\n```"));
+
+      final var result = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, partial -> {});
+
+      assertThat(result.items()).hasSize(1);
+    }
+
+    @Test
+    void shouldFailFastOnMalformedOutputWithoutRetry() {
+      final AtomicBoolean restRequested = new AtomicBoolean();
+      when(streamResponseSpec.content())
+          .thenReturn(
+              Flux.concat(
+                  Flux.just("{\"merchantName\": \"Test Store\", \"items\": [}"),
+                  Flux.defer(
+                      () -> {
+                        restRequested.set(true);
+                        return Flux.just("], \"totalAmount\": 1}");
+                      })));
+
+      assertThatThrownBy(() -> service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, partial -> {}))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.INVALID_RESPONSE);
+      assertThat(restRequested).isFalse();
+      verify(streamResponseSpec, times(1)).content();
+    }
+
+    @Test
+    void shouldRejectTruncatedResponse() {
+      when(streamResponseSpec.content())
+          .thenReturn(Flux.just("{\"merchantName\": \"Test Store\", \"items\": ["));
+
+      assertThatThrownBy(() -> service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, partial -> {}))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.INVALID_RESPONSE);
+    }
+
+    @Test
+    void shouldRetryStreamOnTransientAiException() {
+      when(streamResponseSpec.content())
+          .thenReturn(Flux.error(new TransientAiException("Rate limited")))
+          .thenReturn(Flux.just(VALID_JSON));
+
+      final var result = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, partial -> {});
+
+      assertThat(result.merchantName()).isEqualTo("Test Store");
+      verify(streamResponseSpec, times(2)).content();
+    }
+
+    @Test
+    void shouldRetryStalledStream() {
+      when(streamResponseSpec.content()).thenReturn(Flux.never()).thenReturn(Flux.just(VALID_JSON));
+
+      final var result = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, partial -> {});
+
+      assertThat(result.merchantName()).isEqualTo("Test Store");
+      verify(streamResponseSpec, times(2)).content();
+    }
+
+    @Test
+    void shouldReportServiceUnavailableWhenStreamKeepsStalling() {
+      when(streamResponseSpec.content()).thenReturn(Flux.never());
+
+      assertThatThrownBy(() -> service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, partial -> {}))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+      verify(streamResponseSpec, times(3)).content();
+    }
+
+    @Test
+    void shouldShareCacheWithBlockingAnalysis() {
+      when(callResponseSpec.content()).thenReturn(VALID_JSON);
+      service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG);
+      final List<PartialBillAnalysis> snapshots = new ArrayList<>();
+
+      final var result = service.analyze(List.of(SAMPLE_IMAGE), MIME_JPEG, snapshots::add);
+
+      assertThat(result.merchantName()).isEqualTo("Test Store");
+      assertThat(snapshots).isEmpty();
+      verify(requestSpec, times(0)).stream();
+    }
+
+    private static List<String> chunks(final String text, final int size) {
+      final List<String> chunks = new ArrayList<>();
+      for (int i = 0; i < text.length(); i += size) {
+        chunks.add(text.substring(i, Math.min(text.length(), i + size)));
+      }
+      return chunks;
+    }
+  }
 }
@@ -0,0 +1,85 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+
+class BoundedRetryPolicyTest {
+
+  private static final Duration DEADLINE = Duration.ofSeconds(10);
+
+  private MutableClock clock;
+  private RetryBudget budget;
+  private BoundedRetryPolicy policy;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    budget =
+        new RetryBudget(
+            new GroqApiProperties(
+                new GroqApiProperties.RetryConfig(5, 1000L, 2.0, 8000L, 45000L, 0.1, 0.2),
+                new GroqApiProperties.ConcurrencyConfig(false, 4, 1, 16, 20, 10000L, 0.9),
+                new GroqApiProperties.RateLimitConfig(false, 30, 30000, 2048, 336, 144, 16, 0L),
+                new GroqApiProperties.CircuitBreakerConfig(
+                    false, 20, 10, 0.5, 0.8, 20000L, 30000L, 3),
+                new GroqApiProperties.StreamConfig(30000L)),
+            new SimpleMeterRegistry(),
+            clock);
+    policy = new BoundedRetryPolicy(new SimpleRetryPolicy(5), budget, DEADLINE, clock);
+  }
+
+  @Test
+  void shouldRetryWithinDeadlineAndBudget() {
+    final RetryContext context = policy.open(null);
+
+    policy.registerThrowable(context, new IllegalStateException("first"));
+
+    assertThat(policy.canRetry(context)).isTrue();
+    assertThat(context.getAttribute(BoundedRetryPolicy.DEADLINE_ATTRIBUTE))
+        .isEqualTo(clock.instant().plus(DEADLINE));
+  }
+
+  @Test
+  void shouldStopRetryingOnceDeadlinePassed() {
+    final RetryContext context = policy.open(null);
+    clock.advance(DEADLINE);
+
+    policy.registerThrowable(context, new IllegalStateException("slow"));
+
+    assertThat(policy.canRetry(context)).isFalse();
+  }
+
+  @Test
+  void shouldStopRetryingWhenBudgetIsSpent() {
+    final RetryContext context = policy.open(null);
+
+    // One call plus 0.2 retries/s over the 10s window allows two retries.
+    policy.registerThrowable(context, new IllegalStateException("first"));
+    policy.registerThrowable(context, new IllegalStateException("second"));
+    assertThat(policy.canRetry(context)).isTrue();
+    policy.registerThrowable(context, new IllegalStateException("third"));
+
+    assertThat(policy.canRetry(context)).isFalse();
+  }
+
+  @Test
+  void shouldNotSpendBudgetOnFailureDelegateWouldNotRetry() {
+    final BoundedRetryPolicy singleAttempt =
+        new BoundedRetryPolicy(new SimpleRetryPolicy(1), budget, DEADLINE, clock);
+    final RetryContext context = singleAttempt.open(null);
+
+    singleAttempt.registerThrowable(context, new IllegalStateException("only"));
+
+    assertThat(singleAttempt.canRetry(context)).isFalse();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.context.RetryContextSupport;
+
+class FullJitterBackOffPolicyTest {
+
+  private MutableClock clock;
+  private List<Long> sleeps;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    sleeps = new ArrayList<>();
+  }
+
+  private FullJitterBackOffPolicy createPolicy(final DoubleSupplier random) {
+    return new FullJitterBackOffPolicy(1000L, 2.0, 5000L, clock, sleeps::add, random);
+  }
+
+  private static RetryContext contextAfterFailures(final int failures) {
+    final RetryContextSupport context = new RetryContextSupport(null);
+    for (int i = 0; i < failures; i++) {
+      context.registerThrowable(new IllegalStateException("failure " + i));
+    }
+    return context;
+  }
+
+  @Test
+  void shouldGrowCeilingExponentiallyUpToMaxDelay() {
+    final FullJitterBackOffPolicy policy = createPolicy(() -> 0.999_999);
+
+    assertThat(policy.delayMs(1)).isEqualTo(999L);
+    assertThat(policy.delayMs(2)).isEqualTo(1999L);
+    assertThat(policy.delayMs(3)).isEqualTo(3999L);
+    assertThat(policy.delayMs(4)).isEqualTo(4999L);
+    assertThat(policy.delayMs(10)).isEqualTo(4999L);
+  }
+
+  @Test
+  void shouldDrawDelayFromWholeRangeDownToZero() {
+    assertThat(createPolicy(() -> 0.0).delayMs(3)).isZero();
+    assertThat(createPolicy(() -> 0.25).delayMs(3)).isEqualTo(1000L);
+  }
+
+  @Test
+  void shouldSleepForJitteredDelayOfCurrentRetry() {
+    final FullJitterBackOffPolicy policy = createPolicy(() -> 0.5);
+    final RetryContext context = contextAfterFailures(2);
+
+    final BackOffContext backOffContext = policy.start(context);
+    policy.backOff(backOffContext);
+
+    assertThat(sleeps).containsExactly(1000L);
+  }
+
+  @Test
+  void shouldNotSleepPastDeadline() {
+    final FullJitterBackOffPolicy policy = createPolicy(() -> 0.999_999);
+    final RetryContext context = contextAfterFailures(3);
+    context.setAttribute(
+        BoundedRetryPolicy.DEADLINE_ATTRIBUTE, clock.instant().plus(Duration.ofMillis(1500)));
+
+    policy.backOff(policy.start(context));
+
+    assertThat(sleeps).containsExactly(1500L);
+  }
+}
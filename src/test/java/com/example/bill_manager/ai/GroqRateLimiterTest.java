@@ -0,0 +1,270 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+class GroqRateLimiterTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private MutableClock clock;
+  private List<Duration> sleeps;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    sleeps = new ArrayList<>();
+  }
+
+  private GroqRateLimiter createLimiter(
+      final boolean enabled,
+      final int requestsPerMinute,
+      final int tokensPerMinute,
+      final long maxWaitMs) {
+    return new GroqRateLimiter(
+        new GroqApiProperties(
+            new GroqApiProperties.RetryConfig(3, 1000L, 2.0, 8000L, 45000L, 0.1, 0.5),
+            new GroqApiProperties.ConcurrencyConfig(false, 4, 1, 16, 20, 10000L, 0.9),
+            new GroqApiProperties.RateLimitConfig(
+                enabled, requestsPerMinute, tokensPerMinute, 2048, 336, 144, 16, maxWaitMs),
+            new GroqApiProperties.CircuitBreakerConfig(false, 20, 10, 0.5, 0.8, 20000L, 30000L, 3),
+            new GroqApiProperties.StreamConfig(30000L)),
+        meterRegistry,
+        clock,
+        sleeps::add);
+  }
+
+  private static HttpHeaders headers(final String... namesAndValues) {
+    final HttpHeaders headers = new HttpHeaders();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      headers.add(namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return headers;
+  }
+
+  private static byte[] png(final int width, final int height) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+    return out.toByteArray();
+  }
+
+  @Nested
+  class Scheduling {
+
+    @Test
+    void shouldNotWaitWhileQuotaLasts() {
+      final GroqRateLimiter limiter = createLimiter(true, 2, 10_000, 60_000L);
+
+      limiter.acquire(1000);
+      limiter.acquire(1000);
+
+      assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void shouldWaitForRequestQuotaToRefill() {
+      final GroqRateLimiter limiter = createLimiter(true, 2, 10_000, 60_000L);
+      limiter.acquire(1000);
+      limiter.acquire(1000);
+
+      limiter.acquire(1000);
+
+      assertThat(sleeps).containsExactly(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldWaitForTokenQuotaToRefill() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 6000, 60_000L);
+      limiter.acquire(6000);
+
+      limiter.acquire(3000);
+
+      assertThat(sleeps).containsExactly(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldQueueCallsInArrivalOrder() {
+      final GroqRateLimiter limiter = createLimiter(true, 1, 10_000, 300_000L);
+
+      limiter.acquire(100);
+      limiter.acquire(100);
+      limiter.acquire(100);
+
+      assertThat(sleeps).containsExactly(Duration.ofMinutes(1), Duration.ofMinutes(2));
+    }
+
+    @Test
+    void shouldReserveAtMostTheWholeTokenQuota() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 6000, 60_000L);
+
+      limiter.acquire(50_000);
+      limiter.acquire(50_000);
+
+      assertThat(sleeps).containsExactly(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldRejectWithoutReservingWhenWaitExceedsMax() {
+      final GroqRateLimiter limiter = createLimiter(true, 1, 10_000, 10_000L);
+      limiter.acquire(100);
+
+      assertThatThrownBy(() -> limiter.acquire(100))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+      assertThat(meterRegistry.get(GroqRateLimiter.REJECTED_METRIC).counter().count())
+          .isEqualTo(1.0);
+
+      clock.advance(Duration.ofMinutes(1));
+      limiter.acquire(100);
+      assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+      final GroqRateLimiter limiter = createLimiter(false, 1, 1, 0L);
+
+      limiter.acquire(100);
+      limiter.acquire(100);
+      limiter.onResponse(429, headers(GroqRateLimiter.RETRY_AFTER_HEADER, "60"));
+      limiter.acquire(100);
+
+      assertThat(sleeps).isEmpty();
+    }
+  }
+
+  @Nested
+  class ResponseHeaders {
+
+    @Test
+    void shouldPauseCallsForRetryAfterOfRateLimitedResponse() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 10_000, 60_000L);
+
+      limiter.onResponse(429, headers(GroqRateLimiter.RETRY_AFTER_HEADER, "7"));
+      limiter.acquire(100);
+
+      assertThat(sleeps).containsExactly(Duration.ofSeconds(7));
+    }
+
+    @Test
+    void shouldIgnoreRetryAfterOfSuccessfulResponse() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 10_000, 60_000L);
+
+      limiter.onResponse(200, headers(GroqRateLimiter.RETRY_AFTER_HEADER, "7"));
+      limiter.acquire(100);
+
+      assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void shouldLowerTokenBucketToReportedRemainingTokens() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 6000, 60_000L);
+
+      limiter.onResponse(200, headers(GroqRateLimiter.REMAINING_TOKENS_HEADER, "3000"));
+      limiter.acquire(6000);
+
+      assertThat(sleeps).containsExactly(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldNotRaiseTokenBucketAboveLocalView() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 6000, 60_000L);
+      limiter.acquire(6000);
+
+      limiter.onResponse(200, headers(GroqRateLimiter.REMAINING_TOKENS_HEADER, "6000"));
+      limiter.acquire(3000);
+
+      assertThat(sleeps).containsExactly(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldPauseUntilResetWhenRequestQuotaIsExhausted() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 10_000, 300_000L);
+
+      limiter.onResponse(
+          200,
+          headers(
+              GroqRateLimiter.REMAINING_REQUESTS_HEADER, "0",
+              GroqRateLimiter.RESET_REQUESTS_HEADER, "2m59.56s"));
+      limiter.acquire(100);
+
+      assertThat(sleeps).containsExactly(Duration.ofMillis(179_560));
+    }
+
+    @Test
+    void shouldIgnoreMalformedHeaders() {
+      final GroqRateLimiter limiter = createLimiter(true, 100, 10_000, 60_000L);
+
+      limiter.onResponse(
+          429,
+          headers(
+              GroqRateLimiter.RETRY_AFTER_HEADER, "Wed, 21 Oct 2026 07:28:00 GMT",
+              GroqRateLimiter.REMAINING_TOKENS_HEADER, "many"));
+      limiter.acquire(100);
+
+      assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void shouldParseSecondsAndGoDurations() {
+      assertThat(GroqRateLimiter.parseDuration("7")).isEqualTo(Duration.ofSeconds(7));
+      assertThat(GroqRateLimiter.parseDuration("0.5")).isEqualTo(Duration.ofMillis(500));
+      assertThat(GroqRateLimiter.parseDuration("7.66s")).isEqualTo(Duration.ofMillis(7660));
+      assertThat(GroqRateLimiter.parseDuration("1h2m3s")).isEqualTo(Duration.ofSeconds(3723));
+      assertThat(GroqRateLimiter.parseDuration("120ms")).isEqualTo(Duration.ofMillis(120));
+      assertThat(GroqRateLimiter.parseDuration("2m 3s")).isNull();
+      assertThat(GroqRateLimiter.parseDuration("-1")).isNull();
+      assertThat(GroqRateLimiter.parseDuration("")).isNull();
+    }
+  }
+
+  @Nested
+  class TokenEstimation {
+
+    @Test
+    void shouldCountOneTileForSmallImage() throws IOException {
+      final GroqRateLimiter limiter = createLimiter(true, 30, 30_000, 0L);
+
+      assertThat(limiter.estimateTokens(List.of(png(300, 200)), 400)).isEqualTo(100 + 2048 + 144);
+    }
+
+    @Test
+    void shouldCountTilesPlusOverviewForLargerImage() throws IOException {
+      final GroqRateLimiter limiter = createLimiter(true, 30, 30_000, 0L);
+
+      assertThat(limiter.estimateTokens(List.of(png(672, 337)), 0))
+          .isEqualTo(2048 + (2 * 2 + 1) * 144);
+    }
+
+    @Test
+    void shouldCapTilesPerImage() throws IOException {
+      final GroqRateLimiter limiter = createLimiter(true, 30, 30_000, 0L);
+
+      assertThat(limiter.estimateTokens(List.of(png(1200, 3000), png(300, 200)), 0))
+          .isEqualTo(2048 + (16 + 1) * 144);
+    }
+
+    @Test
+    void shouldAssumeMaxTilesForUnreadableImage() {
+      final GroqRateLimiter limiter = createLimiter(true, 30, 30_000, 0L);
+
+      assertThat(limiter.estimateTokens(List.of(new byte[] {1, 2, 3}), 0))
+          .isEqualTo(2048 + 16 * 144);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.bill_manager.dto.LineItem;
+import com.example.bill_manager.dto.PartialBillAnalysis;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class IncrementalBillParserTest {
+
+  // spotless:off
+  private static final String RESPONSE = """
+      {
+        "merchantName": "Żabka",
+        "items": [
+          {"name": "Milk", "quantity": 1, "unitPrice": 3.49, "totalPrice": 3.49},
+          {"name": "Bread", "quantity": 2, "unitPrice": 4.50, "totalPrice": 9.00}
+        ],
+        "totalAmount": 12.49,
+        "currency": "PLN",
+        "categoryTags": ["grocery"]
+      }""";
+  // spotless:on
+
+  @Nested
+  class Snapshots {
+
+    @Test
+    void shouldPublishEachFieldAndItemAsSoonAsItIsComplete() {
+      final List<PartialBillAnalysis> snapshots = new ArrayList<>();
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshots::add);
+
+      for (final char c : RESPONSE.toCharArray()) {
+        parser.feed(String.valueOf(c));
+      }
+
+      assertThat(snapshots).hasSize(4);
+      assertThat(snapshots.get(0).merchantName()).isEqualTo("Żabka");
+      assertThat(snapshots.get(0).items()).isEmpty();
+      assertThat(snapshots.get(1).items()).extracting(LineItem::name).containsExactly("Milk");
+      assertThat(snapshots.get(2).items())
+          .extracting(LineItem::name)
+          .containsExactly("Milk", "Bread");
+      assertThat(snapshots.get(2).currency()).isNull();
+      assertThat(snapshots.get(3).currency()).isEqualTo("PLN");
+      assertThat(parser.finish()).isEqualTo(RESPONSE);
+    }
+
+    @Test
+    void shouldKeepDecimalPrecisionOfItems() {
+      final List<PartialBillAnalysis> snapshots = new ArrayList<>();
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshots::add);
+
+      parser.feed(RESPONSE);
+
+      final LineItem bread = snapshots.get(2).items().get(1);
+      assertThat(bread.unitPrice()).isEqualTo(new BigDecimal("4.50"));
+      assertThat(bread.totalPrice()).isEqualTo(new BigDecimal("9.00"));
+    }
+
+    @Test
+    void shouldIgnoreTextAroundTheJsonObject() {
+      final List<PartialBillAnalysis> snapshots = new ArrayList<>();
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshots::add);
+
+      parser.feed("```json\n");
+      parser.feed(RESPONSE);
+      parser.feed("\n```");
+
+      assertThat(snapshots).hasSize(4);
+      assertThat(parser.finish()).isEqualTo("```json\n" + RESPONSE + "\n```");
+    }
+
+    @Test
+    void shouldIgnoreNestedValuesOfOtherFields() {
+      final List<PartialBillAnalysis> snapshots = new ArrayList<>();
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshots::add);
+
+      parser.feed("{\"notes\": {\"merchantName\": \"x\", \"list\": [{\"a\": [1]}]}, ");
+      parser.feed("\"merchantName\": \"Shop\"}");
+
+      assertThat(snapshots).extracting(PartialBillAnalysis::merchantName).containsExactly("Shop");
+      assertThat(parser.finish()).isNotBlank();
+    }
+  }
+
+  @Nested
+  class Errors {
+
+    @Test
+    void shouldFailOnChunkWithMalformedJson() {
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshot -> {});
+      parser.feed("{\"merchantName\": \"Shop\", ");
+
+      assertThatThrownBy(() -> parser.feed("\"items\": [}"))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.INVALID_RESPONSE);
+    }
+
+    @Test
+    void shouldFailWhenItemsIsNotAnArrayOfObjects() {
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshot -> {});
+
+      assertThatThrownBy(() -> parser.feed("{\"items\": [\"Milk\""))
+          .isInstanceOf(BillAnalysisException.class)
+          .hasMessageContaining("'items' is not an array of line items");
+    }
+
+    @Test
+    void shouldFailOnInvalidLineItem() {
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshot -> {});
+
+      assertThatThrownBy(() -> parser.feed("{\"items\": [{\"name\": \"Milk\", \"quantity\": []}"))
+          .isInstanceOf(BillAnalysisException.class)
+          .hasMessageContaining("line item 1 is invalid");
+    }
+
+    @Test
+    void shouldFailToFinishTruncatedResponse() {
+      final IncrementalBillParser parser = new IncrementalBillParser(snapshot -> {});
+      parser.feed(RESPONSE.substring(0, RESPONSE.length() / 2));
+
+      assertThatThrownBy(parser::finish)
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.INVALID_RESPONSE);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.bill_manager.ai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/** UTC clock that only moves when a test advances it. */
+final class MutableClock extends Clock {
+
+  private Instant now;
+
+  MutableClock(final Instant now) {
+    this.now = now;
+  }
+
+  void advance(final Duration duration) {
+    now = now.plus(duration);
+  }
+
+  @Override
+  public ZoneId getZone() {
+    return ZoneOffset.UTC;
+  }
+
+  @Override
+  public Clock withZone(final ZoneId zone) {
+    return this;
+  }
+
+  @Override
+  public Instant instant() {
+    return now;
+  }
+}
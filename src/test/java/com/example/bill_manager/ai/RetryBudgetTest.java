@@ -0,0 +1,90 @@
+package com.example.bill_manager.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.bill_manager.config.GroqApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private MutableClock clock;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+  }
+
+  private RetryBudget createBudget(final double ratio, final double minRetriesPerSecond) {
+    return new RetryBudget(
+        new GroqApiProperties(
+            new GroqApiProperties.RetryConfig(
+                3, 1000L, 2.0, 8000L, 45000L, ratio, minRetriesPerSecond),
+            new GroqApiProperties.ConcurrencyConfig(false, 4, 1, 16, 20, 10000L, 0.9),
+            new GroqApiProperties.RateLimitConfig(false, 30, 30000, 2048, 336, 144, 16, 0L),
+            new GroqApiProperties.CircuitBreakerConfig(false, 20, 10, 0.5, 0.8, 20000L, 30000L, 3),
+            new GroqApiProperties.StreamConfig(30000L)),
+        meterRegistry,
+        clock);
+  }
+
+  private static int grantedRetries(final RetryBudget budget) {
+    int granted = 0;
+    while (budget.tryAcquireRetry()) {
+      granted++;
+    }
+    return granted;
+  }
+
+  @Test
+  void shouldAllowRetriesInProportionToCalls() {
+    final RetryBudget budget = createBudget(0.1, 0.0);
+    for (int i = 0; i < 50; i++) {
+      budget.recordCall();
+    }
+
+    assertThat(grantedRetries(budget)).isEqualTo(5);
+    assertThat(meterRegistry.get(RetryBudget.EXHAUSTED_METRIC).counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void shouldAllowMinimumRetriesWithoutTraffic() {
+    final RetryBudget budget = createBudget(0.1, 0.5);
+
+    assertThat(grantedRetries(budget)).isEqualTo(5);
+  }
+
+  @Test
+  void shouldForgetCallsAndRetriesOutsideTheWindow() {
+    final RetryBudget budget = createBudget(0.1, 0.0);
+    for (int i = 0; i < 20; i++) {
+      budget.recordCall();
+    }
+    assertThat(grantedRetries(budget)).isEqualTo(2);
+
+    clock.advance(Duration.ofSeconds(RetryBudget.WINDOW_SECONDS));
+
+    assertThat(budget.tryAcquireRetry()).isFalse();
+    for (int i = 0; i < 10; i++) {
+      budget.recordCall();
+    }
+    assertThat(grantedRetries(budget)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCountCallsAcrossTheWholeWindow() {
+    final RetryBudget budget = createBudget(0.1, 0.0);
+    for (int second = 0; second < RetryBudget.WINDOW_SECONDS; second++) {
+      budget.recordCall();
+      clock.advance(Duration.ofSeconds(1));
+    }
+    clock.advance(Duration.ofSeconds(-1));
+
+    assertThat(grantedRetries(budget)).isEqualTo(1);
+  }
+}
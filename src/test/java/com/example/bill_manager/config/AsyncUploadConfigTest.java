@@ -0,0 +1,75 @@
+package com.example.bill_manager.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+class AsyncUploadConfigTest {
+
+  private final ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner()
+          .withUserConfiguration(PropertiesConfig.class, AsyncUploadConfig.class)
+          .withPropertyValues(
+              "upload.max-file-size-bytes=10485760",
+              "upload.allowed-mime-types=image/jpeg",
+              "upload.pdf-render-dpi=150",
+              "upload.pdf-max-pages=5",
+              "upload.pdf-render-threads=1",
+              "upload.async.worker-threads=3",
+              "upload.async.queue-capacity=7",
+              "upload.batch.max-files=20",
+              "upload.batch.worker-threads=5",
+              "upload.batch.queue-capacity=11",
+              "upload.batch.max-concurrent-analyses=2",
+              "upload.batch.timeout-seconds=60");
+
+  @Configuration
+  @EnableConfigurationProperties(UploadProperties.class)
+  static class PropertiesConfig {}
+
+  @Test
+  void shouldUsePlatformThreadsByDefault() {
+    contextRunner.run(
+        context -> {
+          final ThreadPoolTaskExecutor executor =
+              context.getBean("analysisJobExecutor", ThreadPoolTaskExecutor.class);
+          assertThat(executor.getMaxPoolSize()).isEqualTo(3);
+          assertThat(executor.getQueueCapacity()).isEqualTo(7);
+          final Future<Boolean> isVirtual =
+              executor.submit(() -> Thread.currentThread().isVirtual());
+          assertThat(isVirtual.get()).isFalse();
+        });
+  }
+
+  @Test
+  void shouldBoundBatchWorkersSeparately() {
+    contextRunner.run(
+        context -> {
+          final ThreadPoolTaskExecutor executor =
+              context.getBean("batchWorkerExecutor", ThreadPoolTaskExecutor.class);
+          assertThat(executor.getMaxPoolSize()).isEqualTo(5);
+          assertThat(executor.getQueueCapacity()).isEqualTo(11);
+          assertThat(executor.getThreadNamePrefix()).isEqualTo("batch-worker-");
+        });
+  }
+
+  @Test
+  void shouldUseVirtualThreadsWhenEnabled() {
+    contextRunner
+        .withPropertyValues("spring.threads.virtual.enabled=true")
+        .run(
+            context -> {
+              final ThreadPoolTaskExecutor executor =
+                  context.getBean("analysisJobExecutor", ThreadPoolTaskExecutor.class);
+              assertThat(executor.getMaxPoolSize()).isEqualTo(3);
+              final Future<Boolean> isVirtual =
+                  executor.submit(() -> Thread.currentThread().isVirtual());
+              assertThat(isVirtual.get()).isTrue();
+            });
+  }
+}
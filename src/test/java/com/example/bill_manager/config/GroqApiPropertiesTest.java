@@ -15,7 +15,35 @@ import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
     properties = {
       "groq.api.retry.max-attempts=5",
       "groq.api.retry.initial-delay-ms=2000",
-      "groq.api.retry.multiplier=3.0"
+      "groq.api.retry.multiplier=3.0",
+      "groq.api.retry.max-delay-ms=12000",
+      "groq.api.retry.deadline-ms=30000",
+      "groq.api.retry.budget-ratio=0.2",
+      "groq.api.retry.budget-min-retries-per-second=1.5",
+      "groq.api.concurrency.enabled=true",
+      "groq.api.concurrency.initial-limit=3",
+      "groq.api.concurrency.min-limit=2",
+      "groq.api.concurrency.max-limit=8",
+      "groq.api.concurrency.max-queue-depth=5",
+      "groq.api.concurrency.max-queue-wait-ms=2500",
+      "groq.api.concurrency.backoff-ratio=0.75",
+      "groq.api.rate-limit.enabled=true",
+      "groq.api.rate-limit.requests-per-minute=60",
+      "groq.api.rate-limit.tokens-per-minute=50000",
+      "groq.api.rate-limit.completion-tokens=1024",
+      "groq.api.rate-limit.image-tile-size=448",
+      "groq.api.rate-limit.tokens-per-image-tile=256",
+      "groq.api.rate-limit.max-image-tiles=9",
+      "groq.api.rate-limit.max-wait-ms=15000",
+      "groq.api.circuit-breaker.enabled=true",
+      "groq.api.circuit-breaker.sliding-window-size=50",
+      "groq.api.circuit-breaker.minimum-calls=20",
+      "groq.api.circuit-breaker.failure-rate-threshold=0.6",
+      "groq.api.circuit-breaker.slow-call-rate-threshold=0.9",
+      "groq.api.circuit-breaker.slow-call-duration-ms=15000",
+      "groq.api.circuit-breaker.open-duration-ms=60000",
+      "groq.api.circuit-breaker.half-open-permitted-calls=5",
+      "groq.api.stream.read-timeout-ms=45000"
     })
 class GroqApiPropertiesTest {
 
@@ -30,6 +58,39 @@ class GroqApiPropertiesTest {
     assertThat(properties.retry().multiplier()).isEqualTo(3.0);
   }
 
+  @Test
+  void shouldLoadRetryBoundsConfiguration() {
+    assertThat(properties.retry().maxDelayMs()).isEqualTo(12000L);
+    assertThat(properties.retry().deadlineMs()).isEqualTo(30000L);
+    assertThat(properties.retry().budgetRatio()).isEqualTo(0.2);
+    assertThat(properties.retry().budgetMinRetriesPerSecond()).isEqualTo(1.5);
+  }
+
+  @Test
+  void shouldLoadConcurrencyConfiguration() {
+    assertThat(properties.concurrency())
+        .isEqualTo(new GroqApiProperties.ConcurrencyConfig(true, 3, 2, 8, 5, 2500L, 0.75));
+  }
+
+  @Test
+  void shouldLoadRateLimitConfiguration() {
+    assertThat(properties.rateLimit())
+        .isEqualTo(
+            new GroqApiProperties.RateLimitConfig(true, 60, 50000, 1024, 448, 256, 9, 15000L));
+  }
+
+  @Test
+  void shouldLoadCircuitBreakerConfiguration() {
+    assertThat(properties.circuitBreaker())
+        .isEqualTo(
+            new GroqApiProperties.CircuitBreakerConfig(true, 50, 20, 0.6, 0.9, 15000L, 60000L, 5));
+  }
+
+  @Test
+  void shouldLoadStreamConfiguration() {
+    assertThat(properties.stream()).isEqualTo(new GroqApiProperties.StreamConfig(45000L));
+  }
+
   @Test
   void shouldValidateRequiredFields() {
     assertThat(properties.retry().maxAttempts()).isPositive();
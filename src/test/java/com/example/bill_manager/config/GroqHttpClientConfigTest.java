@@ -0,0 +1,78 @@
+package com.example.bill_manager.config;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import com.example.bill_manager.ai.GroqRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+class GroqHttpClientConfigTest {
+
+  private static final String BASE_URL = "https://api.groq.com/openai";
+  private static final String CHAT_URL = BASE_URL + "/v1/chat/completions";
+
+  private GroqRateLimiter rateLimiter;
+  private RestClient.Builder builder;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = mock(GroqRateLimiter.class);
+    builder = RestClient.builder();
+    new GroqHttpClientConfig()
+        .groqRateLimitRestClientCustomizer(rateLimiter, BASE_URL)
+        .customize(builder);
+  }
+
+  @Test
+  void shouldReportRateLimitHeadersOfGroqResponse() {
+    final MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+    server
+        .expect(requestTo(CHAT_URL))
+        .andRespond(withSuccess().header("x-ratelimit-remaining-tokens", "1200"));
+
+    builder.build().post().uri(CHAT_URL).retrieve().toBodilessEntity();
+
+    verify(rateLimiter)
+        .onResponse(
+            eq(200),
+            argThat(headers -> "1200".equals(headers.getFirst("x-ratelimit-remaining-tokens"))));
+  }
+
+  @Test
+  void shouldReportRateLimitedResponseBeforeItBecomesAnException() {
+    final MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+    server
+        .expect(requestTo(CHAT_URL))
+        .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header("retry-after", "7"));
+
+    assertThatThrownBy(() -> builder.build().post().uri(CHAT_URL).retrieve().toBodilessEntity())
+        .isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+
+    verify(rateLimiter)
+        .onResponse(eq(429), argThat(headers -> "7".equals(headers.getFirst("retry-after"))));
+  }
+
+  @Test
+  void shouldIgnoreResponsesFromOtherHosts() {
+    final MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+    server.expect(requestTo("https://example.com/status")).andRespond(withSuccess());
+
+    builder.build().get().uri("https://example.com/status").retrieve().toBodilessEntity();
+
+    verify(rateLimiter, never()).onResponse(anyInt(), any());
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.bill_manager.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class JdbcResultStoreConfigTest {
+
+  private final ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner()
+          .withUserConfiguration(JdbcResultStoreConfig.class)
+          .withConfiguration(
+              AutoConfigurations.of(
+                  JdbcTemplateAutoConfiguration.class,
+                  DataSourceTransactionManagerAutoConfiguration.class));
+
+  @Test
+  void shouldNotCreateDataSourceForOtherStoreTypes() {
+    contextRunner
+        .withPropertyValues("result-store.type=memory")
+        .run(
+            context -> {
+              assertThat(context).doesNotHaveBean(DataSource.class);
+              assertThat(context).doesNotHaveBean(JdbcTemplate.class);
+            });
+  }
+
+  @Test
+  void shouldCreateEmbeddedPoolForJdbcStore() {
+    contextRunner
+        .withPropertyValues(
+            "result-store.type=jdbc", "spring.datasource.hikari.maximum-pool-size=3")
+        .run(
+            context -> {
+              final HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+              assertThat(dataSource.getJdbcUrl()).startsWith("jdbc:h2:mem:");
+              assertThat(dataSource.getMaximumPoolSize()).isEqualTo(3);
+              assertThat(context).hasSingleBean(JdbcTemplate.class);
+              assertThat(context).hasSingleBean(PlatformTransactionManager.class);
+            });
+  }
+}
@@ -16,7 +16,15 @@ import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
       "upload.max-file-size-bytes=5242880",
       "upload.allowed-mime-types=image/jpeg,image/png",
       "upload.pdf-render-dpi=150",
-      "upload.pdf-max-pages=3"
+      "upload.pdf-max-pages=3",
+      "upload.pdf-render-threads=2",
+      "upload.async.worker-threads=2",
+      "upload.async.queue-capacity=20",
+      "upload.batch.max-files=10",
+      "upload.batch.worker-threads=3",
+      "upload.batch.queue-capacity=30",
+      "upload.batch.max-concurrent-analyses=2",
+      "upload.batch.timeout-seconds=120"
     })
 class UploadPropertiesTest {
 
@@ -51,6 +59,19 @@ class UploadPropertiesTest {
   void shouldLoadPdfProperties() {
     assertThat(properties.pdfRenderDpi()).isEqualTo(150);
     assertThat(properties.pdfMaxPages()).isEqualTo(3);
+    assertThat(properties.pdfRenderThreads()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldLoadAsyncProperties() {
+    assertThat(properties.async()).isNotNull();
+    assertThat(properties.async().workerThreads()).isEqualTo(2);
+    assertThat(properties.async().queueCapacity()).isEqualTo(20);
+  }
+
+  @Test
+  void shouldLoadBatchProperties() {
+    assertThat(properties.batch()).isEqualTo(new UploadProperties.BatchConfig(10, 3, 30, 2, 120));
   }
 
   @Test
@@ -0,0 +1,345 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalMatchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bill_manager.ai.BillAnalysisException;
+import com.example.bill_manager.dto.AnalysisJobResponse;
+import com.example.bill_manager.dto.AnalysisJobStatus;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.LineItem;
+import com.example.bill_manager.dto.PartialBillAnalysis;
+import com.example.bill_manager.dto.UploadProgressEvent;
+import com.example.bill_manager.dto.UploadStage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+class AnalysisJobServiceImplTest {
+
+  private static final String MIME_JPEG = "image/jpeg";
+  private static final byte[] SAMPLE_JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+  private static final BillAnalysisResult ANALYSIS =
+      new BillAnalysisResult(
+          "Store",
+          List.of(new LineItem("Item", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.TEN)),
+          BigDecimal.TEN,
+          "PLN",
+          null);
+
+  @TempDir private Path tempDir;
+
+  private BillProcessingService billProcessingService;
+  private BillResultStore billResultStore;
+  private List<Runnable> queuedTasks;
+  private AnalysisJobServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    billProcessingService = mock(BillProcessingService.class);
+    billResultStore = mock(BillResultStore.class);
+    queuedTasks = new ArrayList<>();
+    final TaskExecutor deferredExecutor = queuedTasks::add;
+    service = new AnalysisJobServiceImpl(billProcessingService, billResultStore, deferredExecutor);
+  }
+
+  private Path spooledUpload() throws IOException {
+    return Files.write(Files.createTempFile(tempDir, "upload-", ".jpg"), SAMPLE_JPEG);
+  }
+
+  private void runQueuedTasks() {
+    queuedTasks.forEach(Runnable::run);
+    queuedTasks.clear();
+  }
+
+  @Nested
+  class Submission {
+
+    @Test
+    void shouldReturnPendingJobBeforeWorkerRuns() throws IOException {
+      final AnalysisJobResponse job = service.submit(spooledUpload(), MIME_JPEG, "photo.jpg");
+
+      assertThat(job.status()).isEqualTo(AnalysisJobStatus.PENDING);
+      assertThat(job.originalFileName()).isEqualTo("photo.jpg");
+      assertThat(service.findById(job.id()))
+          .get()
+          .extracting(AnalysisJobResponse::status)
+          .isEqualTo(AnalysisJobStatus.PENDING);
+      verify(billProcessingService, never()).process(any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectWithServiceUnavailableWhenQueueIsFull() throws IOException {
+      final TaskExecutor rejectingExecutor =
+          task -> {
+            throw new TaskRejectedException("Queue full");
+          };
+      final AnalysisJobServiceImpl rejectingService =
+          new AnalysisJobServiceImpl(billProcessingService, billResultStore, rejectingExecutor);
+
+      final Path upload = spooledUpload();
+
+      assertThatThrownBy(() -> rejectingService.submit(upload, MIME_JPEG, "photo.jpg"))
+          .isInstanceOf(BillAnalysisException.class)
+          .extracting(e -> ((BillAnalysisException) e).getErrorCode())
+          .isEqualTo(BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE);
+      assertThat(upload).doesNotExist();
+    }
+  }
+
+  @Nested
+  class Completion {
+
+    @Test
+    void shouldStoreResultAndStopTrackingJobWhenDone() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenReturn(ANALYSIS);
+
+      final AnalysisJobResponse job = service.submit(spooledUpload(), MIME_JPEG, "photo.jpg");
+      runQueuedTasks();
+
+      final ArgumentCaptor<BillAnalysisResponse> captor =
+          ArgumentCaptor.forClass(BillAnalysisResponse.class);
+      verify(billResultStore).save(eq(job.id()), captor.capture());
+      assertThat(captor.getValue().id()).isEqualTo(job.id());
+      assertThat(captor.getValue().originalFileName()).isEqualTo("photo.jpg");
+      assertThat(captor.getValue().analysis()).isEqualTo(ANALYSIS);
+      assertThat(service.findById(job.id())).isEmpty();
+    }
+
+    @Test
+    void shouldReportFailedJobWithErrorCode() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenThrow(
+              new BillAnalysisException(
+                  BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+                  "Bill analysis service is temporarily unavailable"));
+
+      final AnalysisJobResponse job = service.submit(spooledUpload(), MIME_JPEG, "photo.jpg");
+      runQueuedTasks();
+
+      final Optional<AnalysisJobResponse> failed = service.findById(job.id());
+      assertThat(failed).isPresent();
+      assertThat(failed.get().status()).isEqualTo(AnalysisJobStatus.FAILED);
+      assertThat(failed.get().error().code()).isEqualTo("SERVICE_UNAVAILABLE");
+      verify(billResultStore, never()).save(any(), any());
+    }
+
+    @Test
+    void shouldNotExposeUnexpectedExceptionMessages() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenThrow(new IllegalStateException("Internal failure"));
+
+      final AnalysisJobResponse job = service.submit(spooledUpload(), MIME_JPEG, "photo.jpg");
+      runQueuedTasks();
+
+      final AnalysisJobResponse failed = service.findById(job.id()).orElseThrow();
+      assertThat(failed.status()).isEqualTo(AnalysisJobStatus.FAILED);
+      assertThat(failed.error().code()).isEqualTo("INTERNAL_ERROR");
+      assertThat(failed.error().message()).doesNotContain("Internal failure");
+    }
+
+    @Test
+    void shouldStreamSpooledUploadAndDeleteItAfterwards() throws IOException {
+      final Path upload = spooledUpload();
+      final List<byte[]> received = new ArrayList<>();
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenAnswer(
+              invocation -> {
+                received.add(invocation.<InputStream>getArgument(0).readAllBytes());
+                return ANALYSIS;
+              });
+
+      service.submit(upload, MIME_JPEG, "photo.jpg");
+      runQueuedTasks();
+
+      assertThat(received).singleElement().isEqualTo(SAMPLE_JPEG);
+      assertThat(upload).doesNotExist();
+    }
+
+    @Test
+    void shouldDeleteSpooledUploadWhenJobFails() throws IOException {
+      final Path upload = spooledUpload();
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenThrow(new IllegalStateException("Internal failure"));
+
+      service.submit(upload, MIME_JPEG, "photo.jpg");
+      runQueuedTasks();
+
+      assertThat(upload).doesNotExist();
+    }
+  }
+
+  @Nested
+  class Progress {
+
+    @Test
+    void shouldReportValidatedBeforeWorkerRuns() throws IOException {
+      final List<UploadProgressEvent> events = new ArrayList<>();
+
+      final AnalysisJobResponse job =
+          service.submit(spooledUpload(), MIME_JPEG, "photo.jpg", events::add);
+
+      assertThat(events)
+          .singleElement()
+          .satisfies(
+              event -> {
+                assertThat(event.id()).isEqualTo(job.id());
+                assertThat(event.stage()).isEqualTo(UploadStage.VALIDATED);
+              });
+    }
+
+    @Test
+    void shouldReportEachStageThenResult() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenAnswer(
+              invocation -> {
+                final BillProcessingService.ProgressListener listener = invocation.getArgument(2);
+                listener.pagesRendered(2);
+                listener.preprocessed(2);
+                listener.analysisStarted();
+                listener.partialResult(new PartialBillAnalysis("Store", null, List.of()));
+                return ANALYSIS;
+              });
+      final List<UploadProgressEvent> events = new ArrayList<>();
+
+      final AnalysisJobResponse job =
+          service.submit(spooledUpload(), MIME_JPEG, "photo.jpg", events::add);
+      runQueuedTasks();
+
+      assertThat(events)
+          .extracting(UploadProgressEvent::stage)
+          .containsExactly(
+              UploadStage.VALIDATED,
+              UploadStage.PAGES_RENDERED,
+              UploadStage.PREPROCESSED,
+              UploadStage.ANALYSIS_STARTED,
+              UploadStage.ANALYSIS_PROGRESS,
+              UploadStage.DONE);
+      assertThat(events.get(1).images()).isEqualTo(2);
+      assertThat(events.get(4).partial().merchantName()).isEqualTo("Store");
+      final UploadProgressEvent done = events.get(5);
+      assertThat(done.result().id()).isEqualTo(job.id());
+      assertThat(done.result().analysis()).isEqualTo(ANALYSIS);
+      assertThat(done.error()).isNull();
+    }
+
+    @Test
+    void shouldReportFailureWithErrorCode() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenThrow(
+              new ImagePreprocessingException(
+                  ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "Corrupted"));
+      final List<UploadProgressEvent> events = new ArrayList<>();
+
+      service.submit(spooledUpload(), MIME_JPEG, "photo.jpg", events::add);
+      runQueuedTasks();
+
+      final UploadProgressEvent failed = events.get(events.size() - 1);
+      assertThat(failed.stage()).isEqualTo(UploadStage.FAILED);
+      assertThat(failed.error().code()).isEqualTo("IMAGE_READ_FAILED");
+      assertThat(failed.result()).isNull();
+    }
+
+    @Test
+    void shouldNotPassProgressToPlainAsyncJob() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenReturn(ANALYSIS);
+
+      service.submit(spooledUpload(), MIME_JPEG, "photo.jpg");
+      runQueuedTasks();
+
+      verify(billProcessingService)
+          .process(
+              any(InputStream.class),
+              eq(MIME_JPEG),
+              eq(BillProcessingService.ProgressListener.NONE));
+    }
+
+    @Test
+    void shouldPassProgressToSubscribedJob() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenReturn(ANALYSIS);
+
+      service.submit(spooledUpload(), MIME_JPEG, "photo.jpg", event -> {});
+      runQueuedTasks();
+
+      verify(billProcessingService)
+          .process(
+              any(InputStream.class),
+              eq(MIME_JPEG),
+              not(eq(BillProcessingService.ProgressListener.NONE)));
+    }
+
+    @Test
+    void shouldNotPassProgressOnceSubscriberIsGone() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenReturn(ANALYSIS);
+
+      service.submit(
+          spooledUpload(),
+          MIME_JPEG,
+          "photo.jpg",
+          event -> {
+            throw new IllegalStateException("Client disconnected");
+          });
+      runQueuedTasks();
+
+      verify(billProcessingService)
+          .process(
+              any(InputStream.class),
+              eq(MIME_JPEG),
+              eq(BillProcessingService.ProgressListener.NONE));
+    }
+
+    @Test
+    void shouldFinishJobAfterListenerFails() throws IOException {
+      when(billProcessingService.process(any(InputStream.class), eq(MIME_JPEG), any()))
+          .thenAnswer(
+              invocation -> {
+                invocation.<BillProcessingService.ProgressListener>getArgument(2).preprocessed(1);
+                return ANALYSIS;
+              });
+      final List<UploadProgressEvent> events = new ArrayList<>();
+
+      final AnalysisJobResponse job =
+          service.submit(
+              spooledUpload(),
+              MIME_JPEG,
+              "photo.jpg",
+              event -> {
+                events.add(event);
+                if (event.stage() == UploadStage.PREPROCESSED) {
+                  throw new IllegalStateException("Client disconnected");
+                }
+              });
+      runQueuedTasks();
+
+      assertThat(events)
+          .extracting(UploadProgressEvent::stage)
+          .containsExactly(UploadStage.VALIDATED, UploadStage.PREPROCESSED);
+      verify(billResultStore).save(eq(job.id()), any(BillAnalysisResponse.class));
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.bill_manager.config.UploadProperties;
+import com.example.bill_manager.dto.BatchItemResponse;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.LineItem;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+class BillBatchServiceImplTest {
+
+  private static final String MIME_JPEG = "image/jpeg";
+  private static final byte[] SAMPLE_JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+  private static final BillAnalysisResult ANALYSIS =
+      new BillAnalysisResult(
+          "Store",
+          List.of(new LineItem("Item", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.TEN)),
+          BigDecimal.TEN,
+          "PLN",
+          null);
+
+  private static final BillProcessingService.PreparedBill PREPARED =
+      new BillProcessingService.PreparedBill(List.of(SAMPLE_JPEG), MIME_JPEG);
+
+  @TempDir private Path tempDir;
+
+  private BillProcessingService billProcessingService;
+  private BillResultStore billResultStore;
+
+  @BeforeEach
+  void setUp() {
+    billProcessingService = mock(BillProcessingService.class);
+    billResultStore = mock(BillResultStore.class);
+    when(billProcessingService.prepare(any(InputStream.class), eq(MIME_JPEG))).thenReturn(PREPARED);
+    when(billProcessingService.analyze(PREPARED)).thenReturn(ANALYSIS);
+  }
+
+  private BillBatchServiceImpl createService(
+      final TaskExecutor executor, final int maxConcurrentAnalyses) {
+    final UploadProperties properties =
+        new UploadProperties(
+            10485760L,
+            List.of(MIME_JPEG),
+            150,
+            5,
+            1,
+            new UploadProperties.AsyncConfig(2, 10),
+            new UploadProperties.BatchConfig(50, 4, 10, maxConcurrentAnalyses, 600));
+    return new BillBatchServiceImpl(billProcessingService, billResultStore, executor, properties);
+  }
+
+  private List<BillBatchService.BatchFile> spooledFiles(final int count) throws IOException {
+    final List<BillBatchService.BatchFile> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Path file = Files.write(Files.createTempFile(tempDir, "batch-", ".jpg"), SAMPLE_JPEG);
+      files.add(new BillBatchService.BatchFile(i, "receipt-" + i + ".jpg", file, MIME_JPEG));
+    }
+    return files;
+  }
+
+  @Nested
+  class Reporting {
+
+    @Test
+    void shouldReportAndStoreEveryFile() throws IOException {
+      final List<BatchItemResponse> reported = new ArrayList<>();
+
+      final CompletableFuture<Void> done =
+          createService(Runnable::run, 2).submit(spooledFiles(3), reported::add);
+
+      assertThat(done).isCompleted();
+      assertThat(reported).extracting(BatchItemResponse::index).containsExactly(0, 1, 2);
+      assertThat(reported)
+          .allSatisfy(
+              item -> {
+                assertThat(item.error()).isNull();
+                assertThat(item.result().analysis()).isEqualTo(ANALYSIS);
+              });
+      verify(billResultStore, times(3)).save(any(UUID.class), any(BillAnalysisResponse.class));
+    }
+
+    @Test
+    void shouldReportFailedFileWithoutFailingTheBatch() throws IOException {
+      final BillProcessingService.PreparedBill emptyBill =
+          new BillProcessingService.PreparedBill(List.of(), MIME_JPEG);
+      when(billProcessingService.prepare(any(InputStream.class), eq(MIME_JPEG)))
+          .thenReturn(PREPARED)
+          .thenThrow(
+              new ImagePreprocessingException(
+                  ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED, "Corrupted"))
+          .thenReturn(emptyBill);
+      when(billProcessingService.analyze(emptyBill)).thenThrow(new IllegalStateException("boom"));
+      final List<BatchItemResponse> reported = new ArrayList<>();
+
+      createService(Runnable::run, 2).submit(spooledFiles(3), reported::add);
+
+      assertThat(reported).hasSize(3);
+      assertThat(reported.get(0).result()).isNotNull();
+      assertThat(reported.get(1).error().code()).isEqualTo("IMAGE_READ_FAILED");
+      assertThat(reported.get(2).error().code()).isEqualTo(ErrorResponses.INTERNAL_ERROR);
+      assertThat(reported.get(2).error().message()).isEqualTo("An unexpected error occurred");
+    }
+
+    @Test
+    void shouldDeleteSpooledFilesOnceProcessed() throws IOException {
+      final List<BillBatchService.BatchFile> files = spooledFiles(2);
+
+      createService(Runnable::run, 1).submit(files, item -> {});
+
+      assertThat(files).allSatisfy(file -> assertThat(file.contentFile()).doesNotExist());
+    }
+
+    @Test
+    void shouldNotProcessFilesBeforeWorkerRuns() throws IOException {
+      final List<Runnable> queued = new ArrayList<>();
+
+      createService(queued::add, 1).submit(spooledFiles(2), item -> {});
+
+      assertThat(queued).hasSize(2);
+      verify(billProcessingService, never()).prepare(any(InputStream.class), any());
+    }
+
+    @Test
+    void shouldCompleteEmptyBatchImmediately() {
+      assertThat(createService(Runnable::run, 1).submit(List.of(), item -> {})).isCompleted();
+    }
+  }
+
+  @Nested
+  class Backpressure {
+
+    @Test
+    void shouldReportRejectedFileAsServiceUnavailable() throws IOException {
+      final TaskExecutor rejecting =
+          task -> {
+            throw new TaskRejectedException("Queue full");
+          };
+      final List<BillBatchService.BatchFile> files = spooledFiles(1);
+      final List<BatchItemResponse> reported = new ArrayList<>();
+
+      final CompletableFuture<Void> done = createService(rejecting, 1).submit(files, reported::add);
+
+      assertThat(done).isCompleted();
+      assertThat(reported)
+          .singleElement()
+          .satisfies(item -> assertThat(item.error().code()).isEqualTo("SERVICE_UNAVAILABLE"));
+      assertThat(files.get(0).contentFile()).doesNotExist();
+    }
+
+    @Test
+    void shouldLimitConcurrentAnalyses() throws Exception {
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger maxRunning = new AtomicInteger();
+      when(billProcessingService.analyze(PREPARED))
+          .thenAnswer(
+              invocation -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return ANALYSIS;
+              });
+      final ExecutorService workers = Executors.newFixedThreadPool(4);
+      try {
+        final List<BatchItemResponse> reported = new ArrayList<>();
+
+        createService(workers::execute, 2)
+            .submit(spooledFiles(8), reported::add)
+            .get(10, TimeUnit.SECONDS);
+
+        assertThat(reported).hasSize(8);
+        assertThat(maxRunning.get()).isEqualTo(2);
+      } finally {
+        workers.shutdownNow();
+      }
+    }
+
+    @Test
+    void shouldSkipRemainingFilesWhenListenerFails() throws IOException {
+      final List<Runnable> queued = new ArrayList<>();
+      final List<BillBatchService.BatchFile> files = spooledFiles(3);
+
+      final CompletableFuture<Void> done =
+          createService(queued::add, 1)
+              .submit(
+                  files,
+                  item -> {
+                    throw new IllegalStateException("Client disconnected");
+                  });
+      queued.forEach(Runnable::run);
+
+      assertThat(done).isCompletedExceptionally();
+      verify(billProcessingService, times(1)).analyze(PREPARED);
+      verify(billResultStore, times(1)).save(any(UUID.class), any(BillAnalysisResponse.class));
+      assertThat(files).allSatisfy(file -> assertThat(file.contentFile()).doesNotExist());
+    }
+  }
+}
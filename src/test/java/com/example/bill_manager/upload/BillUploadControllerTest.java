@@ -2,37 +2,59 @@ package com.example.bill_manager.upload;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.bill_manager.ai.BillAnalysisException;
 import com.example.bill_manager.ai.BillAnalysisService;
+import com.example.bill_manager.dto.AnalysisJobResponse;
+import com.example.bill_manager.dto.AnalysisJobStatus;
+import com.example.bill_manager.dto.BatchItemResponse;
 import com.example.bill_manager.dto.BillAnalysisResponse;
 import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.ErrorResponse;
 import com.example.bill_manager.dto.LineItem;
+import com.example.bill_manager.dto.PartialBillAnalysis;
 import com.example.bill_manager.dto.PurchaseCategory;
+import com.example.bill_manager.dto.UploadProgressEvent;
+import com.example.bill_manager.dto.UploadStage;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
 import org.springframework.web.multipart.MultipartFile;
 
 @WebMvcTest(BillUploadController.class)
+@Import(BillProcessingServiceImpl.class)
 class BillUploadControllerTest {
 
   private static final String MIME_JPEG = "image/jpeg";
@@ -61,18 +83,23 @@ class BillUploadControllerTest {
 
   @MockitoBean private BillResultStore billResultStore;
 
+  @MockitoBean private AnalysisJobService analysisJobService;
+
+  @MockitoBean private BillBatchService billBatchService;
+
   private void setupSuccessfulImagePipeline() {
-    when(fileValidationService.validateFile(any(MultipartFile.class))).thenReturn(MIME_JPEG);
-    when(imagePreprocessingService.preprocess(any(byte[].class), eq(MIME_JPEG)))
-        .thenReturn(SAMPLE_JPEG);
+    when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+        .thenReturn(MIME_JPEG);
+    when(imagePreprocessingService.preprocessTiled(any(InputStream.class), eq(MIME_JPEG)))
+        .thenReturn(List.of(SAMPLE_JPEG));
     when(billAnalysisService.analyze(anyList(), eq(MIME_JPEG))).thenReturn(MOCK_ANALYSIS);
   }
 
   private void setupSuccessfulPdfPipeline() {
-    when(fileValidationService.validateFile(any(MultipartFile.class))).thenReturn(MIME_PDF);
-    when(pdfConversionService.convertToImages(any(byte[].class))).thenReturn(List.of(SAMPLE_JPEG));
-    when(imagePreprocessingService.preprocess(any(byte[].class), eq(MIME_JPEG)))
-        .thenReturn(SAMPLE_JPEG);
+    when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+        .thenReturn(MIME_PDF);
+    when(pdfConversionService.convertToImages(any(Path.class), anyInt(), any()))
+        .thenReturn(List.of(SAMPLE_JPEG));
     when(billAnalysisService.analyze(anyList(), eq(MIME_JPEG))).thenReturn(MOCK_ANALYSIS);
   }
 
@@ -112,7 +139,8 @@ class BillUploadControllerTest {
           .andExpect(jsonPath("$.originalFileName").value("invoice.pdf"))
           .andExpect(jsonPath("$.analysis.merchantName").value("Test Store"));
 
-      verify(pdfConversionService).convertToImages(any(byte[].class));
+      verify(pdfConversionService).convertToImages(any(Path.class), anyInt(), any());
+      verify(imagePreprocessingService, never()).preprocessTiled(any(InputStream.class), any());
     }
 
     @Test
@@ -125,7 +153,85 @@ class BillUploadControllerTest {
 
       mockMvc.perform(multipart("/api/bills/upload").file(file)).andExpect(status().isCreated());
 
-      verify(pdfConversionService, never()).convertToImages(any());
+      verify(pdfConversionService, never()).convertToImages(any(Path.class), anyInt(), any());
+    }
+
+    @Test
+    void shouldStreamWholeUploadToPreprocessingAfterValidation() throws Exception {
+      setupSuccessfulImagePipeline();
+      final byte[] uploaded = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x01, 0x02, 0x03};
+      final List<byte[]> received = new ArrayList<>();
+      when(imagePreprocessingService.preprocessTiled(any(InputStream.class), eq(MIME_JPEG)))
+          .thenAnswer(
+              invocation -> {
+                received.add(invocation.<InputStream>getArgument(0).readAllBytes());
+                return List.of(SAMPLE_JPEG);
+              });
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "photo.jpg", MIME_JPEG, uploaded);
+
+      mockMvc.perform(multipart("/api/bills/upload").file(file)).andExpect(status().isCreated());
+
+      assertThat(received).singleElement().isEqualTo(uploaded);
+    }
+
+    @Test
+    void shouldAnalyzeAllTilesOfLongReceiptInOneRequest() throws Exception {
+      setupSuccessfulImagePipeline();
+      final byte[] top = {1};
+      final byte[] bottom = {2};
+      when(imagePreprocessingService.preprocessTiled(any(InputStream.class), eq(MIME_JPEG)))
+          .thenReturn(List.of(top, bottom));
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "receipt.jpg", MIME_JPEG, SAMPLE_JPEG);
+
+      mockMvc.perform(multipart("/api/bills/upload").file(file)).andExpect(status().isCreated());
+
+      verify(billAnalysisService).analyze(List.of(top, bottom), MIME_JPEG);
+    }
+
+    @Test
+    void shouldRenderPdfFromSpooledFileAndDeleteItAfterwards() throws Exception {
+      setupSuccessfulPdfPipeline();
+      final byte[] uploaded = "%PDF-1.4 spooled".getBytes();
+      final List<Path> spooled = new ArrayList<>();
+      when(pdfConversionService.convertToImages(any(Path.class), anyInt(), any()))
+          .thenAnswer(
+              invocation -> {
+                final Path pdfFile = invocation.getArgument(0);
+                assertThat(pdfFile).hasBinaryContent(uploaded);
+                spooled.add(pdfFile);
+                return List.of(SAMPLE_JPEG);
+              });
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "invoice.pdf", MIME_PDF, uploaded);
+
+      mockMvc.perform(multipart("/api/bills/upload").file(file)).andExpect(status().isCreated());
+
+      assertThat(spooled).singleElement().satisfies(path -> assertThat(path).doesNotExist());
+    }
+
+    @Test
+    void shouldReEncodePagesWithPerPageBudgetWhenPagesExceedRequestBudget() throws Exception {
+      setupSuccessfulPdfPipeline();
+      final byte[] largePage = new byte[3 * 1024 * 1024];
+      when(pdfConversionService.convertToImages(any(Path.class), anyInt(), any()))
+          .thenReturn(List.of(largePage, largePage));
+      // Test properties: 4MB request budget split across two pages.
+      when(imagePreprocessingService.reencodeJpeg(largePage, 2 * 1024 * 1024))
+          .thenReturn(SAMPLE_JPEG);
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "invoice.pdf", MIME_PDF, "%PDF-1.4 test".getBytes());
+
+      mockMvc.perform(multipart("/api/bills/upload").file(file)).andExpect(status().isCreated());
+
+      verify(pdfConversionService).convertToImages(any(Path.class), anyInt(), any());
+      verify(imagePreprocessingService, times(2)).reencodeJpeg(largePage, 2 * 1024 * 1024);
+      verify(billAnalysisService).analyze(List.of(SAMPLE_JPEG, SAMPLE_JPEG), MIME_JPEG);
     }
 
     @Test
@@ -152,7 +258,7 @@ class BillUploadControllerTest {
                   FileValidationException.ErrorCode.FILE_REQUIRED,
                   "File is required and must not be empty"))
           .when(fileValidationService)
-          .validateFile(any(MultipartFile.class));
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
 
       mockMvc
           .perform(multipart("/api/bills/upload").file(file))
@@ -171,7 +277,7 @@ class BillUploadControllerTest {
                   FileValidationException.ErrorCode.FILE_TOO_LARGE,
                   "File size exceeds maximum allowed size"))
           .when(fileValidationService)
-          .validateFile(any(MultipartFile.class));
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
 
       mockMvc
           .perform(multipart("/api/bills/upload").file(file))
@@ -189,7 +295,7 @@ class BillUploadControllerTest {
                   FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE,
                   "File type is not supported"))
           .when(fileValidationService)
-          .validateFile(any(MultipartFile.class));
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
 
       mockMvc
           .perform(multipart("/api/bills/upload").file(file))
@@ -199,13 +305,14 @@ class BillUploadControllerTest {
 
     @Test
     void shouldReturn422WhenPdfCorrupted() throws Exception {
-      when(fileValidationService.validateFile(any(MultipartFile.class))).thenReturn(MIME_PDF);
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_PDF);
       when(fileValidationService.sanitizeFilename("broken.pdf")).thenReturn("broken.pdf");
       doThrow(
               new PdfConversionException(
                   PdfConversionException.ErrorCode.PDF_READ_FAILED, "Failed to read PDF content"))
           .when(pdfConversionService)
-          .convertToImages(any(byte[].class));
+          .convertToImages(any(Path.class), anyInt(), any());
 
       final MockMultipartFile file =
           new MockMultipartFile("file", "broken.pdf", MIME_PDF, "%PDF-broken".getBytes());
@@ -218,14 +325,15 @@ class BillUploadControllerTest {
 
     @Test
     void shouldReturn400WhenPdfEncrypted() throws Exception {
-      when(fileValidationService.validateFile(any(MultipartFile.class))).thenReturn(MIME_PDF);
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_PDF);
       when(fileValidationService.sanitizeFilename("encrypted.pdf")).thenReturn("encrypted.pdf");
       doThrow(
               new PdfConversionException(
                   PdfConversionException.ErrorCode.PDF_ENCRYPTED,
                   "Password-protected PDFs are not supported"))
           .when(pdfConversionService)
-          .convertToImages(any(byte[].class));
+          .convertToImages(any(Path.class), anyInt(), any());
 
       final MockMultipartFile file =
           new MockMultipartFile("file", "encrypted.pdf", MIME_PDF, "%PDF-encrypted".getBytes());
@@ -238,14 +346,15 @@ class BillUploadControllerTest {
 
     @Test
     void shouldReturn400WhenPdfHasTooManyPages() throws Exception {
-      when(fileValidationService.validateFile(any(MultipartFile.class))).thenReturn(MIME_PDF);
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_PDF);
       when(fileValidationService.sanitizeFilename("large.pdf")).thenReturn("large.pdf");
       doThrow(
               new PdfConversionException(
                   PdfConversionException.ErrorCode.PDF_TOO_MANY_PAGES,
                   "PDF has 10 pages, maximum allowed is 5"))
           .when(pdfConversionService)
-          .convertToImages(any(byte[].class));
+          .convertToImages(any(Path.class), anyInt(), any());
 
       final MockMultipartFile file =
           new MockMultipartFile("file", "large.pdf", MIME_PDF, "%PDF-large".getBytes());
@@ -265,7 +374,7 @@ class BillUploadControllerTest {
               new FileValidationException(
                   FileValidationException.ErrorCode.FILE_UNREADABLE, "Failed to read file content"))
           .when(fileValidationService)
-          .validateFile(any(MultipartFile.class));
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
 
       mockMvc
           .perform(multipart("/api/bills/upload").file(file))
@@ -274,6 +383,205 @@ class BillUploadControllerTest {
     }
   }
 
+  @Nested
+  class AsyncUploadEndpoint {
+
+    @Test
+    void shouldReturn202WithJobIdWhenAsyncRequested() throws Exception {
+      final UUID jobId = UUID.randomUUID();
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_JPEG);
+      when(fileValidationService.sanitizeFilename("photo.jpg")).thenReturn("photo.jpg");
+      when(analysisJobService.submit(any(Path.class), eq(MIME_JPEG), eq("photo.jpg")))
+          .thenReturn(
+              new AnalysisJobResponse(
+                  jobId,
+                  AnalysisJobStatus.PENDING,
+                  "photo.jpg",
+                  Instant.now(),
+                  Instant.now(),
+                  null));
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "photo.jpg", MIME_JPEG, SAMPLE_JPEG);
+
+      mockMvc
+          .perform(multipart("/api/bills/upload").file(file).param("async", "true"))
+          .andExpect(status().isAccepted())
+          .andExpect(header().string("Location", "/api/bills/" + jobId))
+          .andExpect(jsonPath("$.id").value(jobId.toString()))
+          .andExpect(jsonPath("$.status").value("PENDING"));
+
+      verify(billAnalysisService, never()).analyze(anyList(), any());
+    }
+
+    @Test
+    void shouldValidateFileBeforeAcceptingAsyncJob() throws Exception {
+      doThrow(
+              new FileValidationException(
+                  FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE,
+                  "File type is not supported"))
+          .when(fileValidationService)
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "doc.txt", "text/plain", "hello".getBytes());
+
+      mockMvc
+          .perform(multipart("/api/bills/upload").file(file).param("async", "true"))
+          .andExpect(status().isUnsupportedMediaType())
+          .andExpect(jsonPath("$.code").value("UNSUPPORTED_MEDIA_TYPE"));
+
+      verify(analysisJobService, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturn503WhenJobQueueIsFull() throws Exception {
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_JPEG);
+      when(fileValidationService.sanitizeFilename("photo.jpg")).thenReturn("photo.jpg");
+      doThrow(
+              new BillAnalysisException(
+                  BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+                  "Too many analyses in progress"))
+          .when(analysisJobService)
+          .submit(any(Path.class), any(), any());
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "photo.jpg", MIME_JPEG, SAMPLE_JPEG);
+
+      mockMvc
+          .perform(multipart("/api/bills/upload").file(file).param("async", "true"))
+          .andExpect(status().isServiceUnavailable())
+          .andExpect(jsonPath("$.code").value("SERVICE_UNAVAILABLE"));
+    }
+
+    @Test
+    void shouldReturn202WhileJobIsRunning() throws Exception {
+      final UUID jobId = UUID.randomUUID();
+      when(analysisJobService.findById(jobId))
+          .thenReturn(
+              Optional.of(
+                  new AnalysisJobResponse(
+                      jobId,
+                      AnalysisJobStatus.RUNNING,
+                      "photo.jpg",
+                      Instant.now(),
+                      Instant.now(),
+                      null)));
+
+      mockMvc
+          .perform(get("/api/bills/" + jobId))
+          .andExpect(status().isAccepted())
+          .andExpect(jsonPath("$.status").value("RUNNING"));
+
+      verify(billResultStore, never()).findById(any());
+    }
+
+    @Test
+    void shouldReturnFailedJobWithError() throws Exception {
+      final UUID jobId = UUID.randomUUID();
+      when(analysisJobService.findById(jobId))
+          .thenReturn(
+              Optional.of(
+                  new AnalysisJobResponse(
+                      jobId,
+                      AnalysisJobStatus.FAILED,
+                      "photo.jpg",
+                      Instant.now(),
+                      Instant.now(),
+                      new ErrorResponse(
+                          "SERVICE_UNAVAILABLE", "Service unavailable", Instant.now()))));
+
+      mockMvc
+          .perform(get("/api/bills/" + jobId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value("FAILED"))
+          .andExpect(jsonPath("$.error.code").value("SERVICE_UNAVAILABLE"));
+    }
+  }
+
+  @Nested
+  class StreamingUploadEndpoint {
+
+    @Test
+    void shouldStreamStageEventsUntilDone() throws Exception {
+      final UUID jobId = UUID.randomUUID();
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_JPEG);
+      when(fileValidationService.sanitizeFilename("photo.jpg")).thenReturn("photo.jpg");
+      when(analysisJobService.submit(any(Path.class), eq(MIME_JPEG), eq("photo.jpg"), any()))
+          .thenAnswer(
+              invocation -> {
+                final Consumer<UploadProgressEvent> listener = invocation.getArgument(3);
+                listener.accept(event(jobId, UploadStage.VALIDATED, null, null));
+                listener.accept(event(jobId, UploadStage.ANALYSIS_STARTED, null, null));
+                final PartialBillAnalysis partial =
+                    new PartialBillAnalysis("Test Store", null, List.of());
+                listener.accept(event(jobId, UploadStage.ANALYSIS_PROGRESS, partial, null));
+                final BillAnalysisResponse response =
+                    new BillAnalysisResponse(jobId, "photo.jpg", MOCK_ANALYSIS, Instant.now());
+                listener.accept(event(jobId, UploadStage.DONE, null, response));
+                return new AnalysisJobResponse(
+                    jobId,
+                    AnalysisJobStatus.PENDING,
+                    "photo.jpg",
+                    Instant.now(),
+                    Instant.now(),
+                    null);
+              });
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "photo.jpg", MIME_JPEG, SAMPLE_JPEG);
+
+      final MvcResult result =
+          mockMvc
+              .perform(multipart("/api/bills/upload").file(file).param("stream", "true"))
+              .andExpect(request().asyncStarted())
+              .andReturn();
+      result.getAsyncResult(5000);
+
+      final String body = result.getResponse().getContentAsString();
+      assertThat(result.getResponse().getContentType()).startsWith("text/event-stream");
+      assertThat(body)
+          .containsSubsequence(
+              "event:validated",
+              "event:analysis_started",
+              "event:analysis_progress",
+              "\"merchantName\":\"Test Store\"",
+              "event:done");
+      verify(billAnalysisService, never()).analyze(anyList(), any());
+    }
+
+    @Test
+    void shouldRejectInvalidFileBeforeStreaming() throws Exception {
+      doThrow(
+              new FileValidationException(
+                  FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE,
+                  "File type is not supported"))
+          .when(fileValidationService)
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "doc.txt", "text/plain", "hello".getBytes());
+
+      mockMvc
+          .perform(multipart("/api/bills/upload").file(file).param("stream", "true"))
+          .andExpect(status().isUnsupportedMediaType())
+          .andExpect(jsonPath("$.code").value("UNSUPPORTED_MEDIA_TYPE"));
+
+      verify(analysisJobService, never()).submit(any(), any(), any(), any());
+    }
+
+    private static UploadProgressEvent event(
+        final UUID id,
+        final UploadStage stage,
+        final PartialBillAnalysis partial,
+        final BillAnalysisResponse result) {
+      return new UploadProgressEvent(id, stage, null, partial, result, null, Instant.now());
+    }
+  }
+
   @Nested
   class RetrieveEndpoint {
 
@@ -327,7 +635,7 @@ class BillUploadControllerTest {
                   FileValidationException.ErrorCode.FILE_REQUIRED,
                   "File is required and must not be empty"))
           .when(fileValidationService)
-          .validateFile(any(MultipartFile.class));
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
 
       mockMvc
           .perform(multipart("/api/bills/upload").file(file))
@@ -344,7 +652,7 @@ class BillUploadControllerTest {
 
       doThrow(new RuntimeException("Internal failure"))
           .when(fileValidationService)
-          .validateFile(any(MultipartFile.class));
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
 
       final String responseBody =
           mockMvc
@@ -358,5 +666,143 @@ class BillUploadControllerTest {
       assertThat(responseBody).doesNotContain("java.lang");
       assertThat(responseBody).doesNotContain("Internal failure");
     }
+
+    @Test
+    void shouldReturnRetryAfterWhenAnalysisIsRejectedFast() throws Exception {
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_JPEG);
+      when(fileValidationService.sanitizeFilename("photo.jpg")).thenReturn("photo.jpg");
+      when(imagePreprocessingService.preprocessTiled(any(InputStream.class), eq(MIME_JPEG)))
+          .thenReturn(List.of(SAMPLE_JPEG));
+      when(billAnalysisService.analyze(anyList(), eq(MIME_JPEG)))
+          .thenThrow(
+              new BillAnalysisException(
+                  BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE,
+                  "Bill analysis service is temporarily unavailable. Please try again later.",
+                  Duration.ofMillis(12_300)));
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "photo.jpg", MIME_JPEG, SAMPLE_JPEG);
+
+      mockMvc
+          .perform(multipart("/api/bills/upload").file(file))
+          .andExpect(status().isServiceUnavailable())
+          .andExpect(header().string("Retry-After", "13"))
+          .andExpect(jsonPath("$.code").value("SERVICE_UNAVAILABLE"));
+    }
+
+    @Test
+    void shouldNotSetRetryAfterWhenUnknown() throws Exception {
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_JPEG);
+      when(fileValidationService.sanitizeFilename("photo.jpg")).thenReturn("photo.jpg");
+      when(imagePreprocessingService.preprocessTiled(any(InputStream.class), eq(MIME_JPEG)))
+          .thenReturn(List.of(SAMPLE_JPEG));
+      when(billAnalysisService.analyze(anyList(), eq(MIME_JPEG)))
+          .thenThrow(
+              new BillAnalysisException(
+                  BillAnalysisException.ErrorCode.SERVICE_UNAVAILABLE, "Service unavailable"));
+
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "photo.jpg", MIME_JPEG, SAMPLE_JPEG);
+
+      mockMvc
+          .perform(multipart("/api/bills/upload").file(file))
+          .andExpect(status().isServiceUnavailable())
+          .andExpect(header().doesNotExist("Retry-After"));
+    }
+  }
+
+  @Nested
+  class BatchEndpoint {
+
+    @Test
+    void shouldStreamOneLinePerFileIncludingValidationFailures() throws Exception {
+      when(fileValidationService.sanitizeFilename(any()))
+          .thenAnswer(invocation -> invocation.getArgument(0));
+      when(fileValidationService.validateFile(any(MultipartFile.class), any(InputStream.class)))
+          .thenReturn(MIME_JPEG)
+          .thenThrow(
+              new FileValidationException(
+                  FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE,
+                  "File type not supported"));
+      when(billBatchService.submit(anyList(), any()))
+          .thenAnswer(
+              invocation -> {
+                final List<BillBatchService.BatchFile> files = invocation.getArgument(0);
+                final Consumer<BatchItemResponse> listener = invocation.getArgument(1);
+                for (final BillBatchService.BatchFile batchFile : files) {
+                  final BillAnalysisResponse response =
+                      new BillAnalysisResponse(
+                          UUID.randomUUID(),
+                          batchFile.originalFileName(),
+                          MOCK_ANALYSIS,
+                          Instant.now());
+                  listener.accept(
+                      new BatchItemResponse(
+                          batchFile.index(), batchFile.originalFileName(), response, null));
+                  UploadSpool.delete(batchFile.contentFile());
+                }
+                return CompletableFuture.completedFuture(null);
+              });
+
+      final MvcResult result =
+          mockMvc
+              .perform(
+                  multipart("/api/bills/batch")
+                      .file(new MockMultipartFile("files", "a.jpg", MIME_JPEG, SAMPLE_JPEG))
+                      .file(new MockMultipartFile("files", "b.txt", "text/plain", new byte[] {1})))
+              .andExpect(request().asyncStarted())
+              .andExpect(header().string("Content-Type", "application/x-ndjson"))
+              .andReturn();
+      result.getAsyncResult(5000);
+
+      final String[] lines = result.getResponse().getContentAsString().split("\n");
+      assertThat(lines).hasSize(2);
+      assertThat(lines[0])
+          .contains("\"index\":1", "\"originalFileName\":\"b.txt\"", "UNSUPPORTED_MEDIA_TYPE");
+      assertThat(lines[1]).contains("\"index\":0", "\"merchantName\":\"Test Store\"");
+    }
+
+    @Test
+    void shouldReportOversizedPartWithoutReadingIt() throws Exception {
+      when(fileValidationService.sanitizeFilename(any()))
+          .thenAnswer(invocation -> invocation.getArgument(0));
+      when(billBatchService.submit(anyList(), any()))
+          .thenReturn(CompletableFuture.completedFuture(null));
+      // Test properties: upload.max-file-size-bytes=10485760.
+      final byte[] oversized = new byte[10 * 1024 * 1024 + 1];
+
+      final MvcResult result =
+          mockMvc
+              .perform(
+                  multipart("/api/bills/batch")
+                      .file(new MockMultipartFile("files", "big.jpg", MIME_JPEG, oversized)))
+              .andExpect(request().asyncStarted())
+              .andReturn();
+      result.getAsyncResult(5000);
+
+      assertThat(result.getResponse().getContentAsString())
+          .contains("\"index\":0", "\"originalFileName\":\"big.jpg\"", "FILE_TOO_LARGE");
+      verify(fileValidationService, never())
+          .validateFile(any(MultipartFile.class), any(InputStream.class));
+      verify(billBatchService).submit(eq(List.of()), any());
+    }
+
+    @Test
+    void shouldRejectBatchAboveMaxFiles() throws Exception {
+      final MockMultipartHttpServletRequestBuilder request = multipart("/api/bills/batch");
+      // Test properties: upload.batch.max-files=50.
+      for (int i = 0; i <= 50; i++) {
+        request.file(new MockMultipartFile("files", i + ".jpg", MIME_JPEG, SAMPLE_JPEG));
+      }
+
+      mockMvc
+          .perform(request)
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.code").value("TOO_MANY_FILES"));
+
+      verify(billBatchService, never()).submit(anyList(), any());
+    }
   }
 }
@@ -0,0 +1,54 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.bill_manager.config.PreprocessingProperties.ColorMode;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class ColorModeFilterTest {
+
+  private static BufferedImage grayRamp() {
+    final BufferedImage image = new BufferedImage(64, 8, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < image.getWidth(); x++) {
+      final int shade = 96 + x;
+      for (int y = 0; y < image.getHeight(); y++) {
+        image.setRGB(x, y, shade << 16 | shade << 8 | shade);
+      }
+    }
+    return image;
+  }
+
+  @Test
+  void shouldLeaveImageAloneInColorMode() {
+    final BufferedImage image = grayRamp();
+
+    assertThat(new ColorModeFilter(ColorMode.COLOR, true).apply(image)).isSameAs(image);
+  }
+
+  @Test
+  void shouldConvertToLumaInGrayscaleAndBinarizedMode() {
+    assertThat(new ColorModeFilter(ColorMode.GRAYSCALE, false).apply(grayRamp()).getType())
+        .isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+    assertThat(new ColorModeFilter(ColorMode.BINARIZED, false).apply(grayRamp()).getType())
+        .isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+  }
+
+  @Test
+  void shouldStretchContrastOnlyWhenEnabled() {
+    final BufferedImage plain = new ColorModeFilter(ColorMode.GRAYSCALE, false).apply(grayRamp());
+    final BufferedImage stretched =
+        new ColorModeFilter(ColorMode.GRAYSCALE, true).apply(grayRamp());
+
+    assertThat(plain.getRaster().getSample(0, 0, 0)).isEqualTo(96);
+    assertThat(stretched.getRaster().getSample(0, 0, 0)).isLessThan(96);
+  }
+
+  @Test
+  void shouldPreservePixelsOnlyWithoutPixelFilters() {
+    assertThat(new ColorModeFilter(ColorMode.COLOR, true).preservesPixels()).isTrue();
+    assertThat(new ColorModeFilter(ColorMode.GRAYSCALE, false).preservesPixels()).isTrue();
+    assertThat(new ColorModeFilter(ColorMode.GRAYSCALE, true).preservesPixels()).isFalse();
+    assertThat(new ColorModeFilter(ColorMode.BINARIZED, false).preservesPixels()).isFalse();
+  }
+}
@@ -0,0 +1,357 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.bill_manager.config.ResultStoreProperties;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.LineItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskLogResultStoreTest {
+
+  private static final Duration TTL = Duration.ofHours(1);
+  private static final int SEGMENT_SIZE = 2048;
+  private static final Instant NOW = Instant.parse("2026-01-15T10:00:00Z");
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+  @TempDir private Path directory;
+
+  private final List<DiskLogResultStore> openStores = new ArrayList<>();
+  private DiskLogResultStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = openStore(NOW);
+  }
+
+  @AfterEach
+  void tearDown() {
+    openStores.forEach(DiskLogResultStore::close);
+  }
+
+  private DiskLogResultStore openStore(final Instant now) {
+    // Compaction runs on the saving thread so that tests see its effect right away.
+    return openStore(now, Runnable::run);
+  }
+
+  private DiskLogResultStore openStore(final Instant now, final Executor compactor) {
+    final ResultStoreProperties properties =
+        new ResultStoreProperties(
+            ResultStoreProperties.StoreType.DISK,
+            1000L,
+            0L,
+            TTL,
+            new ResultStoreProperties.DiskConfig(directory.toString(), SEGMENT_SIZE, 0.5),
+            new ResultStoreProperties.JdbcConfig(Duration.ofSeconds(1), 50, 1000, true));
+    final DiskLogResultStore opened =
+        new DiskLogResultStore(
+            properties, objectMapper, Clock.fixed(now, ZoneOffset.UTC), compactor);
+    openStores.add(opened);
+    return opened;
+  }
+
+  private DiskLogResultStore reopen(final Instant now) {
+    store.close();
+    openStores.remove(store);
+    return openStore(now);
+  }
+
+  private BillAnalysisResponse createResponse(final UUID id, final String fileName) {
+    final BillAnalysisResult analysis =
+        new BillAnalysisResult(
+            "Store",
+            List.of(new LineItem("Item", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.TEN)),
+            BigDecimal.TEN,
+            "PLN",
+            null);
+    return new BillAnalysisResponse(id, fileName, analysis, NOW);
+  }
+
+  private long segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  @Nested
+  class SaveAndRetrieve {
+
+    @Test
+    void shouldSaveAndRetrieveResponse() {
+      final UUID id = UUID.randomUUID();
+
+      store.save(id, createResponse(id, "receipt.jpg"));
+      final Optional<BillAnalysisResponse> result = store.findById(id);
+
+      assertThat(result).contains(createResponse(id, "receipt.jpg"));
+    }
+
+    @Test
+    void shouldReturnEmptyForUnknownId() {
+      assertThat(store.findById(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void shouldReturnLatestVersionAfterOverwrite() {
+      final UUID id = UUID.randomUUID();
+
+      store.save(id, createResponse(id, "first.jpg"));
+      store.save(id, createResponse(id, "second.jpg"));
+
+      assertThat(store.findById(id))
+          .get()
+          .extracting(BillAnalysisResponse::originalFileName)
+          .isEqualTo("second.jpg");
+    }
+
+    @Test
+    void shouldRollOverToNewSegmentWhenFull() {
+      for (int i = 0; i < 20; i++) {
+        final UUID id = UUID.randomUUID();
+        store.save(id, createResponse(id, "receipt-" + i + ".jpg"));
+      }
+
+      assertThat(store.segmentCount()).isGreaterThan(1);
+    }
+
+    @Test
+    void shouldRejectAccessAfterClose() {
+      final UUID id = UUID.randomUUID();
+      store.close();
+
+      assertThatThrownBy(() -> store.save(id, createResponse(id, "late.jpg")))
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessageContaining("closed");
+      assertThatThrownBy(() -> store.findById(id))
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessageContaining("closed");
+      assertThatThrownBy(store::compact)
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessageContaining("closed");
+    }
+  }
+
+  @Nested
+  class Recovery {
+
+    @Test
+    void shouldRebuildIndexFromSegmentsAfterRestart() {
+      final List<UUID> ids = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        final UUID id = UUID.randomUUID();
+        ids.add(id);
+        store.save(id, createResponse(id, "receipt-" + i + ".jpg"));
+      }
+
+      final DiskLogResultStore reopened = reopen(NOW);
+
+      for (int i = 0; i < ids.size(); i++) {
+        assertThat(reopened.findById(ids.get(i)))
+            .get()
+            .extracting(BillAnalysisResponse::originalFileName)
+            .isEqualTo("receipt-" + i + ".jpg");
+      }
+    }
+
+    @Test
+    void shouldKeepLatestVersionAfterRestart() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "first.jpg"));
+      store.save(id, createResponse(id, "second.jpg"));
+
+      final DiskLogResultStore reopened = reopen(NOW);
+
+      assertThat(reopened.findById(id))
+          .get()
+          .extracting(BillAnalysisResponse::originalFileName)
+          .isEqualTo("second.jpg");
+    }
+
+    @Test
+    void shouldDiscardTornRecordAndKeepEarlierOnes() throws IOException {
+      final UUID kept = UUID.randomUUID();
+      final UUID torn = UUID.randomUUID();
+      store.save(kept, createResponse(kept, "kept.jpg"));
+      store.save(torn, createResponse(torn, "torn.jpg"));
+      store.close();
+      corruptLastByteOfLastRecord();
+
+      final DiskLogResultStore reopened = reopen(NOW);
+      final UUID next = UUID.randomUUID();
+      reopened.save(next, createResponse(next, "next.jpg"));
+
+      assertThat(reopened.findById(kept)).isPresent();
+      assertThat(reopened.findById(torn)).isEmpty();
+      assertThat(reopened.findById(next)).isPresent();
+    }
+
+    @Test
+    void shouldDeleteLeftoverFileOfInterruptedCompaction() throws IOException {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "receipt.jpg"));
+      Files.write(directory.resolve("segment-0000000001.log.compacting"), new byte[64]);
+
+      final DiskLogResultStore reopened = reopen(NOW);
+
+      assertThat(segmentFiles()).isEqualTo(1);
+      assertThat(reopened.findById(id)).isPresent();
+    }
+
+    private void corruptLastByteOfLastRecord() throws IOException {
+      final Path segment;
+      try (Stream<Path> files = Files.list(directory)) {
+        segment = files.sorted().reduce((first, second) -> second).orElseThrow();
+      }
+      try (FileChannel channel =
+          FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        int offset = 0;
+        int lastRecordEnd = 0;
+        while (true) {
+          header.clear();
+          channel.read(header, offset);
+          final int payloadLength = header.getInt(0);
+          if (payloadLength <= 0) {
+            break;
+          }
+          offset += DiskLogResultStore.HEADER_BYTES + payloadLength;
+          lastRecordEnd = offset;
+        }
+        channel.write(ByteBuffer.wrap(new byte[] {'#'}), lastRecordEnd - 1);
+      }
+    }
+  }
+
+  @Nested
+  class ExpiryAndCompaction {
+
+    @Test
+    void shouldReturnEmptyOnceTtlHasPassed() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "receipt.jpg"));
+
+      final DiskLogResultStore later = reopen(NOW.plus(TTL).plusSeconds(1));
+
+      assertThat(later.findById(id)).isEmpty();
+    }
+
+    @Test
+    void shouldDropSupersededRecordsOnCompaction() throws IOException {
+      final UUID id = UUID.randomUUID();
+      for (int i = 0; i < 30; i++) {
+        store.save(id, createResponse(id, "version-" + i + ".jpg"));
+      }
+
+      store.compact();
+
+      assertThat(store.segmentCount()).isEqualTo(1);
+      assertThat(segmentFiles()).isEqualTo(1);
+      assertThat(store.findById(id))
+          .get()
+          .extracting(BillAnalysisResponse::originalFileName)
+          .isEqualTo("version-29.jpg");
+    }
+
+    @Test
+    void shouldCopyLiveRecordsForwardOnCompaction() {
+      final List<UUID> ids = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        final UUID id = UUID.randomUUID();
+        ids.add(id);
+        store.save(id, createResponse(id, "receipt.jpg"));
+      }
+
+      store.compact();
+      final DiskLogResultStore reopened = reopen(NOW);
+
+      ids.forEach(id -> assertThat(reopened.findById(id)).isPresent());
+    }
+
+    @Test
+    void shouldCompactInBackgroundWithoutBlockingSaves() {
+      final List<Runnable> compactions = new ArrayList<>();
+      store.close();
+      openStores.remove(store);
+      final DiskLogResultStore background = openStore(NOW, compactions::add);
+      final UUID id = UUID.randomUUID();
+      for (int i = 0; i < 30; i++) {
+        background.save(id, createResponse(id, "version-" + i + ".jpg"));
+      }
+
+      assertThat(compactions).hasSize(1);
+      assertThat(background.segmentCount()).isGreaterThan(1);
+
+      compactions.getFirst().run();
+
+      assertThat(background.segmentCount()).isEqualTo(1);
+      assertThat(background.findById(id))
+          .get()
+          .extracting(BillAnalysisResponse::originalFileName)
+          .isEqualTo("version-29.jpg");
+    }
+
+    @Test
+    void shouldKeepCompactedRecordsInPlaceOfNewestSealedSegment() throws IOException {
+      final List<UUID> ids = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        final UUID id = UUID.randomUUID();
+        ids.add(id);
+        store.save(id, createResponse(id, "receipt-" + i + ".jpg"));
+      }
+      final int before = store.segmentCount();
+
+      store.compact();
+
+      assertThat(store.segmentCount()).isEqualTo(2).isLessThan(before);
+      assertThat(segmentFiles()).isEqualTo(2);
+      for (int i = 0; i < ids.size(); i++) {
+        assertThat(store.findById(ids.get(i)))
+            .get()
+            .extracting(BillAnalysisResponse::originalFileName)
+            .isEqualTo("receipt-" + i + ".jpg");
+      }
+    }
+
+    @Test
+    void shouldDeleteExpiredSegmentsOnNextWrite() throws IOException {
+      for (int i = 0; i < 20; i++) {
+        final UUID id = UUID.randomUUID();
+        store.save(id, createResponse(id, "receipt.jpg"));
+      }
+      assertThat(segmentFiles()).isGreaterThan(1);
+
+      final DiskLogResultStore later = reopen(NOW.plus(TTL).plusSeconds(1));
+      final UUID fresh = UUID.randomUUID();
+      later.save(fresh, createResponse(fresh, "fresh.jpg"));
+
+      assertThat(later.segmentCount()).isEqualTo(1);
+      assertThat(later.findById(fresh)).isPresent();
+    }
+  }
+}
@@ -4,8 +4,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.example.bill_manager.config.UploadProperties;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -23,10 +26,26 @@ class FileValidationServiceImplTest {
   void setUp() {
     final UploadProperties properties =
         new UploadProperties(
-            MAX_FILE_SIZE, List.of("image/jpeg", "image/png", "application/pdf"), 150, 5);
+            MAX_FILE_SIZE,
+            List.of("image/jpeg", "image/png", "application/pdf"),
+            150,
+            5,
+            1,
+            new UploadProperties.AsyncConfig(2, 10),
+            new UploadProperties.BatchConfig(50, 2, 10, 2, 600));
     service = new FileValidationServiceImpl(properties);
   }
 
+  private String validate(final MultipartFile file) {
+    try {
+      final InputStream content =
+          file == null ? InputStream.nullInputStream() : file.getInputStream();
+      return service.validateFile(file, new BufferedInputStream(content));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   @Nested
   class ValidFileValidation {
 
@@ -38,7 +57,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "photo.jpg", "image/jpeg", jpegContent);
 
-      assertThat(service.validateFile(file)).isEqualTo("image/jpeg");
+      assertThat(validate(file)).isEqualTo("image/jpeg");
     }
 
     @Test
@@ -49,7 +68,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "image.png", "image/png", pngContent);
 
-      assertThat(service.validateFile(file)).isEqualTo("image/png");
+      assertThat(validate(file)).isEqualTo("image/png");
     }
 
     @Test
@@ -58,7 +77,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "document.pdf", "application/pdf", pdfContent);
 
-      assertThat(service.validateFile(file)).isEqualTo("application/pdf");
+      assertThat(validate(file)).isEqualTo("application/pdf");
     }
   }
 
@@ -67,7 +86,7 @@ class FileValidationServiceImplTest {
 
     @Test
     void shouldRejectNullFile() {
-      assertThatThrownBy(() -> service.validateFile(null))
+      assertThatThrownBy(() -> validate(null))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.FILE_REQUIRED);
@@ -78,7 +97,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "empty.jpg", "image/jpeg", new byte[0]);
 
-      assertThatThrownBy(() -> service.validateFile(file))
+      assertThatThrownBy(() -> validate(file))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.FILE_REQUIRED);
@@ -97,7 +116,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "large.jpg", "image/jpeg", oversizedContent);
 
-      assertThatThrownBy(() -> service.validateFile(file))
+      assertThatThrownBy(() -> validate(file))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.FILE_TOO_LARGE);
@@ -113,7 +132,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "exact.jpg", "image/jpeg", content);
 
-      assertThat(service.validateFile(file)).isEqualTo("image/jpeg");
+      assertThat(validate(file)).isEqualTo("image/jpeg");
     }
   }
 
@@ -126,7 +145,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "unknown.bin", "application/octet-stream", randomBytes);
 
-      assertThatThrownBy(() -> service.validateFile(file))
+      assertThatThrownBy(() -> validate(file))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE);
@@ -137,7 +156,7 @@ class FileValidationServiceImplTest {
       final MockMultipartFile file =
           new MockMultipartFile("file", "fake.jpg", "image/jpeg", "Hello World".getBytes());
 
-      assertThatThrownBy(() -> service.validateFile(file))
+      assertThatThrownBy(() -> validate(file))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE);
@@ -149,7 +168,7 @@ class FileValidationServiceImplTest {
           new MockMultipartFile(
               "file", "tiny.bin", "application/octet-stream", new byte[] {0x01, 0x02});
 
-      assertThatThrownBy(() -> service.validateFile(file))
+      assertThatThrownBy(() -> validate(file))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.UNSUPPORTED_MEDIA_TYPE);
@@ -157,21 +176,58 @@ class FileValidationServiceImplTest {
 
     @Test
     void shouldThrowFileUnreadableWhenInputStreamFails() {
-      final MultipartFile brokenFile =
-          new MockMultipartFile("file", "test.jpg", "image/jpeg", new byte[] {1, 2, 3}) {
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "test.jpg", "image/jpeg", new byte[] {1, 2, 3});
+      final InputStream brokenStream =
+          new BufferedInputStream(InputStream.nullInputStream()) {
             @Override
-            public InputStream getInputStream() throws IOException {
+            public synchronized int read(final byte[] b, final int off, final int len)
+                throws IOException {
               throw new IOException("Simulated read failure");
             }
           };
 
-      assertThatThrownBy(() -> service.validateFile(brokenFile))
+      assertThatThrownBy(() -> service.validateFile(file, brokenStream))
           .isInstanceOf(FileValidationException.class)
           .extracting(e -> ((FileValidationException) e).getErrorCode())
           .isEqualTo(FileValidationException.ErrorCode.FILE_UNREADABLE);
     }
   }
 
+  @Nested
+  class SingleStreamSniffing {
+
+    @Test
+    void shouldResetStreamToStartAfterDetection() throws IOException {
+      final byte[] pdfContent = {0x25, 0x50, 0x44, 0x46, 0x2D, 0x31, 0x2E, 0x34, 0x0A, 0x25};
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "document.pdf", "application/pdf", pdfContent);
+      final InputStream content = new BufferedInputStream(new ByteArrayInputStream(pdfContent));
+
+      assertThat(service.validateFile(file, content)).isEqualTo("application/pdf");
+      assertThat(content.readAllBytes()).isEqualTo(pdfContent);
+    }
+
+    @Test
+    void shouldDetectMagicBytesDeliveredInSmallChunks() throws IOException {
+      final byte[] pngContent = {
+        (byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A, 0x00, 0x00, 0x00, 0x0D
+      };
+      final MockMultipartFile file =
+          new MockMultipartFile("file", "image.png", "image/png", pngContent);
+      final InputStream trickle =
+          new ByteArrayInputStream(pngContent) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+              return super.read(b, off, Math.min(len, 2));
+            }
+          };
+
+      assertThat(service.validateFile(file, new BufferedInputStream(trickle, 2)))
+          .isEqualTo("image/png");
+    }
+  }
+
   @Nested
   class FilenameSanitization {
 
@@ -3,13 +3,20 @@ package com.example.bill_manager.upload;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.example.bill_manager.ai.BillAnalysisService;
+import com.example.bill_manager.config.PreprocessingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -20,7 +27,7 @@ class ImagePreprocessingServiceImplTest {
 
   @BeforeEach
   void setUp() {
-    service = new ImagePreprocessingServiceImpl();
+    service = PreprocessingFixtures.defaultService();
   }
 
   @Nested
@@ -116,6 +123,605 @@ class ImagePreprocessingServiceImplTest {
     }
   }
 
+  @Nested
+  class DecodedImagePreprocessing {
+
+    @Test
+    void shouldResizeDecodedImageWiderThanMaxWidth() throws IOException {
+      final BufferedImage input = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB);
+
+      final byte[] output = service.preprocessImage(input, "image/jpeg");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getWidth()).isEqualTo(service.maxWidthPx());
+      assertThat(result.getHeight()).isEqualTo(800);
+    }
+
+    @Test
+    void shouldMatchByteBasedPreprocessingForSameImage() throws IOException {
+      final byte[] encoded = createTestJpeg(1600, 1000);
+
+      final byte[] fromBytes = service.preprocess(encoded, "image/jpeg");
+      final byte[] fromImage = service.preprocessImage(readImage(encoded), "image/jpeg");
+
+      assertThat(fromImage).isEqualTo(fromBytes);
+    }
+
+    @Test
+    void shouldThrowExceptionForNullImage() {
+      assertThatThrownBy(() -> service.preprocessImage(null, "image/jpeg"))
+          .isInstanceOf(ImagePreprocessingException.class)
+          .extracting(e -> ((ImagePreprocessingException) e).getErrorCode())
+          .isEqualTo(ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED);
+    }
+  }
+
+  @Nested
+  class SubsampledDecode {
+
+    @Test
+    void shouldResizeLargePhotoToTargetWidth() throws IOException {
+      final byte[] input = createTestJpeg(4032, 3024);
+
+      final byte[] output = service.preprocess(input, "image/jpeg");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getWidth()).isEqualTo(1200);
+      assertThat(result.getHeight()).isEqualTo(900);
+    }
+
+    @Test
+    void shouldResizeOddWidthJustAboveTwiceTheTarget() throws IOException {
+      final byte[] input = createTestJpeg(2401, 1600);
+
+      final byte[] output = service.preprocess(input, "image/jpeg");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getWidth()).isEqualTo(1200);
+      assertThat(result.getHeight()).isEqualTo(800);
+    }
+
+    @Test
+    void shouldKeepSourceAspectRatioWhenSubsampledWidthIsExact() throws IOException {
+      final byte[] input = createTestJpeg(3600, 2401);
+
+      final byte[] output = service.preprocess(input, "image/jpeg");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getWidth()).isEqualTo(1200);
+      assertThat(result.getHeight()).isEqualTo(800);
+    }
+
+    @Test
+    void shouldMatchFullDecodeDimensionsAndColour() throws IOException {
+      final byte[] input = createTestJpeg(3600, 2400);
+      final ImagePreprocessingServiceImpl fullDecode =
+          createService(false, true, new SimpleMeterRegistry());
+
+      final BufferedImage subsampled = readImage(service.preprocess(input, "image/jpeg"));
+      final BufferedImage full = readImage(fullDecode.preprocess(input, "image/jpeg"));
+
+      assertThat(subsampled.getWidth()).isEqualTo(full.getWidth());
+      assertThat(subsampled.getHeight()).isEqualTo(full.getHeight());
+      assertThat(new Color(subsampled.getRGB(600, 400)).getBlue()).isGreaterThan(200);
+      assertThat(new Color(subsampled.getRGB(600, 400)).getRed()).isLessThan(40);
+    }
+
+    @Test
+    void shouldKeepTransparencyWhenSubsamplingPng() throws IOException {
+      final byte[] input = createTestPng(3600, 2400);
+
+      final byte[] output = service.preprocess(input, "image/png");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getWidth()).isEqualTo(1200);
+      assertThat(result.getRGB(600, 400) >>> 24).isEqualTo(128);
+    }
+
+    @Test
+    void shouldFailOnTruncatedJpeg() throws IOException {
+      final byte[] jpeg = createTestJpeg(3000, 2000);
+      final byte[] truncated = Arrays.copyOf(jpeg, 200);
+
+      assertThatThrownBy(() -> service.preprocess(truncated, "image/jpeg"))
+          .isInstanceOf(ImagePreprocessingException.class)
+          .extracting(e -> ((ImagePreprocessingException) e).getErrorCode())
+          .isEqualTo(ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED);
+    }
+  }
+
+  @Nested
+  class Passthrough {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImagePreprocessingServiceImpl passthroughService =
+        createService(true, true, meterRegistry);
+
+    @Test
+    void shouldForwardSmallRgbJpegUnchanged() throws IOException {
+      final byte[] input = createTestJpeg(800, 600);
+
+      final byte[] output = passthroughService.preprocess(input, "image/jpeg");
+
+      assertThat(output).isEqualTo(input);
+      assertThat(count("passthrough")).isEqualTo(1.0);
+      assertThat(count("transcode")).isZero();
+    }
+
+    @Test
+    void shouldForwardStreamedJpegUnchanged() throws IOException {
+      final byte[] input = createTestJpeg(1200, 900);
+
+      final byte[] output =
+          passthroughService.preprocess(new ByteArrayInputStream(input), "image/jpeg");
+
+      assertThat(output).isEqualTo(input);
+    }
+
+    @Test
+    void shouldStripExifSegmentWithoutReencoding() throws IOException {
+      final byte[] exifSegment = buildMinimalExifSegment();
+      // Well-formed length: the segment size without its two marker bytes.
+      exifSegment[3] = (byte) (exifSegment.length - 2);
+      final byte[] input = insertAfterSoi(createTestJpeg(800, 600), exifSegment);
+
+      final byte[] output = passthroughService.preprocess(input, "image/jpeg");
+
+      assertThat(output).isEqualTo(createTestJpeg(800, 600));
+      assertThat(count("passthrough")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldTranscodeWhenSegmentLengthsAreInconsistent() throws IOException {
+      // The synthetic EXIF segment declares two bytes more than it holds.
+      final byte[] input = createJpegWithExifMarker(800, 600);
+
+      final byte[] output = passthroughService.preprocess(input, "image/jpeg");
+
+      assertThat(containsExifApp1Marker(output)).isFalse();
+      assertThat(count("transcode")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldTranscodeJpegWiderThanTarget() throws IOException {
+      final byte[] input = createTestJpeg(1600, 1200);
+
+      passthroughService.preprocess(input, "image/jpeg");
+
+      assertThat(count("passthrough")).isZero();
+      assertThat(count("transcode")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldTranscodeGrayscaleJpegToRgb() throws IOException {
+      final BufferedImage gray = new BufferedImage(400, 300, BufferedImage.TYPE_BYTE_GRAY);
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      ImageIO.write(gray, "jpg", baos);
+
+      final byte[] output = passthroughService.preprocess(baos.toByteArray(), "image/jpeg");
+
+      assertThat(readImage(output).getColorModel().getNumComponents()).isEqualTo(3);
+      assertThat(count("transcode")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldNotPassThroughPng() throws IOException {
+      passthroughService.preprocess(createTestPng(100, 100), "image/png");
+
+      assertThat(count("passthrough")).isZero();
+      assertThat(count("transcode")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldTranscodeWhenPassthroughIsDisabled() throws IOException {
+      final byte[] input = createTestJpeg(800, 600);
+      final SimpleMeterRegistry disabledRegistry = new SimpleMeterRegistry();
+
+      final byte[] output =
+          createService(true, false, disabledRegistry).preprocess(input, "image/jpeg");
+
+      assertThat(output).isNotEqualTo(input);
+      assertThat(
+              disabledRegistry
+                  .get(ImagePreprocessingServiceImpl.IMAGES_METRIC)
+                  .tag("path", "transcode")
+                  .counter()
+                  .count())
+          .isEqualTo(1.0);
+    }
+
+    private double count(final String path) {
+      return meterRegistry
+          .get(ImagePreprocessingServiceImpl.IMAGES_METRIC)
+          .tag("path", path)
+          .counter()
+          .count();
+    }
+  }
+
+  @Nested
+  class ByteBudget {
+
+    private final BufferedImage page = createNoisyImage(1200, 1600);
+    private final int unconstrainedSize =
+        ImageWriteUtils.writeJpeg(page, ImagePreprocessingServiceImpl.JPEG_QUALITY).length;
+
+    @Test
+    void shouldLowerQualityToFitImageBudget() throws IOException {
+      final int maxBytes = unconstrainedSize * 2 / 3;
+      final ImagePreprocessingServiceImpl budgetService =
+          createService(true, true, budget(true, maxBytes), new SimpleMeterRegistry());
+
+      final byte[] output = budgetService.preprocessImage(page, "image/jpeg");
+
+      assertThat(output.length).isLessThanOrEqualTo(maxBytes);
+      assertThat(readImage(output).getWidth()).isEqualTo(1200);
+    }
+
+    @Test
+    void shouldHonourTighterBudgetPassedByCaller() {
+      final int maxBytes = unconstrainedSize / 2;
+
+      final byte[] output = service.preprocessImage(page, "image/jpeg", maxBytes);
+
+      assertThat(output.length).isLessThanOrEqualTo(maxBytes);
+    }
+
+    @Test
+    void shouldReEncodeJpegToFitTighterBudget() throws IOException {
+      final byte[] jpeg = service.preprocessImage(page, "image/jpeg");
+      final int maxBytes = jpeg.length / 2;
+
+      final byte[] output = service.reencodeJpeg(jpeg, maxBytes);
+
+      assertThat(output.length).isLessThanOrEqualTo(maxBytes);
+      assertThat(readImage(output).getWidth()).isEqualTo(1200);
+      assertThat(service.reencodeJpeg(output, maxBytes)).isSameAs(output);
+    }
+
+    @Test
+    void shouldKeepFixedQualityWhenBudgetIsDisabled() {
+      final ImagePreprocessingServiceImpl fixedService =
+          createService(true, true, budget(false, 65536), new SimpleMeterRegistry());
+
+      final byte[] output = fixedService.preprocessImage(page, "image/jpeg", 65536);
+
+      assertThat(output).hasSize(unconstrainedSize);
+      assertThat(fixedService.imageBudgetBytes())
+          .isEqualTo(BillAnalysisService.MAX_IMAGE_SIZE_BYTES);
+    }
+
+    @Test
+    void shouldCapImageBudgetByRequestBudget() {
+      final ImagePreprocessingServiceImpl budgetService =
+          createService(true, true, budget(true, 5 * 1024 * 1024), new SimpleMeterRegistry());
+
+      assertThat(budgetService.imageBudgetBytes()).isEqualTo(4 * 1024 * 1024);
+    }
+
+    @Test
+    void shouldTranscodeJpegLargerThanBudgetInsteadOfPassingThrough() throws IOException {
+      final byte[] input = ImageWriteUtils.writeJpeg(createNoisyImage(800, 600), 0.95f);
+      final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+      final ImagePreprocessingServiceImpl budgetService =
+          createService(true, true, budget(true, input.length - 1), meterRegistry);
+
+      final byte[] output = budgetService.preprocess(input, "image/jpeg");
+
+      assertThat(output.length).isLessThan(input.length);
+      assertThat(
+              meterRegistry
+                  .get(ImagePreprocessingServiceImpl.IMAGES_METRIC)
+                  .tag("path", "transcode")
+                  .counter()
+                  .count())
+          .isEqualTo(1.0);
+    }
+  }
+
+  @Nested
+  class ColorModes {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldEncodeSingleChannelJpegInGrayscaleMode() throws IOException {
+      final byte[] input = createTestJpeg(2400, 1600);
+
+      final byte[] output =
+          createService(PreprocessingProperties.ColorMode.GRAYSCALE, true, meterRegistry)
+              .preprocess(input, "image/jpeg");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getWidth()).isEqualTo(1200);
+      assertThat(result.getColorModel().getNumComponents()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShrinkReceiptPayloadInGrayscaleAndBinarizedModes() {
+      final BufferedImage receipt = createReceiptImage(1200, 1600);
+
+      final int color = service.preprocessImage(receipt, "image/jpeg").length;
+      final int grayscale =
+          createService(PreprocessingProperties.ColorMode.GRAYSCALE, false, meterRegistry)
+              .preprocessImage(receipt, "image/jpeg")
+              .length;
+      final int binarized =
+          createService(PreprocessingProperties.ColorMode.BINARIZED, false, meterRegistry)
+              .preprocessImage(receipt, "image/jpeg")
+              .length;
+
+      assertThat(grayscale).isLessThan(color);
+      assertThat(binarized).isLessThan(grayscale);
+    }
+
+    @Test
+    void shouldFlattenTransparentPngOntoWhite() throws IOException {
+      final BufferedImage transparent = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+
+      final byte[] output =
+          createService(PreprocessingProperties.ColorMode.GRAYSCALE, false, meterRegistry)
+              .preprocessImage(transparent, "image/png");
+
+      final BufferedImage result = readImage(output);
+      assertThat(result.getColorModel().hasAlpha()).isFalse();
+      assertThat(result.getRaster().getSample(25, 25, 0)).isEqualTo(255);
+    }
+
+    @Test
+    void shouldPassThroughJpegThatIsAlreadyGrayscale() throws IOException {
+      final BufferedImage gray = new BufferedImage(400, 300, BufferedImage.TYPE_BYTE_GRAY);
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      ImageIO.write(gray, "jpg", baos);
+      final byte[] input = baos.toByteArray();
+
+      final byte[] output =
+          createService(PreprocessingProperties.ColorMode.GRAYSCALE, false, meterRegistry)
+              .preprocess(input, "image/jpeg");
+
+      assertThat(output).isEqualTo(input);
+    }
+
+    @Test
+    void shouldTranscodeRgbJpegInGrayscaleMode() throws IOException {
+      final byte[] input = createTestJpeg(800, 600);
+
+      final byte[] output =
+          createService(PreprocessingProperties.ColorMode.GRAYSCALE, false, meterRegistry)
+              .preprocess(input, "image/jpeg");
+
+      assertThat(readImage(output).getColorModel().getNumComponents()).isEqualTo(1);
+      assertThat(
+              meterRegistry
+                  .get(ImagePreprocessingServiceImpl.IMAGES_METRIC)
+                  .tag("path", "transcode")
+                  .counter()
+                  .count())
+          .isEqualTo(1.0);
+    }
+  }
+
+  @Nested
+  class CropAndDeskew {
+
+    /** A 1000x2000 receipt on a dark table in a 4000x3000 photo. */
+    private BufferedImage photo() {
+      final BufferedImage photo = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+      final Graphics2D g = photo.createGraphics();
+      try {
+        g.setColor(new Color(70, 60, 50));
+        g.fillRect(0, 0, 4000, 3000);
+        g.setColor(new Color(245, 245, 240));
+        g.fillRect(1500, 500, 1000, 2000);
+        g.setColor(Color.BLACK);
+        for (int y = 560; y < 2460; y += 60) {
+          g.fillRect(1540, y, 920, 20);
+        }
+      } finally {
+        g.dispose();
+      }
+      return photo;
+    }
+
+    @Test
+    void shouldDecodeOnlyTheReceiptRegionOfALargePhoto() throws IOException {
+      final byte[] input = ImageWriteUtils.writeJpeg(photo(), 0.9f);
+
+      final BufferedImage uncropped =
+          readImage(createCroppingService(false, false).preprocess(input, "image/jpeg"));
+      final BufferedImage cropped =
+          readImage(createCroppingService(true, false).preprocess(input, "image/jpeg"));
+
+      assertThat(uncropped.getWidth()).isEqualTo(1200);
+      // The ~1000px wide receipt is decoded at full detail instead of as 300px of a 1200px photo.
+      assertThat(cropped.getWidth()).isBetween(920, 1000);
+      assertThat((double) cropped.getHeight() / cropped.getWidth()).isBetween(1.9, 2.2);
+    }
+
+    @Test
+    void shouldCropRenderedPageToItsPrintedArea() {
+      final BufferedImage page = new BufferedImage(1200, 1700, BufferedImage.TYPE_INT_RGB);
+      final Graphics2D g = page.createGraphics();
+      try {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 1200, 1700);
+        g.setColor(Color.BLACK);
+        g.fillRect(300, 200, 600, 400);
+      } finally {
+        g.dispose();
+      }
+      final ImagePreprocessingServiceImpl croppingService = createCroppingService(true, false);
+
+      final byte[] cropped = croppingService.preprocessImage(page, "image/jpeg");
+
+      assertThat(cropped.length).isLessThan(service.preprocessImage(page, "image/jpeg").length);
+    }
+
+    @Test
+    void shouldNotCropImageWithoutBackground() throws IOException {
+      final byte[] input = createTestJpeg(1600, 1200);
+
+      final BufferedImage result =
+          readImage(createCroppingService(true, true).preprocess(input, "image/jpeg"));
+
+      assertThat(result.getWidth()).isEqualTo(1200);
+      assertThat(result.getHeight()).isEqualTo(900);
+    }
+
+    @Test
+    void shouldStraightenRotatedText() throws IOException {
+      final BufferedImage page = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+      final Graphics2D g = page.createGraphics();
+      try {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 1000, 1000);
+        g.setColor(Color.BLACK);
+        g.rotate(Math.toRadians(3), 500, 500);
+        for (int y = 150; y < 850; y += 50) {
+          g.fillRect(150, y, 700, 12);
+        }
+      } finally {
+        g.dispose();
+      }
+
+      final BufferedImage result =
+          readImage(createCroppingService(false, true).preprocessImage(page, "image/png"));
+
+      // After straightening a text line is dark along its whole length at one height.
+      final int y = darkestRow(result);
+      assertThat(result.getRGB(200, y) & 0xFF).isLessThan(100);
+      assertThat(result.getRGB(800, y) & 0xFF).isLessThan(100);
+    }
+
+    private int darkestRow(final BufferedImage image) {
+      int darkest = 0;
+      long darkestSum = Long.MAX_VALUE;
+      for (int y = 0; y < image.getHeight(); y++) {
+        long sum = 0;
+        for (int x = 0; x < image.getWidth(); x++) {
+          sum += image.getRGB(x, y) & 0xFF;
+        }
+        if (sum < darkestSum) {
+          darkestSum = sum;
+          darkest = y;
+        }
+      }
+      return darkest;
+    }
+  }
+
+  @Nested
+  class Tiling {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImagePreprocessingServiceImpl tilingService =
+        createTilingService(3, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+      tilingService.shutdown();
+    }
+
+    @Test
+    void shouldSplitTallImageIntoOverlappingTiles() throws IOException {
+      final byte[] input = ImageWriteUtils.writePng(createReceiptImage(1200, 4000));
+
+      final List<byte[]> tiles =
+          tilingService.preprocessTiled(new ByteArrayInputStream(input), "image/png");
+
+      assertThat(tiles).hasSize(3);
+      int rows = 0;
+      for (final byte[] tile : tiles) {
+        final BufferedImage image = readImage(tile);
+        assertThat(image.getWidth()).isEqualTo(1200);
+        assertThat(image.getHeight()).isLessThanOrEqualTo(1600);
+        rows += image.getHeight();
+      }
+      assertThat(rows - 2 * 120).isEqualTo(4000);
+    }
+
+    @Test
+    void shouldMatchRowsOfUntiledImage() throws IOException {
+      final byte[] input = ImageWriteUtils.writePng(createReceiptImage(1200, 2000));
+      final BufferedImage whole =
+          readImage(service.preprocess(new ByteArrayInputStream(input), "image/png"));
+
+      final List<byte[]> tiles =
+          tilingService.preprocessTiled(new ByteArrayInputStream(input), "image/png");
+
+      final BufferedImage bottom = readImage(tiles.get(1));
+      final int offset = whole.getHeight() - bottom.getHeight();
+      for (int y = 0; y < bottom.getHeight(); y += 97) {
+        assertThat(bottom.getRGB(600, y)).isEqualTo(whole.getRGB(600, offset + y));
+      }
+    }
+
+    @Test
+    void shouldCapTilesAtMaxImagesPerRequest() {
+      final byte[] input = ImageWriteUtils.writePng(createReceiptImage(600, 9000));
+
+      final List<byte[]> tiles =
+          tilingService.preprocessTiled(new ByteArrayInputStream(input), "image/png");
+
+      assertThat(tiles).hasSize(BillAnalysisService.MAX_IMAGES_PER_REQUEST);
+    }
+
+    @Test
+    void shouldEncodeSameTilesOnOneOrSeveralThreads() {
+      final byte[] input = ImageWriteUtils.writeJpeg(createReceiptImage(1200, 5000), 0.9f);
+      final ImagePreprocessingServiceImpl singleThreaded =
+          createTilingService(1, new SimpleMeterRegistry());
+
+      final List<byte[]> parallel =
+          tilingService.preprocessTiled(new ByteArrayInputStream(input), "image/jpeg");
+      final List<byte[]> sequential =
+          singleThreaded.preprocessTiled(new ByteArrayInputStream(input), "image/jpeg");
+
+      assertThat(parallel).hasSize(4);
+      for (int i = 0; i < parallel.size(); i++) {
+        assertThat(parallel.get(i)).isEqualTo(sequential.get(i));
+      }
+    }
+
+    @Test
+    void shouldKeepShortImageWhole() throws IOException {
+      final byte[] input = createTestJpeg(2400, 1600);
+
+      final List<byte[]> tiles =
+          tilingService.preprocessTiled(new ByteArrayInputStream(input), "image/jpeg");
+
+      assertThat(tiles).hasSize(1);
+      assertThat(readImage(tiles.get(0)).getHeight()).isEqualTo(800);
+    }
+
+    @Test
+    void shouldTranscodeTallJpegInsteadOfPassingThrough() {
+      final byte[] input = ImageWriteUtils.writeJpeg(createReceiptImage(800, 2400), 0.9f);
+
+      final List<byte[]> tiles =
+          tilingService.preprocessTiled(new ByteArrayInputStream(input), "image/jpeg");
+
+      assertThat(tiles).hasSize(2);
+      assertThat(
+              meterRegistry
+                  .get(ImagePreprocessingServiceImpl.IMAGES_METRIC)
+                  .tag("path", "passthrough")
+                  .counter()
+                  .count())
+          .isZero();
+    }
+
+    @Test
+    void shouldReturnSingleImageWhenTilingIsDisabled() {
+      final byte[] input = ImageWriteUtils.writePng(createReceiptImage(1200, 4000));
+
+      final List<byte[]> tiles =
+          service.preprocessTiled(new ByteArrayInputStream(input), "image/png");
+
+      assertThat(tiles).hasSize(1);
+    }
+  }
+
   @Nested
   class EdgeCases {
 
@@ -157,7 +763,7 @@ class ImagePreprocessingServiceImplTest {
 
     @Test
     void shouldThrowExceptionForNullContent() {
-      assertThatThrownBy(() -> service.preprocess(null, "image/jpeg"))
+      assertThatThrownBy(() -> service.preprocess((byte[]) null, "image/jpeg"))
           .isInstanceOf(ImagePreprocessingException.class)
           .extracting(e -> ((ImagePreprocessingException) e).getErrorCode())
           .isEqualTo(ImagePreprocessingException.ErrorCode.IMAGE_READ_FAILED);
@@ -174,6 +780,133 @@ class ImagePreprocessingServiceImplTest {
     }
   }
 
+  private static ImagePreprocessingServiceImpl createService(
+      final boolean subsampledDecode,
+      final boolean jpegPassthrough,
+      final SimpleMeterRegistry meterRegistry) {
+    return createService(
+        subsampledDecode, jpegPassthrough, budget(true, 2 * 1024 * 1024), meterRegistry);
+  }
+
+  private static ImagePreprocessingServiceImpl createService(
+      final boolean subsampledDecode,
+      final boolean jpegPassthrough,
+      final PreprocessingProperties.JpegBudget jpegBudget,
+      final SimpleMeterRegistry meterRegistry) {
+    return createService(
+        PreprocessingProperties.ColorMode.COLOR,
+        false,
+        subsampledDecode,
+        jpegPassthrough,
+        jpegBudget,
+        meterRegistry);
+  }
+
+  private static ImagePreprocessingServiceImpl createService(
+      final PreprocessingProperties.ColorMode colorMode,
+      final boolean contrastStretch,
+      final SimpleMeterRegistry meterRegistry) {
+    return createService(
+        colorMode, contrastStretch, true, true, budget(true, 2 * 1024 * 1024), meterRegistry);
+  }
+
+  private static ImagePreprocessingServiceImpl createService(
+      final PreprocessingProperties.ColorMode colorMode,
+      final boolean contrastStretch,
+      final boolean subsampledDecode,
+      final boolean jpegPassthrough,
+      final PreprocessingProperties.JpegBudget jpegBudget,
+      final SimpleMeterRegistry meterRegistry) {
+    return new ImagePreprocessingServiceImpl(
+        new PreprocessingProperties(
+            PreprocessingProperties.ResizeMode.JAVA2D,
+            1,
+            subsampledDecode,
+            jpegPassthrough,
+            colorMode,
+            contrastStretch,
+            false,
+            false,
+            jpegBudget,
+            PreprocessingFixtures.NO_TILING),
+        meterRegistry);
+  }
+
+  private static ImagePreprocessingServiceImpl createCroppingService(
+      final boolean autoCrop, final boolean deskew) {
+    return new ImagePreprocessingServiceImpl(
+        new PreprocessingProperties(
+            PreprocessingProperties.ResizeMode.JAVA2D,
+            1,
+            true,
+            true,
+            PreprocessingProperties.ColorMode.COLOR,
+            false,
+            autoCrop,
+            deskew,
+            budget(true, 2 * 1024 * 1024),
+            PreprocessingFixtures.NO_TILING),
+        new SimpleMeterRegistry());
+  }
+
+  private static ImagePreprocessingServiceImpl createTilingService(
+      final int encodeThreads, final SimpleMeterRegistry meterRegistry) {
+    return new ImagePreprocessingServiceImpl(
+        new PreprocessingProperties(
+            PreprocessingProperties.ResizeMode.JAVA2D,
+            1,
+            true,
+            true,
+            PreprocessingProperties.ColorMode.COLOR,
+            false,
+            false,
+            false,
+            budget(true, 2 * 1024 * 1024),
+            new PreprocessingProperties.Tiling(true, 1600, 120, encodeThreads)),
+        meterRegistry);
+  }
+
+  private static PreprocessingProperties.JpegBudget budget(
+      final boolean enabled, final int maxImageBytes) {
+    return new PreprocessingProperties.JpegBudget(enabled, maxImageBytes, 4 * 1024 * 1024, 0.5f, 4);
+  }
+
+  /** Smooth gradients with fine noise: compresses like a photo, so quality matters for size. */
+  private static BufferedImage createNoisyImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Random random = new Random(42);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int base = 96 + (x * 64 / width) + (y * 64 / height);
+        final int noise = random.nextInt(48);
+        image.setRGB(x, y, (base + noise) << 16 | (base + noise / 2) << 8 | base);
+      }
+    }
+    return image;
+  }
+
+  /** Dark text lines on slightly noisy off-white paper. */
+  private static BufferedImage createReceiptImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Random random = new Random(7);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int shade = 225 + random.nextInt(20);
+        image.setRGB(x, y, shade << 16 | shade << 8 | (shade - 10));
+      }
+    }
+    final Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(new Color(40, 40, 40));
+      for (int y = 30; y < height; y += 30) {
+        g.drawString("ITEM " + y + "   x2   12.99", 40, y);
+      }
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
   private byte[] createTestJpeg(final int width, final int height) throws IOException {
     final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     final Graphics2D g = image.createGraphics();
@@ -217,6 +950,14 @@ class ImagePreprocessingServiceImplTest {
     return combined;
   }
 
+  private static byte[] insertAfterSoi(final byte[] jpeg, final byte[] segment) {
+    final byte[] combined = new byte[jpeg.length + segment.length];
+    System.arraycopy(jpeg, 0, combined, 0, 2);
+    System.arraycopy(segment, 0, combined, 2, segment.length);
+    System.arraycopy(jpeg, 2, combined, 2 + segment.length, jpeg.length - 2);
+    return combined;
+  }
+
   private byte[] buildMinimalExifSegment() {
     final byte[] exifHeader = {
       (byte) 0xFF,
@@ -0,0 +1,213 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.bill_manager.config.PreprocessingProperties.ResizeMode;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class ImageResizerTest {
+
+  private ImageResizer resizer;
+
+  @AfterEach
+  void tearDown() {
+    if (resizer != null) {
+      resizer.shutdown();
+    }
+  }
+
+  @Nested
+  class QualityParity {
+
+    @ParameterizedTest
+    @EnumSource(ResizeMode.class)
+    void shouldStayCloseToCurrentJava2dOutput(final ResizeMode mode) {
+      final BufferedImage source = createReceiptImage(2400, 1800, BufferedImage.TYPE_3BYTE_BGR);
+      final BufferedImage reference =
+          new ImageResizer(ResizeMode.JAVA2D, 1)
+              .resize(source, 1200, 900, BufferedImage.TYPE_INT_RGB);
+
+      resizer = new ImageResizer(mode, 1);
+      final BufferedImage resized = resizer.resize(source, 1200, 900, BufferedImage.TYPE_INT_RGB);
+
+      assertThat(resized.getWidth()).isEqualTo(1200);
+      assertThat(resized.getHeight()).isEqualTo(900);
+      assertThat(meanAbsoluteDifference(resized, reference)).isLessThan(4.0);
+    }
+
+    @Test
+    void shouldBeCloserToAreaAverageThanJava2dOnLargeReductions() {
+      final BufferedImage source = createReceiptImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+      final BufferedImage areaAverage = areaAverage(source, 1200, 900);
+      final BufferedImage java2d =
+          new ImageResizer(ResizeMode.JAVA2D, 1)
+              .resize(source, 1200, 900, BufferedImage.TYPE_INT_RGB);
+
+      resizer = new ImageResizer(ResizeMode.SEPARABLE, 1);
+      final BufferedImage separable = resizer.resize(source, 1200, 900, BufferedImage.TYPE_INT_RGB);
+
+      assertThat(meanAbsoluteDifference(separable, areaAverage))
+          .isLessThan(meanAbsoluteDifference(java2d, areaAverage));
+    }
+  }
+
+  @Nested
+  class SeparableFilter {
+
+    @Test
+    void shouldKeepFlatColourExact() {
+      final BufferedImage source = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+      fill(source, new Color(12, 200, 99));
+      resizer = new ImageResizer(ResizeMode.SEPARABLE, 1);
+
+      final BufferedImage resized = resizer.resize(source, 1200, 800, BufferedImage.TYPE_INT_RGB);
+
+      for (int y = 0; y < resized.getHeight(); y += 7) {
+        for (int x = 0; x < resized.getWidth(); x += 7) {
+          assertThat(resized.getRGB(x, y) & 0xFFFFFF).isEqualTo(0x0CC863);
+        }
+      }
+    }
+
+    @Test
+    void shouldReadByteAndIntRastersIdentically() {
+      final BufferedImage intImage = createReceiptImage(2000, 1500, BufferedImage.TYPE_INT_RGB);
+      final BufferedImage byteImage = convert(intImage, BufferedImage.TYPE_3BYTE_BGR);
+      resizer = new ImageResizer(ResizeMode.SEPARABLE, 1);
+
+      final BufferedImage fromInt = resizer.resize(intImage, 1200, 900, BufferedImage.TYPE_INT_RGB);
+      final BufferedImage fromByte =
+          resizer.resize(byteImage, 1200, 900, BufferedImage.TYPE_INT_RGB);
+
+      assertThat(meanAbsoluteDifference(fromInt, fromByte)).isZero();
+    }
+
+    @Test
+    void shouldFilterAlphaWithoutDarkeningTransparentEdges() {
+      final BufferedImage source = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_ARGB);
+      final Graphics2D graphics = source.createGraphics();
+      try {
+        graphics.setColor(new Color(255, 0, 0, 128));
+        graphics.fillRect(0, 0, 1301, 1600);
+      } finally {
+        graphics.dispose();
+      }
+      resizer = new ImageResizer(ResizeMode.SEPARABLE, 1);
+
+      final BufferedImage resized = resizer.resize(source, 1200, 800, BufferedImage.TYPE_INT_ARGB);
+
+      assertThat(resized.getRGB(100, 100)).isEqualTo(0x80FF0000);
+      assertThat(resized.getRGB(1000, 100) >>> 24).isZero();
+      final int edge = resized.getRGB(650, 100);
+      assertThat(edge >>> 24).isBetween(1, 127);
+      assertThat((edge >> 16) & 0xFF).isEqualTo(255);
+    }
+
+    @Test
+    void shouldUpscaleNarrowDimension() {
+      final BufferedImage source = createReceiptImage(1300, 40, BufferedImage.TYPE_INT_RGB);
+      resizer = new ImageResizer(ResizeMode.SEPARABLE, 1);
+
+      final BufferedImage resized = resizer.resize(source, 1200, 37, BufferedImage.TYPE_INT_RGB);
+
+      assertThat(resized.getWidth()).isEqualTo(1200);
+      assertThat(resized.getHeight()).isEqualTo(37);
+    }
+  }
+
+  @Nested
+  class BandParallelism {
+
+    @Test
+    void shouldProduceIdenticalOutputWithMultipleThreads() {
+      final BufferedImage source = createReceiptImage(3000, 4000, BufferedImage.TYPE_3BYTE_BGR);
+      final BufferedImage sequential =
+          new ImageResizer(ResizeMode.SEPARABLE, 1)
+              .resize(source, 1200, 1600, BufferedImage.TYPE_INT_RGB);
+
+      resizer = new ImageResizer(ResizeMode.SEPARABLE, 4);
+      final BufferedImage parallel = resizer.resize(source, 1200, 1600, BufferedImage.TYPE_INT_RGB);
+
+      assertThat(meanAbsoluteDifference(parallel, sequential)).isZero();
+    }
+  }
+
+  private static BufferedImage createReceiptImage(
+      final int width, final int height, final int imageType) {
+    final BufferedImage image = new BufferedImage(width, height, imageType);
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      for (int x = 0; x < width; x += 8) {
+        graphics.setColor(new Color(200 + x % 56, 220, 190 + x * 60 / width));
+        graphics.fillRect(x, 0, 8, height);
+      }
+      graphics.setColor(Color.BLACK);
+      graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 48));
+      for (int y = 80; y < height; y += 90) {
+        graphics.drawString("Item " + y + "  12.99 PLN", 60, y);
+      }
+      graphics.fillRect(width / 2, height / 2, 3, height / 3);
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  private static void fill(final BufferedImage image, final Color color) {
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(color);
+      graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+    } finally {
+      graphics.dispose();
+    }
+  }
+
+  private static BufferedImage convert(final BufferedImage image, final int imageType) {
+    final BufferedImage converted =
+        new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+    final Graphics2D graphics = converted.createGraphics();
+    try {
+      graphics.drawImage(image, 0, 0, null);
+    } finally {
+      graphics.dispose();
+    }
+    return converted;
+  }
+
+  private static BufferedImage areaAverage(
+      final BufferedImage image, final int width, final int height) {
+    final BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D graphics = scaled.createGraphics();
+    try {
+      graphics.drawImage(
+          image.getScaledInstance(width, height, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+    } finally {
+      graphics.dispose();
+    }
+    return scaled;
+  }
+
+  private static double meanAbsoluteDifference(final BufferedImage a, final BufferedImage b) {
+    long sum = 0;
+    for (int y = 0; y < a.getHeight(); y++) {
+      for (int x = 0; x < a.getWidth(); x++) {
+        final int p = a.getRGB(x, y);
+        final int q = b.getRGB(x, y);
+        for (int shift = 0; shift < 24; shift += 8) {
+          sum += Math.abs(((p >> shift) & 0xFF) - ((q >> shift) & 0xFF));
+        }
+      }
+    }
+    return sum / (3.0 * a.getWidth() * a.getHeight());
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.Rectangle;
+import java.util.List;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ImageTilesTest {
+
+  @Nested
+  class Layout {
+
+    @Test
+    void shouldKeepImageNoTallerThanTileWhole() {
+      assertThat(ImageTiles.layout(1200, 1600, 1600, 100, 5))
+          .containsExactly(new Rectangle(0, 0, 1200, 1600));
+    }
+
+    @Test
+    void shouldSpreadTilesEvenlyWithOverlap() {
+      final List<Rectangle> tiles = ImageTiles.layout(1200, 3000, 1600, 100, 5);
+
+      assertThat(tiles)
+          .containsExactly(new Rectangle(0, 0, 1200, 1550), new Rectangle(0, 1450, 1200, 1550));
+    }
+
+    @Test
+    void shouldCoverEveryRowWithinTileHeight() {
+      for (int height = 1601; height < 9000; height += 337) {
+        final List<Rectangle> tiles = ImageTiles.layout(1200, height, 1600, 120, 5);
+
+        assertThat(tiles.get(0).y).isZero();
+        assertThat(tiles.get(tiles.size() - 1).getMaxY()).isEqualTo(height);
+        for (int i = 1; i < tiles.size(); i++) {
+          assertThat(tiles.get(i - 1).getMaxY() - tiles.get(i).y).isGreaterThanOrEqualTo(120);
+          if (tiles.size() < 5) {
+            assertThat(tiles.get(i).height).isLessThanOrEqualTo(1600);
+          }
+        }
+      }
+    }
+
+    @Test
+    void shouldGrowTilesInsteadOfExceedingMaxTiles() {
+      final List<Rectangle> tiles = ImageTiles.layout(1200, 12000, 1600, 100, 5);
+
+      assertThat(tiles).hasSize(5);
+      assertThat(tiles.get(0).height).isEqualTo(2480);
+      assertThat(tiles.get(4).getMaxY()).isEqualTo(12000);
+    }
+
+    @Test
+    void shouldRejectOverlapNotSmallerThanTile() {
+      assertThatThrownBy(() -> ImageTiles.layout(1200, 5000, 800, 800, 5))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ImageWriteUtilsTest {
+
+  @Nested
+  class PngEncoding {
+
+    @Test
+    void shouldEncodeLosslesslyLikeImageIo() throws IOException {
+      final BufferedImage image = createTestImage(300, 200);
+
+      final byte[] pooled = ImageWriteUtils.writePng(image);
+
+      final BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(pooled));
+      assertThat(decoded.getWidth()).isEqualTo(300);
+      assertThat(decoded.getRGB(10, 10)).isEqualTo(image.getRGB(10, 10));
+      assertThat(decoded.getRGB(150, 100)).isEqualTo(image.getRGB(150, 100));
+      assertThat(pooled).isEqualTo(writeWithImageIo(image, "png"));
+    }
+
+    @Test
+    void shouldProduceIdenticalOutputWhenEncoderIsReused() {
+      final BufferedImage large = createTestImage(800, 600);
+      final BufferedImage small = createTestImage(40, 30);
+
+      final byte[] first = ImageWriteUtils.writePng(small);
+      ImageWriteUtils.writePng(large);
+      final byte[] second = ImageWriteUtils.writePng(small);
+
+      assertThat(second).isEqualTo(first);
+    }
+  }
+
+  @Nested
+  class JpegEncoding {
+
+    @Test
+    void shouldEncodeDecodableJpeg() throws IOException {
+      final BufferedImage image = createTestImage(320, 240);
+
+      final byte[] jpeg = ImageWriteUtils.writeJpeg(image, 0.9f);
+
+      assertThat(jpeg).startsWith((byte) 0xFF, (byte) 0xD8, (byte) 0xFF);
+      final BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(jpeg));
+      assertThat(decoded.getWidth()).isEqualTo(320);
+      assertThat(decoded.getHeight()).isEqualTo(240);
+    }
+
+    @Test
+    void shouldApplyQualityPerCallOnReusedEncoder() {
+      final BufferedImage image = createTestImage(320, 240);
+
+      final byte[] high = ImageWriteUtils.writeJpeg(image, 0.95f);
+      final byte[] low = ImageWriteUtils.writeJpeg(image, 0.3f);
+      final byte[] highAgain = ImageWriteUtils.writeJpeg(image, 0.95f);
+
+      assertThat(low.length).isLessThan(high.length);
+      assertThat(highAgain).isEqualTo(high);
+    }
+
+    @Test
+    void shouldEncodeConcurrentlyWithoutCorruption() throws Exception {
+      final BufferedImage image = createTestImage(400, 300);
+      final byte[] expected = ImageWriteUtils.writeJpeg(image, 0.9f);
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        final List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+          results.add(executor.submit(() -> ImageWriteUtils.writeJpeg(image, 0.9f)));
+        }
+        for (final Future<byte[]> result : results) {
+          assertThat(result.get()).isEqualTo(expected);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  @Nested
+  class JpegWithinBudget {
+
+    private final BufferedImage image = createTestImage(600, 800);
+
+    @Test
+    void shouldKeepMaxQualityWhenItFits() {
+      final byte[] expected = ImageWriteUtils.writeJpeg(image, 0.9f);
+
+      final byte[] jpeg =
+          ImageWriteUtils.writeJpegWithinBudget(image, 0.9f, 0.5f, expected.length, 4);
+
+      assertThat(jpeg).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldFindQualityBetweenBoundsThatFits() {
+      final int atMax = ImageWriteUtils.writeJpeg(image, 0.9f).length;
+      final int atMin = ImageWriteUtils.writeJpeg(image, 0.5f).length;
+      final int budget = (atMax + atMin) / 2;
+
+      final byte[] jpeg = ImageWriteUtils.writeJpegWithinBudget(image, 0.9f, 0.5f, budget, 4);
+
+      assertThat(jpeg.length).isLessThanOrEqualTo(budget).isGreaterThan(atMin);
+    }
+
+    @Test
+    void shouldReturnMinQualityEncodingWhenNothingFits() {
+      final byte[] atMin = ImageWriteUtils.writeJpeg(image, 0.5f);
+
+      final byte[] jpeg = ImageWriteUtils.writeJpegWithinBudget(image, 0.9f, 0.5f, 1024, 4);
+
+      assertThat(jpeg).isEqualTo(atMin);
+    }
+
+    @Test
+    void shouldSettleForMinQualityWithSingleSearchStep() {
+      final int atMax = ImageWriteUtils.writeJpeg(image, 0.9f).length;
+      final byte[] atMin = ImageWriteUtils.writeJpeg(image, 0.5f);
+
+      final byte[] jpeg = ImageWriteUtils.writeJpegWithinBudget(image, 0.9f, 0.5f, atMax - 1, 1);
+
+      assertThat(jpeg).isEqualTo(atMin);
+    }
+  }
+
+  private static BufferedImage createTestImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, width, height);
+      graphics.setColor(Color.DARK_GRAY);
+      for (int y = 10; y < height; y += 20) {
+        graphics.drawString("Item " + y + "  12.99", 5, y);
+      }
+      graphics.setColor(Color.RED);
+      graphics.fillRect(width / 2 - 5, height / 2 - 5, 10, 10);
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  private static byte[] writeWithImageIo(final BufferedImage image, final String format)
+      throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ImageIO.write(image, format, outputStream);
+    return outputStream.toByteArray();
+  }
+}
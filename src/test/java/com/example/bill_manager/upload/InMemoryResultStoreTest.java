@@ -2,25 +2,49 @@ package com.example.bill_manager.upload;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.example.bill_manager.config.ResultStoreProperties;
 import com.example.bill_manager.dto.BillAnalysisResponse;
 import com.example.bill_manager.dto.BillAnalysisResult;
 import com.example.bill_manager.dto.LineItem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 class InMemoryResultStoreTest {
 
+  private static final Duration TTL = Duration.ofHours(1);
+
   private InMemoryResultStore store;
+  private MeterRegistry meterRegistry;
+  private AtomicLong nanoTime;
 
   @BeforeEach
   void setUp() {
-    store = new InMemoryResultStore();
+    meterRegistry = new SimpleMeterRegistry();
+    nanoTime = new AtomicLong();
+    store = createStore(100L, 0L);
+  }
+
+  private InMemoryResultStore createStore(final long maxEntries, final long maxWeightBytes) {
+    return new InMemoryResultStore(
+        new ResultStoreProperties(
+            ResultStoreProperties.StoreType.MEMORY,
+            maxEntries,
+            maxWeightBytes,
+            TTL,
+            new ResultStoreProperties.DiskConfig("unused", 65536, 0.5),
+            new ResultStoreProperties.JdbcConfig(Duration.ofSeconds(1), 50, 1000, true)),
+        meterRegistry,
+        nanoTime::get);
   }
 
   private BillAnalysisResponse createResponse(final UUID id) {
@@ -72,4 +96,75 @@ class InMemoryResultStoreTest {
       assertThat(result.get().originalFileName()).isEqualTo("updated.jpg");
     }
   }
+
+  @Nested
+  class Eviction {
+
+    @Test
+    void shouldReturnEmptyAfterTtlExpires() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id));
+
+      nanoTime.addAndGet(TTL.plusSeconds(1).toNanos());
+
+      assertThat(store.findById(id)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepEntryBeforeTtlExpires() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id));
+
+      nanoTime.addAndGet(TTL.minusSeconds(1).toNanos());
+
+      assertThat(store.findById(id)).isPresent();
+    }
+
+    @Test
+    void shouldNotExceedMaxEntries() {
+      final InMemoryResultStore bounded = createStore(3L, 0L);
+
+      for (int i = 0; i < 10; i++) {
+        final UUID id = UUID.randomUUID();
+        bounded.save(id, createResponse(id));
+      }
+
+      assertThat(bounded.size()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void shouldBoundByEstimatedWeightWhenConfigured() {
+      final UUID probe = UUID.randomUUID();
+      final int entryWeight = InMemoryResultStore.estimateWeight(createResponse(probe));
+      final InMemoryResultStore bounded = createStore(1000L, entryWeight * 2L);
+
+      for (int i = 0; i < 10; i++) {
+        final UUID id = UUID.randomUUID();
+        bounded.save(id, createResponse(id));
+      }
+
+      assertThat(bounded.size()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldExposeEvictionCount() {
+      // Meters are keyed by name and tags, so the store from setUp would shadow this one.
+      meterRegistry = new SimpleMeterRegistry();
+      final InMemoryResultStore bounded = createStore(1L, 0L);
+
+      for (int i = 0; i < 5; i++) {
+        final UUID id = UUID.randomUUID();
+        bounded.save(id, createResponse(id));
+      }
+      bounded.size();
+
+      final double evictions =
+          meterRegistry
+              .get("cache.evictions")
+              .tag("cache", InMemoryResultStore.CACHE_NAME)
+              .functionCounter()
+              .count();
+      assertThat(evictions).isGreaterThanOrEqualTo(4.0);
+    }
+  }
 }
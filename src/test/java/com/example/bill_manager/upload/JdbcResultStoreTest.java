@@ -0,0 +1,319 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.example.bill_manager.config.ResultStoreProperties;
+import com.example.bill_manager.dto.BillAnalysisResponse;
+import com.example.bill_manager.dto.BillAnalysisResult;
+import com.example.bill_manager.dto.LineItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class JdbcResultStoreTest {
+
+  private static final Duration TTL = Duration.ofHours(1);
+  private static final Instant NOW = Instant.parse("2026-01-15T10:00:00Z");
+  private static final int BATCH_SIZE = 3;
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+  private final List<JdbcResultStore> stores = new ArrayList<>();
+
+  private EmbeddedDatabase database;
+  private FlakyDataSource dataSource;
+  private JdbcTemplate jdbcTemplate;
+  private SimpleMeterRegistry meterRegistry;
+  private JdbcResultStore store;
+
+  @BeforeEach
+  void setUp() {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.H2)
+            .build();
+    dataSource = new FlakyDataSource(database);
+    jdbcTemplate = new JdbcTemplate(database);
+    meterRegistry = new SimpleMeterRegistry();
+    store = openStore(NOW, Duration.ofHours(1));
+  }
+
+  @AfterEach
+  void tearDown() {
+    stores.forEach(JdbcResultStore::shutdown);
+    database.shutdown();
+  }
+
+  private JdbcResultStore openStore(final Instant now, final Duration flushInterval) {
+    return openStore(now, flushInterval, 100);
+  }
+
+  private JdbcResultStore openStore(
+      final Instant now, final Duration flushInterval, final int maxPending) {
+    final ResultStoreProperties properties =
+        new ResultStoreProperties(
+            ResultStoreProperties.StoreType.JDBC,
+            1000L,
+            0L,
+            TTL,
+            new ResultStoreProperties.DiskConfig("unused", 65536, 0.5),
+            new ResultStoreProperties.JdbcConfig(flushInterval, BATCH_SIZE, maxPending, true));
+    final JdbcResultStore opened =
+        new JdbcResultStore(
+            properties,
+            new JdbcTemplate(dataSource),
+            new DataSourceTransactionManager(dataSource),
+            objectMapper,
+            meterRegistry,
+            Clock.fixed(now, ZoneOffset.UTC));
+    stores.add(opened);
+    return opened;
+  }
+
+  private BillAnalysisResponse createResponse(final UUID id, final String merchantName) {
+    final BillAnalysisResult analysis =
+        new BillAnalysisResult(
+            merchantName,
+            List.of(new LineItem("Item", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.TEN)),
+            BigDecimal.TEN,
+            "PLN",
+            null);
+    return new BillAnalysisResponse(id, "receipt.jpg", analysis, NOW);
+  }
+
+  private int rowCount() {
+    final Integer count =
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bill_results", Integer.class);
+    return count == null ? 0 : count;
+  }
+
+  @Nested
+  class WriteBehind {
+
+    @Test
+    void shouldServeUnflushedResultFromPendingBuffer() {
+      final UUID id = UUID.randomUUID();
+
+      store.save(id, createResponse(id, "Store"));
+
+      assertThat(rowCount()).isZero();
+      assertThat(store.findById(id)).contains(createResponse(id, "Store"));
+    }
+
+    @Test
+    void shouldPersistPendingResultsOnFlush() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "Store"));
+
+      final int written = store.flush();
+
+      assertThat(written).isEqualTo(1);
+      assertThat(store.pendingCount()).isZero();
+      assertThat(rowCount()).isEqualTo(1);
+      assertThat(store.findById(id)).contains(createResponse(id, "Store"));
+    }
+
+    @Test
+    void shouldFlushInBackgroundOnceBatchSizeIsReached() {
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        final UUID id = UUID.randomUUID();
+        store.save(id, createResponse(id, "Store " + i));
+      }
+
+      await().atMost(Duration.ofSeconds(5)).until(() -> rowCount() == BATCH_SIZE);
+      assertThat(store.pendingCount()).isZero();
+    }
+
+    @Test
+    void shouldFlushInBackgroundOnInterval() {
+      final JdbcResultStore periodic = openStore(NOW, Duration.ofMillis(50));
+      final UUID id = UUID.randomUUID();
+
+      periodic.save(id, createResponse(id, "Store"));
+
+      await().atMost(Duration.ofSeconds(5)).until(() -> rowCount() == 1);
+    }
+
+    @Test
+    void shouldKeepLatestVersionWhenSavedTwice() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "First"));
+      store.flush();
+      store.save(id, createResponse(id, "Second"));
+      store.flush();
+
+      assertThat(rowCount()).isEqualTo(1);
+      assertThat(openStore(NOW, Duration.ofHours(1)).findById(id))
+          .get()
+          .extracting(response -> response.analysis().merchantName())
+          .isEqualTo("Second");
+    }
+
+    @Test
+    void shouldFlushPendingResultsOnShutdown() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "Store"));
+
+      store.shutdown();
+
+      assertThat(rowCount()).isEqualTo(1);
+    }
+  }
+
+  @Nested
+  class Failures {
+
+    @Test
+    void shouldDropRowThatViolatesSchemaAndStoreTheRest() {
+      final UUID valid = UUID.randomUUID();
+      final UUID oversized = UUID.randomUUID();
+      store.save(valid, createResponse(valid, "Store"));
+      store.save(oversized, createResponse(oversized, "X".repeat(300)));
+
+      store.flush();
+
+      assertThat(store.pendingCount()).isZero();
+      assertThat(rowCount()).isEqualTo(1);
+      assertThat(store.findById(valid)).isPresent();
+      assertThat(store.findById(oversized)).isEmpty();
+    }
+
+    @Test
+    void shouldRoundTripResponseWithoutAnalysis() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, new BillAnalysisResponse(id, "pending.jpg", null, NOW));
+      store.flush();
+
+      assertThat(openStore(NOW, Duration.ofHours(1)).findById(id))
+          .get()
+          .satisfies(response -> assertThat(response.analysis()).isNull());
+    }
+  }
+
+  @Nested
+  class DatabaseUnavailable {
+
+    // Below the batch size, so only a full buffer or an explicit flush reaches the database.
+    private static final int MAX_PENDING = 2;
+
+    private JdbcResultStore bounded;
+    private List<UUID> ids;
+
+    @BeforeEach
+    void setUp() {
+      bounded = openStore(NOW, Duration.ofHours(1), MAX_PENDING);
+      ids = new ArrayList<>();
+      dataSource.connectionAttempts.set(0);
+      dataSource.down = true;
+      for (int i = 0; i < 5; i++) {
+        final UUID id = UUID.randomUUID();
+        ids.add(id);
+        bounded.save(id, createResponse(id, "Store " + i));
+      }
+    }
+
+    private double dropped() {
+      return meterRegistry.get(JdbcResultStore.DROPPED_METRIC).counter().count();
+    }
+
+    @Test
+    void shouldDropOldestResultsOnceBufferIsFull() {
+      assertThat(bounded.pendingCount()).isEqualTo(MAX_PENDING);
+      assertThat(dropped()).isEqualTo(3.0);
+      assertThat(bounded.findById(ids.get(3))).isPresent();
+      assertThat(bounded.findById(ids.get(4))).isPresent();
+    }
+
+    @Test
+    void shouldNotRetryDatabaseInlineAfterFailedFlush() {
+      assertThat(dataSource.connectionAttempts).hasValue(1);
+    }
+
+    @Test
+    void shouldFlushInlineAgainOnceDatabaseRecovers() {
+      dataSource.down = false;
+      assertThat(bounded.flush()).isEqualTo(MAX_PENDING);
+
+      final UUID first = UUID.randomUUID();
+      final UUID second = UUID.randomUUID();
+      bounded.save(first, createResponse(first, "Store"));
+      bounded.save(second, createResponse(second, "Store"));
+
+      assertThat(bounded.pendingCount()).isZero();
+      assertThat(rowCount()).isEqualTo(4);
+      assertThat(bounded.findById(ids.get(0))).isEmpty();
+      assertThat(dropped()).isEqualTo(3.0);
+    }
+  }
+
+  @Nested
+  class Expiry {
+
+    @Test
+    void shouldNotReturnResultsOlderThanTtl() {
+      final UUID id = UUID.randomUUID();
+      store.save(id, createResponse(id, "Store"));
+      store.flush();
+
+      final JdbcResultStore later = openStore(NOW.plus(TTL).plusSeconds(1), Duration.ofHours(1));
+
+      assertThat(later.findById(id)).isEmpty();
+    }
+
+    @Test
+    void shouldPurgeExpiredRowsOnFlush() {
+      final UUID old = UUID.randomUUID();
+      store.save(old, createResponse(old, "Store"));
+      store.flush();
+
+      final JdbcResultStore later = openStore(NOW.plus(TTL).plusSeconds(1), Duration.ofHours(1));
+      final UUID fresh = UUID.randomUUID();
+      later.save(fresh, createResponse(fresh, "Store"));
+      later.flush();
+
+      assertThat(rowCount()).isEqualTo(1);
+      assertThat(later.findById(fresh)).isPresent();
+    }
+  }
+
+  private static class FlakyDataSource extends DelegatingDataSource {
+
+    private final AtomicInteger connectionAttempts = new AtomicInteger();
+    private volatile boolean down;
+
+    FlakyDataSource(final EmbeddedDatabase database) {
+      super(database);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      connectionAttempts.incrementAndGet();
+      if (down) {
+        throw new SQLException("Connection refused");
+      }
+      return super.getConnection();
+    }
+  }
+}
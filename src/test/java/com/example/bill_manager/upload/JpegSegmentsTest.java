@@ -0,0 +1,83 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class JpegSegmentsTest {
+
+  private static final byte[] SOI = {(byte) 0xFF, (byte) 0xD8};
+  private static final byte[] APP0 = {(byte) 0xFF, (byte) 0xE0, 0x00, 0x04, 0x4A, 0x46};
+  private static final byte[] APP1 = {(byte) 0xFF, (byte) 0xE1, 0x00, 0x04, 0x45, 0x78};
+  private static final byte[] APP2 = {(byte) 0xFF, (byte) 0xE2, 0x00, 0x04, 0x49, 0x43};
+  private static final byte[] COM = {(byte) 0xFF, (byte) 0xFE, 0x00, 0x03, 0x21};
+  private static final byte[] DQT = {(byte) 0xFF, (byte) 0xDB, 0x00, 0x03, 0x00};
+  private static final byte[] SCAN = {
+    (byte) 0xFF,
+    (byte) 0xDA,
+    0x00,
+    0x02,
+    0x12,
+    (byte) 0xFF,
+    (byte) 0xE1,
+    0x34,
+    (byte) 0xFF,
+    (byte) 0xD9
+  };
+
+  @Nested
+  class StripMetadata {
+
+    @Test
+    void shouldDropExifAndCommentSegments() {
+      final byte[] jpeg = concat(SOI, APP0, APP1, COM, DQT, SCAN);
+
+      assertThat(JpegSegments.stripMetadata(jpeg)).isEqualTo(concat(SOI, APP0, DQT, SCAN));
+    }
+
+    @Test
+    void shouldKeepIccProfileSegment() {
+      final byte[] jpeg = concat(SOI, APP2, DQT, SCAN);
+
+      assertThat(JpegSegments.stripMetadata(jpeg)).isEqualTo(jpeg);
+    }
+
+    @Test
+    void shouldCopyScanDataVerbatim() {
+      final byte[] jpeg = concat(SOI, DQT, SCAN);
+
+      assertThat(JpegSegments.stripMetadata(jpeg)).endsWith(SCAN);
+    }
+  }
+
+  @Nested
+  class MalformedInput {
+
+    @Test
+    void shouldRejectMissingStartOfImage() {
+      assertThat(JpegSegments.stripMetadata(concat(APP0, SCAN))).isNull();
+    }
+
+    @Test
+    void shouldRejectSegmentOverrunningTheFile() {
+      final byte[] truncated = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, 0x10, 0x00};
+
+      assertThat(JpegSegments.stripMetadata(truncated)).isNull();
+    }
+
+    @Test
+    void shouldRejectFileWithoutScan() {
+      assertThat(JpegSegments.stripMetadata(concat(SOI, APP0, DQT))).isNull();
+    }
+  }
+
+  private static byte[] concat(final byte[]... parts) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (final byte[] part : parts) {
+      out.writeBytes(part);
+    }
+    return out.toByteArray();
+  }
+}
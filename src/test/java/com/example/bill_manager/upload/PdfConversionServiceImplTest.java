@@ -2,11 +2,20 @@ package com.example.bill_manager.upload;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 
 import com.example.bill_manager.config.UploadProperties;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+import javax.imageio.ImageIO;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -15,26 +24,36 @@ import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
 import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class PdfConversionServiceImplTest {
 
   private static final int TEST_DPI = 150;
   private static final int TEST_MAX_PAGES = 3;
 
+  private static final Function<BufferedImage, byte[]> PAGE_WIDTH =
+      page -> Integer.toString(page.getWidth()).getBytes(StandardCharsets.US_ASCII);
+
   private PdfConversionServiceImpl service;
 
   @BeforeEach
   void setUp() {
-    final UploadProperties properties =
-        new UploadProperties(
-            10485760L,
-            List.of("image/jpeg", "image/png", "application/pdf"),
-            TEST_DPI,
-            TEST_MAX_PAGES);
-    service = new PdfConversionServiceImpl(properties);
+    service = new PdfConversionServiceImpl(createProperties(1));
+  }
+
+  private static UploadProperties createProperties(final int renderThreads) {
+    return new UploadProperties(
+        10485760L,
+        List.of("image/jpeg", "image/png", "application/pdf"),
+        TEST_DPI,
+        TEST_MAX_PAGES,
+        renderThreads,
+        new UploadProperties.AsyncConfig(2, 10),
+        new UploadProperties.BatchConfig(50, 2, 10, 2, 600));
   }
 
   @Nested
@@ -80,6 +99,174 @@ class PdfConversionServiceImplTest {
     }
   }
 
+  @Nested
+  class ParallelRendering {
+
+    private PdfConversionServiceImpl parallelService;
+
+    @BeforeEach
+    void setUp() {
+      parallelService = new PdfConversionServiceImpl(createProperties(TEST_MAX_PAGES));
+    }
+
+    @AfterEach
+    void tearDown() {
+      parallelService.shutdown();
+    }
+
+    @Test
+    void shouldPreservePageOrderWhenRenderingInParallel() throws IOException {
+      final PDRectangle[] pageSizes = {PDRectangle.A4, PDRectangle.A6, PDRectangle.LETTER};
+      final byte[] pdf = createPdf(pageSizes);
+
+      final List<byte[]> images = parallelService.convertToImages(pdf);
+
+      assertThat(images).hasSize(pageSizes.length);
+      for (int i = 0; i < pageSizes.length; i++) {
+        final BufferedImage page = ImageIO.read(new ByteArrayInputStream(images.get(i)));
+        final int expectedWidth = Math.round(pageSizes[i].getWidth() / 72f * TEST_DPI);
+        assertThat(page.getWidth()).isCloseTo(expectedWidth, within(1));
+      }
+    }
+
+    @Test
+    void shouldProduceSameOutputAsSequentialRendering() throws IOException {
+      final byte[] pdf = createPdf(TEST_MAX_PAGES);
+
+      final List<byte[]> sequential = service.convertToImages(pdf);
+      final List<byte[]> parallel = parallelService.convertToImages(pdf);
+
+      assertThat(parallel).hasSameSizeAs(sequential);
+      for (int i = 0; i < sequential.size(); i++) {
+        assertThat(parallel.get(i)).isEqualTo(sequential.get(i));
+      }
+    }
+
+    @Test
+    void shouldRenderSinglePagePdfWithParallelismEnabled() throws IOException {
+      final List<byte[]> images = parallelService.convertToImages(createPdf(1));
+
+      assertThat(images).hasSize(1);
+      assertJpegMagicBytes(images.get(0));
+    }
+
+    @Test
+    void shouldStillRejectTooManyPagesBeforeRendering() throws IOException {
+      final byte[] pdf = createPdf(TEST_MAX_PAGES + 1);
+
+      assertThatThrownBy(() -> parallelService.convertToImages(pdf))
+          .isInstanceOf(PdfConversionException.class)
+          .extracting(e -> ((PdfConversionException) e).getErrorCode())
+          .isEqualTo(PdfConversionException.ErrorCode.PDF_TOO_MANY_PAGES);
+    }
+  }
+
+  @Nested
+  class FusedPipeline {
+
+    private static final int TARGET_WIDTH = 1200;
+
+    @Test
+    void shouldRenderWidePagesDirectlyAtTargetWidth() throws IOException {
+      final byte[] pdf = createPdf(new PDRectangle[] {PDRectangle.A4});
+
+      final List<byte[]> widths = service.convertToImages(pdf, TARGET_WIDTH, PAGE_WIDTH);
+
+      assertThat(widthOf(widths.get(0))).isEqualTo(TARGET_WIDTH);
+    }
+
+    @Test
+    void shouldNotExceedConfiguredDpiForNarrowPages() throws IOException {
+      final byte[] pdf = createPdf(new PDRectangle[] {PDRectangle.A6});
+
+      final List<byte[]> widths = service.convertToImages(pdf, TARGET_WIDTH, PAGE_WIDTH);
+
+      final int widthAtConfiguredDpi = Math.round(PDRectangle.A6.getWidth() / 72f * TEST_DPI);
+      assertThat(widthOf(widths.get(0))).isCloseTo(widthAtConfiguredDpi, within(1));
+    }
+
+    @Test
+    void shouldApplyProcessorToEveryPageInOrder() throws IOException {
+      final PDRectangle[] pageSizes = {PDRectangle.A4, PDRectangle.A6, PDRectangle.LETTER};
+      final byte[] pdf = createPdf(pageSizes);
+      final PdfConversionServiceImpl parallelService =
+          new PdfConversionServiceImpl(createProperties(TEST_MAX_PAGES));
+
+      try {
+        final List<byte[]> widths = parallelService.convertToImages(pdf, TARGET_WIDTH, PAGE_WIDTH);
+
+        assertThat(widths).hasSize(pageSizes.length);
+        assertThat(widthOf(widths.get(0))).isEqualTo(TARGET_WIDTH);
+        assertThat(widthOf(widths.get(1))).isLessThan(TARGET_WIDTH);
+        assertThat(widthOf(widths.get(2))).isEqualTo(TARGET_WIDTH);
+      } finally {
+        parallelService.shutdown();
+      }
+    }
+
+    @Test
+    void shouldWrapProcessorFailureAsConversionFailed() throws IOException {
+      final byte[] pdf = createPdf(1);
+
+      assertThatThrownBy(
+              () ->
+                  service.convertToImages(
+                      pdf,
+                      TARGET_WIDTH,
+                      page -> {
+                        throw new ImagePreprocessingException(
+                            ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED, "boom");
+                      }))
+          .isInstanceOf(PdfConversionException.class)
+          .extracting(e -> ((PdfConversionException) e).getErrorCode())
+          .isEqualTo(PdfConversionException.ErrorCode.CONVERSION_FAILED);
+    }
+  }
+
+  @Nested
+  class FileSource {
+
+    private static final int TARGET_WIDTH = 1200;
+
+    @TempDir private Path tempDir;
+
+    @Test
+    void shouldRenderSameImagesFromFileAsFromBytes() throws IOException {
+      final byte[] pdf = createPdf(new PDRectangle[] {PDRectangle.A4, PDRectangle.A6});
+      final Path pdfFile = Files.write(tempDir.resolve("bill.pdf"), pdf);
+
+      final List<byte[]> fromFile = service.convertToImages(pdfFile, TARGET_WIDTH, PAGE_WIDTH);
+      final List<byte[]> fromBytes = service.convertToImages(pdf, TARGET_WIDTH, PAGE_WIDTH);
+
+      assertThat(fromFile).hasSize(2);
+      assertThat(fromFile.get(0)).isEqualTo(fromBytes.get(0));
+      assertThat(fromFile.get(1)).isEqualTo(fromBytes.get(1));
+    }
+
+    @Test
+    void shouldRenderFromFileWithParallelWorkers() throws IOException {
+      final Path pdfFile = Files.write(tempDir.resolve("bill.pdf"), createPdf(3));
+      final PdfConversionServiceImpl parallelService =
+          new PdfConversionServiceImpl(createProperties(TEST_MAX_PAGES));
+
+      try {
+        assertThat(parallelService.convertToImages(pdfFile, TARGET_WIDTH, PAGE_WIDTH)).hasSize(3);
+      } finally {
+        parallelService.shutdown();
+      }
+    }
+
+    @Test
+    void shouldThrowPdfReadFailedForMissingFile() {
+      final Path missing = tempDir.resolve("missing.pdf");
+
+      assertThatThrownBy(() -> service.convertToImages(missing, TARGET_WIDTH, PAGE_WIDTH))
+          .isInstanceOf(PdfConversionException.class)
+          .extracting(e -> ((PdfConversionException) e).getErrorCode())
+          .isEqualTo(PdfConversionException.ErrorCode.PDF_READ_FAILED);
+    }
+  }
+
   @Nested
   class ErrorHandling {
 
@@ -145,10 +332,20 @@ class PdfConversionServiceImplTest {
     }
   }
 
+  private static int widthOf(final byte[] processed) {
+    return Integer.parseInt(new String(processed, StandardCharsets.US_ASCII));
+  }
+
   private static byte[] createPdf(final int pageCount) throws IOException {
+    final PDRectangle[] pageSizes = new PDRectangle[pageCount];
+    Arrays.fill(pageSizes, PDRectangle.A4);
+    return createPdf(pageSizes);
+  }
+
+  private static byte[] createPdf(final PDRectangle[] pageSizes) throws IOException {
     try (PDDocument document = new PDDocument()) {
-      for (int i = 0; i < pageCount; i++) {
-        final PDPage page = new PDPage(PDRectangle.A4);
+      for (int i = 0; i < pageSizes.length; i++) {
+        final PDPage page = new PDPage(pageSizes[i]);
         document.addPage(page);
         try (PDPageContentStream content = new PDPageContentStream(document, page)) {
           content.beginText();
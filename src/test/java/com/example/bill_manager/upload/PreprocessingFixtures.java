@@ -0,0 +1,34 @@
+package com.example.bill_manager.upload;
+
+import com.example.bill_manager.config.PreprocessingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Preprocessing settings as shipped in {@code application.properties}, with tiling off, for the
+ * tests and benchmarks that construct {@link ImagePreprocessingServiceImpl} directly.
+ */
+final class PreprocessingFixtures {
+
+  static final PreprocessingProperties.Tiling NO_TILING =
+      new PreprocessingProperties.Tiling(false, 1600, 120, 1);
+
+  private PreprocessingFixtures() {}
+
+  static PreprocessingProperties defaultProperties() {
+    return new PreprocessingProperties(
+        PreprocessingProperties.ResizeMode.JAVA2D,
+        1,
+        true,
+        true,
+        PreprocessingProperties.ColorMode.COLOR,
+        false,
+        false,
+        false,
+        new PreprocessingProperties.JpegBudget(true, 2 * 1024 * 1024, 4 * 1024 * 1024, 0.5f, 4),
+        NO_TILING);
+  }
+
+  static ImagePreprocessingServiceImpl defaultService() {
+    return new ImagePreprocessingServiceImpl(defaultProperties(), new SimpleMeterRegistry());
+  }
+}
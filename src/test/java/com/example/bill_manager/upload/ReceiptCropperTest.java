@@ -0,0 +1,135 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ReceiptCropperTest {
+
+  @Nested
+  class Bounds {
+
+    @Test
+    void shouldLocateReceiptOnDarkBackground() {
+      final BufferedImage photo = canvas(800, 600, new Color(60, 50, 40));
+      fill(photo, new Color(240, 240, 235), 300, 100, 200, 400);
+      textLines(photo, 320, 130, 160, 460);
+
+      final Rectangle bounds = ReceiptCropper.analyze(photo, true, false).bounds();
+
+      assertThat(bounds).isNotNull();
+      assertThat(new Rectangle(300, 100, 200, 400).contains(bounds)).isTrue();
+      assertThat(bounds.contains(new Rectangle(320, 130, 160, 320))).isTrue();
+    }
+
+    @Test
+    void shouldTrimWhiteMarginsOfPage() {
+      final BufferedImage page = canvas(1200, 1600, Color.WHITE);
+      textLines(page, 200, 300, 800, 700);
+
+      final Rectangle bounds = ReceiptCropper.analyze(page, true, false).bounds();
+
+      assertThat(bounds).isNotNull();
+      assertThat(bounds.x).isBetween(150, 200);
+      assertThat(bounds.y).isBetween(250, 300);
+      assertThat(bounds.x + bounds.width).isBetween(1000, 1050);
+    }
+
+    @Test
+    void shouldNotCropUniformImage() {
+      final BufferedImage blank = canvas(600, 400, new Color(200, 200, 200));
+
+      final ReceiptCropper.Analysis analysis = ReceiptCropper.analyze(blank, true, true);
+
+      assertThat(analysis.bounds()).isNull();
+      assertThat(analysis.skewDegrees()).isZero();
+    }
+
+    @Test
+    void shouldNotCropWhenContentFillsTheImage() {
+      final BufferedImage page = canvas(600, 400, Color.WHITE);
+      textLines(page, 5, 5, 590, 395);
+
+      assertThat(ReceiptCropper.analyze(page, true, false).bounds()).isNull();
+    }
+  }
+
+  @Nested
+  class Skew {
+
+    @Test
+    void shouldMeasureRotationOfTextLines() {
+      final BufferedImage page = canvas(1000, 1000, Color.WHITE);
+      final Graphics2D graphics = page.createGraphics();
+      try {
+        graphics.setColor(Color.BLACK);
+        graphics.rotate(Math.toRadians(3), 500, 500);
+        for (int y = 200; y < 800; y += 40) {
+          graphics.fillRect(200, y, 600, 10);
+        }
+      } finally {
+        graphics.dispose();
+      }
+
+      final double skew = ReceiptCropper.analyze(page, false, true).skewDegrees();
+
+      assertThat(skew).isCloseTo(3.0, within(0.5));
+    }
+
+    @Test
+    void shouldReportNoSkewForStraightText() {
+      final BufferedImage page = canvas(800, 800, Color.WHITE);
+      textLines(page, 100, 100, 600, 600);
+
+      assertThat(ReceiptCropper.analyze(page, false, true).skewDegrees()).isZero();
+    }
+
+    @Test
+    void shouldRotateWithWhiteCorners() {
+      final BufferedImage image = canvas(200, 100, Color.BLACK);
+
+      final BufferedImage rotated = ReceiptCropper.deskew(image, 4.0);
+
+      assertThat(rotated.getWidth()).isEqualTo(200);
+      assertThat(rotated.getHeight()).isEqualTo(100);
+      assertThat(rotated.getRGB(0, 0) & 0xFFFFFF).isEqualTo(0xFFFFFF);
+      assertThat(rotated.getRGB(100, 50) & 0xFFFFFF).isZero();
+    }
+  }
+
+  private static BufferedImage canvas(final int width, final int height, final Color color) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    fill(image, color, 0, 0, width, height);
+    return image;
+  }
+
+  private static void fill(
+      final BufferedImage image,
+      final Color color,
+      final int x,
+      final int y,
+      final int width,
+      final int height) {
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(color);
+      graphics.fillRect(x, y, width, height);
+    } finally {
+      graphics.dispose();
+    }
+  }
+
+  /** Solid bars standing in for printed lines, filling the given area. */
+  private static void textLines(
+      final BufferedImage image, final int x, final int y, final int width, final int height) {
+    for (int line = y; line + 8 <= y + height; line += 24) {
+      fill(image, Color.BLACK, x, line, width, 8);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ReceiptImageFilterTest {
+
+  @Nested
+  class ToGrayscale {
+
+    @Test
+    void shouldComputeLumaPerPixel() {
+      final BufferedImage image = new BufferedImage(3, 1, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, 0xFFFFFF);
+      image.setRGB(1, 0, 0x000000);
+      image.setRGB(2, 0, 0xFF0000);
+
+      final BufferedImage gray = ReceiptImageFilter.toGrayscale(image);
+
+      assertThat(gray.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+      assertThat(sample(gray, 0, 0)).isEqualTo(255);
+      assertThat(sample(gray, 1, 0)).isZero();
+      assertThat(sample(gray, 2, 0)).isBetween(75, 78);
+    }
+
+    @Test
+    void shouldCompositeTransparencyOntoWhite() {
+      final BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+      image.setRGB(0, 0, 0x00000000);
+      image.setRGB(1, 0, 0x80000000);
+
+      final BufferedImage gray = ReceiptImageFilter.toGrayscale(image);
+
+      assertThat(sample(gray, 0, 0)).isEqualTo(255);
+      assertThat(sample(gray, 1, 0)).isBetween(126, 128);
+    }
+
+    @Test
+    void shouldReadNonIntRasters() {
+      final BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+      image.setRGB(1, 1, 0x808080);
+
+      final BufferedImage gray = ReceiptImageFilter.toGrayscale(image);
+
+      assertThat(sample(gray, 0, 0)).isZero();
+      assertThat(sample(gray, 1, 1)).isEqualTo(128);
+    }
+  }
+
+  @Nested
+  class StretchContrast {
+
+    @Test
+    void shouldMapPercentileRangeToFullScale() {
+      final BufferedImage gray = grayImage(100, 100, 200);
+      fillRect(gray, 0, 0, 100, 20, 60);
+
+      ReceiptImageFilter.stretchContrast(gray);
+
+      assertThat(sample(gray, 50, 10)).isZero();
+      assertThat(sample(gray, 50, 60)).isEqualTo(255);
+    }
+
+    @Test
+    void shouldLeaveFlatImageUnchanged() {
+      final BufferedImage gray = grayImage(50, 50, 120);
+      fillRect(gray, 0, 0, 50, 10, 130);
+
+      ReceiptImageFilter.stretchContrast(gray);
+
+      assertThat(sample(gray, 5, 5)).isEqualTo(130);
+      assertThat(sample(gray, 5, 40)).isEqualTo(120);
+    }
+  }
+
+  @Nested
+  class Binarize {
+
+    @Test
+    void shouldKeepTextBlackAndPaperWhiteUnderUnevenLighting() {
+      final BufferedImage receipt = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+      final Graphics2D graphics = receipt.createGraphics();
+      try {
+        // Left half in shadow: darker paper than the right half's text would be after a
+        // single global threshold.
+        graphics.setColor(new Color(110, 110, 110));
+        graphics.fillRect(0, 0, 200, 200);
+        graphics.setColor(new Color(240, 240, 240));
+        graphics.fillRect(200, 0, 200, 200);
+        graphics.setColor(new Color(40, 40, 40));
+        graphics.fillRect(50, 90, 40, 6);
+        graphics.setColor(new Color(120, 120, 120));
+        graphics.fillRect(300, 90, 40, 6);
+      } finally {
+        graphics.dispose();
+      }
+      final BufferedImage gray = ReceiptImageFilter.toGrayscale(receipt);
+
+      ReceiptImageFilter.binarize(gray);
+
+      assertThat(sample(gray, 20, 20)).isEqualTo(255);
+      assertThat(sample(gray, 70, 92)).isZero();
+      assertThat(sample(gray, 250, 20)).isEqualTo(255);
+      assertThat(sample(gray, 320, 92)).isZero();
+    }
+
+    @Test
+    void shouldProduceOnlyBlackAndWhite() {
+      final BufferedImage gray = grayImage(64, 64, 180);
+      fillRect(gray, 10, 10, 20, 3, 90);
+
+      ReceiptImageFilter.binarize(gray);
+
+      for (int y = 0; y < 64; y++) {
+        for (int x = 0; x < 64; x++) {
+          assertThat(sample(gray, x, y)).isIn(0, 255);
+        }
+      }
+    }
+  }
+
+  private static BufferedImage grayImage(final int width, final int height, final int value) {
+    final BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    fillRect(gray, 0, 0, width, height, value);
+    return gray;
+  }
+
+  private static void fillRect(
+      final BufferedImage gray,
+      final int x,
+      final int y,
+      final int width,
+      final int height,
+      final int value) {
+    for (int row = y; row < y + height; row++) {
+      for (int column = x; column < x + width; column++) {
+        gray.getRaster().setSample(column, row, 0, value);
+      }
+    }
+  }
+
+  private static int sample(final BufferedImage gray, final int x, final int y) {
+    return gray.getRaster().getSample(x, y, 0);
+  }
+}
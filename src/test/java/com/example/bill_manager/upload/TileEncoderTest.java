@@ -0,0 +1,78 @@
+package com.example.bill_manager.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.bill_manager.config.PreprocessingProperties;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TileEncoderTest {
+
+  private TileEncoder encoder;
+
+  @AfterEach
+  void tearDown() {
+    encoder.shutdown();
+  }
+
+  /** Encodes a tile as its height, top-left pixel and budget, so order and offsets show. */
+  private static byte[] describe(final BufferedImage tile, final int maxBytes) {
+    return new byte[] {(byte) (tile.getHeight() / 100), (byte) tile.getRGB(0, 0), (byte) maxBytes};
+  }
+
+  private static BufferedImage stripedImage(final int width, final int height) {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      image.setRGB(0, y, y / 100);
+    }
+    return image;
+  }
+
+  @Test
+  void shouldEncodeImageWithinOneTileWhole() {
+    encoder = new TileEncoder(new PreprocessingProperties.Tiling(true, 1600, 100, 2));
+
+    final List<byte[]> encoded =
+        encoder.encode(stripedImage(10, 1600), count -> 100 / count, TileEncoderTest::describe);
+
+    assertThat(encoded).containsExactly(new byte[] {16, 0, 100});
+  }
+
+  @Test
+  void shouldKeepTileOrderWhenEncodingInParallel() {
+    encoder = new TileEncoder(new PreprocessingProperties.Tiling(true, 1600, 100, 3));
+
+    final List<byte[]> encoded =
+        encoder.encode(stripedImage(10, 3000), count -> 100 / count, TileEncoderTest::describe);
+
+    assertThat(encoded).containsExactly(new byte[] {15, 0, 50}, new byte[] {15, 14, 50});
+  }
+
+  @Test
+  void shouldRethrowFailureOfTileEncodedOnPool() {
+    encoder = new TileEncoder(new PreprocessingProperties.Tiling(true, 1600, 100, 5));
+
+    assertThatThrownBy(
+            () ->
+                encoder.encode(
+                    stripedImage(10, 8000),
+                    count -> 100,
+                    (tile, maxBytes) -> {
+                      throw new ImagePreprocessingException(
+                          ImagePreprocessingException.ErrorCode.PREPROCESSING_FAILED, "boom");
+                    }))
+        .isInstanceOf(ImagePreprocessingException.class)
+        .hasMessage("boom");
+  }
+
+  @Test
+  void shouldTellWhetherHeightFitsInOneTile() {
+    encoder = new TileEncoder(new PreprocessingProperties.Tiling(true, 1600, 100, 1));
+
+    assertThat(encoder.fitsInOneTile(1600)).isTrue();
+    assertThat(encoder.fitsInOneTile(1601)).isFalse();
+  }
+}